@@ -5,7 +5,11 @@ use prod;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+LEASE_OWNER varchar(36),
+LEASE_EXPIRY DATETIME,
+VERSION int NOT NULL DEFAULT 1,
+RETIRED bool NOT NULL DEFAULT false
 );
 
 create table ticket(
@@ -15,9 +19,50 @@ create table ticket(
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
+ VERSION int NOT NULL DEFAULT 1,
+ PAID_AMOUNT double,
+ PAID_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
 
+create table ticket_rollup(
+ GRANULARITY varchar(5) NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ BUCKET_START DATETIME NOT NULL,
+ TICKETS int NOT NULL,
+ REVENUE decimal(14,2) NOT NULL,
+ DWELL_SECONDS bigint NOT NULL,
+ OCCUPIED_SECONDS bigint NOT NULL,
+ PEAK_OCCUPANCY int NOT NULL,
+ PRIMARY KEY (GRANULARITY, BUCKET_START, TYPE));
+
+create table ticket_sketch(
+ SKETCH_DAY DATE NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ METRIC varchar(10) NOT NULL,
+ NODE varchar(36) NOT NULL,
+ SKETCH blob NOT NULL,
+ PRIMARY KEY (TYPE, METRIC, SKETCH_DAY, NODE));
+
+create table gate_command(
+ REQUEST_ID varchar(64) PRIMARY KEY,
+ ACTION varchar(5) NOT NULL,
+ TICKET_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE decimal(10,2),
+ PAID_AMOUNT decimal(10,2),
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME,
+ CREATED DATETIME NOT NULL);
+
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
+create index IDX_PARKING_LEASE_OWNER on parking(LEASE_OWNER, TYPE, AVAILABLE);
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create index IDX_GATE_COMMAND_CREATED on gate_command(CREATED);
+
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
@@ -32,7 +77,11 @@ use test;
 create table parking(
 PARKING_NUMBER int PRIMARY KEY,
 AVAILABLE bool NOT NULL,
-TYPE varchar(10) NOT NULL
+TYPE varchar(10) NOT NULL,
+LEASE_OWNER varchar(36),
+LEASE_EXPIRY DATETIME,
+VERSION int NOT NULL DEFAULT 1,
+RETIRED bool NOT NULL DEFAULT false
 );
 
 create table ticket(
@@ -42,9 +91,50 @@ create table ticket(
  PRICE double,
  IN_TIME DATETIME NOT NULL,
  OUT_TIME DATETIME,
+ VERSION int NOT NULL DEFAULT 1,
+ PAID_AMOUNT double,
+ PAID_TIME DATETIME,
  FOREIGN KEY (PARKING_NUMBER)
  REFERENCES parking(PARKING_NUMBER));
 
+create table ticket_rollup(
+ GRANULARITY varchar(5) NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ BUCKET_START DATETIME NOT NULL,
+ TICKETS int NOT NULL,
+ REVENUE decimal(14,2) NOT NULL,
+ DWELL_SECONDS bigint NOT NULL,
+ OCCUPIED_SECONDS bigint NOT NULL,
+ PEAK_OCCUPANCY int NOT NULL,
+ PRIMARY KEY (GRANULARITY, BUCKET_START, TYPE));
+
+create table ticket_sketch(
+ SKETCH_DAY DATE NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ METRIC varchar(10) NOT NULL,
+ NODE varchar(36) NOT NULL,
+ SKETCH blob NOT NULL,
+ PRIMARY KEY (TYPE, METRIC, SKETCH_DAY, NODE));
+
+create table gate_command(
+ REQUEST_ID varchar(64) PRIMARY KEY,
+ ACTION varchar(5) NOT NULL,
+ TICKET_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ TYPE varchar(10) NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE decimal(10,2),
+ PAID_AMOUNT decimal(10,2),
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME,
+ CREATED DATETIME NOT NULL);
+
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
+create index IDX_PARKING_LEASE_OWNER on parking(LEASE_OWNER, TYPE, AVAILABLE);
+create index IDX_TICKET_VEHICLE_REG_NUMBER on ticket(VEHICLE_REG_NUMBER, IN_TIME);
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
+create index IDX_GATE_COMMAND_CREATED on gate_command(CREATED);
+
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(1,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(2,true,'CAR');
 insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(3,true,'CAR');
@@ -1,9 +1,30 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.archive.ColdStorage;
+import com.parkit.parkingsystem.config.AllocationConfig;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.export.TicketExporter;
+import com.parkit.parkingsystem.gate.GateEventServer;
+import com.parkit.parkingsystem.gate.SimulatedCameraClient;
+import com.parkit.parkingsystem.matching.PlateMatchIndex;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
 /**<b>Main application for Park'it system</b>
  *<p>
  * A command line app for managing the parking system.
@@ -16,6 +37,17 @@ import org.apache.logging.log4j.Logger;
  * 	<li>When the user chooses to park a vehicle, they are asked which kind of vehicle (car or bike), its registration number then the user is prompt in which parking lot to park</li>
  * 	<li>When exiting the parking, the user inputs the registration number. The application calculates and displays the fare according to the parking duration</li>
  *</ul>
+ * <p>
+ * Started with <code>gate-server [port] [lanes]</code> as arguments, the application does not open the shell but listens to the gate cameras instead.
+ * Started with <code>backfill-rollups &lt;first day&gt; [last day]</code>, it rolls up the tickets of these days for the reports, then exits.
+ * Started with <code>export-tickets &lt;first day&gt; &lt;last day&gt; &lt;file&gt; [csv|ndjson] [lots]</code>, it writes the tickets closed during
+ * these days to a file, gzipped if its name ends with <code>.gz</code>, then exits.
+ * Started with <code>archive-tickets &lt;first day kept&gt;</code>, it moves the tickets closed before this day to the archive, then exits.
+ * Started with <code>close-lot [ALL|CAR|BIKE|TRUCK] [port]</code>, it asks the gate server running on this host to close the tickets of
+ * every vehicle of the type still parked, then exits.
+ * Started with <code>spots &lt;add|retype&gt; &lt;first&gt;-&lt;last&gt; &lt;CAR|BIKE|TRUCK&gt; [port]</code> or <code>spots retire &lt;first&gt;-&lt;last&gt; [port]</code>,
+ * it asks the gate server running on this host to change these spots of the lot, then exits.
+ * </p>
  * @author Ernholla MARINASY
  *
  * @see com.parkit.parkingsystem.service.ParkingService
@@ -31,6 +63,147 @@ public class App {
      */
     public static void main(String[] args) throws Exception {
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        if (args.length > 0 && "gate-server".equals(args[0])) {
+            startGateServer(args);
+        } else if (args.length > 1 && "backfill-rollups".equals(args[0])) {
+            backfillRollups(args);
+        } else if (args.length > 3 && "export-tickets".equals(args[0])) {
+            exportTickets(args);
+        } else if (args.length > 1 && "archive-tickets".equals(args[0])) {
+            archiveTickets(args);
+        } else if (args.length > 0 && "close-lot".equals(args[0])) {
+            closeLot(args);
+        } else if (args.length > 2 && "spots".equals(args[0])) {
+            changeSpots(args);
+        } else {
+            InteractiveShell.loadInterface();
+        }
+    }
+
+    private static void startGateServer(String[] args) throws Exception {
+        int             port            = (args.length > 1) ? Integer.parseInt(args[1]) : 9090;
+        int             lanes           = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        StorageConfig   storageConfig   = StorageConfig.load();
+        ParkingService  parkingService  = new ParkingService(new InputReaderUtil(), storageConfig.getParkingSpotDAO(), storageConfig.getTicketDAO());
+        SpotAllocator   spotAllocator   = AllocationConfig.load();
+        if (spotAllocator != null) {
+            // Spots taken before this start, or by other nodes, are not proposed
+            spotAllocator.seed(storageConfig.getParkingSpotDAO());
+        }
+        parkingService.setSpotAllocator(spotAllocator);
+        parkingService.setLotId(storageConfig.getLotId());
+        parkingService.setLeasedSpotPool(storageConfig.getLeasedSpotPool());
+        parkingService.setPlateHistory(storageConfig.getPlateHistory());
+        parkingService.addParkingListener(storageConfig.getTicketSketches());
+        parkingService.addParkingListener(storageConfig.getSessionTimers());
+        parkingService.addParkingListener(storageConfig.getOccupancyCounters(spotAllocator));
+        parkingService.setFareQuotes(storageConfig.getFareQuotes());
+        parkingService.setReservationBook(storageConfig.getReservationBook());
+        PlateMatchIndex plateMatchIndex = new PlateMatchIndex(PlateMatchIndex.DEFAULT_MAX_DISTANCE);
+        plateMatchIndex.addAll(storageConfig.getTicketDAO().getOpenTickets());
+        parkingService.setPlateMatchIndex(plateMatchIndex);
+        parkingService.setCorrectMisreads(storageConfig.isCorrectMisreads());
+        parkingService.setCommandDeduplicator(storageConfig.getCommandDeduplicator());
+        parkingService.setDataAccessGuard(storageConfig.getDataAccessGuard());
+        parkingService.setAsyncExecutor(storageConfig.getAsyncExecutor());
+        GateEventServer server          = new GateEventServer(parkingService, new InetSocketAddress(port), lanes);
+        SpotInventory   spotInventory   = storageConfig.getSpotInventory();
+        spotInventory.setSpotAllocator(spotAllocator);
+        spotInventory.setLeasedSpotPool(storageConfig.getLeasedSpotPool());
+        server.setSpotInventory(spotInventory);
+        server.setClosureChunkSize(storageConfig.getClosureChunkSize());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            storageConfig.close();
+        }));
+        server.start();
+    }
+
+    private static void backfillRollups(String[] args) throws Exception {
+        LocalDate     from          = LocalDate.parse(args[1]);
+        LocalDate     to            = (args.length > 2) ? LocalDate.parse(args[2]) : from;
+        StorageConfig storageConfig = StorageConfig.load();
+        RollupDAO     rollupDAO     = storageConfig.getRollupDAO();
+        if (rollupDAO == null) {
+            logger.error("Rollups are only kept by the MySQL database");
+        } else {
+            rollupDAO.backfill(from, to);
+        }
+        storageConfig.close();
+    }
+
+    private static void exportTickets(String[] args) throws Exception {
+        Path           target         = Paths.get(args[3]);
+        ExportFormat   format         = (args.length > 4) ? ExportFormat.valueOf(args[4].trim().toUpperCase()) : ExportFormat.CSV;
+        List<String>   lotIds         = (args.length > 5) ? Arrays.asList(args[5].split(",")) : null;
+        StorageConfig  storageConfig  = StorageConfig.load();
+        TicketExporter ticketExporter = storageConfig.getTicketExporter();
+        try {
+            if (ticketExporter == null) {
+                logger.error("Tickets are only exported from the MySQL database");
+            } else {
+                ticketExporter.export(LocalDate.parse(args[1]), LocalDate.parse(args[2]), lotIds, format, target.toString().endsWith(".gz"), target);
+            }
+        } finally {
+            storageConfig.close();
+        }
+    }
+
+    private static void closeLot(String[] args) throws Exception {
+        String parkingType = (args.length > 1) ? args[1].trim().toUpperCase() : "ALL";
+        int    port        = (args.length > 2) ? Integer.parseInt(args[2]) : 9090;
+        // The gate server closes the tickets itself, so that its allocator, timers and indexes see the vehicles leave
+        try (SimulatedCameraClient client = new SimulatedCameraClient("localhost", port)) {
+            logger.info("{}", client.send("CLOSE 0 " + parkingType));
+        }
+    }
+
+    private static void changeSpots(String[] args) throws Exception {
+        if (!Arrays.asList("add", "retire", "retype").contains(args[1])) {
+            throw new IllegalArgumentException("Unknown spot change " + args[1] + ", expected add, retire or retype");
+        }
+        String[] range    = args[2].split("-");
+        int      first    = Integer.parseInt(range[0].trim());
+        int      last     = Integer.parseInt(range[range.length - 1].trim());
+        // Only added and retyped spots take a type, which then comes before the port
+        boolean  typed    = !"retire".equals(args[1]);
+        int      portArg  = typed ? 4 : 3;
+        int      port     = (args.length > portArg) ? Integer.parseInt(args[portArg]) : 9090;
+        if (typed && args.length < 4) {
+            throw new IllegalArgumentException("Missing spot type, expected spots " + args[1] + " <first>-<last> <CAR|BIKE|TRUCK> [port]");
+        }
+        String   type     = typed ? ParkingType.valueOf(args[3].trim().toUpperCase()).name() : null;
+        String   command;
+        switch (args[1]) {
+            case "add":
+                command = "ADD 0 " + type + " " + first + " " + last;
+                break;
+            case "retire":
+                command = "RETIRE 0 " + first + " " + last;
+                break;
+            case "retype":
+                command = "RETYPE 0 " + type + " " + first + " " + last;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown spot change " + args[1] + ", expected add, retire or retype");
+        }
+        // The gate server changes the spots itself, so that its allocator and leased spots only see the spots which changed
+        try (SimulatedCameraClient client = new SimulatedCameraClient("localhost", port)) {
+            logger.info("{}", client.send(command));
+        }
+    }
+
+    private static void archiveTickets(String[] args) throws Exception {
+        StorageConfig storageConfig = StorageConfig.load();
+        try {
+            ColdStorage coldStorage = storageConfig.getColdStorage();
+            if (coldStorage == null) {
+                logger.error("Tickets are only archived from the MySQL database, to the directory set by {}", StorageConfig.ARCHIVE_DIRECTORY);
+            } else {
+                coldStorage.archive(LocalDate.parse(args[1]));
+            }
+        } finally {
+            storageConfig.close();
+        }
     }
 }
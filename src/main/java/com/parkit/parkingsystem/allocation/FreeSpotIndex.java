@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem.allocation;
+
+/**
+ * Segment tree over the spots of a pool, sorted in the order of the allocation policy.
+ * <p>
+ * Each node holds the number of free spots of its range, so that the first or last free spot of any range is found,
+ * and a spot freed or taken, in logarithmic time.
+ * </p>
+ */
+final class FreeSpotIndex {
+
+    private final int       size;
+    private final int[]     free;
+    private final boolean[] leaves;
+
+    FreeSpotIndex(int size) {
+        this.size = size;
+        this.free = new int[Math.max(1, 4 * size)];
+        this.leaves = new boolean[size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int count() {
+        return (size == 0) ? 0 : free[1];
+    }
+
+    boolean isFree(int rank) {
+        return leaves[rank];
+    }
+
+    void set(int rank, boolean isFree) {
+        if (leaves[rank] != isFree) {
+            leaves[rank] = isFree;
+            update(1, 0, size - 1, rank, isFree ? 1 : -1);
+        }
+    }
+
+    /**
+     * @return First free rank in [from, to], or -1
+     */
+    int first(int from, int to) {
+        if (size == 0 || from > to) {
+            return -1;
+        }
+        return first(1, 0, size - 1, Math.max(0, from), Math.min(size - 1, to));
+    }
+
+    /**
+     * @return Last free rank in [from, to], or -1
+     */
+    int last(int from, int to) {
+        if (size == 0 || from > to) {
+            return -1;
+        }
+        return last(1, 0, size - 1, Math.max(0, from), Math.min(size - 1, to));
+    }
+
+    private void update(int node, int lo, int hi, int rank, int delta) {
+        free[node] += delta;
+        if (lo == hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (rank <= mid) {
+            update(2 * node, lo, mid, rank, delta);
+        } else {
+            update(2 * node + 1, mid + 1, hi, rank, delta);
+        }
+    }
+
+    private int first(int node, int lo, int hi, int from, int to) {
+        if (hi < from || lo > to || free[node] == 0) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid    = (lo + hi) >>> 1;
+        int result = first(2 * node, lo, mid, from, to);
+        return (result >= 0) ? result : first(2 * node + 1, mid + 1, hi, from, to);
+    }
+
+    private int last(int node, int lo, int hi, int from, int to) {
+        if (hi < from || lo > to || free[node] == 0) {
+            return -1;
+        }
+        if (lo == hi) {
+            return lo;
+        }
+        int mid    = (lo + hi) >>> 1;
+        int result = last(2 * node + 1, mid + 1, hi, from, to);
+        return (result >= 0) ? result : last(2 * node, lo, mid, from, to);
+    }
+}
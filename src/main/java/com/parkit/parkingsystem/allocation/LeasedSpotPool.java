@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.SpotLeaseDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <b>Free spots leased in blocks by one of several application nodes sharing a lot.</b>
+ * <p>
+ * Instead of every node looking for the lowest free spot in the shared parking table, and contending with the others on the same rows,
+ * each node leases a block of free spots per parking type and gives them to its vehicles from memory, the same way ids are reserved in blocks
+ * by hi/lo generators. The database is only asked for a new block when the node runs low.
+ * </p>
+ * <ul>
+ *     <li>Leases expire unless renewed by {@link #heartbeat()}: the spots of a node which stopped are leased again by the others.</li>
+ *     <li>A node which finds no spot left to lease takes over half of the free spots of the node holding the most,
+ *     and on heartbeat a node gives back the spots it holds beyond two blocks.</li>
+ *     <li>A spot is claimed in the database only if it is still leased by the node, so a spot taken over can not be given twice.</li>
+ * </ul>
+ * <p>
+ * Vehicles may leave through any node: the freed spot stays leased by its node, which finds it back on its next heartbeat.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.SpotLeaseDAO
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class LeasedSpotPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("LeasedSpotPool");
+
+    private final SpotLeaseDAO                       spotLeaseDAO;
+    private final String                             nodeId;
+    private final int                                blockSize;
+    private final int                                leaseSeconds;
+    private final Map<ParkingType, TreeSet<Integer>> freeSpots = new EnumMap<>(ParkingType.class);
+
+    /**
+     * Creates a pool holding no spot yet, blocks are leased at the first vehicle of each type.
+     *
+     * @param spotLeaseDAO Leases of the shared lot
+     * @param nodeId       ID of this node, unique among the nodes sharing the lot
+     * @param blockSize    Number of spots leased at once
+     * @param leaseSeconds Duration of the leases, several heartbeat periods
+     */
+    public LeasedSpotPool(SpotLeaseDAO spotLeaseDAO, String nodeId, int blockSize, int leaseSeconds) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.spotLeaseDAO = spotLeaseDAO;
+        this.nodeId = nodeId;
+        this.blockSize = blockSize;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * Gets the ID of this node.
+     *
+     * @return Node ID
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Chooses a leased free spot, leasing a new block first when few spots are left.
+     *
+     * @param parkingType Type of the incoming vehicle
+     *
+     * @return Parking number to claim with {@link #claim(int)}, or 0 if no spot of the type can be leased
+     *
+     * @throws DataAccessException if the database failed while this node holds no free spot of the type
+     */
+    public synchronized int allocate(ParkingType parkingType) {
+        TreeSet<Integer> free = freeSpots.computeIfAbsent(parkingType, t -> new TreeSet<>());
+        if (free.size() <= blockSize / 4) {
+            try {
+                free.addAll(spotLeaseDAO.leaseSpots(parkingType, nodeId, blockSize, leaseSeconds));
+            } catch (DataAccessException e) {
+                if (free.isEmpty()) {
+                    throw e;
+                }
+                // The spots still held are given meanwhile, a block is leased again at the next vehicle
+                logger.warn("Unable to lease {} spots, {} left", parkingType, free.size());
+            }
+        }
+        if (free.isEmpty()) {
+            free.addAll(spotLeaseDAO.takeOverSpots(parkingType, nodeId, blockSize, leaseSeconds));
+        }
+        Integer parkingNumber = free.pollFirst();
+        return (parkingNumber == null) ? 0 : parkingNumber;
+    }
+
+    /**
+     * Claims an allocated spot in the database.
+     *
+     * @param parkingNumber Parking number given by {@link #allocate(ParkingType)}
+     *
+     * @return true if the spot is now taken by the caller, false if it was taken or leased by another node meanwhile
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    public boolean claim(int parkingNumber) {
+        return spotLeaseDAO.claimLeasedSpot(parkingNumber, nodeId);
+    }
+
+    /**
+     * Counts the leased free spots of a type known to this node.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Number of spots
+     */
+    public synchronized int countAvailable(ParkingType parkingType) {
+        TreeSet<Integer> free = freeSpots.get(parkingType);
+        return (free == null) ? 0 : free.size();
+    }
+
+    /**
+     * Drops a spot retired or retyped while the lot is open, whose lease was cleared by the change. Added spots are leased with the next block.
+     *
+     * @param parkingNumber Parking number
+     */
+    public synchronized void drop(int parkingNumber) {
+        for (TreeSet<Integer> free : freeSpots.values()) {
+            free.remove(parkingNumber);
+        }
+    }
+
+    /**
+     * Renews the leases of this node, reloads its free spots from the database and gives back the spots held beyond two blocks.
+     * To be called periodically, well within the lease duration: a database failure is logged, and the spots known are kept until the
+     * next heartbeat.
+     */
+    public synchronized void heartbeat() {
+        try {
+            spotLeaseDAO.renewLeases(nodeId, leaseSeconds);
+            for (Map.Entry<ParkingType, TreeSet<Integer>> typeSpots : freeSpots.entrySet()) {
+                List<Integer>    leased = spotLeaseDAO.getLeasedSpots(typeSpots.getKey(), nodeId);
+                TreeSet<Integer> free   = typeSpots.getValue();
+                free.clear();
+                free.addAll(leased);
+                if (free.size() > 2 * blockSize) {
+                    List<Integer> surplus = new ArrayList<>();
+                    while (free.size() > blockSize) {
+                        surplus.add(free.pollLast());
+                    }
+                    // Spots not given back stay leased by this node, and are found back at the next heartbeat
+                    spotLeaseDAO.releaseSpots(nodeId, surplus);
+                    logger.info("Gave back {} {} spots", surplus.size(), typeSpots.getKey());
+                }
+            }
+        } catch (DataAccessException e) {
+            logger.error("Unable to renew the leases of node {}", nodeId, e);
+        }
+    }
+
+    /**
+     * Gives back every spot leased by this node. If the database fails, the leases are left to expire.
+     */
+    @Override
+    public synchronized void close() {
+        freeSpots.clear();
+        try {
+            spotLeaseDAO.releaseLeases(nodeId);
+        } catch (DataAccessException e) {
+            logger.error("Unable to give back the leases of node {}, left to expire", nodeId, e);
+        }
+    }
+}
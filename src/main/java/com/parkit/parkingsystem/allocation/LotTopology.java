@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.SpotLocation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <b>Layout of a multi-storey lot: where each spot is, and where each gate enters.</b>
+ * <p>
+ * A topology can be read from a text file with one declaration per line, <code>#</code> starting a comment:
+ * </p>
+ * <ul>
+ *     <li><code>spot &lt;number&gt; &lt;CAR|BIKE&gt; &lt;level&gt; &lt;zone&gt; &lt;position&gt; [EV]</code>;
+ *     the number may be a range <code>first-last</code>, positions then follow each other from the given one</li>
+ *     <li><code>gate &lt;number&gt; &lt;level&gt; &lt;position&gt;</code></li>
+ * </ul>
+ *
+ * @see com.parkit.parkingsystem.allocation.SpotAllocator
+ */
+public class LotTopology {
+
+    private final Map<Integer, SpotLocation> spots = new TreeMap<>();
+    private final Map<Integer, Entrance>     gates = new TreeMap<>();
+
+    /**
+     * Adds a spot, or replaces the spot with the same number.
+     *
+     * @param spot Spot location
+     */
+    public void addSpot(SpotLocation spot) {
+        spots.put(spot.getNumber(), spot);
+    }
+
+    /**
+     * Adds the entrance of a gate.
+     *
+     * @param gate     Gate number
+     * @param level    Level the gate enters
+     * @param position Position of the entrance along its level
+     */
+    public void addGate(int gate, int level, int position) {
+        gates.put(gate, new Entrance(level, position));
+    }
+
+    /**
+     * Gets every spot of the lot, sorted by number.
+     *
+     * @return Spot locations
+     */
+    public Collection<SpotLocation> getSpots() {
+        return Collections.unmodifiableCollection(spots.values());
+    }
+
+    /**
+     * Gets the location of a spot.
+     *
+     * @param number Parking number
+     *
+     * @return Spot location, or null if the spot is unknown
+     */
+    public SpotLocation getSpot(int number) {
+        return spots.get(number);
+    }
+
+    /**
+     * Gets the entrance of a gate.
+     *
+     * @param gate Gate number
+     *
+     * @return Entrance, or null if the gate is unknown
+     */
+    public Entrance getEntrance(int gate) {
+        return gates.get(gate);
+    }
+
+    /**
+     * Reads a topology file.
+     *
+     * @param file Topology file
+     *
+     * @return Topology
+     *
+     * @throws IOException if the file can not be read
+     */
+    public static LotTopology load(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the lines of a topology file.
+     *
+     * @param lines Declarations
+     *
+     * @return Topology
+     *
+     * @throws IllegalArgumentException if a line is not a valid declaration
+     */
+    public static LotTopology parse(List<String> lines) {
+        LotTopology topology = new LotTopology();
+        for (String line : lines) {
+            String declaration = line.replaceFirst("#.*", "").trim();
+            if (declaration.isEmpty()) {
+                continue;
+            }
+            String[] fields = declaration.split("\\s+");
+            boolean  isSpot = "spot".equals(fields[0]) && (fields.length == 6 || fields.length == 7);
+            boolean  isGate = "gate".equals(fields[0]) && fields.length == 4;
+            if (!isSpot && !isGate) {
+                throw new IllegalArgumentException("Invalid topology declaration: " + line);
+            }
+            try {
+                if (isSpot) {
+                    String[]    bounds      = fields[1].split("-");
+                    int         first       = Integer.parseInt(bounds[0]);
+                    int         last        = (bounds.length > 1) ? Integer.parseInt(bounds[1]) : first;
+                    ParkingType parkingType = ParkingType.valueOf(fields[2]);
+                    int         level       = Integer.parseInt(fields[3]);
+                    int         position    = Integer.parseInt(fields[5]);
+                    boolean     evCapable   = fields.length == 7 && "EV".equals(fields[6]);
+                    for (int number = first; number <= last; number++) {
+                        topology.addSpot(new SpotLocation(number, parkingType, level, fields[4], position + number - first, evCapable));
+                    }
+                } else {
+                    topology.addGate(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid topology declaration: " + line, e);
+            }
+        }
+        return topology;
+    }
+
+    /**
+     * Where a gate enters the lot.
+     */
+    public static final class Entrance {
+        private final int level;
+        private final int position;
+
+        private Entrance(int level, int position) {
+            this.level = level;
+            this.position = position;
+        }
+
+        /**
+         * Gets the level the gate enters.
+         *
+         * @return Level
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Gets the position of the entrance along its level.
+         *
+         * @return Position
+         */
+        public int getPosition() {
+            return position;
+        }
+    }
+}
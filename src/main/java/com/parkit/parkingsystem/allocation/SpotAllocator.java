@@ -0,0 +1,375 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.AllocationPolicy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.SpotLocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * <b>Chooses the free spot given to an incoming vehicle, according to an {@link AllocationPolicy}.</b>
+ * <p>
+ * The spots of each type are split into two pools, with and without electric vehicle charger, each sorted in the order of the policy
+ * (by number, or by level then position) and indexed by a {@link FreeSpotIndex} segment tree. Spots of each zone are indexed the same way,
+ * and zones are kept sorted by free spots. Every allocation and release takes logarithmic time, without looking at every spot.
+ * </p>
+ * <p>
+ * Vehicles wanting a charger get a spot with a charger first, the others a spot without charger first; both fall back to the other pool when theirs is full.
+ * </p>
+ * <p>
+ * The allocator is an in-process view of the availability of the spots: the storage stays the reference, and a spot proposed here is still claimed in it.
+ * A spot which turns out to be taken must be reported with {@link #setAvailable(int, boolean)}, and the allocator is seeded with the spots
+ * free in the storage by {@link #seed(ParkingSpotDAO)} before the first entry. Spots retired or retyped while the lot is open are reported
+ * with {@link #retire(int)} and {@link #putInService(int, ParkingType)}: a spot is only proposed for the type it has in the topology.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.allocation.LotTopology
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class SpotAllocator {
+
+    private static final int REGULAR = 0;
+    private static final int EV      = 1;
+
+    private final AllocationPolicy         policy;
+    private final LotTopology              topology;
+    private final Map<ParkingType, Pool[]> pools      = new EnumMap<>(ParkingType.class);
+    private final Map<Integer, Placement>  placements = new HashMap<>();
+    private final Set<Integer>             retired    = new HashSet<>();
+
+    /**
+     * Creates an allocator where every spot of the topology is free.
+     *
+     * @param topology Layout of the lot
+     * @param policy   Allocation policy
+     */
+    public SpotAllocator(LotTopology topology, AllocationPolicy policy) {
+        this.policy = policy;
+        this.topology = topology;
+        Comparator<SpotLocation> order = (policy == AllocationPolicy.LOWEST_NUMBER)
+                                         ? Comparator.comparingInt(SpotLocation::getNumber)
+                                         : Comparator.comparingInt(SpotLocation::getLevel).thenComparingInt(SpotLocation::getPosition).thenComparingInt(SpotLocation::getNumber);
+        Map<ParkingType, List<List<SpotLocation>>> spotsByPool = new EnumMap<>(ParkingType.class);
+        for (SpotLocation spot : topology.getSpots()) {
+            spotsByPool.computeIfAbsent(spot.getParkingType(), t -> Arrays.asList(new ArrayList<>(), new ArrayList<>()))
+                       .get(spot.isEvCapable() ? EV : REGULAR).add(spot);
+        }
+        spotsByPool.forEach((parkingType, lists) -> pools.put(parkingType, new Pool[]{new Pool(lists.get(REGULAR), order), new Pool(lists.get(EV), order)}));
+    }
+
+    /**
+     * Marks as taken every spot of the topology which is not free in the storage, e.g. when the application starts while vehicles are
+     * parked: occupied and retired spots, and spots whose type in the storage differs from the topology, are not proposed.
+     *
+     * @param parkingSpotDAO Storage of the spots
+     *
+     * @throws com.parkit.parkingsystem.dao.DataAccessException if the storage failed
+     */
+    public void seed(ParkingSpotDAO parkingSpotDAO) {
+        Map<ParkingType, Set<Integer>> freeSpots = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : pools.keySet()) {
+            freeSpots.put(parkingType, new HashSet<>(parkingSpotDAO.getAvailableSlots(parkingType)));
+        }
+        synchronized (this) {
+            for (SpotLocation spot : topology.getSpots()) {
+                placements.get(spot.getNumber()).set(freeSpots.get(spot.getParkingType()).contains(spot.getNumber()));
+            }
+        }
+    }
+
+    /**
+     * Gets the allocation policy.
+     *
+     * @return Policy
+     */
+    public AllocationPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Chooses a free spot and marks it as taken.
+     *
+     * @param parkingType Type of the incoming vehicle
+     * @param request     Gate and charger wanted by the vehicle
+     *
+     * @return Parking number of the chosen spot, or 0 if every spot of the type is taken
+     */
+    public synchronized int allocate(ParkingType parkingType, SpotRequest request) {
+        Pool[] typePools = pools.get(parkingType);
+        if (typePools == null) {
+            return 0;
+        }
+        int          preferred = request.isEvCapable() ? EV : REGULAR;
+        SpotLocation spot      = typePools[preferred].select(request);
+        if (spot == null) {
+            spot = typePools[1 - preferred].select(request);
+        }
+        if (spot == null) {
+            return 0;
+        }
+        placements.get(spot.getNumber()).set(false);
+        return spot.getNumber();
+    }
+
+    /**
+     * Marks a spot as free or taken, e.g. when a vehicle leaves or when the storage reports that a proposed spot is already taken.
+     *
+     * @param parkingNumber Parking number
+     * @param available     true if the spot is free
+     */
+    public synchronized void setAvailable(int parkingNumber, boolean available) {
+        Placement placement = placements.get(parkingNumber);
+        // A retired spot stays taken when its vehicle leaves
+        if (placement != null && !(available && retired.contains(parkingNumber))) {
+            placement.set(available);
+        }
+    }
+
+    /**
+     * Takes a retired spot out of service: it is no longer proposed, even once its vehicle left, until it is put back in service.
+     *
+     * @param parkingNumber Parking number
+     */
+    public synchronized void retire(int parkingNumber) {
+        Placement placement = placements.get(parkingNumber);
+        if (placement != null) {
+            retired.add(parkingNumber);
+            placement.set(false);
+        }
+    }
+
+    /**
+     * Puts a free spot in service with a type, when it is added back or retyped. A spot given a type other than its type in the topology
+     * is not proposed, as if retired, until it gets its type back.
+     *
+     * @param parkingNumber Parking number
+     * @param parkingType   Type of the spot in the storage
+     */
+    public synchronized void putInService(int parkingNumber, ParkingType parkingType) {
+        Placement placement = placements.get(parkingNumber);
+        if (placement == null) {
+            return;
+        }
+        if (placement.parkingType == parkingType) {
+            retired.remove(parkingNumber);
+            placement.set(true);
+        } else {
+            retired.add(parkingNumber);
+            placement.set(false);
+        }
+    }
+
+    /**
+     * Counts the free spots of a type, with or without charger.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Number of free spots
+     */
+    public synchronized int countAvailable(ParkingType parkingType) {
+        Pool[] typePools = pools.get(parkingType);
+        return (typePools == null) ? 0 : typePools[REGULAR].index.count() + typePools[EV].index.count();
+    }
+
+    /**
+     * Counts the free spots of a zone, of every type.
+     *
+     * @param zone Zone name
+     *
+     * @return Number of free spots, 0 if the zone is unknown
+     */
+    public synchronized int countAvailableInZone(String zone) {
+        int count = 0;
+        for (Pool[] typePools : pools.values()) {
+            for (Pool pool : typePools) {
+                Zone poolZone = pool.zones.get(zone);
+                count += (poolZone == null) ? 0 : poolZone.index.count();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the layout of the lot.
+     *
+     * @return Topology
+     */
+    public LotTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Spots of one type, with or without charger, sorted in the order of the policy.
+     */
+    private final class Pool {
+        private final SpotLocation[]    spots;
+        private final FreeSpotIndex     index;
+        private final int[]             levels;
+        private final int[]             levelStarts;
+        private final Map<String, Zone> zones       = new LinkedHashMap<>();
+        private final TreeSet<Zone>     zonesByFree = new TreeSet<>(Comparator.comparingInt((Zone z) -> -z.index.count()).thenComparing(z -> z.name));
+
+        private Pool(List<SpotLocation> poolSpots, Comparator<SpotLocation> order) {
+            poolSpots.sort(order);
+            this.spots = poolSpots.toArray(new SpotLocation[0]);
+            this.index = new FreeSpotIndex(spots.length);
+
+            // Ranks where each level starts, for the nearest spot search (only meaningful when sorted by level)
+            List<Integer> levelList = new ArrayList<>();
+            List<Integer> startList = new ArrayList<>();
+            for (int rank = 0; rank < spots.length; rank++) {
+                if (rank == 0 || spots[rank].getLevel() != spots[rank - 1].getLevel()) {
+                    levelList.add(spots[rank].getLevel());
+                    startList.add(rank);
+                }
+            }
+            startList.add(spots.length);
+            this.levels = levelList.stream().mapToInt(Integer::intValue).toArray();
+            this.levelStarts = startList.stream().mapToInt(Integer::intValue).toArray();
+
+            Map<String, List<SpotLocation>> spotsByZone = new LinkedHashMap<>();
+            for (SpotLocation spot : spots) {
+                spotsByZone.computeIfAbsent(String.valueOf(spot.getZone()), z -> new ArrayList<>()).add(spot);
+            }
+            spotsByZone.forEach((name, zoneSpots) -> zones.put(name, new Zone(name, zoneSpots.toArray(new SpotLocation[0]))));
+
+            for (int rank = 0; rank < spots.length; rank++) {
+                index.set(rank, true);
+            }
+            Map<String, Integer> zoneRanks = new HashMap<>();
+            for (int rank = 0; rank < spots.length; rank++) {
+                Zone zone     = zones.get(String.valueOf(spots[rank].getZone()));
+                int  zoneRank = zoneRanks.merge(zone.name, 1, Integer::sum) - 1;
+                zone.index.set(zoneRank, true);
+                placements.put(spots[rank].getNumber(), new Placement(spots[rank].getParkingType(), this, rank, zone, zoneRank));
+            }
+            zonesByFree.addAll(zones.values());
+        }
+
+        private SpotLocation select(SpotRequest request) {
+            if (index.count() == 0) {
+                return null;
+            }
+            int rank;
+            switch (policy) {
+                case NEAREST_TO_GATE:
+                    LotTopology.Entrance entrance = topology.getEntrance(request.getGate());
+                    rank = (entrance == null) ? index.first(0, spots.length - 1) : nearest(entrance);
+                    break;
+                case BALANCE_ZONES:
+                    Zone zone = zonesByFree.first();
+                    return zone.spots[zone.index.first(0, zone.spots.length - 1)];
+                default:
+                    rank = index.first(0, spots.length - 1);
+            }
+            return spots[rank];
+        }
+
+        private int nearest(LotTopology.Entrance entrance) {
+            // Levels are visited from the level of the gate outwards, the lower one first on a tie
+            int above = lowerBound(levels, entrance.getLevel());
+            int below = above - 1;
+            while (below >= 0 || above < levels.length) {
+                int levelIndex;
+                if (above >= levels.length || (below >= 0 && entrance.getLevel() - levels[below] <= levels[above] - entrance.getLevel())) {
+                    levelIndex = below--;
+                } else {
+                    levelIndex = above++;
+                }
+                int rank = nearestOnLevel(levelIndex, entrance.getPosition());
+                if (rank >= 0) {
+                    return rank;
+                }
+            }
+            return -1;
+        }
+
+        private int nearestOnLevel(int levelIndex, int position) {
+            int start = levelStarts[levelIndex];
+            int end   = levelStarts[levelIndex + 1] - 1;
+            int split = start;
+            int hi    = end + 1;
+            while (split < hi) {
+                int mid = (split + hi) >>> 1;
+                if (spots[mid].getPosition() < position) {
+                    split = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int before = index.last(start, split - 1);
+            int after  = index.first(split, end);
+            if (before < 0) {
+                return after;
+            }
+            if (after < 0) {
+                return before;
+            }
+            return (position - spots[before].getPosition() <= spots[after].getPosition() - position) ? before : after;
+        }
+    }
+
+    private static int lowerBound(int[] values, int key) {
+        int lo = 0;
+        int hi = values.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static final class Zone {
+        private final String         name;
+        private final SpotLocation[] spots;
+        private final FreeSpotIndex  index;
+
+        private Zone(String name, SpotLocation[] spots) {
+            this.name = name;
+            this.spots = spots;
+            this.index = new FreeSpotIndex(spots.length);
+        }
+    }
+
+    private static final class Placement {
+        private final ParkingType parkingType;
+        private final Pool        pool;
+        private final int         rank;
+        private final Zone        zone;
+        private final int         zoneRank;
+
+        private Placement(ParkingType parkingType, Pool pool, int rank, Zone zone, int zoneRank) {
+            this.parkingType = parkingType;
+            this.pool = pool;
+            this.rank = rank;
+            this.zone = zone;
+            this.zoneRank = zoneRank;
+        }
+
+        private void set(boolean available) {
+            if (pool.index.isFree(rank) == available) {
+                return;
+            }
+            // The zone is re-sorted around the change of its free count
+            pool.zonesByFree.remove(zone);
+            pool.index.set(rank, available);
+            zone.index.set(zoneRank, available);
+            pool.zonesByFree.add(zone);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.timer.TimingWheel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * <b>Spots held for a short time while the plate of the incoming vehicle is captured.</b>
+ * <p>
+ * A spot is taken in the storage as soon as it is held, so that no other gate gives it meanwhile, then either confirmed once the
+ * ticket can be saved or given back. A hold which is neither confirmed nor given back in time, e.g. an entry abandoned at the
+ * keyboard, expires and its spot is freed.
+ * </p>
+ * <p>
+ * Every hold lasts the same time, so holds expire in the order they were taken: they are queued as they are taken and
+ * {@link #releaseExpired()} only looks at the head of the queue. It is called at the expiry of each hold by a {@link TimingWheel} if
+ * one is set, or else is to be called periodically by a single thread; holds are also released when they are found expired by a new
+ * hold or a confirmation.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#setSpotHolds(SpotHolds)
+ */
+public class SpotHolds {
+
+    private static final Logger logger = LogManager.getLogger("SpotHolds");
+
+    public static final Duration DEFAULT_DURATION = Duration.ofSeconds(60);
+
+    private static final int MAX_HOLD_ATTEMPTS = 10;
+
+    private final ParkingSpotDAO     parkingSpotDAO;
+    private final Duration           duration;
+    private final Clock              clock;
+    private final Map<Integer, Hold> holds    = new HashMap<>();
+    private final Queue<Hold>        expiries = new ArrayDeque<>();
+    private       TimingWheel        timingWheel;
+
+    /**
+     * Creates an empty set of holds.
+     *
+     * @param parkingSpotDAO Storage the held spots are taken in
+     * @param duration       Time a spot is held
+     * @param clock          Clock the holds expire by
+     */
+    public SpotHolds(ParkingSpotDAO parkingSpotDAO, Duration duration, Clock clock) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Holds must last some time: " + duration);
+        }
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.duration = duration;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the wheel releasing each hold at its expiry.
+     *
+     * @param timingWheel Timing wheel, or null to rely on periodic calls of {@link #releaseExpired()}
+     */
+    public synchronized void setTimingWheel(TimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+    }
+
+    /**
+     * Holds a spot, or the next free spot of the same type if another gate took it first.
+     *
+     * @param candidate Free spot found for the incoming vehicle
+     *
+     * @return Hold, to confirm with {@link #confirm(Hold)} or give back with {@link #release(Hold)}, or null if no spot of the type is free
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    public Hold hold(ParkingSpot candidate) {
+        releaseExpired();
+        int parkingNumber = candidate.getId();
+        for (int attempt = 0; attempt < MAX_HOLD_ATTEMPTS && parkingNumber > 0; attempt++) {
+            if (parkingSpotDAO.claimParking(parkingNumber, candidate.getParkingType())) {
+                synchronized (this) {
+                    Hold hold = new Hold(new ParkingSpot(parkingNumber, candidate.getParkingType(), false), clock.instant().plus(duration));
+                    holds.put(parkingNumber, hold);
+                    expiries.add(hold);
+                    if (timingWheel != null) {
+                        hold.timeout = timingWheel.schedule(hold.getExpiry(), this::releaseExpired);
+                    }
+                    return hold;
+                }
+            }
+            parkingNumber = parkingSpotDAO.getNextAvailableSlot(candidate.getParkingType());
+        }
+        logger.error("Unable to hold a parking spot of type {}", candidate.getParkingType());
+        return null;
+    }
+
+    /**
+     * Confirms a hold: its spot stays taken, for the ticket of the vehicle.
+     *
+     * @param hold Hold
+     *
+     * @return true, or false if the hold expired and its spot was freed
+     */
+    public boolean confirm(Hold hold) {
+        releaseExpired();
+        synchronized (this) {
+            if (!holds.remove(hold.getParkingSpot().getId(), hold)) {
+                return false;
+            }
+        }
+        hold.cancelTimeout();
+        return true;
+    }
+
+    /**
+     * Gives a held spot back at once.
+     *
+     * @param hold Hold
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    public void release(Hold hold) {
+        boolean held;
+        synchronized (this) {
+            held = holds.remove(hold.getParkingSpot().getId(), hold);
+        }
+        if (held) {
+            hold.cancelTimeout();
+            free(hold);
+        }
+    }
+
+    /**
+     * Frees the spots of the expired holds.
+     *
+     * @return Number of holds which expired
+     */
+    public int releaseExpired() {
+        Instant    now     = clock.instant();
+        List<Hold> expired = new ArrayList<>();
+        synchronized (this) {
+            // Holds confirmed or given back stay queued until their expiry, and are skipped then
+            while (!expiries.isEmpty() && !expiries.peek().getExpiry().isAfter(now)) {
+                Hold hold = expiries.poll();
+                if (holds.remove(hold.getParkingSpot().getId(), hold)) {
+                    expired.add(hold);
+                }
+            }
+        }
+        for (Hold hold : expired) {
+            logger.warn("Hold of parking spot {} expired", hold.getParkingSpot().getId());
+            try {
+                free(hold);
+            } catch (DataAccessException e) {
+                logger.error("Unable to free parking spot {} of an expired hold", hold.getParkingSpot().getId(), e);
+            }
+        }
+        return expired.size();
+    }
+
+    /**
+     * Counts the spots held.
+     *
+     * @return Number of holds neither confirmed, given back nor expired
+     */
+    public synchronized int size() {
+        return holds.size();
+    }
+
+    private void free(Hold hold) {
+        parkingSpotDAO.updateParking(new ParkingSpot(hold.getParkingSpot().getId(), hold.getParkingSpot().getParkingType(), true));
+    }
+
+    /**
+     * Spot held for an incoming vehicle.
+     */
+    public static final class Hold {
+
+        private final ParkingSpot         parkingSpot;
+        private final Instant             expiry;
+        private       TimingWheel.Timeout timeout;
+
+        private Hold(ParkingSpot parkingSpot, Instant expiry) {
+            this.parkingSpot = parkingSpot;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Gets the held spot.
+         *
+         * @return Parking spot, taken in the storage
+         */
+        public ParkingSpot getParkingSpot() {
+            return parkingSpot;
+        }
+
+        /**
+         * Gets the time the hold expires at.
+         *
+         * @return Expiry
+         */
+        public Instant getExpiry() {
+            return expiry;
+        }
+
+        private void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
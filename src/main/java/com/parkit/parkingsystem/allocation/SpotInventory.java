@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.IntConsumer;
+
+/**
+ * <b>Adds, retires and retypes ranges of parking spots while the lot is open.</b>
+ * <p>
+ * A range is changed by chunks of consecutive spots, each in a transaction of its own with batched statements, so that the rows of a
+ * large range are not locked at once while the gates are claiming spots. The gates see each chunk as soon as it is committed:
+ * </p>
+ * <ul>
+ *     <li>an added spot is found free by the next entry</li>
+ *     <li>a retired spot is no longer given; an occupied one keeps its vehicle and leaves service when the vehicle leaves</li>
+ *     <li>a retyped spot is only given to vehicles of its new type, even to an entry which found it before the change; occupied spots
+ *     keep their type</li>
+ * </ul>
+ * <p>
+ * Spots are never deleted, so that the tickets of a retired spot keep it; adding a retired spot puts it back in service.
+ * The allocator and the leased spots of the application are only told about the spots the storage reports as changed.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.ParkingSpotDAO
+ */
+public class SpotInventory {
+
+    private static final Logger logger = LogManager.getLogger("SpotInventory");
+
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final int            chunkSize;
+    private       SpotAllocator  spotAllocator;
+    private       LeasedSpotPool leasedSpotPool;
+
+    /**
+     * Creates the inventory of a lot.
+     *
+     * @param parkingSpotDAO Storage of the spots of the lot
+     * @param chunkSize      Spots changed per transaction
+     */
+    public SpotInventory(ParkingSpotDAO parkingSpotDAO, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the allocator of the parking service of this application, told about the spots which changed.
+     *
+     * @param spotAllocator Allocator, or null
+     */
+    public void setSpotAllocator(SpotAllocator spotAllocator) {
+        this.spotAllocator = spotAllocator;
+    }
+
+    /**
+     * Sets the spots leased by this node, which drops the spots retired or retyped.
+     *
+     * @param leasedSpotPool Leased spots, or null
+     */
+    public void setLeasedSpotPool(LeasedSpotPool leasedSpotPool) {
+        this.leasedSpotPool = leasedSpotPool;
+    }
+
+    /**
+     * Adds free spots with the numbers of a range, and puts back in service the retired spots of the range whose vehicle left.
+     *
+     * @param first       First parking number
+     * @param last        Last parking number, included
+     * @param parkingType Type of the spots
+     *
+     * @return Number of spots added or put back
+     *
+     * @throws DataAccessException if the storage failed; the chunks committed before stay changed
+     */
+    public int addSpots(int first, int last, ParkingType parkingType) {
+        return inChunks("Added", first, last, (from, to) -> parkingSpotDAO.addParkingSpots(from, to, parkingType), parkingNumber -> {
+            if (spotAllocator != null) {
+                spotAllocator.putInService(parkingNumber, parkingType);
+            }
+        });
+    }
+
+    /**
+     * Retires the spots of a range.
+     *
+     * @param first First parking number
+     * @param last  Last parking number, included
+     *
+     * @return Number of spots retired, free or occupied
+     *
+     * @throws DataAccessException if the storage failed; the chunks committed before stay changed
+     */
+    public int retireSpots(int first, int last) {
+        return inChunks("Retired", first, last, parkingSpotDAO::retireParkingSpots, parkingNumber -> {
+            if (spotAllocator != null) {
+                spotAllocator.retire(parkingNumber);
+            }
+            if (leasedSpotPool != null) {
+                leasedSpotPool.drop(parkingNumber);
+            }
+        });
+    }
+
+    /**
+     * Changes the type of the free spots of a range.
+     *
+     * @param first       First parking number
+     * @param last        Last parking number, included
+     * @param parkingType New type of the spots
+     *
+     * @return Number of spots whose type changed
+     *
+     * @throws DataAccessException if the storage failed; the chunks committed before stay changed
+     */
+    public int retypeSpots(int first, int last, ParkingType parkingType) {
+        return inChunks("Retyped", first, last, (from, to) -> parkingSpotDAO.retypeParkingSpots(from, to, parkingType), parkingNumber -> {
+            if (spotAllocator != null) {
+                spotAllocator.putInService(parkingNumber, parkingType);
+            }
+            if (leasedSpotPool != null) {
+                leasedSpotPool.drop(parkingNumber);
+            }
+        });
+    }
+
+    private int inChunks(String change, int first, int last, BiFunction<Integer, Integer, List<Integer>> chunkChange, IntConsumer spotChanged) {
+        if (first < 1 || last < first) {
+            throw new IllegalArgumentException("Invalid range of parking spots " + first + "-" + last);
+        }
+        int changed = 0;
+        for (long from = first; from <= last; from += chunkSize) {
+            int           to         = (int) Math.min(last, from + chunkSize - 1);
+            List<Integer> chunkSpots = chunkChange.apply((int) from, to);
+            // Spots left as they were, e.g. occupied spots which keep their type, are not touched
+            chunkSpots.forEach(spotChanged::accept);
+            changed += chunkSpots.size();
+            logger.info("{} {} parking spots of {}-{} up to {}", change, changed, first, last, to);
+        }
+        return changed;
+    }
+}
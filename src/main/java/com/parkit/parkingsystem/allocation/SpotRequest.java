@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.allocation;
+
+import java.util.Objects;
+
+/**
+ * What an incoming vehicle needs from its spot, besides its type: the gate it came through and whether it needs a charger.
+ */
+public final class SpotRequest {
+
+    /** Gate number of a vehicle which did not come through a known gate */
+    public static final int NO_GATE = -1;
+
+    /** Request without gate nor charger */
+    public static final SpotRequest ANY = new SpotRequest(NO_GATE, false);
+
+    private final int     gate;
+    private final boolean evCapable;
+
+    /**
+     * Spot request constructor.
+     *
+     * @param gate      Gate the vehicle came through, or {@link #NO_GATE}
+     * @param evCapable Whether the vehicle wants a spot with an electric vehicle charger
+     */
+    public SpotRequest(int gate, boolean evCapable) {
+        this.gate = gate;
+        this.evCapable = evCapable;
+    }
+
+    /**
+     * Request of a vehicle coming through a gate, without charger.
+     *
+     * @param gate Gate number
+     *
+     * @return Spot request
+     */
+    public static SpotRequest atGate(int gate) {
+        return new SpotRequest(gate, false);
+    }
+
+    /**
+     * Gets the gate the vehicle came through.
+     *
+     * @return Gate number, or {@link #NO_GATE}
+     */
+    public int getGate() {
+        return gate;
+    }
+
+    /**
+     * Checks whether the vehicle wants a charger.
+     *
+     * @return true for an electric vehicle wanting to charge
+     */
+    public boolean isEvCapable() {
+        return evCapable;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SpotRequest that = (SpotRequest) o;
+        return gate == that.gate && evCapable == that.evCapable;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gate, evCapable);
+    }
+
+    @Override
+    public String toString() {
+        return "SpotRequest{gate=" + gate + ", evCapable=" + evCapable + '}';
+    }
+}
@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem.analysis;
+
+/**
+ * Number of tickets and sum of a value per group, e.g. revenue per spot type or per hour of the day.
+ *
+ * @see com.parkit.parkingsystem.analysis.TicketColumns#aggregate(java.util.function.IntPredicate, java.util.function.IntUnaryOperator, int, java.util.function.IntToLongFunction)
+ */
+public class GroupTotals {
+
+    private final long[] counts;
+    private final long[] sums;
+
+    GroupTotals(int groups) {
+        this.counts = new long[groups];
+        this.sums = new long[groups];
+    }
+
+    void add(int group, long value) {
+        counts[group]++;
+        sums[group] += value;
+    }
+
+    GroupTotals merge(GroupTotals other) {
+        for (int group = 0; group < counts.length; group++) {
+            counts[group] += other.counts[group];
+            sums[group] += other.sums[group];
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of groups.
+     *
+     * @return Groups
+     */
+    public int getGroups() {
+        return counts.length;
+    }
+
+    /**
+     * Gets the number of tickets of a group.
+     *
+     * @param group Group
+     *
+     * @return Tickets
+     */
+    public long getCount(int group) {
+        return counts[group];
+    }
+
+    /**
+     * Gets the sum of the values of a group.
+     *
+     * @param group Group
+     *
+     * @return Sum
+     */
+    public long getSum(int group) {
+        return sums[group];
+    }
+
+    /**
+     * Gets the average value of a group.
+     *
+     * @param group Group
+     *
+     * @return Average, 0 if the group has no ticket
+     */
+    public double getAverage(int group) {
+        return (counts[group] == 0) ? 0 : (double) sums[group] / counts[group];
+    }
+}
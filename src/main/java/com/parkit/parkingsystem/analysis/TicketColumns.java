@@ -0,0 +1,457 @@
+package com.parkit.parkingsystem.analysis;
+
+import com.parkit.parkingsystem.archive.ColdStorage;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * <b>Tickets held column by column in primitive arrays, for ad-hoc analysis.</b>
+ * <p>
+ * Each ticket takes 33 bytes: its ID, spot number, price in cents and plate as <code>int</code>, its entry and exit times as epoch
+ * seconds, and its spot type as a byte. Plates are interned once in a dictionary and referred to by index, so that tens of millions
+ * of tickets fit in a few hundred MB, without an object per ticket.
+ * </p>
+ * <p>
+ * Rows are selected by {@link IntPredicate}s of the row index, built from the accessors of this class or its predicate factories.
+ * {@link #count}, {@link #filter}, {@link #sum} and {@link #aggregate} split the rows into chunks scanned in parallel by the common
+ * fork-join pool, each chunk with its own partial result, merged at the end.
+ * </p>
+ * <p>
+ * Tickets are added by a single thread, then the store may be scanned by several threads at once.
+ * </p>
+ */
+public class TicketColumns {
+
+    /** Exit time of a ticket still open. */
+    public static final long OPEN     = Long.MIN_VALUE;
+    /** Price of a ticket without a price. */
+    public static final int  NO_PRICE = -1;
+
+    private static final ParkingType[] TYPES      = ParkingType.values();
+    private static final int           CHUNK_SIZE = 64 * 1024;
+
+    private final Map<String, Integer> plateIds = new HashMap<>();
+    private final List<String>         plates   = new ArrayList<>();
+    private       int[]                ids;
+    private       int[]                parkingNumbers;
+    private       byte[]               types;
+    private       long[]               inTimes;
+    private       long[]               outTimes;
+    private       int[]                prices;
+    private       int[]                plateIndexes;
+    private       int                  size;
+
+    /**
+     * Creates an empty store.
+     *
+     * @param capacity Tickets expected, to avoid growing the columns
+     */
+    public TicketColumns(int capacity) {
+        int initial = Math.max(16, capacity);
+        ids = new int[initial];
+        parkingNumbers = new int[initial];
+        types = new byte[initial];
+        inTimes = new long[initial];
+        outTimes = new long[initial];
+        prices = new int[initial];
+        plateIndexes = new int[initial];
+    }
+
+    /**
+     * Adds a ticket.
+     *
+     * @param id               Ticket ID
+     * @param parkingNumber    Spot number
+     * @param parkingType      Spot type
+     * @param vehicleRegNumber Vehicle registration number
+     * @param inTime           Entry time, in epoch seconds
+     * @param outTime          Exit time, in epoch seconds, or {@link #OPEN}
+     * @param priceCents       Price in cents, or {@link #NO_PRICE}
+     */
+    public void add(int id, int parkingNumber, ParkingType parkingType, String vehicleRegNumber, long inTime, long outTime, int priceCents) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        parkingNumbers[size] = parkingNumber;
+        types[size] = (byte) parkingType.ordinal();
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        prices[size] = priceCents;
+        plateIndexes[size] = plateIds.computeIfAbsent(vehicleRegNumber, plate -> {
+            plates.add(plate);
+            return plates.size() - 1;
+        });
+        size++;
+    }
+
+    /**
+     * Loads every ticket of a database, open or closed.
+     *
+     * @param dataBaseConfig Database
+     * @param fetchSize      Rows read at once
+     *
+     * @return Number of tickets added
+     *
+     * @throws IOException if the database can not be read
+     */
+    public int addTickets(DataBaseConfig dataBaseConfig, int fetchSize) throws IOException {
+        Connection con   = null;
+        int        added = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            if (con == null) {
+                throw new IOException("Unable to connect to the database");
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.LOAD_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.setFetchSize(fetchSize);
+                    while (rs.next()) {
+                        //ID, PARKING_NUMBER, TYPE, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+                        BigDecimal price   = rs.getBigDecimal(5);
+                        Timestamp  outTime = rs.getTimestamp(7);
+                        add(rs.getInt(1), rs.getInt(2), ParkingType.valueOf(rs.getString(3)), rs.getString(4),
+                            toEpochSecond(rs.getTimestamp(6).toLocalDateTime()), (outTime == null) ? OPEN : toEpochSecond(outTime.toLocalDateTime()),
+                            (price == null) ? NO_PRICE : price.movePointRight(Fare.SCALE).setScale(0, RoundingMode.HALF_UP).intValueExact());
+                        added++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error loading tickets", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return added;
+    }
+
+    /**
+     * Loads the archived tickets which left during a period.
+     *
+     * @param coldStorage Archive
+     * @param from        Start of the period
+     * @param to          End of the period, excluded
+     *
+     * @return Number of tickets added
+     */
+    public int addArchivedTickets(ColdStorage coldStorage, LocalDateTime from, LocalDateTime to) {
+        int before = size;
+        coldStorage.scan(from, to, row -> add(row.getId(), row.getParkingNumber(), row.getParkingType(), row.getVehicleRegNumber(),
+                                              row.getInTime(), row.getOutTime(), Math.toIntExact(row.getPriceCents())));
+        return size - before;
+    }
+
+    /**
+     * Gets the number of tickets.
+     *
+     * @return Rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of distinct plates.
+     *
+     * @return Plates interned
+     */
+    public int getPlateCount() {
+        return plates.size();
+    }
+
+    /**
+     * Estimates the memory held by the columns, dictionary excluded.
+     *
+     * @return Bytes
+     */
+    public long getColumnBytes() {
+        return (long) ids.length * (4 * Integer.BYTES + 1 + 2 * Long.BYTES);
+    }
+
+    /**
+     * Gets the ID of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Ticket ID
+     */
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Gets the spot number of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Spot number
+     */
+    public int getParkingNumber(int row) {
+        return parkingNumbers[row];
+    }
+
+    /**
+     * Gets the spot type of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Spot type
+     */
+    public ParkingType getParkingType(int row) {
+        return TYPES[types[row]];
+    }
+
+    /**
+     * Gets the entry time of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Epoch seconds, in UTC
+     */
+    public long getInTime(int row) {
+        return inTimes[row];
+    }
+
+    /**
+     * Gets the exit time of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Epoch seconds, in UTC, or {@link #OPEN}
+     */
+    public long getOutTime(int row) {
+        return outTimes[row];
+    }
+
+    /**
+     * Gets the price of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Price in cents, or {@link #NO_PRICE}
+     */
+    public int getPriceCents(int row) {
+        return prices[row];
+    }
+
+    /**
+     * Gets the plate of a ticket, as an index into the dictionary.
+     *
+     * @param row Row
+     *
+     * @return Plate index
+     */
+    public int getPlateIndex(int row) {
+        return plateIndexes[row];
+    }
+
+    /**
+     * Gets the plate of a ticket.
+     *
+     * @param row Row
+     *
+     * @return Vehicle registration number
+     */
+    public String getVehicleRegNumber(int row) {
+        return plates.get(plateIndexes[row]);
+    }
+
+    /**
+     * Selects the tickets closed during a period.
+     *
+     * @param from Start of the period
+     * @param to   End of the period, excluded
+     *
+     * @return Predicate of the rows
+     */
+    public IntPredicate closedBetween(LocalDateTime from, LocalDateTime to) {
+        long start = toEpochSecond(from);
+        long end   = toEpochSecond(to);
+        return row -> outTimes[row] >= start && outTimes[row] < end;
+    }
+
+    /**
+     * Selects the tickets of a type of spot.
+     *
+     * @param parkingType Spot type
+     *
+     * @return Predicate of the rows
+     */
+    public IntPredicate ofType(ParkingType parkingType) {
+        byte ordinal = (byte) parkingType.ordinal();
+        return row -> types[row] == ordinal;
+    }
+
+    /**
+     * Selects the tickets of a vehicle.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Predicate of the rows, matching none if the vehicle has no ticket
+     */
+    public IntPredicate ofPlate(String vehicleRegNumber) {
+        Integer plate = plateIds.get(vehicleRegNumber);
+        if (plate == null) {
+            return row -> false;
+        }
+        int index = plate;
+        return row -> plateIndexes[row] == index;
+    }
+
+    /**
+     * Counts the tickets matching a predicate.
+     *
+     * @param predicate Predicate of the rows
+     *
+     * @return Tickets
+     */
+    public long count(IntPredicate predicate) {
+        return reduce(() -> new long[1], (count, row) -> {
+            if (predicate.test(row)) {
+                count[0]++;
+            }
+        }, (left, right) -> {
+            left[0] += right[0];
+            return left;
+        })[0];
+    }
+
+    /**
+     * Selects the tickets matching a predicate.
+     *
+     * @param predicate Predicate of the rows
+     *
+     * @return Rows, in increasing order
+     */
+    public int[] filter(IntPredicate predicate) {
+        return reduce(RowList::new, (rows, row) -> {
+            if (predicate.test(row)) {
+                rows.add(row);
+            }
+        }, RowList::addAll).toArray();
+    }
+
+    /**
+     * Sums a value over the tickets matching a predicate.
+     *
+     * @param predicate Predicate of the rows
+     * @param value     Value of a row, e.g. <code>columns::getPriceCents</code>
+     *
+     * @return Sum
+     */
+    public long sum(IntPredicate predicate, IntToLongFunction value) {
+        return reduce(() -> new long[1], (sum, row) -> {
+            if (predicate.test(row)) {
+                sum[0] += value.applyAsLong(row);
+            }
+        }, (left, right) -> {
+            left[0] += right[0];
+            return left;
+        })[0];
+    }
+
+    /**
+     * Counts the tickets matching a predicate and sums a value over them, per group.
+     *
+     * @param predicate Predicate of the rows
+     * @param group     Group of a row, from 0 to <code>groups - 1</code>; rows with a negative group are skipped
+     * @param groups    Number of groups
+     * @param value     Value of a row
+     *
+     * @return Totals per group
+     */
+    public GroupTotals aggregate(IntPredicate predicate, IntUnaryOperator group, int groups, IntToLongFunction value) {
+        return reduce(() -> new GroupTotals(groups), (totals, row) -> {
+            if (predicate.test(row)) {
+                int key = group.applyAsInt(row);
+                if (key >= 0) {
+                    totals.add(key, value.applyAsLong(row));
+                }
+            }
+        }, GroupTotals::merge);
+    }
+
+    private <A> A reduce(Supplier<A> partial, ObjIntConsumer<A> accumulator, BinaryOperator<A> combiner) {
+        int rows   = size;
+        int chunks = (rows + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        // Chunks are merged in order, so that filtered rows stay sorted
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            A   result = partial.get();
+            int end    = Math.min(rows, (chunk + 1) * CHUNK_SIZE);
+            for (int row = chunk * CHUNK_SIZE; row < end; row++) {
+                accumulator.accept(result, row);
+            }
+            return result;
+        }).reduce(combiner).orElseGet(partial);
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        parkingNumbers = Arrays.copyOf(parkingNumbers, capacity);
+        types = Arrays.copyOf(types, capacity);
+        inTimes = Arrays.copyOf(inTimes, capacity);
+        outTimes = Arrays.copyOf(outTimes, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        plateIndexes = Arrays.copyOf(plateIndexes, capacity);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Growable list of rows, the partial result of a filter.
+     */
+    private static final class RowList {
+
+        private int[] rows = new int[64];
+        private int   size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        RowList addAll(RowList other) {
+            if (size + other.size > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(rows.length * 2, size + other.size));
+            }
+            System.arraycopy(other.rows, 0, rows, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.parkit.parkingsystem.archive;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.PlateHistory;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * <b>Archives the closed tickets of a lot into segment files, and queries them.</b>
+ * <p>
+ * {@link #archive(LocalDate)} moves the tickets which left before a day out of the ticket table, one calendar month per segment:
+ * each segment is written and synced before its tickets are deleted, and the next archive starts where the last segment ends,
+ * so that a ticket is never archived twice even if the application stopped between the write and the delete.
+ * </p>
+ * <p>
+ * Segments are immutable and mapped in memory when the archive is opened. Plate histories skip the segments whose bloom filter
+ * rules the vehicle out, and revenue queries skip the segments whose exit times are out of the period, so that years of tickets
+ * are queried without the database.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.archive.Segment
+ */
+public class ColdStorage implements PlateHistory {
+
+    private static final Logger logger = LogManager.getLogger("ColdStorage");
+
+    private static final String            PREFIX = "tickets-";
+    private static final String            SUFFIX = ".seg";
+    private static final DateTimeFormatter DAY    = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final Path           directory;
+    private final String         lotId;
+    private final DataBaseConfig dataBaseConfig;
+    private final int            fetchSize;
+    private final List<Segment>  segments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Opens the segments of a directory, creating it if needed.
+     *
+     * @param directory      Directory of the segments of the lot
+     * @param lotId          Lot set on the tickets read, or null for a single lot
+     * @param dataBaseConfig Database the tickets are archived from, or null to only query the segments
+     * @param fetchSize      Rows read at once from the database
+     *
+     * @throws IOException if the directory can not be read, or holds a damaged segment
+     */
+    public ColdStorage(Path directory, String lotId, DataBaseConfig dataBaseConfig, int fetchSize) throws IOException {
+        this.directory = directory;
+        this.lotId = lotId;
+        this.dataBaseConfig = dataBaseConfig;
+        this.fetchSize = fetchSize;
+        Files.createDirectories(directory);
+        List<Segment> opened = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                opened.add(Segment.open(file));
+            }
+        }
+        opened.sort(Comparator.comparing(Segment::getWindowStart));
+        segments.addAll(opened);
+        logger.info("Opened {} ticket segments in {}", segments.size(), directory);
+    }
+
+    /**
+     * Moves the tickets which left before a day from the database to new segments.
+     *
+     * @param before First day kept in the database, not after today
+     *
+     * @return Number of tickets archived
+     *
+     * @throws IOException              if a segment can not be written, or the database can not be read
+     * @throws IllegalArgumentException if the day is in the future, when tickets still open could be closed before it
+     * @throws IllegalStateException    if the archive has no database
+     */
+    public synchronized int archive(LocalDate before) throws IOException {
+        if (before.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Tickets can not be archived before " + before + ", which is in the future");
+        }
+        if (dataBaseConfig == null) {
+            throw new IllegalStateException("The archive of " + directory + " has no database");
+        }
+        LocalDateTime cutoff   = before.atStartOfDay();
+        Connection    con      = null;
+        int           archived = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            if (con == null) {
+                throw new IOException("Unable to connect to the database");
+            }
+            LocalDateTime start     = segments.isEmpty() ? null : segments.get(segments.size() - 1).getWindowEnd();
+            LocalDateTime firstExit = getFirstExit(con);
+            if (firstExit == null) {
+                return 0;
+            }
+            LocalDateTime firstMonth = firstExit.toLocalDate().withDayOfMonth(1).atStartOfDay();
+            if (start == null || firstMonth.isAfter(start)) {
+                start = firstMonth;
+            }
+            while (start.isBefore(cutoff)) {
+                LocalDateTime nextMonth = start.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+                LocalDateTime end       = nextMonth.isBefore(cutoff) ? nextMonth : cutoff;
+                archived += archiveWindow(con, start, end);
+                start = end;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error archiving tickets before " + before, e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return archived;
+    }
+
+    /**
+     * Gets the segments, by window.
+     *
+     * @return Segments
+     */
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    @Override
+    public List<Ticket> getPlateHistory(String vehicleRegNumber) {
+        List<Ticket> tickets = new ArrayList<>();
+        for (Segment segment : segments) {
+            int plate = segment.findPlate(vehicleRegNumber);
+            if (plate >= 0) {
+                segment.scan(row -> {
+                    if (row.getPlateIndex() == plate) {
+                        tickets.add(toTicket(row, vehicleRegNumber));
+                    }
+                });
+            }
+        }
+        tickets.sort(Comparator.comparing(Ticket::getInTime).thenComparing(Ticket::getId).reversed());
+        return tickets;
+    }
+
+    @Override
+    public boolean hasVisited(String vehicleRegNumber) {
+        for (Segment segment : segments) {
+            if (segment.findPlate(vehicleRegNumber) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sums the prices of the archived tickets which left during a period.
+     *
+     * @param from        Start of the period
+     * @param to          End of the period, excluded
+     * @param parkingType Type of spot, or null for every type
+     *
+     * @return Revenue
+     */
+    public BigDecimal getRevenue(LocalDateTime from, LocalDateTime to, ParkingType parkingType) {
+        long[] cents = new long[1];
+        scan(from, to, row -> {
+            if (row.getPriceCents() > 0 && (parkingType == null || row.getParkingType() == parkingType)) {
+                cents[0] += row.getPriceCents();
+            }
+        });
+        return BigDecimal.valueOf(cents[0], Fare.SCALE);
+    }
+
+    /**
+     * Reads the archived tickets which left during a period, segment after segment and by exit time within a segment.
+     *
+     * @param from    Start of the period
+     * @param to      End of the period, excluded
+     * @param visitor Called with each ticket, in a row reused from one call to the next
+     */
+    public void scan(LocalDateTime from, LocalDateTime to, Consumer<SegmentRow> visitor) {
+        long start = Segment.toEpochSecond(from);
+        long end   = Segment.toEpochSecond(to);
+        for (Segment segment : segments) {
+            segment.scan(start, end, visitor);
+        }
+    }
+
+    private int archiveWindow(Connection con, LocalDateTime start, LocalDateTime end) throws SQLException, IOException {
+        SegmentWriter writer = new SegmentWriter();
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(fetchSize);
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setTimestamp(2, Timestamp.valueOf(end));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.setFetchSize(fetchSize);
+                while (rs.next()) {
+                    //ID, PARKING_NUMBER, TYPE, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+                    BigDecimal price = rs.getBigDecimal(5);
+                    writer.add(rs.getInt(1), rs.getInt(2), ParkingType.valueOf(rs.getString(3)), rs.getString(4),
+                               Segment.toEpochSecond(rs.getTimestamp(6).toLocalDateTime()), Segment.toEpochSecond(rs.getTimestamp(7).toLocalDateTime()),
+                               (price == null) ? -1 : price.movePointRight(Fare.SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact());
+                }
+            }
+        }
+        if (writer.getRows() > 0) {
+            Path file = directory.resolve(PREFIX + DAY.format(start) + "-" + DAY.format(end) + SUFFIX);
+            writer.write(file, Segment.toEpochSecond(start), Segment.toEpochSecond(end));
+            Segment segment = Segment.open(file);
+            segments.add(segment);
+            logger.info("Archived {}", segment);
+        }
+        // Also deletes the tickets of a previous window whose delete was interrupted, which are already in its segment
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKETS)) {
+            ps.setTimestamp(1, Timestamp.valueOf(end));
+            ps.executeUpdate();
+        }
+        return writer.getRows();
+    }
+
+    private static LocalDateTime getFirstExit(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_FIRST_EXIT);
+             ResultSet rs = ps.executeQuery()) {
+            Timestamp firstExit = rs.next() ? rs.getTimestamp(1) : null;
+            return (firstExit == null) ? null : firstExit.toLocalDateTime();
+        }
+    }
+
+    private Ticket toTicket(SegmentRow row, String vehicleRegNumber) {
+        ParkingSpot parkingSpot = new ParkingSpot(row.getParkingNumber(), row.getParkingType(), false);
+        parkingSpot.setLotId(lotId);
+        Ticket ticket = new Ticket();
+        ticket.setId(row.getId());
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(row.getPrice());
+        ticket.setInTime(row.getInDateTime());
+        ticket.setOutTime(row.getOutDateTime());
+        ticket.setLotId(lotId);
+        return ticket;
+    }
+}
@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.archive;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bloom filter of the plates of a segment, about 1% of false positives with 10 bits per plate.
+ * Bits are read straight from the mapped segment, without copying them.
+ */
+final class PlateBloomFilter {
+
+    static final int HASHES        = 7;
+    static final int BITS_PER_ITEM = 10;
+
+    private PlateBloomFilter() {
+    }
+
+    /**
+     * Sizes a filter.
+     *
+     * @param items Number of distinct plates
+     *
+     * @return Number of 64 bit words
+     */
+    static int words(int items) {
+        return Math.max(1, (items * BITS_PER_ITEM + 63) / 64);
+    }
+
+    /**
+     * Adds a plate.
+     *
+     * @param bits  Words of the filter
+     * @param plate Plate
+     */
+    static void add(long[] bits, String plate) {
+        long hash   = hash(plate);
+        int  first  = (int) hash;
+        int  second = (int) (hash >>> 32);
+        long size   = bits.length * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(first + i * second) % size;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Checks whether a plate may have been added.
+     *
+     * @param segment Mapped segment
+     * @param offset  Position of the first word in the segment
+     * @param words   Number of words
+     * @param plate   Plate
+     *
+     * @return False if the plate was certainly not added
+     */
+    static boolean mightContain(ByteBuffer segment, int offset, int words, String plate) {
+        long hash   = hash(plate);
+        int  first  = (int) hash;
+        int  second = (int) (hash >>> 32);
+        long size   = words * 64L;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Integer.toUnsignedLong(first + i * second) % size;
+            if ((segment.getLong(offset + (int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String plate) {
+        // 64 bit FNV-1a of the UTF-8 bytes, whose two halves seed the double hashing
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : plate.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,296 @@
+package com.parkit.parkingsystem.archive;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+/**
+ * <b>Immutable file of the tickets closed during a window of time, read through a memory map.</b>
+ * <p>
+ * Tickets are stored by column, in exit time order:
+ * </p>
+ * <ul>
+ *     <li>IDs as zigzag varint deltas, exit times as varint deltas and entry times as the varint length of the stay, in seconds</li>
+ *     <li>plates and spots as varint indexes into sorted dictionaries, the type being kept with each spot</li>
+ *     <li>prices as varint cents</li>
+ * </ul>
+ * <p>
+ * The header holds the window, the first and last exit times and the revenue of the segment, then a bloom filter of its plates,
+ * so that most queries skip most segments without reading their columns. Only the pages of the file which are read are loaded,
+ * by the operating system; nothing is copied to the heap but the plates decoded.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.archive.ColdStorage
+ */
+public final class Segment {
+
+    private static final ParkingType[] TYPES  = ParkingType.values();
+    private static final int           HEADER = 2 * Integer.BYTES + Integer.BYTES + 5 * Long.BYTES;
+
+    private final Path             path;
+    private final MappedByteBuffer buffer;
+    private final int              rows;
+    private final long             windowStart;
+    private final long             windowEnd;
+    private final long             firstExit;
+    private final long             lastExit;
+    private final long             revenueCents;
+    private final int              bloomOffset;
+    private final int              bloomWords;
+    private final int              plateCount;
+    private final int              plateOffsets;
+    private final int              plateBytes;
+    private final int[]            spotNumbers;
+    private final ParkingType[]    spotTypes;
+    private final int[]            columns = new int[SegmentWriter.COLUMNS];
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER || buffer.getInt(0) != SegmentWriter.MAGIC) {
+            throw new IOException(path + " is not a ticket segment");
+        }
+        if (buffer.getInt(4) != SegmentWriter.VERSION) {
+            throw new IOException("Unsupported version " + buffer.getInt(4) + " of segment " + path);
+        }
+        this.rows = buffer.getInt(8);
+        this.windowStart = buffer.getLong(12);
+        this.windowEnd = buffer.getLong(20);
+        this.firstExit = buffer.getLong(28);
+        this.lastExit = buffer.getLong(36);
+        this.revenueCents = buffer.getLong(44);
+        int position = HEADER;
+        this.bloomWords = buffer.getInt(position);
+        this.bloomOffset = position + Integer.BYTES;
+        position = bloomOffset + bloomWords * Long.BYTES;
+        this.plateCount = buffer.getInt(position);
+        this.plateOffsets = position + Integer.BYTES;
+        this.plateBytes = plateOffsets + (plateCount + 1) * Integer.BYTES;
+        position = plateBytes + buffer.getInt(plateOffsets + plateCount * Integer.BYTES);
+        int spotCount = buffer.getInt(position);
+        position += Integer.BYTES;
+        this.spotNumbers = new int[spotCount];
+        this.spotTypes = new ParkingType[spotCount];
+        for (int i = 0; i < spotCount; i++) {
+            spotNumbers[i] = buffer.getInt(position);
+            spotTypes[i] = TYPES[buffer.get(position + Integer.BYTES)];
+            position += Integer.BYTES + 1;
+        }
+        int start = position + SegmentWriter.COLUMNS * Integer.BYTES;
+        for (int column = 0; column < SegmentWriter.COLUMNS; column++) {
+            columns[column] = start;
+            start += buffer.getInt(position + column * Integer.BYTES);
+        }
+        if (start != buffer.capacity()) {
+            throw new IOException("Segment " + path + " is truncated");
+        }
+    }
+
+    /**
+     * Maps a segment file.
+     *
+     * @param path Segment file
+     *
+     * @return Segment
+     *
+     * @throws IOException if the file can not be read, or is not a complete segment
+     */
+    public static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Segment " + path + " is larger than 2 GB");
+            }
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Gets the file of the segment.
+     *
+     * @return Path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of tickets.
+     *
+     * @return Rows
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Gets the start of the exit times archived in the segment.
+     *
+     * @return Start of the window
+     */
+    public LocalDateTime getWindowStart() {
+        return toDateTime(windowStart);
+    }
+
+    /**
+     * Gets the end of the exit times archived in the segment, excluded.
+     *
+     * @return End of the window
+     */
+    public LocalDateTime getWindowEnd() {
+        return toDateTime(windowEnd);
+    }
+
+    /**
+     * Gets the revenue of every ticket of the segment, read from its header.
+     *
+     * @return Revenue
+     */
+    public BigDecimal getRevenue() {
+        return BigDecimal.valueOf(revenueCents, 2);
+    }
+
+    /**
+     * Checks whether the exit times of the segment overlap a period.
+     *
+     * @param from Start of the period, in epoch seconds
+     * @param to   End of the period, excluded, in epoch seconds
+     *
+     * @return False if no ticket of the segment left during the period
+     */
+    public boolean overlaps(long from, long to) {
+        return rows > 0 && firstExit < to && lastExit >= from;
+    }
+
+    /**
+     * Checks the bloom filter of the segment.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return False if the vehicle has no ticket in the segment; true if it may have one
+     */
+    public boolean mightContain(String vehicleRegNumber) {
+        return PlateBloomFilter.mightContain(buffer, bloomOffset, bloomWords, vehicleRegNumber);
+    }
+
+    /**
+     * Looks a plate up in the dictionary of the segment.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Plate index, or -1 if the vehicle has no ticket in the segment
+     */
+    public int findPlate(String vehicleRegNumber) {
+        if (!mightContain(vehicleRegNumber)) {
+            return -1;
+        }
+        int low  = 0;
+        int high = plateCount - 1;
+        while (low <= high) {
+            int middle     = (low + high) >>> 1;
+            int comparison = getPlate(middle).compareTo(vehicleRegNumber);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a plate of the dictionary.
+     *
+     * @param plateIndex Plate index
+     *
+     * @return Vehicle registration number
+     */
+    public String getPlate(int plateIndex) {
+        int    start = buffer.getInt(plateOffsets + plateIndex * Integer.BYTES);
+        int    end   = buffer.getInt(plateOffsets + (plateIndex + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(plateBytes + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads every ticket of the segment, by exit time.
+     *
+     * @param visitor Called with each ticket, in a row reused from one call to the next
+     */
+    public void scan(Consumer<SegmentRow> visitor) {
+        scan(Long.MIN_VALUE, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Reads the tickets of the segment which left during a period, by exit time.
+     * The scan stops at the first ticket which left after the period.
+     *
+     * @param from    Start of the period, in epoch seconds
+     * @param to      End of the period, excluded, in epoch seconds
+     * @param visitor Called with each ticket, in a row reused from one call to the next
+     */
+    public void scan(long from, long to, Consumer<SegmentRow> visitor) {
+        if (!overlaps(from, to)) {
+            return;
+        }
+        // Each column is read sequentially from its own position; absolute reads let segments be scanned by several threads
+        int[]      positions = columns.clone();
+        SegmentRow row       = new SegmentRow(this);
+        long       id        = 0;
+        long       outTime   = 0;
+        for (int i = 0; i < rows; i++) {
+            long idDelta = readVarLong(positions, 0);
+            id += (idDelta >>> 1) ^ -(idDelta & 1);
+            outTime += readVarLong(positions, 1);
+            long stay  = readVarLong(positions, 2);
+            int  plate = (int) readVarLong(positions, 3);
+            int  spot  = (int) readVarLong(positions, 4);
+            long price = readVarLong(positions, 5) - 1;
+            if (outTime >= to) {
+                return;
+            }
+            if (outTime >= from) {
+                row.set((int) id, spotNumbers[spot], spotTypes[spot], plate, outTime - stay, outTime, price);
+                visitor.accept(row);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName() + " (" + rows + " tickets from " + getWindowStart() + " to " + getWindowEnd() + ")";
+    }
+
+    private long readVarLong(int[] positions, int column) {
+        long value = 0;
+        int  shift = 0;
+        byte b;
+        do {
+            b = buffer.get(positions[column]++);
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,137 @@
+package com.parkit.parkingsystem.archive;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Archived ticket being scanned, reused for every row of a scan.
+ * Times are kept in epoch seconds and prices in cents; the plate is only decoded when asked for.
+ *
+ * @see com.parkit.parkingsystem.archive.Segment#scan(java.util.function.Consumer)
+ */
+public final class SegmentRow {
+
+    private final Segment     segment;
+    private       int         id;
+    private       int         parkingNumber;
+    private       ParkingType parkingType;
+    private       int         plateIndex;
+    private       long        inTime;
+    private       long        outTime;
+    private       long        priceCents;
+
+    SegmentRow(Segment segment) {
+        this.segment = segment;
+    }
+
+    void set(int id, int parkingNumber, ParkingType parkingType, int plateIndex, long inTime, long outTime, long priceCents) {
+        this.id = id;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.plateIndex = plateIndex;
+        this.inTime = inTime;
+        this.outTime = outTime;
+        this.priceCents = priceCents;
+    }
+
+    /**
+     * Gets the ticket ID.
+     *
+     * @return Ticket ID in the lot
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the spot number.
+     *
+     * @return Spot number
+     */
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    /**
+     * Gets the spot type.
+     *
+     * @return Spot type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets the index of the plate in the dictionary of the segment, to compare plates without decoding them.
+     *
+     * @return Plate index
+     */
+    public int getPlateIndex() {
+        return plateIndex;
+    }
+
+    /**
+     * Decodes the plate.
+     *
+     * @return Vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return segment.getPlate(plateIndex);
+    }
+
+    /**
+     * Gets the entry time.
+     *
+     * @return Epoch seconds, in UTC
+     */
+    public long getInTime() {
+        return inTime;
+    }
+
+    /**
+     * Gets the exit time.
+     *
+     * @return Epoch seconds, in UTC
+     */
+    public long getOutTime() {
+        return outTime;
+    }
+
+    /**
+     * Gets the price.
+     *
+     * @return Price in cents, or -1 if the ticket has no price
+     */
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    /**
+     * Gets the entry time as a date.
+     *
+     * @return Entry time
+     */
+    public LocalDateTime getInDateTime() {
+        return Segment.toDateTime(inTime);
+    }
+
+    /**
+     * Gets the exit time as a date.
+     *
+     * @return Exit time
+     */
+    public LocalDateTime getOutDateTime() {
+        return Segment.toDateTime(outTime);
+    }
+
+    /**
+     * Gets the price as an amount.
+     *
+     * @return Price, or null if the ticket has no price
+     */
+    public BigDecimal getPrice() {
+        return (priceCents < 0) ? null : BigDecimal.valueOf(priceCents, 2);
+    }
+}
@@ -0,0 +1,200 @@
+package com.parkit.parkingsystem.archive;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds a segment from closed tickets added by exit time, then writes it at once.
+ * <p>
+ * Only the encoded columns are kept while tickets are added: IDs and exit times as varint deltas, stays and prices as varints,
+ * plates and spots as indexes into dictionaries which are sorted before being written.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.archive.Segment
+ */
+final class SegmentWriter {
+
+    static final int MAGIC   = 0x504b5347; // "PKSG"
+    static final int VERSION = 1;
+    static final int COLUMNS = 6;
+
+    private final Map<String, Integer>  plateIds   = new HashMap<>();
+    private final Map<Integer, Integer> spotIds    = new HashMap<>();
+    private final Map<Integer, Integer> spotTypes  = new HashMap<>();
+    private final ByteArrayOutputStream ids        = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream outTimes   = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stays      = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream prices     = new ByteArrayOutputStream();
+    private       int[]                 plateIndex = new int[1024];
+    private       int[]                 spotIndex  = new int[1024];
+    private       int                   rows;
+    private       long                  previousId;
+    private       long                  previousOut;
+    private       long                  minOut     = Long.MAX_VALUE;
+    private       long                  maxOut     = Long.MIN_VALUE;
+    private       long                  revenue;
+
+    /**
+     * Adds a closed ticket.
+     *
+     * @param id               Ticket ID
+     * @param parkingNumber    Spot number
+     * @param parkingType      Spot type
+     * @param vehicleRegNumber Vehicle registration number
+     * @param inTime           Entry time, in epoch seconds
+     * @param outTime          Exit time, in epoch seconds, not before the exit time of the previous ticket
+     * @param priceCents       Price in cents, or -1 if the ticket has no price
+     *
+     * @throws IllegalArgumentException if the ticket left before the previous one, or before it came
+     */
+    void add(int id, int parkingNumber, ParkingType parkingType, String vehicleRegNumber, long inTime, long outTime, long priceCents) {
+        if (rows > 0 && outTime < previousOut) {
+            throw new IllegalArgumentException("Ticket " + id + " is not in exit time order");
+        }
+        if (outTime < inTime) {
+            throw new IllegalArgumentException("Ticket " + id + " left before it came");
+        }
+        if (rows == plateIndex.length) {
+            plateIndex = Arrays.copyOf(plateIndex, rows * 2);
+            spotIndex = Arrays.copyOf(spotIndex, rows * 2);
+        }
+        writeVarLong(ids, zigZag(id - previousId));
+        writeVarLong(outTimes, (rows == 0) ? outTime : outTime - previousOut);
+        writeVarLong(stays, outTime - inTime);
+        writeVarLong(prices, priceCents + 1);
+        plateIndex[rows] = plateIds.computeIfAbsent(vehicleRegNumber, plate -> plateIds.size());
+        spotIndex[rows] = spotIds.computeIfAbsent(parkingNumber, number -> spotIds.size());
+        spotTypes.put(parkingNumber, parkingType.ordinal());
+        previousId = id;
+        previousOut = outTime;
+        minOut = Math.min(minOut, outTime);
+        maxOut = Math.max(maxOut, outTime);
+        revenue += Math.max(0, priceCents);
+        rows++;
+    }
+
+    /**
+     * Gets the number of tickets added.
+     *
+     * @return Rows
+     */
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * Writes the segment next to its target then moves it there, so that a segment is either complete or missing.
+     *
+     * @param target      Segment file
+     * @param windowStart Start of the exit times archived, in epoch seconds
+     * @param windowEnd   End of the exit times archived, excluded, in epoch seconds
+     *
+     * @throws IOException if the file can not be written
+     */
+    void write(Path target, long windowStart, long windowEnd) throws IOException {
+        String[] plates    = new String[plateIds.size()];
+        int[]    plateRank = new int[plates.length];
+        int      rank      = 0;
+        for (Map.Entry<String, Integer> plate : new TreeMap<>(plateIds).entrySet()) {
+            plates[rank] = plate.getKey();
+            plateRank[plate.getValue()] = rank++;
+        }
+        int[] spots    = new int[spotIds.size()];
+        int[] spotRank = new int[spots.length];
+        rank = 0;
+        for (Map.Entry<Integer, Integer> spot : new TreeMap<>(spotIds).entrySet()) {
+            spots[rank] = spot.getKey();
+            spotRank[spot.getValue()] = rank++;
+        }
+        ByteArrayOutputStream plateColumn = new ByteArrayOutputStream();
+        ByteArrayOutputStream spotColumn  = new ByteArrayOutputStream();
+        for (int row = 0; row < rows; row++) {
+            writeVarLong(plateColumn, plateRank[plateIndex[row]]);
+            writeVarLong(spotColumn, spotRank[spotIndex[row]]);
+        }
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeLong(windowStart);
+            out.writeLong(windowEnd);
+            out.writeLong(minOut);
+            out.writeLong(maxOut);
+            out.writeLong(revenue);
+            writeBloomFilter(out, plates);
+            writePlates(out, plates);
+            out.writeInt(spots.length);
+            for (int spot : spots) {
+                out.writeInt(spot);
+                out.writeByte(spotTypes.get(spot));
+            }
+            ByteArrayOutputStream[] columns = {ids, outTimes, stays, plateColumn, spotColumn, prices};
+            for (ByteArrayOutputStream column : columns) {
+                out.writeInt(column.size());
+            }
+            for (ByteArrayOutputStream column : columns) {
+                column.writeTo(out);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeBloomFilter(DataOutputStream out, String[] plates) throws IOException {
+        long[] bits = new long[PlateBloomFilter.words(plates.length)];
+        for (String plate : plates) {
+            PlateBloomFilter.add(bits, plate);
+        }
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    private static void writePlates(DataOutputStream out, String[] plates) throws IOException {
+        // Offsets first, so that the sorted dictionary can be searched in place
+        byte[][] encoded = new byte[plates.length][];
+        int      offset  = 0;
+        out.writeInt(plates.length);
+        for (int i = 0; i < plates.length; i++) {
+            encoded[i] = plates[i].getBytes(StandardCharsets.UTF_8);
+            out.writeInt(offset);
+            offset += encoded[i].length;
+        }
+        out.writeInt(offset);
+        for (byte[] plate : encoded) {
+            out.write(plate);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
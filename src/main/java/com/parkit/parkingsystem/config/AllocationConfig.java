@@ -0,0 +1,71 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.allocation.LotTopology;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.constants.AllocationPolicy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Configures the allocation of spots to the vehicles coming through the gates.
+ * <p>
+ * The allocation is read from <code>resources/config.properties</code>:
+ * </p>
+ * <ul>
+ *     <li><code>allocation.topology</code>: file describing levels, zones and gates of the lot, see {@link LotTopology}; without it the lowest free parking number is given</li>
+ *     <li><code>allocation.policy</code>: <code>nearest_to_gate</code> (default), <code>fill_level_by_level</code>, <code>balance_zones</code> or <code>lowest_number</code></li>
+ * </ul>
+ *
+ * @see com.parkit.parkingsystem.allocation.SpotAllocator
+ */
+public class AllocationConfig {
+
+    private static final Logger logger = LogManager.getLogger("AllocationConfig");
+
+    public static final String TOPOLOGY = "allocation.topology";
+    public static final String POLICY   = "allocation.policy";
+
+    private AllocationConfig() {
+    }
+
+    /**
+     * Creates the configured spot allocator.
+     *
+     * @param properties Allocation properties
+     *
+     * @return Spot allocator, or null if no topology is configured
+     *
+     * @throws IOException if the topology file can not be read
+     */
+    public static SpotAllocator createSpotAllocator(Properties properties) throws IOException {
+        String topology = properties.getProperty(TOPOLOGY);
+        if (topology == null || topology.trim().isEmpty()) {
+            return null;
+        }
+        AllocationPolicy policy = AllocationPolicy.valueOf(properties.getProperty(POLICY, AllocationPolicy.NEAREST_TO_GATE.name()).trim().toUpperCase());
+        logger.info("Allocating spots of {} with policy {}", topology, policy);
+        return new SpotAllocator(LotTopology.load(Paths.get(topology.trim())), policy);
+    }
+
+    /**
+     * Reads the allocation configuration from <code>resources/config.properties</code>.
+     *
+     * @return Spot allocator, or null if no topology is configured or the file can not be read
+     *
+     * @throws IOException if the topology file can not be read
+     */
+    public static SpotAllocator load() throws IOException {
+        Properties properties = new Properties();
+        try (FileInputStream fileInputStream = new FileInputStream("resources/config.properties")) {
+            properties.load(fileInputStream);
+        } catch (IOException e) {
+            logger.error("Error while reading properties file, allocating lowest free parking number", e);
+        }
+        return createSpotAllocator(properties);
+    }
+}
@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.dao.DataAccessException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -9,6 +10,10 @@ import java.util.Properties;
 
 /**
  * Configures connection to production database.
+ * <p>
+ * Timeouts, none by default, bound the time spent connecting and running each statement, so that a stalled database makes calls fail
+ * instead of blocking the threads calling it.
+ * </p>
  *
  * @see com.parkit.parkingsystem.dao.ParkingSpotDAO
  * @see com.parkit.parkingsystem.dao.TicketDAO
@@ -20,6 +25,29 @@ public class DataBaseConfig {
      */
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private volatile int connectTimeoutSeconds;
+    private volatile int queryTimeoutSeconds;
+
+    /**
+     * Sets the timeouts of the connections and statements.
+     *
+     * @param connectTimeoutSeconds Time allowed to open a connection, 0 for the driver default
+     * @param queryTimeoutSeconds   Time allowed to run a statement, 0 for no limit
+     */
+    public void setTimeouts(int connectTimeoutSeconds, int queryTimeoutSeconds) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Gets the time allowed to open a connection.
+     *
+     * @return Seconds, 0 for the driver default
+     */
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
     /**
      * Gets connection information to database.
      *
@@ -39,6 +67,9 @@ public class DataBaseConfig {
             String dbPassword = dbProperties.getProperty("db.password");
 
             Class.forName(dbDriver);
+            if (connectTimeoutSeconds > 0) {
+                DriverManager.setLoginTimeout(connectTimeoutSeconds);
+            }
 
             return DriverManager.getConnection(dbURL, dbUsername, dbPassword);
         } catch (Exception e) {
@@ -47,6 +78,57 @@ public class DataBaseConfig {
         return null;
     }
 
+    /**
+     * Gets a connection, failing instead of returning null.
+     *
+     * @return Connection
+     *
+     * @throws DataAccessException if the database can not be reached
+     */
+    public Connection openConnection() {
+        Connection con = getConnection();
+        if (con == null) {
+            throw new DataAccessException(DataAccessException.Failure.UNAVAILABLE, "Unable to connect to database", null);
+        }
+        return con;
+    }
+
+    /**
+     * Prepares a statement limited to the query timeout.
+     *
+     * @param con Connection
+     * @param sql Statement
+     *
+     * @return Prepared statement
+     *
+     * @throws SQLException if the statement can not be prepared
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+        return withTimeout(con.prepareStatement(sql));
+    }
+
+    /**
+     * Prepares a statement limited to the query timeout.
+     *
+     * @param con               Connection
+     * @param sql               Statement
+     * @param autoGeneratedKeys Whether the generated keys are returned
+     *
+     * @return Prepared statement
+     *
+     * @throws SQLException if the statement can not be prepared
+     */
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        return withTimeout(con.prepareStatement(sql, autoGeneratedKeys));
+    }
+
+    private PreparedStatement withTimeout(PreparedStatement ps) throws SQLException {
+        if (queryTimeoutSeconds > 0) {
+            ps.setQueryTimeout(queryTimeoutSeconds);
+        }
+        return ps;
+    }
+
     /**
      * Closes connection to database.
      *
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Configures connection to one database, keeping closed connections open for reuse.
+ * <p>
+ * Used for the database of each lot when lots are sharded: the connection parameters are given instead of read from <code>config.properties</code>,
+ * and a connection given back with {@link #closeConnection(Connection)} is kept in a small pool instead of being closed,
+ * so that requests do not open a new connection every time.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.ShardRouter
+ */
+public class PooledDataBaseConfig extends DataBaseConfig implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("PooledDataBaseConfig");
+
+    private final String                    url;
+    private final String                    username;
+    private final String                    password;
+    private final BlockingQueue<Connection> idle;
+
+    /**
+     * Constructor for PooledDataBaseConfig.
+     *
+     * @param url      JDBC URL of the database
+     * @param username Database user
+     * @param password Database password
+     * @param poolSize Maximum number of idle connections kept open
+     */
+    public PooledDataBaseConfig(String url, String username, String password, int poolSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Gets an idle connection, or opens a new one.
+     *
+     * @return Connection, or null if the database can not be reached
+     */
+    @Override
+    public Connection getConnection() {
+        Connection con;
+        while ((con = idle.poll()) != null) {
+            if (isReusable(con)) {
+                return con;
+            }
+            super.closeConnection(con);
+        }
+        try {
+            if (getConnectTimeoutSeconds() > 0) {
+                DriverManager.setLoginTimeout(getConnectTimeoutSeconds());
+            }
+            return DriverManager.getConnection(url, username, password);
+        } catch (SQLException e) {
+            logger.error("Error while connecting to " + url, e);
+        }
+        return null;
+    }
+
+    /**
+     * Gives a connection back to the pool, or closes it if the pool is full.
+     *
+     * @param con Connection to give back
+     */
+    @Override
+    public void closeConnection(Connection con) {
+        if (con != null && !(isReusable(con) && idle.offer(con))) {
+            super.closeConnection(con);
+        }
+    }
+
+    /**
+     * Closes every idle connection.
+     */
+    @Override
+    public void close() {
+        Connection con;
+        while ((con = idle.poll()) != null) {
+            super.closeConnection(con);
+        }
+    }
+
+    private static boolean isReusable(Connection con) {
+        try {
+            return !con.isClosed() && con.getAutoCommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,737 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.allocation.LeasedSpotPool;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.allocation.SpotHolds;
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.archive.ColdStorage;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.StorageEngine;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcCommandLogDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcRollupDAO;
+import com.parkit.parkingsystem.dao.JdbcSketchDAO;
+import com.parkit.parkingsystem.dao.JdbcSpotLeaseDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.PlateHistory;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.dao.ShardRouter;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.export.TicketExporter;
+import com.parkit.parkingsystem.idempotency.CommandDeduplicator;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.occupancy.OccupancyCounters;
+import com.parkit.parkingsystem.occupancy.OccupancyPublisher;
+import com.parkit.parkingsystem.pricing.FareQuotes;
+import com.parkit.parkingsystem.reservation.ReservationBook;
+import com.parkit.parkingsystem.resilience.Bulkhead;
+import com.parkit.parkingsystem.resilience.CircuitBreaker;
+import com.parkit.parkingsystem.resilience.DataAccessGuard;
+import com.parkit.parkingsystem.resilience.GuardedRollupDAO;
+import com.parkit.parkingsystem.stats.TicketSketches;
+import com.parkit.parkingsystem.timer.SessionTimers;
+import com.parkit.parkingsystem.timer.TimingWheel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects the storage backend of parking spots and tickets.
+ * <p>
+ * The backend is read from <code>resources/config.properties</code>:
+ * </p>
+ * <ul>
+ *     <li><code>storage.engine</code>: <code>jdbc</code> (MySQL database, default) or <code>memory</code></li>
+ *     <li><code>storage.memory.spots</code>: parking spots of the in-memory lot, e.g. <code>CAR:1-3,BIKE:4-5</code> (default, same lot as Data.sql)</li>
+ *     <li><code>storage.memory.snapshot</code>: optional file the in-memory storage is restored from at startup and saved to at shutdown</li>
+ *     <li><code>storage.memory.snapshotIntervalSeconds</code>: optional period of the snapshots taken while running</li>
+ *     <li><code>storage.lots</code>: optional list of lots, e.g. <code>north,south</code>, each with its own MySQL database
+ *     at <code>storage.lot.&lt;lot&gt;.url</code> (user and password default to <code>db.username</code> and <code>db.password</code>)</li>
+ *     <li><code>storage.lot</code>: lot served by this application when lots are listed; the other lots are only queried for the history of vehicles</li>
+ *     <li><code>storage.lot.poolSize</code>: connections kept open to the database of each lot, 4 by default</li>
+ *     <li><code>storage.node</code>: optional ID of this application node when several nodes share a MySQL lot; each node then leases blocks of spots</li>
+ *     <li><code>storage.lease.blockSize</code>: spots leased at once by a node, 8 by default</li>
+ *     <li><code>storage.lease.seconds</code>: duration of the leases, renewed every third of it, 30 by default</li>
+ *     <li><code>storage.sketch.flushSeconds</code>: period of the saves of the duration and fare sketches to MySQL, 60 by default</li>
+ *     <li><code>storage.export.fetchSize</code>: rows read at once by the ticket exports and the archive, 1000 by default</li>
+ *     <li><code>storage.archive.directory</code>: optional directory of the segments the closed tickets are archived to,
+ *     with a sub-directory per lot when lots are listed</li>
+ *     <li><code>storage.dedupe.windowSeconds</code>: time the results of the gate commands are remembered in memory for their retries, 300 by default</li>
+ *     <li><code>storage.dedupe.maxEntries</code>: results of the gate commands remembered in memory, 100000 by default</li>
+ *     <li><code>storage.dedupe.retentionHours</code>: time the results of the gate commands are kept in MySQL for the retries reaching
+ *     another node or a restarted one, 24 by default</li>
+ *     <li><code>storage.timeout.connectSeconds</code> and <code>storage.timeout.querySeconds</code>: time allowed to connect to MySQL and
+ *     to run a statement, 5 and 10 by default</li>
+ *     <li><code>storage.breaker.failures</code>: consecutive MySQL failures or timeouts after which calls fail at once, 5 by default</li>
+ *     <li><code>storage.breaker.openSeconds</code>: time calls fail at once before a trial call, 10 by default</li>
+ *     <li><code>storage.bulkhead.entry</code>, <code>storage.bulkhead.exit</code> and <code>storage.bulkhead.reporting</code>: entries,
+ *     exits and reports running at once, 8, 8 and 2 by default</li>
+ *     <li><code>storage.bulkhead.waitMillis</code>: time a call waits for room in its bulkhead, 100 by default</li>
+ *     <li><code>storage.async.threads</code>: threads calling MySQL for the steps of an entry or an exit which run at once, 8 by default;
+ *     0 calls MySQL one step after the other on the gate thread</li>
+ *     <li><code>storage.hold.seconds</code>: time a spot is held while the plate of a vehicle entering through the shell is typed, 60 by default</li>
+ *     <li><code>storage.timer.tickMillis</code>: precision of the timers of the holds, reservations and parked vehicles, 100 by default</li>
+ *     <li><code>storage.timer.workers</code>: threads running the expired timers, 2 by default</li>
+ *     <li><code>storage.timer.overstayHours</code>: stay after which a parked vehicle is reported, 24 by default</li>
+ *     <li><code>storage.quote.graceMinutes</code>: time a vehicle has to leave once its fare is paid at a kiosk, 15 by default</li>
+ *     <li><code>storage.closure.chunkSize</code>: tickets closed per transaction when the lot is closed, 500 by default</li>
+ *     <li><code>storage.inventory.chunkSize</code>: spots added, retired or retyped per transaction, 100 by default</li>
+ *     <li><code>storage.occupancy.reconcileSeconds</code>: period of the corrections of the free spot counters of the display boards
+ *     with the database, 30 by default</li>
+ *     <li><code>storage.reservation.spots</code>: optional spots of each type which may be reserved at once, e.g. <code>CAR:10,BIKE:2</code>;
+ *     without it no reservation is taken</li>
+ *     <li><code>storage.plates.correctMisreads</code>: <code>true</code> to close the ticket of the only parked vehicle whose plate differs
+ *     by characters cameras confuse when a plate read at the exit has no open ticket, false by default</li>
+ * </ul>
+ *
+ * @see com.parkit.parkingsystem.dao.InMemoryStorage
+ * @see com.parkit.parkingsystem.config.DataBaseConfig
+ */
+public class StorageConfig {
+
+    private static final Logger logger = LogManager.getLogger("StorageConfig");
+
+    public static final String ENGINE                   = "storage.engine";
+    public static final String MEMORY_SPOTS             = "storage.memory.spots";
+    public static final String MEMORY_SNAPSHOT          = "storage.memory.snapshot";
+    public static final String MEMORY_SNAPSHOT_INTERVAL = "storage.memory.snapshotIntervalSeconds";
+    public static final String LOTS                     = "storage.lots";
+    public static final String LOT                      = "storage.lot";
+    public static final String LOT_POOL_SIZE            = "storage.lot.poolSize";
+    public static final String NODE                     = "storage.node";
+    public static final String LEASE_BLOCK_SIZE         = "storage.lease.blockSize";
+    public static final String LEASE_SECONDS            = "storage.lease.seconds";
+    public static final String SKETCH_FLUSH_SECONDS     = "storage.sketch.flushSeconds";
+    public static final String EXPORT_FETCH_SIZE        = "storage.export.fetchSize";
+    public static final String ARCHIVE_DIRECTORY        = "storage.archive.directory";
+    public static final String DEDUPE_WINDOW            = "storage.dedupe.windowSeconds";
+    public static final String DEDUPE_MAX_ENTRIES       = "storage.dedupe.maxEntries";
+    public static final String DEDUPE_RETENTION         = "storage.dedupe.retentionHours";
+    public static final String CONNECT_TIMEOUT          = "storage.timeout.connectSeconds";
+    public static final String QUERY_TIMEOUT            = "storage.timeout.querySeconds";
+    public static final String BREAKER_FAILURES         = "storage.breaker.failures";
+    public static final String BREAKER_OPEN_SECONDS     = "storage.breaker.openSeconds";
+    public static final String BULKHEAD_PREFIX          = "storage.bulkhead.";
+    public static final String BULKHEAD_WAIT            = "storage.bulkhead.waitMillis";
+    public static final String ASYNC_THREADS            = "storage.async.threads";
+    public static final String HOLD_SECONDS             = "storage.hold.seconds";
+    public static final String TIMER_TICK               = "storage.timer.tickMillis";
+    public static final String TIMER_WORKERS            = "storage.timer.workers";
+    public static final String OVERSTAY_HOURS           = "storage.timer.overstayHours";
+    public static final String QUOTE_GRACE              = "storage.quote.graceMinutes";
+    public static final String CLOSURE_CHUNK_SIZE       = "storage.closure.chunkSize";
+    public static final String INVENTORY_CHUNK_SIZE     = "storage.inventory.chunkSize";
+    public static final String OCCUPANCY_RECONCILE      = "storage.occupancy.reconcileSeconds";
+    public static final String RESERVATION_SPOTS        = "storage.reservation.spots";
+    public static final String CORRECT_MISREADS         = "storage.plates.correctMisreads";
+
+    private static final String DEFAULT_SPOTS = "CAR:1-3,BIKE:4-5";
+    private static final String DEFAULT_NODE  = "local";
+
+    private final StorageEngine                     engine;
+    private final ParkingSpotDAO                    parkingSpotDAO;
+    private final TicketDAO                         ticketDAO;
+    private final Map<String, PooledDataBaseConfig> lotDataBases = new LinkedHashMap<>();
+    private final String                            nodeId;
+    private final long                              sketchFlushSeconds;
+    private final int                               exportFetchSize;
+    private final Path                              archiveDirectory;
+    private final Duration                          dedupeWindow;
+    private final int                               dedupeMaxEntries;
+    private final Duration                          dedupeRetention;
+    private final DataAccessGuard                   dataAccessGuard;
+    private final int                               asyncThreads;
+    private final Duration                          holdDuration;
+    private final Duration                          timerTick;
+    private final int                               timerWorkers;
+    private final Duration                          overstay;
+    private final Duration                          quoteGrace;
+    private final int                               closureChunkSize;
+    private final int                               inventoryChunkSize;
+    private final long                              occupancyReconcileSeconds;
+    private final Map<ParkingType, Integer>         reservationSpots = new EnumMap<>(ParkingType.class);
+    private final boolean                           correctMisreads;
+    private       String                            lotId;
+    private       ShardRouter                       shardRouter;
+    private       InMemoryStorage                   storage;
+    private       Path                              snapshotFile;
+    private       ScheduledExecutorService          snapshotScheduler;
+    private       LeasedSpotPool                    leasedSpotPool;
+    private       ScheduledExecutorService          leaseScheduler;
+    private       TicketSketches                    ticketSketches;
+    private       ScheduledExecutorService          sketchScheduler;
+    private       CommandDeduplicator               commandDeduplicator;
+    private       ScheduledExecutorService          dedupeScheduler;
+    private       ExecutorService                   asyncExecutor;
+    private       SpotHolds                         spotHolds;
+    private       TimingWheel                       timingWheel;
+    private       ExecutorService                   timerExecutor;
+    private       SessionTimers                     sessionTimers;
+    private       FareQuotes                        fareQuotes;
+    private       ReservationBook                   reservationBook;
+    private       OccupancyCounters                 occupancyCounters;
+    private       OccupancyPublisher                occupancyPublisher;
+    private       ScheduledExecutorService          occupancyScheduler;
+
+    /**
+     * Creates the DAOs of the configured backend.
+     *
+     * @param properties Storage properties
+     *
+     * @throws IOException              if the in-memory storage can not be restored from its snapshot
+     * @throws IllegalArgumentException if the lot served is not one of the lots
+     */
+    public StorageConfig(Properties properties) throws IOException {
+        this.engine = StorageEngine.valueOf(properties.getProperty(ENGINE, StorageEngine.JDBC.name()).trim().toUpperCase());
+        if (engine == StorageEngine.MEMORY) {
+            openInMemoryStorage(properties);
+            this.parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+            this.ticketDAO = new InMemoryTicketDAO(storage);
+        } else if (properties.getProperty(LOTS) != null) {
+            openLots(properties);
+            this.parkingSpotDAO = shardRouter.getParkingSpotDAO(lotId);
+            this.ticketDAO = shardRouter.getTicketDAO(lotId);
+        } else {
+            this.parkingSpotDAO = new JdbcParkingSpotDAO();
+            this.ticketDAO = new JdbcTicketDAO();
+        }
+        if (engine == StorageEngine.JDBC) {
+            int connectTimeout = Integer.parseInt(properties.getProperty(CONNECT_TIMEOUT, "5").trim());
+            int queryTimeout   = Integer.parseInt(properties.getProperty(QUERY_TIMEOUT, "10").trim());
+            ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig.setTimeouts(connectTimeout, queryTimeout);
+            ((JdbcTicketDAO) ticketDAO).dataBaseConfig.setTimeouts(connectTimeout, queryTimeout);
+            lotDataBases.values().forEach(dataBaseConfig -> dataBaseConfig.setTimeouts(connectTimeout, queryTimeout));
+            this.dataAccessGuard = openGuard(properties);
+        } else {
+            this.dataAccessGuard = null;
+        }
+        String node = properties.getProperty(NODE);
+        this.nodeId = (node == null || node.trim().isEmpty()) ? DEFAULT_NODE : node.trim();
+        if (engine == StorageEngine.JDBC && node != null && !node.trim().isEmpty()) {
+            openLeases(properties, nodeId, ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig);
+        }
+        this.sketchFlushSeconds = Long.parseLong(properties.getProperty(SKETCH_FLUSH_SECONDS, "60").trim());
+        this.exportFetchSize = Integer.parseInt(properties.getProperty(EXPORT_FETCH_SIZE, "1000").trim());
+        String archive = properties.getProperty(ARCHIVE_DIRECTORY);
+        this.archiveDirectory = (archive == null || archive.trim().isEmpty()) ? null : Paths.get(archive.trim());
+        this.dedupeWindow = Duration.ofSeconds(Long.parseLong(properties.getProperty(DEDUPE_WINDOW, "300").trim()));
+        this.dedupeMaxEntries = Integer.parseInt(properties.getProperty(DEDUPE_MAX_ENTRIES, "100000").trim());
+        this.dedupeRetention = Duration.ofHours(Long.parseLong(properties.getProperty(DEDUPE_RETENTION, "24").trim()));
+        // The in-memory storage answers at once: running its calls on other threads would only add hand-offs
+        this.asyncThreads = (engine == StorageEngine.JDBC) ? Integer.parseInt(properties.getProperty(ASYNC_THREADS, "8").trim()) : 0;
+        this.holdDuration = Duration.ofSeconds(Long.parseLong(properties.getProperty(HOLD_SECONDS, String.valueOf(SpotHolds.DEFAULT_DURATION.getSeconds())).trim()));
+        this.timerTick = Duration.ofMillis(Long.parseLong(properties.getProperty(TIMER_TICK, String.valueOf(TimingWheel.DEFAULT_TICK.toMillis())).trim()));
+        this.timerWorkers = Integer.parseInt(properties.getProperty(TIMER_WORKERS, "2").trim());
+        this.overstay = Duration.ofHours(Long.parseLong(properties.getProperty(OVERSTAY_HOURS, String.valueOf(SessionTimers.DEFAULT_OVERSTAY.toHours())).trim()));
+        this.quoteGrace = Duration.ofMinutes(Long.parseLong(properties.getProperty(QUOTE_GRACE, String.valueOf(FareQuotes.DEFAULT_GRACE.toMinutes())).trim()));
+        this.closureChunkSize = Integer.parseInt(properties.getProperty(CLOSURE_CHUNK_SIZE, "500").trim());
+        this.inventoryChunkSize = Integer.parseInt(properties.getProperty(INVENTORY_CHUNK_SIZE, String.valueOf(SpotInventory.DEFAULT_CHUNK_SIZE)).trim());
+        this.occupancyReconcileSeconds = Long.parseLong(properties.getProperty(OCCUPANCY_RECONCILE, "30").trim());
+        String reservable = properties.getProperty(RESERVATION_SPOTS);
+        if (reservable != null && !reservable.trim().isEmpty()) {
+            for (String typeSpots : reservable.split(",")) {
+                String[] typeAndSpots = typeSpots.trim().split(":");
+                reservationSpots.put(ParkingType.valueOf(typeAndSpots[0].trim()), Integer.parseInt(typeAndSpots[1].trim()));
+            }
+        }
+        this.correctMisreads = Boolean.parseBoolean(properties.getProperty(CORRECT_MISREADS, "false").trim());
+        logger.info("Using {} storage{}", engine, (lotId == null) ? "" : " of lot " + lotId);
+    }
+
+    /**
+     * Reads the storage configuration from <code>resources/config.properties</code>, defaulting to the MySQL database if the file can not be read.
+     *
+     * @return Storage configuration
+     *
+     * @throws IOException if the in-memory storage can not be restored from its snapshot
+     */
+    public static StorageConfig load() throws IOException {
+        Properties properties = new Properties();
+        try (FileInputStream fileInputStream = new FileInputStream("resources/config.properties")) {
+            properties.load(fileInputStream);
+        } catch (IOException e) {
+            logger.error("Error while reading properties file, using default storage", e);
+        }
+        return new StorageConfig(properties);
+    }
+
+    /**
+     * Parses a list of parking spot ranges.
+     *
+     * @param spots Ranges such as <code>CAR:1-3,BIKE:4-5</code>
+     * @param store Storage to add the spots to, all available
+     */
+    public static void addParkingSpots(String spots, InMemoryStorage store) {
+        for (String range : spots.split(",")) {
+            String[]    typeAndNumbers = range.trim().split(":");
+            ParkingType parkingType    = ParkingType.valueOf(typeAndNumbers[0].trim());
+            String[]    bounds         = typeAndNumbers[1].trim().split("-");
+            int         first          = Integer.parseInt(bounds[0].trim());
+            int         last           = (bounds.length > 1) ? Integer.parseInt(bounds[1].trim()) : first;
+            for (int number = first; number <= last; number++) {
+                store.addParkingSpot(new ParkingSpot(number, parkingType, true));
+            }
+        }
+    }
+
+    /**
+     * Gets the selected backend.
+     *
+     * @return Storage engine
+     */
+    public StorageEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the parking spot DAO of the selected backend.
+     *
+     * @return Parking spot DAO
+     */
+    public ParkingSpotDAO getParkingSpotDAO() {
+        return parkingSpotDAO;
+    }
+
+    /**
+     * Gets the ticket DAO of the selected backend.
+     *
+     * @return Ticket DAO
+     */
+    public TicketDAO getTicketDAO() {
+        return ticketDAO;
+    }
+
+    /**
+     * Gets the lot served by this application.
+     *
+     * @return Lot ID, or null if lots are not configured
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Gets the number of tickets closed per transaction when the lot is closed.
+     *
+     * @return Chunk size
+     */
+    public int getClosureChunkSize() {
+        return closureChunkSize;
+    }
+
+    /**
+     * Tells whether a plate misread at the exit is taken for the closest parked vehicle without asking the operator.
+     *
+     * @return True if misreads are corrected
+     */
+    public boolean isCorrectMisreads() {
+        return correctMisreads;
+    }
+
+    /**
+     * Gets the inventory of the spots of the lot served by this application.
+     *
+     * @return Spot inventory, changing the spots by chunks of <code>storage.inventory.chunkSize</code>
+     */
+    public SpotInventory getSpotInventory() {
+        return new SpotInventory(parkingSpotDAO, inventoryChunkSize);
+    }
+
+    /**
+     * Gets the history of vehicles in every lot.
+     *
+     * @return Plate history of every lot, or null if lots are not configured
+     */
+    public PlateHistory getPlateHistory() {
+        return shardRouter;
+    }
+
+    /**
+     * Gets the rollups of the tickets of the lot served, kept by the MySQL database only, queried in the reporting bulkhead.
+     *
+     * @return Rollup DAO, or null with the in-memory storage
+     */
+    public RollupDAO getRollupDAO() {
+        if (engine != StorageEngine.JDBC) {
+            return null;
+        }
+        JdbcRollupDAO rollupDAO = new JdbcRollupDAO();
+        rollupDAO.dataBaseConfig = ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig;
+        return new GuardedRollupDAO(rollupDAO, dataAccessGuard);
+    }
+
+    /**
+     * Gets the guard of the MySQL calls, to set on the parking service.
+     *
+     * @return Guard with a bulkhead per kind of traffic, or null with the in-memory storage
+     */
+    public DataAccessGuard getDataAccessGuard() {
+        return dataAccessGuard;
+    }
+
+    /**
+     * Gets the quantile sketches of the tickets closed by this node, saved periodically to MySQL or kept in memory with the in-memory storage.
+     *
+     * @return Ticket sketches, to add as a listener of the parking service
+     */
+    public TicketSketches getTicketSketches() {
+        if (ticketSketches == null) {
+            JdbcSketchDAO sketchDAO = null;
+            if (engine == StorageEngine.JDBC) {
+                sketchDAO = new JdbcSketchDAO();
+                sketchDAO.dataBaseConfig = ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig;
+            }
+            ticketSketches = new TicketSketches(sketchDAO, nodeId, TicketSketches.DEFAULT_ACCURACY);
+            if (sketchDAO != null && sketchFlushSeconds > 0) {
+                sketchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "sketch-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                sketchScheduler.scheduleWithFixedDelay(ticketSketches::flush, sketchFlushSeconds, sketchFlushSeconds, TimeUnit.SECONDS);
+            }
+        }
+        return ticketSketches;
+    }
+
+    /**
+     * Gets the deduplicator of the gate commands, whose results are also saved to MySQL and purged hourly past their retention.
+     * With the in-memory storage, results are only remembered in memory.
+     *
+     * @return Command deduplicator, to set on the parking service
+     */
+    public CommandDeduplicator getCommandDeduplicator() {
+        if (commandDeduplicator == null) {
+            JdbcCommandLogDAO commandLogDAO = null;
+            if (engine == StorageEngine.JDBC) {
+                commandLogDAO = new JdbcCommandLogDAO();
+                commandLogDAO.dataBaseConfig = ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig;
+            }
+            commandDeduplicator = new CommandDeduplicator(commandLogDAO, dedupeWindow, dedupeMaxEntries, Clock.systemDefaultZone());
+            if (commandLogDAO != null) {
+                dedupeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "command-log-purge");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                dedupeScheduler.scheduleWithFixedDelay(() -> commandDeduplicator.purge(dedupeRetention), 1, 1, TimeUnit.HOURS);
+            }
+        }
+        return commandDeduplicator;
+    }
+
+    /**
+     * Gets the executor of the MySQL calls of the entries and exits, whose independent steps then run at once.
+     *
+     * @return Executor, to set on the parking service, or null with the in-memory storage or no thread configured
+     */
+    public Executor getAsyncExecutor() {
+        if (asyncExecutor == null && asyncThreads > 0) {
+            asyncExecutor = Executors.newFixedThreadPool(asyncThreads, runnable -> {
+                Thread thread = new Thread(runnable, "storage-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Gets the holds of the spots given at the shell, each released at its expiry by the timing wheel.
+     *
+     * @return Spot holds, to set on the parking service
+     */
+    public SpotHolds getSpotHolds() {
+        if (spotHolds == null) {
+            spotHolds = new SpotHolds(parkingSpotDAO, holdDuration, Clock.systemDefaultZone());
+            spotHolds.setTimingWheel(getTimingWheel());
+        }
+        return spotHolds;
+    }
+
+    /**
+     * Gets the wheel of the timers of the application, driven by a single thread and running the expired timers on a pool of workers.
+     *
+     * @return Started timing wheel
+     */
+    public TimingWheel getTimingWheel() {
+        if (timingWheel == null) {
+            timerExecutor = Executors.newFixedThreadPool(timerWorkers, runnable -> {
+                Thread thread = new Thread(runnable, "timer-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timingWheel = new TimingWheel(timerTick, TimingWheel.DEFAULT_WHEEL_SIZE, Clock.systemDefaultZone(), timerExecutor);
+            timingWheel.start();
+        }
+        return timingWheel;
+    }
+
+    /**
+     * Gets the timers of the parked vehicles, scheduled again from the open tickets when first requested.
+     *
+     * @return Session timers, to add to the parking service as a listener
+     */
+    public SessionTimers getSessionTimers() {
+        if (sessionTimers == null) {
+            sessionTimers = new SessionTimers(getTimingWheel(), overstay, Clock.systemDefaultZone());
+            sessionTimers.addAll(ticketDAO.getOpenTickets());
+        }
+        return sessionTimers;
+    }
+
+    /**
+     * Gets the live fare quotes of the parked vehicles, loaded from the open tickets when first requested.
+     *
+     * @return Fare quotes, to set on the parking service
+     */
+    public FareQuotes getFareQuotes() {
+        if (fareQuotes == null) {
+            fareQuotes = new FareQuotes(ticketDAO, quoteGrace, Clock.systemDefaultZone());
+            fareQuotes.addAll(ticketDAO.getOpenTickets());
+        }
+        return fareQuotes;
+    }
+
+    /**
+     * Gets the reservations of the lot, whose no-shows are released by the timing wheel. Reservations are kept in memory only.
+     *
+     * @return Reservation book, to set on the parking service, or null if no spot may be reserved
+     */
+    public ReservationBook getReservationBook() {
+        if (reservationBook == null && !reservationSpots.isEmpty()) {
+            reservationBook = new ReservationBook(Clock.systemDefaultZone());
+            reservationSpots.forEach(reservationBook::setCapacity);
+            reservationBook.setTimingWheel(getTimingWheel());
+        }
+        return reservationBook;
+    }
+
+    /**
+     * Gets the free spot counters of the display boards, reconciled at once then periodically with the database, and per zone with the allocator.
+     *
+     * @param spotAllocator Allocator of the lot, giving the zones of the spots, or null to count per parking type only
+     *
+     * @return Occupancy counters, to add as a listener of the parking service
+     */
+    public OccupancyCounters getOccupancyCounters(SpotAllocator spotAllocator) {
+        if (occupancyCounters == null) {
+            occupancyCounters = new OccupancyCounters((spotAllocator == null) ? null : spotAllocator.getTopology());
+            occupancyScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "occupancy");
+                thread.setDaemon(true);
+                return thread;
+            });
+            occupancyScheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    occupancyCounters.reconcile(parkingSpotDAO, spotAllocator);
+                } catch (DataAccessException e) {
+                    logger.error("Unable to reconcile the free spot counters", e);
+                }
+            }, 0, Math.max(1, occupancyReconcileSeconds), TimeUnit.SECONDS);
+        }
+        return occupancyCounters;
+    }
+
+    /**
+     * Gets the publisher of the free spot counters to the display boards, publishing on the thread reconciling the counters.
+     *
+     * @return Occupancy publisher of the counters of {@link #getOccupancyCounters(SpotAllocator)}, counting per parking type only if
+     * they were not requested before
+     */
+    public OccupancyPublisher getOccupancyPublisher() {
+        if (occupancyPublisher == null) {
+            occupancyPublisher = new OccupancyPublisher(getOccupancyCounters(null), occupancyScheduler, OccupancyPublisher.DEFAULT_MAX_SKIPPED);
+        }
+        return occupancyPublisher;
+    }
+
+    /**
+     * Gets an exporter of the tickets of every lot, reading them from MySQL.
+     *
+     * @return Ticket exporter, or null with the in-memory storage
+     */
+    public TicketExporter getTicketExporter() {
+        if (engine != StorageEngine.JDBC) {
+            return null;
+        }
+        TicketExporter ticketExporter = new TicketExporter(exportFetchSize);
+        if (lotDataBases.isEmpty()) {
+            ticketExporter.addLot("", ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig);
+        } else {
+            lotDataBases.forEach(ticketExporter::addLot);
+        }
+        return ticketExporter;
+    }
+
+    /**
+     * Opens the archive of the closed tickets of the lot served, which are moved there from MySQL.
+     *
+     * @return Archive, or null with the in-memory storage or without an archive directory
+     *
+     * @throws IOException if the segments of the archive can not be read
+     */
+    public ColdStorage getColdStorage() throws IOException {
+        if (engine != StorageEngine.JDBC || archiveDirectory == null) {
+            return null;
+        }
+        Path directory = (lotId == null) ? archiveDirectory : archiveDirectory.resolve(lotId);
+        return new ColdStorage(directory, lotId, ((JdbcParkingSpotDAO) parkingSpotDAO).dataBaseConfig, exportFetchSize);
+    }
+
+    /**
+     * Gets the spots leased by this node.
+     *
+     * @return Leased spots, or null if no node ID is configured
+     */
+    public LeasedSpotPool getLeasedSpotPool() {
+        return leasedSpotPool;
+    }
+
+    /**
+     * Saves the in-memory storage to its snapshot file, if any, gives back the spots leased by this node, flushes the ticket sketches
+     * and closes the connections to the databases of the lots.
+     */
+    public void close() {
+        if (occupancyPublisher != null) {
+            occupancyPublisher.close();
+        }
+        if (occupancyScheduler != null) {
+            occupancyScheduler.shutdown();
+        }
+        if (timingWheel != null) {
+            timingWheel.close();
+            timerExecutor.shutdownNow();
+        }
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        if (dedupeScheduler != null) {
+            dedupeScheduler.shutdownNow();
+        }
+        if (sketchScheduler != null) {
+            sketchScheduler.shutdownNow();
+        }
+        if (ticketSketches != null) {
+            ticketSketches.close();
+        }
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        if (leaseScheduler != null) {
+            leaseScheduler.shutdownNow();
+            leasedSpotPool.close();
+        }
+        saveSnapshot();
+        if (shardRouter != null) {
+            shardRouter.close();
+        }
+        lotDataBases.values().forEach(PooledDataBaseConfig::close);
+    }
+
+    private void openLots(Properties properties) {
+        String[] lotIds   = properties.getProperty(LOTS).split(",");
+        int      poolSize = Integer.parseInt(properties.getProperty(LOT_POOL_SIZE, "4").trim());
+        lotId = properties.getProperty(LOT, lotIds[0]).trim();
+        shardRouter = new ShardRouter(lotIds.length);
+        for (String id : lotIds) {
+            String               lot            = id.trim();
+            String               prefix         = LOT + "." + lot + ".";
+            PooledDataBaseConfig dataBaseConfig = new PooledDataBaseConfig(properties.getProperty(prefix + "url"),
+                                                                           properties.getProperty(prefix + "username", properties.getProperty("db.username")),
+                                                                           properties.getProperty(prefix + "password", properties.getProperty("db.password")), poolSize);
+            lotDataBases.put(lot, dataBaseConfig);
+            JdbcParkingSpotDAO lotParkingSpotDAO = new JdbcParkingSpotDAO();
+            lotParkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            JdbcTicketDAO lotTicketDAO = new JdbcTicketDAO();
+            lotTicketDAO.dataBaseConfig = dataBaseConfig;
+            shardRouter.addLot(lot, lotParkingSpotDAO, lotTicketDAO);
+        }
+        if (!shardRouter.getLotIds().contains(lotId)) {
+            throw new IllegalArgumentException("Lot " + lotId + " is not one of " + shardRouter.getLotIds());
+        }
+    }
+
+    private static DataAccessGuard openGuard(Properties properties) {
+        int             failures    = Integer.parseInt(properties.getProperty(BREAKER_FAILURES, "5").trim());
+        long            openSeconds = Long.parseLong(properties.getProperty(BREAKER_OPEN_SECONDS, "10").trim());
+        long            waitMillis  = Long.parseLong(properties.getProperty(BULKHEAD_WAIT, "100").trim());
+        DataAccessGuard guard       = new DataAccessGuard(new CircuitBreaker(failures, Duration.ofSeconds(openSeconds), Clock.systemUTC()));
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            String name  = trafficClass.name().toLowerCase();
+            String calls = properties.getProperty(BULKHEAD_PREFIX + name, (trafficClass == TrafficClass.REPORTING) ? "2" : "8");
+            guard.setBulkhead(trafficClass, new Bulkhead(name, Integer.parseInt(calls.trim()), waitMillis));
+        }
+        return guard;
+    }
+
+    private void openLeases(Properties properties, String nodeId, DataBaseConfig dataBaseConfig) {
+        int              blockSize    = Integer.parseInt(properties.getProperty(LEASE_BLOCK_SIZE, "8").trim());
+        int              leaseSeconds = Integer.parseInt(properties.getProperty(LEASE_SECONDS, "30").trim());
+        JdbcSpotLeaseDAO spotLeaseDAO = new JdbcSpotLeaseDAO();
+        spotLeaseDAO.dataBaseConfig = dataBaseConfig;
+        leasedSpotPool = new LeasedSpotPool(spotLeaseDAO, nodeId, blockSize, leaseSeconds);
+        long period = Math.max(1, leaseSeconds / 3);
+        leaseScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        leaseScheduler.scheduleWithFixedDelay(leasedSpotPool::heartbeat, period, period, TimeUnit.SECONDS);
+        logger.info("Node {} leases blocks of {} spots for {} seconds", nodeId, blockSize, leaseSeconds);
+    }
+
+    private void openInMemoryStorage(Properties properties) throws IOException {
+        String snapshot = properties.getProperty(MEMORY_SNAPSHOT);
+        if (snapshot != null && !snapshot.trim().isEmpty()) {
+            snapshotFile = Paths.get(snapshot.trim());
+        }
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            storage = InMemoryStorage.restore(snapshotFile);
+        } else {
+            storage = new InMemoryStorage();
+            addParkingSpots(properties.getProperty(MEMORY_SPOTS, DEFAULT_SPOTS), storage);
+        }
+        long interval = Long.parseLong(properties.getProperty(MEMORY_SNAPSHOT_INTERVAL, "0").trim());
+        if (snapshotFile != null && interval > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::saveSnapshot, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void saveSnapshot() {
+        if (storage != null && snapshotFile != null) {
+            try {
+                storage.snapshot(snapshotFile);
+            } catch (IOException e) {
+                logger.error("Error while saving in-memory storage snapshot", e);
+            }
+        }
+    }
+}
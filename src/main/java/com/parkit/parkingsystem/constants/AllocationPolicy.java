@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.constants;
+
+/** Policies choosing which free spot is given to an incoming vehicle */
+public enum AllocationPolicy {
+    /** Lowest free parking number, the historical behaviour */
+    LOWEST_NUMBER,
+    /** Nearest free spot to the entrance of the gate the vehicle came through, on its level first */
+    NEAREST_TO_GATE,
+    /** Lowest level first, and nearest to the ramp within a level */
+    FILL_LEVEL_BY_LEVEL,
+    /** Zone with the most free spots, so that every zone wears evenly */
+    BALANCE_ZONES
+}
@@ -5,13 +5,80 @@ package com.parkit.parkingsystem.constants;
  *
  * @see com.parkit.parkingsystem.dao.ParkingSpotDAO
  * @see com.parkit.parkingsystem.dao.TicketDAO
+ * @see com.parkit.parkingsystem.dao.RollupDAO
+ * @see com.parkit.parkingsystem.dao.SketchDAO
+ * @see com.parkit.parkingsystem.dao.CommandLogDAO
+ * @see com.parkit.parkingsystem.archive.ColdStorage
+ * @see com.parkit.parkingsystem.analysis.TicketColumns
  */
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
-    public static final String UPDATE_PARKING_SPOT   = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String GET_NEXT_PARKING_SPOT      = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_AVAILABLE_SPOTS        = "select PARKING_NUMBER from parking where AVAILABLE = true and TYPE = ? order by PARKING_NUMBER";
+    public static final String GET_PARKING_SPOT           = "select AVAILABLE, TYPE, VERSION from parking where PARKING_NUMBER = ?";
+    // Every change of availability moves the version on; a spot read with a version is only updated while it keeps it (0: not read)
+    // A retired spot is never made available again, so a retired spot still occupied leaves service when its vehicle leaves
+    public static final String UPDATE_PARKING_SPOT        = "update parking set available = (? and RETIRED = false), VERSION = VERSION + 1 where PARKING_NUMBER = ? and (? = 0 or VERSION = ?)";
+    public static final String CLAIM_PARKING_SPOT         = "update parking set available = false, VERSION = VERSION + 1 where PARKING_NUMBER = ? and AVAILABLE = true";
+    public static final String CLAIM_PARKING_SPOT_OF_TYPE = CLAIM_PARKING_SPOT + " and TYPE = ?";
+    public static final String COUNT_AVAILABLE_SPOTS      = "select count(*) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String COUNT_OCCUPIED_SPOTS       = "select count(*) from parking where AVAILABLE = false and RETIRED = false and TYPE = ?";
 
-    public static final String SAVE_TICKET   = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET    = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    // Inventory changes select the spots of a range they apply to, then change each of them in a batch which checks it again, so that
+    // they know which spots they changed. They clear the leases of the spots they change, so that the nodes drop them from their pools
+    // at the next claim
+    public static final String GET_PARKING_NUMBERS    = "select PARKING_NUMBER from parking where PARKING_NUMBER between ? and ?";
+    public static final String ADD_PARKING_SPOT       = "insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?,true,?)";
+    public static final String GET_RETIRED_SPOTS      = "select PARKING_NUMBER from parking where PARKING_NUMBER between ? and ? and RETIRED = true order by PARKING_NUMBER";
+    public static final String REOPEN_PARKING_SPOT    = "update parking set RETIRED = false, AVAILABLE = true, TYPE = ?, VERSION = VERSION + 1 where PARKING_NUMBER = ? and RETIRED = true"
+                                                        + " and not exists (select 1 from ticket t where t.PARKING_NUMBER = parking.PARKING_NUMBER and t.OUT_TIME is null)";
+    public static final String GET_SPOTS_IN_SERVICE   = "select PARKING_NUMBER from parking where PARKING_NUMBER between ? and ? and RETIRED = false order by PARKING_NUMBER";
+    public static final String RETIRE_PARKING_SPOT    = "update parking set RETIRED = true, AVAILABLE = false, LEASE_OWNER = null, LEASE_EXPIRY = null, VERSION = VERSION + 1 where PARKING_NUMBER = ? and RETIRED = false";
+    public static final String GET_SPOTS_TO_RETYPE    = "select PARKING_NUMBER from parking where PARKING_NUMBER between ? and ? and AVAILABLE = true and RETIRED = false and TYPE <> ? order by PARKING_NUMBER";
+    public static final String RETYPE_PARKING_SPOT    = "update parking set TYPE = ?, LEASE_OWNER = null, LEASE_EXPIRY = null, VERSION = VERSION + 1 where PARKING_NUMBER = ? and AVAILABLE = true and RETIRED = false and TYPE <> ?";
+
+    // Leases are timed by the database clock, so that nodes with skewed clocks agree on which leases expired
+    public static final String GET_UNLEASED_SPOTS  = "select PARKING_NUMBER from parking where TYPE = ? and AVAILABLE = true and (LEASE_OWNER is null or LEASE_EXPIRY < CURRENT_TIMESTAMP) order by PARKING_NUMBER";
+    public static final String LEASE_SPOT          = "update parking set LEASE_OWNER = ?, LEASE_EXPIRY = timestampadd(SECOND, ?, CURRENT_TIMESTAMP) where PARKING_NUMBER = ? and AVAILABLE = true and (LEASE_OWNER is null or LEASE_EXPIRY < CURRENT_TIMESTAMP)";
+    public static final String GET_RICHEST_LESSEE  = "select LEASE_OWNER, count(*) from parking where TYPE = ? and AVAILABLE = true and LEASE_OWNER <> ? and LEASE_EXPIRY >= CURRENT_TIMESTAMP group by LEASE_OWNER order by count(*) desc limit 1";
+    public static final String GET_LEASED_SPOTS    = "select PARKING_NUMBER from parking where TYPE = ? and AVAILABLE = true and LEASE_OWNER = ? order by PARKING_NUMBER";
+    public static final String TRANSFER_LEASE      = "update parking set LEASE_OWNER = ?, LEASE_EXPIRY = timestampadd(SECOND, ?, CURRENT_TIMESTAMP) where PARKING_NUMBER = ? and AVAILABLE = true and LEASE_OWNER = ?";
+    public static final String RENEW_LEASES        = "update parking set LEASE_EXPIRY = timestampadd(SECOND, ?, CURRENT_TIMESTAMP) where LEASE_OWNER = ?";
+    public static final String RELEASE_LEASE       = "update parking set LEASE_OWNER = null, LEASE_EXPIRY = null where PARKING_NUMBER = ? and LEASE_OWNER = ?";
+    public static final String RELEASE_LEASES      = "update parking set LEASE_OWNER = null, LEASE_EXPIRY = null where LEASE_OWNER = ?";
+    public static final String CLAIM_LEASED_SPOT   = "update parking set available = false, VERSION = VERSION + 1 where PARKING_NUMBER = ? and AVAILABLE = true and LEASE_OWNER = ?";
+
+    public static final String SAVE_TICKET      = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    // A ticket is only updated while it keeps the version it was read with, so that a concurrent update is not overwritten
+    public static final String UPDATE_TICKET    = "update ticket set PRICE=?, OUT_TIME=?, VERSION = VERSION + 1 where ID=? and VERSION=? and OUT_TIME is null";
+    public static final String GET_TICKET       = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VERSION, p.VERSION, t.PAID_AMOUNT, t.PAID_TIME from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc, t.ID desc limit 1";
+    public static final String GET_TICKETS      = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VERSION, p.VERSION, t.PAID_AMOUNT, t.PAID_TIME from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc, t.ID desc";
+    public static final String GET_OPEN_TICKETS = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.VERSION, p.VERSION, t.PAID_AMOUNT, t.PAID_TIME, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is null";
+    public static final String GET_OPEN_TICKETS_OF_TYPE = GET_OPEN_TICKETS + " and p.TYPE = ?";
+    // A payment moves the version on, so that an exit priced before it is priced again
+    public static final String RECORD_PAYMENT   = "update ticket set PAID_AMOUNT=?, PAID_TIME=?, VERSION = VERSION + 1 where ID=? and OUT_TIME is null";
+    public static final String EXPORT_TICKETS   = "select t.ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME >= ? and t.OUT_TIME < ? order by t.OUT_TIME, t.ID";
+    public static final String LOAD_TICKETS     = "select t.ID, t.PARKING_NUMBER, p.TYPE, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME from ticket t,parking p where p.parking_number = t.parking_number";
+
+    // Closed tickets are archived by windows of exit time; a window is deleted once its segment is written
+    public static final String GET_FIRST_EXIT          = "select min(OUT_TIME) from ticket";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where OUT_TIME < ?";
+
+    // Rollups are added to, so that tickets closed at once by several nodes are all counted
+    public static final String UPSERT_ROLLUP      = "insert into ticket_rollup(GRANULARITY, TYPE, BUCKET_START, TICKETS, REVENUE, DWELL_SECONDS, OCCUPIED_SECONDS, PEAK_OCCUPANCY) values(?,?,?,?,?,?,?,?)"
+                                                    + " on duplicate key update TICKETS = TICKETS + values(TICKETS), REVENUE = REVENUE + values(REVENUE), DWELL_SECONDS = DWELL_SECONDS + values(DWELL_SECONDS),"
+                                                    + " OCCUPIED_SECONDS = OCCUPIED_SECONDS + values(OCCUPIED_SECONDS), PEAK_OCCUPANCY = greatest(PEAK_OCCUPANCY, values(PEAK_OCCUPANCY))";
+    public static final String GET_ROLLUPS        = "select BUCKET_START, TYPE, TICKETS, REVENUE, DWELL_SECONDS, OCCUPIED_SECONDS, PEAK_OCCUPANCY from ticket_rollup where GRANULARITY = ? and BUCKET_START >= ? and BUCKET_START < ? order by BUCKET_START, TYPE";
+    public static final String DELETE_ROLLUPS     = "delete from ticket_rollup where BUCKET_START >= ? and BUCKET_START < ?";
+    public static final String GET_TICKETS_DURING = "select t.IN_TIME, t.OUT_TIME, t.PRICE, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.IN_TIME < ? and (t.OUT_TIME is null or t.OUT_TIME >= ?)";
+
+    public static final String GET_SKETCH   = "select SKETCH from ticket_sketch where SKETCH_DAY = ? and TYPE = ? and METRIC = ? and NODE = ?";
+    public static final String SAVE_SKETCH  = "insert into ticket_sketch(SKETCH_DAY, TYPE, METRIC, NODE, SKETCH) values(?,?,?,?,?) on duplicate key update SKETCH = values(SKETCH)";
+    public static final String GET_SKETCHES = "select SKETCH from ticket_sketch where TYPE = ? and METRIC = ? and SKETCH_DAY >= ? and SKETCH_DAY <= ?";
+
+    // A retried command keeps the result saved first
+    public static final String GET_COMMAND_RESULT    = "select ACTION, TICKET_ID, PARKING_NUMBER, TYPE, VEHICLE_REG_NUMBER, PRICE, PAID_AMOUNT, IN_TIME, OUT_TIME from gate_command where REQUEST_ID = ?";
+    public static final String SAVE_COMMAND_RESULT   = "insert into gate_command(REQUEST_ID, ACTION, TICKET_ID, PARKING_NUMBER, TYPE, VEHICLE_REG_NUMBER, PRICE, PAID_AMOUNT, IN_TIME, OUT_TIME, CREATED) values(?,?,?,?,?,?,?,?,?,?,?)"
+                                                       + " on duplicate key update REQUEST_ID = REQUEST_ID";
+    public static final String PURGE_COMMAND_RESULTS = "delete from gate_command where CREATED < ?";
 }
@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.constants;
+
+/** Formats of the ticket extracts */
+public enum ExportFormat {
+    /** Comma separated values, with a header line */
+    CSV,
+    /** One JSON object per line */
+    NDJSON
+}
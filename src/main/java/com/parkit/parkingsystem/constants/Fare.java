@@ -10,6 +10,7 @@ public class Fare {
     public static final double CAR_RATE_PER_HOUR  = 1.5;
 
     public static final double RECURRING_USER_DISCOUNT = 0.05;
+    public static final long   FREE_PARKING_MINUTES    = 30;
     // Parameters for use of big decimal
     public static final int    SCALE                   = 2; // 2 digits after the decimal
 }
@@ -0,0 +1,23 @@
+package com.parkit.parkingsystem.constants;
+
+/** Actions reported by a gate camera, asked by a pay kiosk, or asked by the operator of the lot */
+public enum GateAction {
+    ENTRY,
+    EXIT,
+    QUOTE,
+    PAY,
+    RESERVE,
+    CLOSE,
+    ADD,
+    RETIRE,
+    RETYPE;
+
+    /**
+     * Tells whether the action is asked by the operator of the lot rather than by a gate.
+     *
+     * @return true for an operator action
+     */
+    public boolean isOperatorAction() {
+        return this == CLOSE || this == ADD || this == RETIRE || this == RETYPE;
+    }
+}
@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.constants;
+
+/** States of a reservation */
+public enum ReservationStatus {
+    /** Booked, the vehicle has not arrived yet */
+    BOOKED,
+    /** The vehicle arrived and was given a spot */
+    CONFIRMED,
+    /** Cancelled before the arrival of the vehicle */
+    CANCELLED,
+    /** The vehicle did not arrive in time, its spot was given back */
+    NO_SHOW
+}
@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem.constants;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/** Sizes of the buckets the tickets are rolled up in */
+public enum RollupGranularity {
+    /** One bucket per hour */
+    HOUR(ChronoUnit.HOURS),
+    /** One bucket per day */
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Gets the start of the bucket holding a time.
+     *
+     * @param time Time
+     *
+     * @return Start of its bucket
+     */
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Gets the length of a bucket.
+     *
+     * @return Bucket length
+     */
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+}
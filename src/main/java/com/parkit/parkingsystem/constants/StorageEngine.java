@@ -0,0 +1,7 @@
+package com.parkit.parkingsystem.constants;
+
+/** Storage backends of parking spots and tickets */
+public enum StorageEngine {
+    JDBC,
+    MEMORY
+}
@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.constants;
+
+/** Figures of the closed tickets whose quantiles are sketched */
+public enum TicketMetric {
+    /** Parking duration, in seconds */
+    DWELL,
+    /** Price paid */
+    FARE
+}
@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.constants;
+
+/** Kinds of storage traffic, each with its own bulkhead */
+public enum TrafficClass {
+    /** Vehicles entering at the gates */
+    ENTRY,
+    /** Vehicles leaving at the gates */
+    EXIT,
+    /** Reports, rollups and exports */
+    REPORTING
+}
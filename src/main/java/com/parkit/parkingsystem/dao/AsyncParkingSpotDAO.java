@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * <b>Calls a parking spot DAO on an executor, without blocking the caller.</b>
+ * <p>
+ * Each call completes with the result of the DAO, or exceptionally with the exception it threw.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.ParkingSpotDAO
+ * @see com.parkit.parkingsystem.service.ParkingService#setAsyncExecutor(Executor)
+ */
+public class AsyncParkingSpotDAO {
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final Executor       executor;
+
+    /**
+     * Constructor for AsyncParkingSpotDAO.
+     *
+     * @param parkingSpotDAO DAO to call
+     * @param executor       Executor of the calls
+     */
+    public AsyncParkingSpotDAO(ParkingSpotDAO parkingSpotDAO, Executor executor) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.executor = executor;
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.ParkingSpotDAO#getNextAvailableSlot(ParkingType)
+     */
+    public CompletableFuture<Integer> getNextAvailableSlot(ParkingType parkingType) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.getNextAvailableSlot(parkingType), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.ParkingSpotDAO#updateParking(ParkingSpot)
+     */
+    public CompletableFuture<Boolean> updateParking(ParkingSpot parkingSpot) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.updateParking(parkingSpot), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.ParkingSpotDAO#claimParking(int)
+     */
+    public CompletableFuture<Boolean> claimParking(int parkingNumber) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.claimParking(parkingNumber), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.ParkingSpotDAO#claimParking(int, ParkingType)
+     */
+    public CompletableFuture<Boolean> claimParking(int parkingNumber, ParkingType parkingType) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.claimParking(parkingNumber, parkingType), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.ParkingSpotDAO#countAvailableSlots(ParkingType)
+     */
+    public CompletableFuture<Integer> countAvailableSlots(ParkingType parkingType) {
+        return CompletableFuture.supplyAsync(() -> parkingSpotDAO.countAvailableSlots(parkingType), executor);
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * <b>Calls a ticket DAO on an executor, without blocking the caller.</b>
+ * <p>
+ * Each call completes with the result of the DAO, or exceptionally with the exception it threw.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.TicketDAO
+ * @see com.parkit.parkingsystem.service.ParkingService#setAsyncExecutor(Executor)
+ */
+public class AsyncTicketDAO {
+
+    private final TicketDAO ticketDAO;
+    private final Executor  executor;
+
+    /**
+     * Constructor for AsyncTicketDAO.
+     *
+     * @param ticketDAO DAO to call
+     * @param executor  Executor of the calls
+     */
+    public AsyncTicketDAO(TicketDAO ticketDAO, Executor executor) {
+        this.ticketDAO = ticketDAO;
+        this.executor = executor;
+    }
+
+    /**
+     * Saves ticket.
+     *
+     * @param ticket Ticket to save
+     *
+     * @return The saved ticket, with its ID
+     *
+     * @see com.parkit.parkingsystem.dao.TicketDAO#saveTicket(Ticket)
+     */
+    public CompletableFuture<Ticket> saveTicket(Ticket ticket) {
+        return CompletableFuture.supplyAsync(() -> {
+            ticketDAO.saveTicket(ticket);
+            return ticket;
+        }, executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.TicketDAO#getTicket(String)
+     */
+    public CompletableFuture<Ticket> getTicket(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketDAO.getTicket(vehicleRegNumber), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.TicketDAO#getTickets(String)
+     */
+    public CompletableFuture<List<Ticket>> getTickets(String vehicleRegNumber) {
+        return CompletableFuture.supplyAsync(() -> ticketDAO.getTickets(vehicleRegNumber), executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.TicketDAO#getOpenTickets()
+     */
+    public CompletableFuture<List<Ticket>> getOpenTickets() {
+        return CompletableFuture.supplyAsync(ticketDAO::getOpenTickets, executor);
+    }
+
+    /**
+     * @see com.parkit.parkingsystem.dao.TicketDAO#updateTicket(Ticket)
+     */
+    public CompletableFuture<Boolean> updateTicket(Ticket ticket) {
+        return CompletableFuture.supplyAsync(() -> ticketDAO.updateTicket(ticket), executor);
+    }
+}
@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.idempotency.CommandResult;
+
+import java.time.LocalDateTime;
+
+/**
+ * <b> Accesses the results of the entry and exit commands, by client request ID.</b>
+ * <br>
+ * The log outlives the in-memory dedupe window: a command retried after a restart, or on another node of the lot, still gets its
+ * original result.
+ *
+ * @see com.parkit.parkingsystem.dao.JdbcCommandLogDAO
+ * @see com.parkit.parkingsystem.idempotency.CommandDeduplicator
+ */
+public interface CommandLogDAO {
+
+    /**
+     * Gets the result of a command.
+     *
+     * @param requestId Client request ID
+     *
+     * @return Result, or null if no command with this ID completed
+     *
+     * @throws DataAccessException if the log can not be read
+     */
+    CommandResult getResult(String requestId);
+
+    /**
+     * Saves the result of a command, unless a result was already saved with this ID.
+     *
+     * @param requestId Client request ID
+     * @param result    Result
+     * @param created   Time the command completed
+     *
+     * @return True if the result was saved, false if a result was already saved with this ID
+     *
+     * @throws DataAccessException if the log can not be written
+     */
+    boolean saveResult(String requestId, CommandResult result, LocalDateTime created);
+
+    /**
+     * Deletes the results of the commands which completed before a time.
+     *
+     * @param before First time kept
+     *
+     * @return Number of results deleted
+     *
+     * @throws DataAccessException if the log can not be written
+     */
+    int purge(LocalDateTime before);
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * <b> Failure of a call to the storage, thrown instead of returning null, -1 or false.</b>
+ * <br>
+ * The failure tells a caller whether retrying later may succeed, e.g. to reply <code>BUSY</code> rather than <code>ERROR</code> to a gate.
+ *
+ * @see com.parkit.parkingsystem.resilience.DataAccessGuard
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Kind of failure */
+    public enum Failure {
+        /** The database could not be reached */
+        UNAVAILABLE(true),
+        /** The database did not answer within the timeout */
+        TIMEOUT(true),
+        /** The database rejected the request */
+        ERROR(false),
+        /** The call was not made: the database failed too often lately */
+        CIRCUIT_OPEN(true),
+        /** The call was not made: too many calls of the same kind are running */
+        BULKHEAD_FULL(true);
+
+        private final boolean retryable;
+
+        Failure(boolean retryable) {
+            this.retryable = retryable;
+        }
+
+        /**
+         * @return true if the same call may succeed later
+         */
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+
+    private final Failure failure;
+
+    /**
+     * Constructor for DataAccessException.
+     *
+     * @param failure Kind of failure
+     * @param message Operation which failed
+     * @param cause   Cause, may be null
+     */
+    public DataAccessException(Failure failure, String message, Throwable cause) {
+        super(message + " (" + failure + ")", cause);
+        this.failure = failure;
+    }
+
+    /**
+     * Wraps the exception thrown by a JDBC call.
+     *
+     * @param message Operation which failed
+     * @param cause   Exception thrown
+     *
+     * @return Exception with the kind of failure of the cause, the cause itself if it is already a data access exception
+     */
+    public static DataAccessException of(String message, Exception cause) {
+        if (cause instanceof DataAccessException) {
+            return (DataAccessException) cause;
+        }
+        Failure failure = Failure.ERROR;
+        if (cause instanceof SQLTimeoutException) {
+            failure = Failure.TIMEOUT;
+        } else if (cause instanceof SQLTransientConnectionException || cause instanceof SQLNonTransientConnectionException) {
+            failure = Failure.UNAVAILABLE;
+        }
+        return new DataAccessException(failure, message, cause);
+    }
+
+    /**
+     * Gets the kind of failure.
+     *
+     * @return Failure
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.List;
+
+/**
+ * <b> Accesses in-memory storage for parking spot information.</b>
+ * <br>
+ *
+ * @see com.parkit.parkingsystem.dao.InMemoryStorage
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class InMemoryParkingSpotDAO implements ParkingSpotDAO {
+
+    private final InMemoryStorage storage;
+
+    /**
+     * Constructor for InMemoryParkingSpotDAO.
+     *
+     * @param storage Storage shared with the ticket DAO
+     */
+    public InMemoryParkingSpotDAO(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return storage.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public List<Integer> getAvailableSlots(ParkingType parkingType) {
+        return storage.getAvailableSlots(parkingType);
+    }
+
+    @Override
+    public ParkingSpot getParkingSpot(int parkingNumber) {
+        return storage.getParkingSpot(parkingNumber);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        return storage.updateParking(parkingSpot);
+    }
+
+    @Override
+    public boolean claimParking(int parkingNumber) {
+        return storage.claimParking(parkingNumber, null);
+    }
+
+    @Override
+    public boolean claimParking(int parkingNumber, ParkingType parkingType) {
+        return storage.claimParking(parkingNumber, parkingType);
+    }
+
+    @Override
+    public int countAvailableSlots(ParkingType parkingType) {
+        return storage.countAvailableSlots(parkingType);
+    }
+
+    @Override
+    public List<Integer> addParkingSpots(int first, int last, ParkingType parkingType) {
+        return storage.addParkingSpots(first, last, parkingType);
+    }
+
+    @Override
+    public List<Integer> retireParkingSpots(int first, int last) {
+        return storage.retireParkingSpots(first, last);
+    }
+
+    @Override
+    public List<Integer> retypeParkingSpots(int first, int last, ParkingType parkingType) {
+        return storage.retypeParkingSpots(first, last, parkingType);
+    }
+}
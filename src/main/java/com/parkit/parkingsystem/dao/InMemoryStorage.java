@@ -0,0 +1,489 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <b>In-memory storage engine for parking spots and tickets.</b>
+ * <p>
+ * Serves a standalone lot or a gate kiosk without database server. Data are held in concurrent indexes:
+ * </p>
+ * <ul>
+ *     <li>parking spots by number, and the free spots in service of each type sorted by number so that the next available spot is found in logarithmic time</li>
+ *     <li>tickets by ID</li>
+ *     <li>latest ticket, and every ticket, by registration number</li>
+ *     <li>open ticket (vehicle still parked) by registration number</li>
+ * </ul>
+ * <p>
+ * The storage can be saved to a snapshot file and restored from it. Updates take a shared lock and snapshots an exclusive one, so a snapshot is always consistent.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO
+ * @see com.parkit.parkingsystem.dao.InMemoryTicketDAO
+ */
+public class InMemoryStorage {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryStorage");
+
+    // Version 2 adds the retired flag of the spots and version 3 the payments of the tickets; older snapshots are still read, with
+    // every spot in service and no ticket paid in advance
+    private static final int SNAPSHOT_VERSION = 3;
+
+    private final Map<Integer, SpotRecord>                         spots         = new ConcurrentHashMap<>();
+    private final Map<ParkingType, ConcurrentSkipListSet<Integer>> freeSpots     = new EnumMap<>(ParkingType.class);
+    private final Map<Integer, TicketRecord>                       tickets       = new ConcurrentHashMap<>();
+    private final Map<String, Integer>                             latestTickets = new ConcurrentHashMap<>();
+    private final Map<String, Integer>                             openTickets   = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Integer>>                      plateTickets  = new ConcurrentHashMap<>();
+    private final AtomicInteger                                    ticketIds     = new AtomicInteger();
+    private final ReadWriteLock                                    snapshotLock  = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty storage.
+     */
+    public InMemoryStorage() {
+        for (ParkingType parkingType : ParkingType.values()) {
+            freeSpots.put(parkingType, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Adds a parking spot, or replaces the spot with the same number.
+     *
+     * @param parkingSpot Parking spot
+     */
+    public void addParkingSpot(ParkingSpot parkingSpot) {
+        snapshotLock.readLock().lock();
+        try {
+            SpotRecord previous = spots.put(parkingSpot.getId(), new SpotRecord(parkingSpot.getParkingType(), parkingSpot.isAvailable()));
+            if (previous != null) {
+                freeSpots.get(previous.parkingType).remove(parkingSpot.getId());
+            }
+            if (parkingSpot.isAvailable()) {
+                freeSpots.get(parkingSpot.getParkingType()).add(parkingSpot.getId());
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    int getNextAvailableSlot(ParkingType parkingType) {
+        Integer first = freeSpots.get(parkingType).ceiling(0);
+        return (first == null) ? 0 : first;
+    }
+
+    List<Integer> getAvailableSlots(ParkingType parkingType) {
+        return new ArrayList<>(freeSpots.get(parkingType));
+    }
+
+    ParkingSpot getParkingSpot(int parkingNumber) {
+        SpotRecord spot = spots.get(parkingNumber);
+        if (spot == null) {
+            return null;
+        }
+        synchronized (spot) {
+            return new ParkingSpot(parkingNumber, spot.parkingType, spot.available && !spot.retired);
+        }
+    }
+
+    boolean updateParking(ParkingSpot parkingSpot) {
+        snapshotLock.readLock().lock();
+        try {
+            SpotRecord spot = spots.get(parkingSpot.getId());
+            if (spot == null) {
+                return false;
+            }
+            synchronized (spot) {
+                spot.available = parkingSpot.isAvailable();
+                if (spot.available && !spot.retired) {
+                    freeSpots.get(spot.parkingType).add(parkingSpot.getId());
+                } else {
+                    freeSpots.get(spot.parkingType).remove(parkingSpot.getId());
+                }
+            }
+            return true;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    boolean claimParking(int parkingNumber, ParkingType parkingType) {
+        snapshotLock.readLock().lock();
+        try {
+            SpotRecord spot = spots.get(parkingNumber);
+            if (spot == null) {
+                return false;
+            }
+            synchronized (spot) {
+                if (!spot.available || spot.retired || (parkingType != null && spot.parkingType != parkingType)) {
+                    return false;
+                }
+                spot.available = false;
+                freeSpots.get(spot.parkingType).remove(parkingNumber);
+            }
+            return true;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    int countAvailableSlots(ParkingType parkingType) {
+        return freeSpots.get(parkingType).size();
+    }
+
+    List<Integer> addParkingSpots(int first, int last, ParkingType parkingType) {
+        snapshotLock.readLock().lock();
+        try {
+            List<Integer> added = new ArrayList<>();
+            for (int parkingNumber = first; parkingNumber <= last; parkingNumber++) {
+                SpotRecord spot = spots.putIfAbsent(parkingNumber, new SpotRecord(parkingType, true));
+                if (spot == null) {
+                    freeSpots.get(parkingType).add(parkingNumber);
+                    added.add(parkingNumber);
+                    continue;
+                }
+                synchronized (spot) {
+                    // A retired spot is only put back once its vehicle left
+                    if (spot.retired && spot.available) {
+                        spot.retired = false;
+                        spot.parkingType = parkingType;
+                        freeSpots.get(parkingType).add(parkingNumber);
+                        added.add(parkingNumber);
+                    }
+                }
+            }
+            return added;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    List<Integer> retireParkingSpots(int first, int last) {
+        snapshotLock.readLock().lock();
+        try {
+            List<Integer> retired = new ArrayList<>();
+            for (int parkingNumber = first; parkingNumber <= last; parkingNumber++) {
+                SpotRecord spot = spots.get(parkingNumber);
+                if (spot == null) {
+                    continue;
+                }
+                synchronized (spot) {
+                    if (!spot.retired) {
+                        spot.retired = true;
+                        freeSpots.get(spot.parkingType).remove(parkingNumber);
+                        retired.add(parkingNumber);
+                    }
+                }
+            }
+            return retired;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    List<Integer> retypeParkingSpots(int first, int last, ParkingType parkingType) {
+        snapshotLock.readLock().lock();
+        try {
+            List<Integer> retyped = new ArrayList<>();
+            for (int parkingNumber = first; parkingNumber <= last; parkingNumber++) {
+                SpotRecord spot = spots.get(parkingNumber);
+                if (spot == null) {
+                    continue;
+                }
+                synchronized (spot) {
+                    if (spot.available && !spot.retired && spot.parkingType != parkingType) {
+                        freeSpots.get(spot.parkingType).remove(parkingNumber);
+                        spot.parkingType = parkingType;
+                        freeSpots.get(parkingType).add(parkingNumber);
+                        retyped.add(parkingNumber);
+                    }
+                }
+            }
+            return retyped;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    void saveTicket(Ticket ticket) {
+        snapshotLock.readLock().lock();
+        try {
+            int          id     = ticketIds.incrementAndGet();
+            TicketRecord record = new TicketRecord(ticket.getParkingSpot().getId(), ticket.getVehicleRegNumber(), ticket.getPrice(), ticket.getInTime(), ticket.getOutTime());
+            tickets.put(id, record);
+            indexTicket(id, record);
+            ticket.setId(id);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    Ticket getTicket(String vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            return null;
+        }
+        Integer id = latestTickets.get(vehicleRegNumber);
+        return (id == null) ? null : toTicket(id);
+    }
+
+    List<Ticket> getTickets(String vehicleRegNumber) {
+        List<Ticket>   result = new ArrayList<>();
+        Queue<Integer> ids    = (vehicleRegNumber == null) ? null : plateTickets.get(vehicleRegNumber);
+        if (ids != null) {
+            for (Integer id : ids) {
+                result.add(toTicket(id));
+            }
+            result.sort(Comparator.comparing(Ticket::getInTime).thenComparingInt(Ticket::getId).reversed());
+        }
+        return result;
+    }
+
+    List<Ticket> getOpenTickets() {
+        List<Ticket> result = new ArrayList<>();
+        for (Integer id : openTickets.values()) {
+            result.add(toTicket(id));
+        }
+        return result;
+    }
+
+    boolean updateTicket(Ticket ticket) {
+        snapshotLock.readLock().lock();
+        try {
+            TicketRecord record = tickets.get(ticket.getId());
+            if (record == null) {
+                return false;
+            }
+            synchronized (record) {
+                // A ticket paid since it was read is priced again
+                if (record.outTime != null || !Objects.equals(record.paidTime, ticket.getPaidTime())) {
+                    return false;
+                }
+                record.price = ticket.getPrice();
+                record.outTime = ticket.getOutTime();
+            }
+            if (record.outTime != null) {
+                openTickets.remove(record.vehicleRegNumber, ticket.getId());
+            }
+            return true;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    boolean recordPayment(Ticket ticket) {
+        snapshotLock.readLock().lock();
+        try {
+            TicketRecord record = tickets.get(ticket.getId());
+            if (record == null) {
+                return false;
+            }
+            synchronized (record) {
+                if (record.outTime != null) {
+                    return false;
+                }
+                record.paidAmount = ticket.getPaidAmount();
+                record.paidTime = ticket.getPaidTime();
+            }
+            return true;
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the ticket of a vehicle still in the parking.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Open ticket, or null if the vehicle is not parked
+     */
+    public Ticket getOpenTicket(String vehicleRegNumber) {
+        Integer id = openTickets.get(vehicleRegNumber);
+        return (id == null) ? null : toTicket(id);
+    }
+
+    /**
+     * Saves the whole storage to a file. The file is replaced atomically, so a crash while saving keeps the previous snapshot.
+     *
+     * @param file Snapshot file
+     *
+     * @throws IOException if the file can not be written
+     */
+    public void snapshot(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        snapshotLock.writeLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(spots.size());
+            for (Map.Entry<Integer, SpotRecord> entry : spots.entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue().parkingType.name());
+                out.writeBoolean(entry.getValue().available);
+                out.writeBoolean(entry.getValue().retired);
+            }
+            out.writeInt(ticketIds.get());
+            out.writeInt(tickets.size());
+            for (Map.Entry<Integer, TicketRecord> entry : tickets.entrySet()) {
+                TicketRecord record = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeInt(record.parkingNumber);
+                out.writeUTF(record.vehicleRegNumber);
+                out.writeUTF((record.price == null) ? "" : record.price.toPlainString());
+                writeTime(out, record.inTime);
+                writeTime(out, record.outTime);
+                out.writeUTF((record.paidAmount == null) ? "" : record.paidAmount.toPlainString());
+                writeTime(out, record.paidTime);
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Saved {} parking spots and {} tickets to {}", spots.size(), tickets.size(), file);
+    }
+
+    /**
+     * Restores a storage saved by {@link #snapshot(Path)}.
+     *
+     * @param file Snapshot file
+     *
+     * @return Restored storage
+     *
+     * @throws IOException if the file can not be read or is not a snapshot
+     */
+    public static InMemoryStorage restore(Path file) throws IOException {
+        InMemoryStorage storage = new InMemoryStorage();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            int spotCount = in.readInt();
+            for (int i = 0; i < spotCount; i++) {
+                ParkingSpot parkingSpot = new ParkingSpot(in.readInt(), ParkingType.valueOf(in.readUTF()), in.readBoolean());
+                storage.addParkingSpot(parkingSpot);
+                if (version > 1 && in.readBoolean()) {
+                    storage.spots.get(parkingSpot.getId()).retired = true;
+                    storage.freeSpots.get(parkingSpot.getParkingType()).remove(parkingSpot.getId());
+                }
+            }
+            storage.ticketIds.set(in.readInt());
+            int ticketCount = in.readInt();
+            for (int i = 0; i < ticketCount; i++) {
+                int          id     = in.readInt();
+                int          number = in.readInt();
+                String       plate  = in.readUTF();
+                String       price  = in.readUTF();
+                TicketRecord record = new TicketRecord(number, plate, price.isEmpty() ? null : new BigDecimal(price), readTime(in), readTime(in));
+                if (version > 2) {
+                    String paid = in.readUTF();
+                    record.paidAmount = paid.isEmpty() ? null : new BigDecimal(paid);
+                    record.paidTime = readTime(in);
+                }
+                storage.tickets.put(id, record);
+                storage.indexTicket(id, record);
+            }
+        }
+        logger.info("Restored {} parking spots and {} tickets from {}", storage.spots.size(), storage.tickets.size(), file);
+        return storage;
+    }
+
+    private void indexTicket(int id, TicketRecord record) {
+        latestTickets.merge(record.vehicleRegNumber, id, Math::max);
+        plateTickets.computeIfAbsent(record.vehicleRegNumber, plate -> new ConcurrentLinkedQueue<>()).add(id);
+        if (record.outTime == null) {
+            openTickets.put(record.vehicleRegNumber, id);
+        }
+    }
+
+    private Ticket toTicket(int id) {
+        TicketRecord record = tickets.get(id);
+        if (record == null) {
+            return null;
+        }
+        SpotRecord spot   = spots.get(record.parkingNumber);
+        Ticket     ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setParkingSpot(new ParkingSpot(record.parkingNumber, (spot == null) ? null : spot.parkingType, false));
+        ticket.setVehicleRegNumber(record.vehicleRegNumber);
+        synchronized (record) {
+            ticket.setPrice(record.price);
+            ticket.setInTime(record.inTime);
+            ticket.setOutTime(record.outTime);
+            ticket.setPaidAmount(record.paidAmount);
+            ticket.setPaidTime(record.paidTime);
+        }
+        return ticket;
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static final class SpotRecord {
+        private volatile ParkingType parkingType;
+        private          boolean     available;
+        private          boolean     retired;
+
+        private SpotRecord(ParkingType parkingType, boolean available) {
+            this.parkingType = parkingType;
+            this.available = available;
+        }
+    }
+
+    private static final class TicketRecord {
+        private final int           parkingNumber;
+        private final String        vehicleRegNumber;
+        private final LocalDateTime inTime;
+        private       BigDecimal    price;
+        private       LocalDateTime outTime;
+        private       BigDecimal    paidAmount;
+        private       LocalDateTime paidTime;
+
+        private TicketRecord(int parkingNumber, String vehicleRegNumber, BigDecimal price, LocalDateTime inTime, LocalDateTime outTime) {
+            this.parkingNumber = parkingNumber;
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.price = price;
+            this.inTime = inTime;
+            this.outTime = outTime;
+        }
+    }
+}
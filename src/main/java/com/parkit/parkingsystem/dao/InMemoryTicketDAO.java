@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <b> Accesses in-memory storage for ticket information.</b>
+ * <br>
+ *
+ * @see com.parkit.parkingsystem.dao.InMemoryStorage
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class InMemoryTicketDAO implements TicketDAO {
+
+    private final InMemoryStorage storage;
+
+    /**
+     * Constructor for InMemoryTicketDAO.
+     *
+     * @param storage Storage shared with the parking spot DAO
+     */
+    public InMemoryTicketDAO(InMemoryStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void saveTicket(Ticket ticket) {
+        storage.saveTicket(ticket);
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return storage.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber) {
+        return storage.getTickets(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets() {
+        return storage.getOpenTickets();
+    }
+
+    @Override
+    public List<Ticket> getOpenTickets(ParkingType parkingType) {
+        List<Ticket> tickets = storage.getOpenTickets();
+        tickets.removeIf(ticket -> ticket.getParkingSpot().getParkingType() != parkingType);
+        return tickets;
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        return storage.updateTicket(ticket);
+    }
+
+    @Override
+    public boolean recordPayment(Ticket ticket) {
+        return storage.recordPayment(ticket);
+    }
+
+    @Override
+    public List<Ticket> closeTickets(List<Ticket> tickets) {
+        List<Ticket> closed = new ArrayList<>();
+        for (Ticket ticket : tickets) {
+            if (storage.updateTicket(ticket)) {
+                storage.updateParking(new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), true));
+                closed.add(ticket);
+            }
+        }
+        return closed;
+    }
+}
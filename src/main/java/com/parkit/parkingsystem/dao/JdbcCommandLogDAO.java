@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.idempotency.CommandResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * <b> Accesses MySQL database for the results of the entry and exit commands.</b>
+ * <br>
+ * A result is a copy of the ticket replied, so that it is replied again as it was even once the ticket changed.
+ * A call the database fails throws a {@link DataAccessException}, so that a failure is not taken for a command which never ran.
+ *
+ * @see com.parkit.parkingsystem.idempotency.CommandDeduplicator
+ */
+public class JdbcCommandLogDAO implements CommandLogDAO {
+
+    private static final Logger logger = LogManager.getLogger("JdbcCommandLogDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    @Override
+    public CommandResult getResult(String requestId) {
+        Connection    con    = null;
+        CommandResult result = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_COMMAND_RESULT)) {
+                ps.setString(1, requestId);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    Timestamp outTime = rs.getTimestamp(9);
+                    result = new CommandResult(GateAction.valueOf(rs.getString(1)), rs.getInt(2), rs.getInt(3), ParkingType.valueOf(rs.getString(4)),
+                                               rs.getString(5), rs.getBigDecimal(6), rs.getBigDecimal(7), rs.getTimestamp(8).toLocalDateTime(),
+                                               (outTime == null) ? null : outTime.toLocalDateTime());
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching result of request {}", requestId, ex);
+            throw DataAccessException.of("Error fetching result of request " + requestId, ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean saveResult(String requestId, CommandResult result, LocalDateTime created) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_COMMAND_RESULT)) {
+                ps.setString(1, requestId);
+                ps.setString(2, result.getAction().name());
+                ps.setInt(3, result.getTicketId());
+                ps.setInt(4, result.getParkingNumber());
+                ps.setString(5, result.getParkingType().name());
+                ps.setString(6, result.getVehicleRegNumber());
+                ps.setBigDecimal(7, result.getPrice());
+                ps.setBigDecimal(8, result.getPaidAmount());
+                ps.setTimestamp(9, Timestamp.valueOf(result.getInTime()));
+                ps.setTimestamp(10, (result.getOutTime() == null) ? null : Timestamp.valueOf(result.getOutTime()));
+                ps.setTimestamp(11, Timestamp.valueOf(created));
+                // A result saved meanwhile by another node running a retry is kept, and no row is changed
+                return (ps.executeUpdate() == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error saving result of request {}", requestId, ex);
+            throw DataAccessException.of("Error saving result of request " + requestId, ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public int purge(LocalDateTime before) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.PURGE_COMMAND_RESULTS)) {
+                ps.setTimestamp(1, Timestamp.valueOf(before));
+                return ps.executeUpdate();
+            }
+        } catch (Exception ex) {
+            logger.error("Error purging command results", ex);
+            throw DataAccessException.of("Error purging command results", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <b> Accesses MySQL database for parking spot information.</b>
+ * <br>
+ * A call the database fails throws a {@link DataAccessException}, so that a failure is not taken for a full lot or a spot already taken.
+ *
+ * @author Tek
+ * <br><br>
+ * @see com.parkit.parkingsystem.service.InteractiveShell
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class JdbcParkingSpotDAO implements ParkingSpotDAO {
+    private static final Logger logger = LogManager.getLogger("JdbcParkingSpotDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Gets next available parking spot for specified parking type.
+     *
+     * @param parkingType Parking type, either BIKE or CAR
+     *
+     * @return ID for next available slot for parking type, 0 if none is available
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        Connection con    = null;
+        int        result = -1;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            // Use try-with-resources to clean up java.sql.ResultSet and java.sql.Statement
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_NEXT_PARKING_SPOT)) {
+                ps.setString(1, parkingType.toString());
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    result = rs.getInt(1);
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching next available slot", ex);
+            throw DataAccessException.of("Error fetching next available slot", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    /**
+     * Gets every available parking spot of a type, in a single query.
+     *
+     * @param parkingType Parking type, either BIKE or CAR
+     *
+     * @return Parking numbers of the available spots, lowest first
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Integer> getAvailableSlots(ParkingType parkingType) {
+        Connection    con            = null;
+        List<Integer> parkingNumbers = new ArrayList<>();
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_AVAILABLE_SPOTS)) {
+                ps.setString(1, parkingType.toString());
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    parkingNumbers.add(rs.getInt(1));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching available slots", ex);
+            throw DataAccessException.of("Error fetching available slots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return parkingNumbers;
+    }
+
+    /**
+     * Gets a parking spot from database, with the version of its row.
+     *
+     * @param parkingNumber Parking spot number
+     *
+     * @return Parking spot, or null if there is no such spot
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public ParkingSpot getParkingSpot(int parkingNumber) {
+        Connection  con         = null;
+        ParkingSpot parkingSpot = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_SPOT)) {
+                ps.setInt(1, parkingNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    parkingSpot = new ParkingSpot(parkingNumber, ParkingType.valueOf(rs.getString(2)), rs.getBoolean(1));
+                    parkingSpot.setVersion(rs.getInt(3));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching parking spot", ex);
+            throw DataAccessException.of("Error fetching parking spot", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return parkingSpot;
+    }
+
+    /**
+     * Updates parking spot availability, if the spot still has the version it was read with.
+     *
+     * @param parkingSpot Parking spot in database, whose version moves on if it is updated
+     *
+     * @return true if the update was successful, false if the spot does not exist or was updated since it was read
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        //update the availability fo that parking slot
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT)) {
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+                ps.setInt(3, parkingSpot.getVersion());
+                ps.setInt(4, parkingSpot.getVersion());
+                int updateRowCount = ps.executeUpdate();
+                if (updateRowCount == 1 && parkingSpot.getVersion() > 0) {
+                    parkingSpot.setVersion(parkingSpot.getVersion() + 1);
+                }
+                return (updateRowCount == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error updating parking info", ex);
+            throw DataAccessException.of("Error updating parking info", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Marks a parking spot as taken if it is still available, in a single conditional update.
+     *
+     * @param parkingNumber Parking spot number
+     *
+     * @return true if the spot was available and is now taken, false otherwise
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public boolean claimParking(int parkingNumber) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT)) {
+                ps.setInt(1, parkingNumber);
+                return (ps.executeUpdate() == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error claiming parking spot", ex);
+            throw DataAccessException.of("Error claiming parking spot", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Marks a parking spot as taken if it is still available and of the type, in a single conditional update.
+     *
+     * @param parkingNumber Parking spot number
+     * @param parkingType   Type the spot was found for
+     *
+     * @return true if the spot was available with this type and is now taken, false otherwise
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public boolean claimParking(int parkingNumber, ParkingType parkingType) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT_OF_TYPE)) {
+                ps.setInt(1, parkingNumber);
+                ps.setString(2, parkingType.toString());
+                return (ps.executeUpdate() == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error claiming parking spot", ex);
+            throw DataAccessException.of("Error claiming parking spot", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Counts the available parking spots of a type.
+     *
+     * @param parkingType Parking type, either BIKE or CAR
+     *
+     * @return Number of available spots
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public int countAvailableSlots(ParkingType parkingType) {
+        Connection con    = null;
+        int        result = 0;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.COUNT_AVAILABLE_SPOTS)) {
+                ps.setString(1, parkingType.toString());
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    result = rs.getInt(1);
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error counting available slots", ex);
+            throw DataAccessException.of("Error counting available slots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the spots of a range: the missing numbers are inserted in a batch and the retired spots without open ticket put back in
+     * service, in one transaction.
+     *
+     * @param first       First parking number of the range
+     * @param last        Last parking number of the range, included
+     * @param parkingType Type of the spots added or put back
+     *
+     * @return Parking numbers of the spots added or put back, in ascending order
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Integer> addParkingSpots(int first, int last, ParkingType parkingType) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement getNumbers = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_NUMBERS);
+                 PreparedStatement addSpot = dataBaseConfig.prepareStatement(con, DBConstants.ADD_PARKING_SPOT);
+                 PreparedStatement getRetired = dataBaseConfig.prepareStatement(con, DBConstants.GET_RETIRED_SPOTS);
+                 PreparedStatement reopenSpot = dataBaseConfig.prepareStatement(con, DBConstants.REOPEN_PARKING_SPOT)) {
+                Set<Integer> existing = new HashSet<>(getParkingNumbers(getNumbers, first, last));
+                List<Integer> added = new ArrayList<>();
+                for (int parkingNumber = first; parkingNumber <= last; parkingNumber++) {
+                    if (!existing.contains(parkingNumber)) {
+                        addSpot.setInt(1, parkingNumber);
+                        addSpot.setString(2, parkingType.toString());
+                        addSpot.addBatch();
+                        added.add(parkingNumber);
+                    }
+                }
+                if (!added.isEmpty()) {
+                    addSpot.executeBatch();
+                }
+                List<Integer> retired = getParkingNumbers(getRetired, first, last);
+                for (int parkingNumber : retired) {
+                    reopenSpot.setString(1, parkingType.toString());
+                    reopenSpot.setInt(2, parkingNumber);
+                    reopenSpot.addBatch();
+                }
+                added.addAll(changedSpots(retired, reopenSpot));
+                con.commit();
+                Collections.sort(added);
+                return added;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error adding parking spots {} to {}", first, last, ex);
+            throw DataAccessException.of("Error adding parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Retires the spots of a range, in a batch of one update per spot in service.
+     *
+     * @param first First parking number of the range
+     * @param last  Last parking number of the range, included
+     *
+     * @return Parking numbers of the spots retired, in ascending order
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Integer> retireParkingSpots(int first, int last) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement getInService = dataBaseConfig.prepareStatement(con, DBConstants.GET_SPOTS_IN_SERVICE);
+                 PreparedStatement retireSpot = dataBaseConfig.prepareStatement(con, DBConstants.RETIRE_PARKING_SPOT)) {
+                List<Integer> inService = getParkingNumbers(getInService, first, last);
+                for (int parkingNumber : inService) {
+                    retireSpot.setInt(1, parkingNumber);
+                    retireSpot.addBatch();
+                }
+                List<Integer> retired = changedSpots(inService, retireSpot);
+                con.commit();
+                return retired;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error retiring parking spots {} to {}", first, last, ex);
+            throw DataAccessException.of("Error retiring parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Changes the type of the free spots of a range, in a batch of one update per free spot of another type.
+     *
+     * @param first       First parking number of the range
+     * @param last        Last parking number of the range, included
+     * @param parkingType New type of the spots
+     *
+     * @return Parking numbers of the spots whose type changed, in ascending order
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Integer> retypeParkingSpots(int first, int last, ParkingType parkingType) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement getToRetype = dataBaseConfig.prepareStatement(con, DBConstants.GET_SPOTS_TO_RETYPE);
+                 PreparedStatement retypeSpot = dataBaseConfig.prepareStatement(con, DBConstants.RETYPE_PARKING_SPOT)) {
+                getToRetype.setString(3, parkingType.toString());
+                List<Integer> toRetype = getParkingNumbers(getToRetype, first, last);
+                for (int parkingNumber : toRetype) {
+                    retypeSpot.setString(1, parkingType.toString());
+                    retypeSpot.setInt(2, parkingNumber);
+                    retypeSpot.setString(3, parkingType.toString());
+                    retypeSpot.addBatch();
+                }
+                List<Integer> retyped = changedSpots(toRetype, retypeSpot);
+                con.commit();
+                return retyped;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error retyping parking spots {} to {}", first, last, ex);
+            throw DataAccessException.of("Error retyping parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static List<Integer> getParkingNumbers(PreparedStatement ps, int first, int last) throws SQLException {
+        ps.setInt(1, first);
+        ps.setInt(2, last);
+        List<Integer> parkingNumbers = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                parkingNumbers.add(rs.getInt(1));
+            }
+        }
+        return parkingNumbers;
+    }
+
+    private static List<Integer> changedSpots(List<Integer> candidates, PreparedStatement batch) throws SQLException {
+        List<Integer> changed = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return changed;
+        }
+        // A candidate changed meanwhile by a gate or another node no longer matches, and is not updated
+        int[] updateCounts = batch.executeBatch();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 1) {
+                changed.add(candidates.get(i));
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,247 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupGranularity;
+import com.parkit.parkingsystem.model.Rollup;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <b> Accesses MySQL database for the rollups of the tickets.</b>
+ * <br>
+ * {@link JdbcTicketDAO} adds each ticket to the rollups in the transaction saving or closing it, so that the rollups never miss nor count twice a ticket.
+ *
+ * @see com.parkit.parkingsystem.dao.RollupBuckets
+ */
+public class JdbcRollupDAO implements RollupDAO {
+
+    private static final Logger logger = LogManager.getLogger("JdbcRollupDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Adds the entry of a vehicle to the peak occupancy of its hour and day, once its spot was taken.
+     *
+     * @param con    Connection to the database, in the transaction of the ticket
+     * @param ticket Ticket of the vehicle
+     *
+     * @throws SQLException if the rollups can not be updated
+     */
+    static void recordEntry(Connection con, Ticket ticket) throws SQLException {
+        RollupBuckets buckets = new RollupBuckets();
+        buckets.addOccupancy(ticket.getParkingSpot().getParkingType(), ticket.getInTime(), countOccupiedSpots(con, ticket.getParkingSpot().getParkingType()));
+        buckets.write(con);
+    }
+
+    /**
+     * Adds a closed ticket to the rollups, before its spot is freed.
+     *
+     * @param con    Connection to the database, in the transaction of the ticket
+     * @param ticket Closed ticket
+     *
+     * @throws SQLException if the rollups can not be updated
+     */
+    static void recordExit(Connection con, Ticket ticket) throws SQLException {
+        ParkingType   parkingType = ticket.getParkingSpot().getParkingType();
+        RollupBuckets buckets     = new RollupBuckets();
+        buckets.addClosedTicket(parkingType, ticket.getInTime(), ticket.getOutTime(), ticket.getPrice());
+        buckets.addOccupancy(parkingType, ticket.getOutTime(), countOccupiedSpots(con, parkingType));
+        buckets.write(con);
+    }
+
+    /**
+     * Adds tickets closed at once to the rollups, before their spots are freed.
+     *
+     * @param con     Connection to the database, in the transaction of the tickets
+     * @param tickets Closed tickets
+     *
+     * @throws SQLException if the rollups can not be updated
+     */
+    static void recordExits(Connection con, List<Ticket> tickets) throws SQLException {
+        RollupBuckets                   buckets   = new RollupBuckets();
+        Map<ParkingType, LocalDateTime> lastExits = new EnumMap<>(ParkingType.class);
+        for (Ticket ticket : tickets) {
+            ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+            buckets.addClosedTicket(parkingType, ticket.getInTime(), ticket.getOutTime(), ticket.getPrice());
+            lastExits.merge(parkingType, ticket.getOutTime(), (a, b) -> a.isAfter(b) ? a : b);
+        }
+        for (Map.Entry<ParkingType, LocalDateTime> lastExit : lastExits.entrySet()) {
+            buckets.addOccupancy(lastExit.getKey(), lastExit.getValue(), countOccupiedSpots(con, lastExit.getKey()));
+        }
+        buckets.write(con);
+    }
+
+    /**
+     * Gets the rollups of every parking type over a period.
+     *
+     * @param granularity Size of the buckets
+     * @param from        Start of the period, included
+     * @param to          End of the period, excluded
+     *
+     * @return Rollups of the buckets starting in the period
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Rollup> getRollups(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        Connection   con     = null;
+        List<Rollup> rollups = new ArrayList<>();
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_ROLLUPS)) {
+                ps.setString(1, granularity.name());
+                ps.setTimestamp(2, Timestamp.valueOf(from));
+                ps.setTimestamp(3, Timestamp.valueOf(to));
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    rollups.add(new Rollup(granularity, rs.getTimestamp(1).toLocalDateTime(), ParkingType.valueOf(rs.getString(2)), rs.getInt(3),
+                                           rs.getBigDecimal(4), rs.getLong(5), rs.getLong(6), rs.getInt(7)));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching rollups", ex);
+            throw DataAccessException.of("Error fetching rollups", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return rollups;
+    }
+
+    /**
+     * Computes again the rollups of some days from their tickets, one transaction per day.
+     * The peak occupancy is counted from the tickets, as the spots occupied at the time are no longer known.
+     *
+     * @param from First day to roll up
+     * @param to   Last day to roll up, included
+     *
+     * @return Number of tickets closed during the days rolled up
+     *
+     * @throws DataAccessException if a day can not be rolled up; the days before stay rolled up
+     */
+    @Override
+    public int backfill(LocalDate from, LocalDate to) {
+        int tickets = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            tickets += backfill(day);
+        }
+        logger.info("Rolled up {} tickets from {} to {}", tickets, from, to);
+        return tickets;
+    }
+
+    private int backfill(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end   = start.plusDays(1);
+        Connection    con   = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try {
+                RollupBuckets buckets = new RollupBuckets(start, end);
+                int           closed  = rollUpTickets(con, start, end, buckets);
+                try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.DELETE_ROLLUPS)) {
+                    ps.setTimestamp(1, Timestamp.valueOf(start));
+                    ps.setTimestamp(2, Timestamp.valueOf(end));
+                    ps.executeUpdate();
+                }
+                buckets.write(con);
+                con.commit();
+                return closed;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error rolling up tickets of " + day, ex);
+            throw DataAccessException.of("Error rolling up tickets of " + day, ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int rollUpTickets(Connection con, LocalDateTime start, LocalDateTime end, RollupBuckets buckets) throws SQLException {
+        // Entries and exits during the day, replayed in order to find the peak occupancy as the gates would have counted it
+        Map<ParkingType, List<Movement>> movements = new EnumMap<>(ParkingType.class);
+        Map<ParkingType, Integer>        occupancy = new EnumMap<>(ParkingType.class);
+        int                              closed    = 0;
+        try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKETS_DURING)) {
+            ps.setTimestamp(1, Timestamp.valueOf(end));
+            ps.setTimestamp(2, Timestamp.valueOf(start));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    LocalDateTime  inTime        = rs.getTimestamp(1).toLocalDateTime();
+                    Timestamp      out           = rs.getTimestamp(2);
+                    ParkingType    parkingType   = ParkingType.valueOf(rs.getString(4));
+                    List<Movement> typeMovements = movements.computeIfAbsent(parkingType, type -> new ArrayList<>());
+                    if (inTime.isBefore(start)) {
+                        occupancy.merge(parkingType, 1, Integer::sum);
+                    } else {
+                        typeMovements.add(new Movement(inTime, true));
+                    }
+                    if (out != null) {
+                        LocalDateTime outTime = out.toLocalDateTime();
+                        buckets.addClosedTicket(parkingType, inTime, outTime, rs.getBigDecimal(3));
+                        if (outTime.isBefore(end)) {
+                            typeMovements.add(new Movement(outTime, false));
+                            closed++;
+                        }
+                    }
+                }
+            }
+        }
+        for (Map.Entry<ParkingType, List<Movement>> entry : movements.entrySet()) {
+            int occupied = occupancy.getOrDefault(entry.getKey(), 0);
+            // Exits first at equal times, as a spot freed and taken again in the same second is one spot
+            entry.getValue().sort(Comparator.comparing((Movement movement) -> movement.time).thenComparing(movement -> movement.entry));
+            for (Movement movement : entry.getValue()) {
+                if (movement.entry) {
+                    occupied++;
+                }
+                buckets.addOccupancy(entry.getKey(), movement.time, occupied);
+                if (!movement.entry) {
+                    occupied--;
+                }
+            }
+        }
+        return closed;
+    }
+
+    private static int countOccupiedSpots(Connection con, ParkingType parkingType) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_OCCUPIED_SPOTS)) {
+            ps.setString(1, parkingType.name());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static final class Movement {
+        private final LocalDateTime time;
+        private final boolean       entry;
+
+        private Movement(LocalDateTime time, boolean entry) {
+            this.time = time;
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketMetric;
+import com.parkit.parkingsystem.stats.QuantileSketch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+/**
+ * <b> Accesses MySQL database for the quantile sketches of the closed tickets.</b>
+ * <br>
+ * Sketches are stored in their binary form, a few hundred bytes each.
+ *
+ * @see com.parkit.parkingsystem.stats.QuantileSketch
+ */
+public class JdbcSketchDAO implements SketchDAO {
+
+    private static final Logger logger = LogManager.getLogger("JdbcSketchDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Gets the sketch saved by a node.
+     *
+     * @param day         Day the tickets were closed
+     * @param parkingType Parking type
+     * @param metric      Metric
+     * @param nodeId      Node ID
+     *
+     * @return Sketch, or null if the node saved none
+     *
+     * @throws DataAccessException if the database call fails, so that a failure is not taken for a missing sketch
+     */
+    @Override
+    public QuantileSketch getSketch(LocalDate day, ParkingType parkingType, TicketMetric metric, String nodeId) {
+        Connection     con    = null;
+        QuantileSketch sketch = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_SKETCH)) {
+                ps.setDate(1, Date.valueOf(day));
+                ps.setString(2, parkingType.name());
+                ps.setString(3, metric.name());
+                ps.setString(4, nodeId);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    sketch = QuantileSketch.fromBytes(rs.getBytes(1));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching sketch", ex);
+            throw DataAccessException.of("Error fetching sketch", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return sketch;
+    }
+
+    @Override
+    public boolean saveSketch(LocalDate day, ParkingType parkingType, TicketMetric metric, String nodeId, QuantileSketch sketch) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_SKETCH)) {
+                ps.setDate(1, Date.valueOf(day));
+                ps.setString(2, parkingType.name());
+                ps.setString(3, metric.name());
+                ps.setString(4, nodeId);
+                ps.setBytes(5, sketch.toBytes());
+                ps.executeUpdate();
+                return true;
+            }
+        } catch (Exception ex) {
+            logger.error("Error saving sketch", ex);
+            throw DataAccessException.of("Error saving sketch", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public QuantileSketch mergeSketches(ParkingType parkingType, TicketMetric metric, LocalDate from, LocalDate to, double accuracy) {
+        Connection     con    = null;
+        QuantileSketch merged = new QuantileSketch(accuracy);
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_SKETCHES)) {
+                ps.setString(1, parkingType.name());
+                ps.setString(2, metric.name());
+                ps.setDate(3, Date.valueOf(from));
+                ps.setDate(4, Date.valueOf(to));
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    merged.merge(QuantileSketch.fromBytes(rs.getBytes(1)));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error merging sketches", ex);
+            throw DataAccessException.of("Error merging sketches", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,212 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <b> Accesses MySQL database for the leases of parking spots.</b>
+ * <br>
+ * Leases are kept in the <code>LEASE_OWNER</code> and <code>LEASE_EXPIRY</code> columns of the parking table. Candidate spots are read first,
+ * then each one is leased by an update repeating the condition it was read with, so that two nodes never lease the same spot.
+ * A call the database fails throws a {@link DataAccessException}, so that a failure is not taken for a lot without free spots.
+ *
+ * @see com.parkit.parkingsystem.allocation.LeasedSpotPool
+ */
+public class JdbcSpotLeaseDAO implements SpotLeaseDAO {
+    private static final Logger logger = LogManager.getLogger("JdbcSpotLeaseDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    @Override
+    public List<Integer> leaseSpots(ParkingType parkingType, String nodeId, int count, int leaseSeconds) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            List<Integer> candidates = queryParkingNumbers(con, DBConstants.GET_UNLEASED_SPOTS, count, parkingType.toString());
+            return lease(con, DBConstants.LEASE_SPOT, candidates, nodeId, leaseSeconds, null);
+        } catch (Exception ex) {
+            logger.error("Error leasing parking spots", ex);
+            throw DataAccessException.of("Error leasing parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public List<Integer> takeOverSpots(ParkingType parkingType, String nodeId, int count, int leaseSeconds) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            String lessee = null;
+            int    free   = 0;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_RICHEST_LESSEE)) {
+                ps.setString(1, parkingType.toString());
+                ps.setString(2, nodeId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        lessee = rs.getString(1);
+                        free = rs.getInt(2);
+                    }
+                }
+            }
+            if (lessee == null) {
+                return Collections.emptyList();
+            }
+            // The lessee keeps the lowest half of its free spots, which it gives first
+            List<Integer> candidates = queryParkingNumbers(con, DBConstants.GET_LEASED_SPOTS, free, parkingType.toString(), lessee);
+            candidates = candidates.subList(candidates.size() / 2, candidates.size());
+            if (candidates.size() > count) {
+                candidates = candidates.subList(candidates.size() - count, candidates.size());
+            }
+            return lease(con, DBConstants.TRANSFER_LEASE, candidates, nodeId, leaseSeconds, lessee);
+        } catch (Exception ex) {
+            logger.error("Error taking over parking spots", ex);
+            throw DataAccessException.of("Error taking over parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public List<Integer> getLeasedSpots(ParkingType parkingType, String nodeId) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            return queryParkingNumbers(con, DBConstants.GET_LEASED_SPOTS, 0, parkingType.toString(), nodeId);
+        } catch (Exception ex) {
+            logger.error("Error fetching leased parking spots", ex);
+            throw DataAccessException.of("Error fetching leased parking spots", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public int renewLeases(String nodeId, int leaseSeconds) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.RENEW_LEASES)) {
+                ps.setInt(1, leaseSeconds);
+                ps.setString(2, nodeId);
+                return ps.executeUpdate();
+            }
+        } catch (Exception ex) {
+            logger.error("Error renewing parking spot leases", ex);
+            throw DataAccessException.of("Error renewing parking spot leases", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public void releaseSpots(String nodeId, Collection<Integer> parkingNumbers) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.RELEASE_LEASE)) {
+                for (int parkingNumber : parkingNumbers) {
+                    ps.setInt(1, parkingNumber);
+                    ps.setString(2, nodeId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (Exception ex) {
+            logger.error("Error releasing parking spot leases", ex);
+            throw DataAccessException.of("Error releasing parking spot leases", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public void releaseLeases(String nodeId) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.RELEASE_LEASES)) {
+                ps.setString(1, nodeId);
+                ps.executeUpdate();
+            }
+        } catch (Exception ex) {
+            logger.error("Error releasing parking spot leases", ex);
+            throw DataAccessException.of("Error releasing parking spot leases", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public boolean claimLeasedSpot(int parkingNumber, String nodeId) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_LEASED_SPOT)) {
+                ps.setInt(1, parkingNumber);
+                ps.setString(2, nodeId);
+                return (ps.executeUpdate() == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error claiming leased parking spot", ex);
+            throw DataAccessException.of("Error claiming leased parking spot", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private List<Integer> queryParkingNumbers(Connection con, String query, int maxRows, String... parameters) throws SQLException {
+        List<Integer> parkingNumbers = new ArrayList<>();
+        try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, query)) {
+            ps.setMaxRows(maxRows);
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setString(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    parkingNumbers.add(rs.getInt(1));
+                }
+            }
+        }
+        return parkingNumbers;
+    }
+
+    private List<Integer> lease(Connection con, String update, List<Integer> candidates, String nodeId, int leaseSeconds, String previousOwner)
+            throws SQLException {
+        List<Integer> leased = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return leased;
+        }
+        try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, update)) {
+            for (int parkingNumber : candidates) {
+                ps.setString(1, nodeId);
+                ps.setInt(2, leaseSeconds);
+                ps.setInt(3, parkingNumber);
+                if (previousOwner != null) {
+                    ps.setString(4, previousOwner);
+                }
+                ps.addBatch();
+            }
+            // A candidate leased meanwhile by another node is not updated
+            int[] updateCounts = ps.executeBatch();
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == 1) {
+                    leased.add(candidates.get(i));
+                }
+            }
+        }
+        return leased;
+    }
+}
@@ -0,0 +1,356 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <b> Accesses MySQL database for ticket information.</b>
+ * <br>
+ * A call the database fails throws a {@link DataAccessException}, so that a failure is not taken for a vehicle without ticket.
+ *
+ * @author Tek
+ * <br><br>
+ * @see com.parkit.parkingsystem.service.InteractiveShell
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class JdbcTicketDAO implements TicketDAO {
+
+    private static final Logger logger = LogManager.getLogger("JdbcTicketDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /**
+     * Saves ticket into database and sets its generated ID.
+     * The entry of an open ticket is added to the rollups in the same transaction.
+     *
+     * @param ticket Ticket to save
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public void saveTicket(Ticket ticket) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS)) {
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setBigDecimal(3, ticket.getPrice());
+                ps.setTimestamp(4, Timestamp.valueOf(ticket.getInTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null) ? null : Timestamp.valueOf(ticket.getOutTime()));
+                ps.execute();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        ticket.setId(keys.getInt(1));
+                    }
+                }
+                ticket.setVersion(1);
+                if (ticket.getOutTime() == null) {
+                    JdbcRollupDAO.recordEntry(con, ticket);
+                }
+                con.commit();
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error saving ticket", ex);
+            throw DataAccessException.of("Error saving ticket", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Gets ticket from database with the specified registration number.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The latest ticket with the specified registration number, or null if the vehicle never parked
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        Connection con    = null;
+        Ticket     ticket = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET)) {
+                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+                ps.setString(1, vehicleRegNumber);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    ticket = toTicket(rs, vehicleRegNumber);
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error while accessing database to find existing ticket", ex);
+            throw DataAccessException.of("Error fetching ticket", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return ticket;
+    }
+
+    /**
+     * Gets every ticket from database with the specified registration number.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Tickets with the specified registration number, latest first
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber) {
+        Connection   con     = null;
+        List<Ticket> tickets = new ArrayList<>();
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKETS)) {
+                ps.setString(1, vehicleRegNumber);
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    tickets.add(toTicket(rs, vehicleRegNumber));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching tickets of vehicle", ex);
+            throw DataAccessException.of("Error fetching tickets of vehicle", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return tickets;
+    }
+
+    /**
+     * Gets the tickets of the vehicles still in the parking.
+     *
+     * @return Open tickets, empty if no vehicle is parked
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Ticket> getOpenTickets() {
+        return getOpenTickets(DBConstants.GET_OPEN_TICKETS, null);
+    }
+
+    /**
+     * Gets the tickets of the vehicles of a type still in the parking, in one query.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Open tickets, empty if no vehicle of the type is parked
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public List<Ticket> getOpenTickets(ParkingType parkingType) {
+        return getOpenTickets(DBConstants.GET_OPEN_TICKETS_OF_TYPE, parkingType);
+    }
+
+    private List<Ticket> getOpenTickets(String query, ParkingType parkingType) {
+        Connection   con     = null;
+        List<Ticket> tickets = new ArrayList<>();
+        try {
+            con = dataBaseConfig.openConnection();
+            ResultSet rs = null;
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, query)) {
+                if (parkingType != null) {
+                    ps.setString(1, parkingType.name());
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    tickets.add(toTicket(rs, rs.getString(11)));
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+            }
+        } catch (Exception ex) {
+            logger.error("Error fetching open tickets", ex);
+            throw DataAccessException.of("Error fetching open tickets", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return tickets;
+    }
+
+    /**
+     * Updates ticket in database and return true if the operation is successful.
+     * The ticket is only updated if its row still has the version it was read with, which then moves on.
+     * The closed ticket is added to the rollups in the same transaction.
+     *
+     * @param ticket Ticket to update
+     *
+     * @return True, or false if the ticket was already closed or updated since it was read
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET)) {
+                ps.setBigDecimal(1, ticket.getPrice());
+                ps.setTimestamp(2, Timestamp.valueOf(ticket.getOutTime()));
+                ps.setInt(3, ticket.getId());
+                ps.setInt(4, ticket.getVersion());
+                boolean updated = (ps.executeUpdate() == 1);
+                if (updated) {
+                    JdbcRollupDAO.recordExit(con, ticket);
+                }
+                con.commit();
+                if (updated) {
+                    ticket.setVersion(ticket.getVersion() + 1);
+                }
+                return updated;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error saving ticket info", ex);
+            throw DataAccessException.of("Error saving ticket info", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Records the fare paid in advance on an open ticket. The version of its row moves on, so that an exit priced before the payment
+     * is priced again.
+     *
+     * @param ticket Ticket with the amount paid so far and the time of the latest payment
+     *
+     * @return True, or false if the ticket does not exist or was closed
+     *
+     * @throws DataAccessException if the database call fails
+     */
+    @Override
+    public boolean recordPayment(Ticket ticket) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.openConnection();
+            try (PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.RECORD_PAYMENT)) {
+                ps.setBigDecimal(1, ticket.getPaidAmount());
+                ps.setTimestamp(2, Timestamp.valueOf(ticket.getPaidTime()));
+                ps.setInt(3, ticket.getId());
+                return (ps.executeUpdate() == 1);
+            }
+        } catch (Exception ex) {
+            logger.error("Error recording payment of ticket {}", ticket.getId(), ex);
+            throw DataAccessException.of("Error recording payment", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /**
+     * Closes tickets and frees their spots in one transaction: the tickets are updated in one batch, added to the rollups, then their
+     * spots are freed in another batch. A ticket is only updated if its row still has the version it was read with.
+     *
+     * @param tickets Tickets to close, priced
+     *
+     * @return Tickets closed, in the same order
+     *
+     * @throws DataAccessException if the database call fails, in which case no ticket is closed
+     */
+    @Override
+    public List<Ticket> closeTickets(List<Ticket> tickets) {
+        Connection   con    = null;
+        List<Ticket> closed = new ArrayList<>();
+        if (tickets.isEmpty()) {
+            return closed;
+        }
+        try {
+            con = dataBaseConfig.openConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement updateTicket = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET);
+                 PreparedStatement updateSpot = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT)) {
+                for (Ticket ticket : tickets) {
+                    updateTicket.setBigDecimal(1, ticket.getPrice());
+                    updateTicket.setTimestamp(2, Timestamp.valueOf(ticket.getOutTime()));
+                    updateTicket.setInt(3, ticket.getId());
+                    updateTicket.setInt(4, ticket.getVersion());
+                    updateTicket.addBatch();
+                }
+                int[] counts = updateTicket.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 1) {
+                        closed.add(tickets.get(i));
+                    }
+                }
+                JdbcRollupDAO.recordExits(con, closed);
+                for (Ticket ticket : closed) {
+                    // The vehicle is gone whatever the spot became meanwhile: freed without checking its version
+                    updateSpot.setBoolean(1, true);
+                    updateSpot.setInt(2, ticket.getParkingSpot().getId());
+                    updateSpot.setInt(3, 0);
+                    updateSpot.setInt(4, 0);
+                    updateSpot.addBatch();
+                }
+                updateSpot.executeBatch();
+                con.commit();
+                closed.forEach(ticket -> ticket.setVersion(ticket.getVersion() + 1));
+                return closed;
+            } catch (SQLException sqlException) {
+                con.rollback();
+                throw sqlException;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        } catch (Exception ex) {
+            logger.error("Error closing {} tickets", tickets.size(), ex);
+            throw DataAccessException.of("Error closing tickets", ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static Ticket toTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket      ticket      = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
+        parkingSpot.setVersion(rs.getInt(8));
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVersion(rs.getInt(7));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getBigDecimal(3));
+        ticket.setInTime(rs.getTimestamp(4).toLocalDateTime());
+        final Timestamp ticketOutTimeFromDB = rs.getTimestamp(5);
+        if (ticketOutTimeFromDB != null) {
+            //Exit time could be null if the vehicle is still in the parking
+            ticket.setOutTime(ticketOutTimeFromDB.toLocalDateTime());
+        }
+        Timestamp paidTime = rs.getTimestamp(10);
+        if (paidTime != null) {
+            ticket.setPaidAmount(rs.getBigDecimal(9));
+            ticket.setPaidTime(paidTime.toLocalDateTime());
+        }
+        return ticket;
+    }
+}
@@ -1,88 +1,126 @@
 package com.parkit.parkingsystem.dao;
 
-import com.parkit.parkingsystem.config.DataBaseConfig;
-import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.List;
 
 /**
- * <b> Accesses database for parking spot information.</b>
+ * <b> Accesses stored parking spot information.</b>
  * <br>
  *
- * @author Tek
- * <br><br>
- * @see com.parkit.parkingsystem.service.InteractiveShell
+ * @see com.parkit.parkingsystem.dao.JdbcParkingSpotDAO
+ * @see com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO
  * @see com.parkit.parkingsystem.service.ParkingService
  */
-public class ParkingSpotDAO {
-    private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
-
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+public interface ParkingSpotDAO {
 
     /**
      * Gets next available parking spot for specified parking type.
      *
      * @param parkingType Parking type, either BIKE or CAR
      *
-     * @return ID for next available slot for parking type
+     * @return ID for next available slot for parking type, 0 or less if there is none
      */
-    public int getNextAvailableSlot(ParkingType parkingType) {
-        Connection con    = null;
-        int        result = -1;
-        try {
-            con = dataBaseConfig.getConnection();
-            ResultSet rs = null;
-            // Use try-with-resources to clean up java.sql.ResultSet and java.sql.Statement
-            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT)) {
-                ps.setString(1, parkingType.toString());
-                rs = ps.executeQuery();
-                if (rs.next()) {
-                    result = rs.getInt(1);
-                }
-            } catch (SQLException sqlException) {
-                logger.error("Error while executing query", sqlException);
-            } finally {
-                dataBaseConfig.closeResultSet(rs);
-            }
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
-        } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-        return result;
-    }
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    /**
+     * Gets every available parking spot of a type, e.g. to tell an allocator which spots are free when the application starts.
+     * Occupied and retired spots are left out.
+     *
+     * @param parkingType Parking type, either BIKE or CAR
+     *
+     * @return Parking numbers of the available spots, lowest first
+     */
+    List<Integer> getAvailableSlots(ParkingType parkingType);
+
+    /**
+     * Gets a parking spot, with the version of its row if the storage keeps versions.
+     *
+     * @param parkingNumber Parking spot number
+     *
+     * @return Parking spot, or null if there is no such spot
+     */
+    ParkingSpot getParkingSpot(int parkingNumber);
 
     /**
      * Updates parking spot availability.
+     * <p>
+     * A spot read with a version is only updated if it still has this version, which then moves on: a spot updated by another
+     * writer since it was read is not overwritten. A spot with version 0 is updated whatever its version.
+     * </p>
+     *
+     * @param parkingSpot Parking spot in storage
+     *
+     * @return true if the update was successful, false if the spot does not exist or was updated since it was read
+     */
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    /**
+     * Marks a parking spot as taken, only if it is still available.
+     * <p>
+     * Check and update are a single atomic operation: when several gates try to take the same spot, only one of them succeeds.
+     * </p>
+     *
+     * @param parkingNumber Parking spot number
+     *
+     * @return true if the spot was available and is now taken by the caller, false otherwise
+     */
+    boolean claimParking(int parkingNumber);
+
+    /**
+     * Marks a parking spot as taken, only if it is still available and still of the type it was found for.
+     * <p>
+     * A spot retyped since it was found is not taken: a gate does not give a vehicle a spot of another type.
+     * </p>
      *
-     * @param parkingSpot Parking spot in database
+     * @param parkingNumber Parking spot number
+     * @param parkingType   Type the spot was found for
      *
-     * @return true if the update was successful, false otherwise
+     * @return true if the spot was available with this type and is now taken by the caller, false otherwise
      */
-    public boolean updateParking(ParkingSpot parkingSpot) {
-        //update the availability fo that parking slot
-        Connection con = null;
-        try {
-            con = dataBaseConfig.getConnection();
-            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)) {
-                ps.setBoolean(1, parkingSpot.isAvailable());
-                ps.setInt(2, parkingSpot.getId());
-                int updateRowCount = ps.executeUpdate();
-                return (updateRowCount == 1);
-            }
-        } catch (Exception ex) {
-            logger.error("Error updating parking info", ex);
-            return false;
-        } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-    }
+    boolean claimParking(int parkingNumber, ParkingType parkingType);
 
+    /**
+     * Counts the available parking spots of a type.
+     *
+     * @param parkingType Parking type, either BIKE or CAR
+     *
+     * @return Number of available spots
+     */
+    int countAvailableSlots(ParkingType parkingType);
+
+    /**
+     * Adds the spots of a range in a single transaction: missing numbers are added as free spots, and retired spots which are no longer
+     * occupied are put back in service. Spots in service, and retired spots still occupied, are left as they are.
+     *
+     * @param first       First parking number of the range
+     * @param last        Last parking number of the range, included
+     * @param parkingType Type of the spots added or put back
+     *
+     * @return Parking numbers of the spots added or put back, in ascending order
+     */
+    List<Integer> addParkingSpots(int first, int last, ParkingType parkingType);
+
+    /**
+     * Retires the spots of a range in a single transaction. A free spot is no longer given at once; an occupied spot keeps its vehicle
+     * and is no longer given once the vehicle left.
+     *
+     * @param first First parking number of the range
+     * @param last  Last parking number of the range, included
+     *
+     * @return Parking numbers of the spots retired, free or occupied, in ascending order
+     */
+    List<Integer> retireParkingSpots(int first, int last);
+
+    /**
+     * Changes the type of the free spots of a range in a single transaction. Occupied and retired spots keep their type.
+     *
+     * @param first       First parking number of the range
+     * @param last        Last parking number of the range, included
+     * @param parkingType New type of the spots
+     *
+     * @return Parking numbers of the spots whose type changed, in ascending order
+     */
+    List<Integer> retypeParkingSpots(int first, int last, ParkingType parkingType);
 }
@@ -0,0 +1,33 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.List;
+
+/**
+ * <b> Accesses the tickets of a vehicle in every lot.</b>
+ * <br>
+ *
+ * @see com.parkit.parkingsystem.dao.ShardRouter
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public interface PlateHistory {
+
+    /**
+     * Gets the tickets of a vehicle in every lot.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Tickets of the vehicle with their lot, latest first
+     */
+    List<Ticket> getPlateHistory(String vehicleRegNumber);
+
+    /**
+     * Checks whether a vehicle already came to any lot.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return true if the vehicle has a ticket in a lot
+     */
+    boolean hasVisited(String vehicleRegNumber);
+}
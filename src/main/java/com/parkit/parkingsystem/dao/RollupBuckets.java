@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupGranularity;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Changes to the rollups, gathered per bucket before being added to the database in one batch.
+ * Only the buckets starting within a window are changed, so that the days being backfilled are rolled up without touching the others.
+ */
+final class RollupBuckets {
+
+    private final LocalDateTime       windowStart;
+    private final LocalDateTime       windowEnd;
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+
+    /**
+     * Creates changes to every bucket.
+     */
+    RollupBuckets() {
+        this(LocalDateTime.MIN, LocalDateTime.MAX);
+    }
+
+    /**
+     * Creates changes to the buckets starting within a window.
+     *
+     * @param windowStart Start of the window, included, on a day boundary
+     * @param windowEnd   End of the window, excluded, on a day boundary
+     */
+    RollupBuckets(LocalDateTime windowStart, LocalDateTime windowEnd) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+    }
+
+    /**
+     * Adds a closed ticket: counted with its price and dwell at its exit, and its stay spread over the hours and days it covers.
+     *
+     * @param parkingType Parking type of its spot
+     * @param inTime      Entry time
+     * @param outTime     Exit time
+     * @param price       Price paid, or null
+     */
+    void addClosedTicket(ParkingType parkingType, LocalDateTime inTime, LocalDateTime outTime, BigDecimal price) {
+        if (inWindow(outTime)) {
+            long dwell = Duration.between(inTime, outTime).getSeconds();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                Bucket bucket = bucket(granularity, parkingType, outTime);
+                bucket.tickets++;
+                bucket.revenue = (price == null) ? bucket.revenue : bucket.revenue.add(price);
+                bucket.dwellSeconds += dwell;
+            }
+        }
+        LocalDateTime hour = RollupGranularity.HOUR.truncate(max(inTime, windowStart));
+        LocalDateTime end  = min(outTime, windowEnd);
+        for (; hour.isBefore(end); hour = hour.plusHours(1)) {
+            long occupied = Duration.between(max(inTime, hour), min(outTime, hour.plusHours(1))).getSeconds();
+            bucket(RollupGranularity.HOUR, parkingType, hour).occupiedSeconds += occupied;
+            bucket(RollupGranularity.DAY, parkingType, hour).occupiedSeconds += occupied;
+        }
+    }
+
+    /**
+     * Adds the number of spots occupied when a vehicle entered or left.
+     *
+     * @param parkingType Parking type
+     * @param time        Time of the entry or exit
+     * @param occupied    Spots occupied, including the one of the vehicle
+     */
+    void addOccupancy(ParkingType parkingType, LocalDateTime time, int occupied) {
+        if (inWindow(time)) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                Bucket bucket = bucket(granularity, parkingType, time);
+                bucket.peakOccupancy = Math.max(bucket.peakOccupancy, occupied);
+            }
+        }
+    }
+
+    /**
+     * Adds the changes to the rollups of the database, within the transaction of the connection if any.
+     *
+     * @param con Connection to the database
+     *
+     * @throws SQLException if the rollups can not be updated
+     */
+    void write(Connection con) throws SQLException {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.UPSERT_ROLLUP)) {
+            for (Bucket bucket : buckets.values()) {
+                ps.setString(1, bucket.granularity.name());
+                ps.setString(2, bucket.parkingType.name());
+                ps.setTimestamp(3, Timestamp.valueOf(bucket.start));
+                ps.setInt(4, bucket.tickets);
+                ps.setBigDecimal(5, bucket.revenue);
+                ps.setLong(6, bucket.dwellSeconds);
+                ps.setLong(7, bucket.occupiedSeconds);
+                ps.setInt(8, bucket.peakOccupancy);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private boolean inWindow(LocalDateTime time) {
+        return !time.isBefore(windowStart) && time.isBefore(windowEnd);
+    }
+
+    private Bucket bucket(RollupGranularity granularity, ParkingType parkingType, LocalDateTime time) {
+        LocalDateTime start = granularity.truncate(time);
+        return buckets.computeIfAbsent(granularity + " " + parkingType + " " + start, key -> new Bucket(granularity, parkingType, start));
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static final class Bucket {
+        private final RollupGranularity granularity;
+        private final ParkingType       parkingType;
+        private final LocalDateTime     start;
+        private       int               tickets;
+        private       BigDecimal        revenue = BigDecimal.ZERO;
+        private       long              dwellSeconds;
+        private       long              occupiedSeconds;
+        private       int               peakOccupancy;
+
+        private Bucket(RollupGranularity granularity, ParkingType parkingType, LocalDateTime start) {
+            this.granularity = granularity;
+            this.parkingType = parkingType;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.RollupGranularity;
+import com.parkit.parkingsystem.model.Rollup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * <b> Accesses the hourly and daily rollups of the tickets, for management reports.</b>
+ * <br>
+ * Rollups are kept up to date as tickets are opened and closed, so that reports read a few rows per bucket whatever the number of tickets.
+ *
+ * @see com.parkit.parkingsystem.dao.JdbcRollupDAO
+ * @see com.parkit.parkingsystem.model.Rollup
+ */
+public interface RollupDAO {
+
+    /**
+     * Gets the rollups of every parking type over a period.
+     *
+     * @param granularity Size of the buckets
+     * @param from        Start of the period, included
+     * @param to          End of the period, excluded
+     *
+     * @return Rollups of the buckets starting in the period, by bucket then parking type; buckets without any ticket are missing
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    List<Rollup> getRollups(RollupGranularity granularity, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Computes again the rollups of some days from their tickets, replacing the current ones.
+     * Used for the history recorded before rollups existed, or to repair them.
+     *
+     * @param from First day to roll up
+     * @param to   Last day to roll up, included
+     *
+     * @return Number of tickets closed during these days
+     *
+     * @throws DataAccessException if the storage failed; the days rolled up before stay rolled up
+     */
+    int backfill(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,155 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * <b>Routes the data of each lot to its own storage, and queries every lot at once.</b>
+ * <p>
+ * Each lot is a shard with its own DAOs, e.g. JDBC DAOs on a database of its own: entries and exits of a lot only touch its shard,
+ * so adding lots adds databases instead of loading one. Queries about a vehicle in every lot are sent to all shards in parallel
+ * and their results gathered (scatter-gather), so they take as long as the slowest shard rather than the sum of all.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.config.StorageConfig
+ */
+public class ShardRouter implements PlateHistory, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ShardRouter");
+
+    private final Map<String, Shard> shards = new LinkedHashMap<>();
+    private final ExecutorService    executor;
+
+    /**
+     * Constructor for ShardRouter.
+     *
+     * @param threads Number of threads querying the shards in parallel
+     */
+    public ShardRouter(int threads) {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds a lot with its DAOs. Lots are added at startup, before the router is used.
+     *
+     * @param lotId          Lot ID
+     * @param parkingSpotDAO DAO of the parking spots of the lot
+     * @param ticketDAO      DAO of the tickets of the lot
+     */
+    public void addLot(String lotId, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        shards.put(lotId, new Shard(parkingSpotDAO, ticketDAO));
+    }
+
+    /**
+     * Gets the IDs of the lots.
+     *
+     * @return Lot IDs, in the order they were added
+     */
+    public Set<String> getLotIds() {
+        return Collections.unmodifiableSet(shards.keySet());
+    }
+
+    /**
+     * Gets the parking spot DAO of a lot.
+     *
+     * @param lotId Lot ID
+     *
+     * @return Parking spot DAO
+     *
+     * @throws IllegalArgumentException if the lot is unknown
+     */
+    public ParkingSpotDAO getParkingSpotDAO(String lotId) {
+        return shard(lotId).parkingSpotDAO;
+    }
+
+    /**
+     * Gets the ticket DAO of a lot.
+     *
+     * @param lotId Lot ID
+     *
+     * @return Ticket DAO
+     *
+     * @throws IllegalArgumentException if the lot is unknown
+     */
+    public TicketDAO getTicketDAO(String lotId) {
+        return shard(lotId).ticketDAO;
+    }
+
+    @Override
+    public List<Ticket> getPlateHistory(String vehicleRegNumber) {
+        List<Ticket> history = new ArrayList<>();
+        scatter(ticketDAO -> ticketDAO.getTickets(vehicleRegNumber), Collections.<Ticket>emptyList()).forEach((lotId, tickets) -> {
+            for (Ticket ticket : tickets) {
+                ticket.setLotId(lotId);
+                ticket.getParkingSpot().setLotId(lotId);
+                history.add(ticket);
+            }
+        });
+        history.sort(Comparator.comparing(Ticket::getInTime).reversed());
+        return history;
+    }
+
+    @Override
+    public boolean hasVisited(String vehicleRegNumber) {
+        return scatter(ticketDAO -> ticketDAO.getTicket(vehicleRegNumber) != null, false).containsValue(true);
+    }
+
+    /**
+     * Stops the query threads.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> Map<String, T> scatter(Function<TicketDAO, T> query, T failed) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        shards.forEach((lotId, shard) -> futures.put(lotId, CompletableFuture.supplyAsync(() -> query.apply(shard.ticketDAO), executor)));
+        // A lot which can not be queried is left out rather than failing the whole query
+        Map<String, T> results = new LinkedHashMap<>();
+        futures.forEach((lotId, future) -> {
+            try {
+                results.put(lotId, future.join());
+            } catch (RuntimeException e) {
+                logger.error("Error while querying lot " + lotId, e);
+                results.put(lotId, failed);
+            }
+        });
+        return results;
+    }
+
+    private Shard shard(String lotId) {
+        Shard shard = shards.get(lotId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown lot " + lotId);
+        }
+        return shard;
+    }
+
+    private static final class Shard {
+        private final ParkingSpotDAO parkingSpotDAO;
+        private final TicketDAO      ticketDAO;
+
+        private Shard(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+            this.parkingSpotDAO = parkingSpotDAO;
+            this.ticketDAO = ticketDAO;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketMetric;
+import com.parkit.parkingsystem.stats.QuantileSketch;
+
+import java.time.LocalDate;
+
+/**
+ * <b> Accesses the daily quantile sketches of the closed tickets.</b>
+ * <br>
+ * Each node keeps its own sketch per day, parking type and metric, so that nodes never overwrite each other; queries merge them.
+ *
+ * @see com.parkit.parkingsystem.dao.JdbcSketchDAO
+ * @see com.parkit.parkingsystem.stats.TicketSketches
+ */
+public interface SketchDAO {
+
+    /**
+     * Gets the sketch saved by a node.
+     *
+     * @param day         Day the tickets were closed
+     * @param parkingType Parking type
+     * @param metric      Metric
+     * @param nodeId      Node ID
+     *
+     * @return Sketch, or null if the node saved none
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    QuantileSketch getSketch(LocalDate day, ParkingType parkingType, TicketMetric metric, String nodeId);
+
+    /**
+     * Saves the sketch of a node, replacing the previous one.
+     *
+     * @param day         Day the tickets were closed
+     * @param parkingType Parking type
+     * @param metric      Metric
+     * @param nodeId      Node ID
+     * @param sketch      Sketch
+     *
+     * @return True if the sketch was saved
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    boolean saveSketch(LocalDate day, ParkingType parkingType, TicketMetric metric, String nodeId, QuantileSketch sketch);
+
+    /**
+     * Merges the sketches of every node over some days.
+     *
+     * @param parkingType Parking type
+     * @param metric      Metric
+     * @param from        First day
+     * @param to          Last day, included
+     * @param accuracy    Accuracy of the sketches
+     *
+     * @return Merged sketch, empty if no ticket was closed during these days
+     *
+     * @throws DataAccessException if the storage failed
+     */
+    QuantileSketch mergeSketches(ParkingType parkingType, TicketMetric metric, LocalDate from, LocalDate to, double accuracy);
+}
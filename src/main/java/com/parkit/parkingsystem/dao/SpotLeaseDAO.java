@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <b> Accesses the leases of free parking spots by the application nodes sharing a lot.</b>
+ * <br>
+ * A node leases a block of free spots and gives them to incoming vehicles without asking the other nodes.
+ * A lease which is not renewed expires, and its spots can then be leased by another node.
+ * A call the storage fails throws a {@link DataAccessException} instead of returning no spot or false.
+ *
+ * @see com.parkit.parkingsystem.dao.JdbcSpotLeaseDAO
+ * @see com.parkit.parkingsystem.allocation.LeasedSpotPool
+ */
+public interface SpotLeaseDAO {
+
+    /**
+     * Leases free spots which no live node holds, lowest numbers first.
+     *
+     * @param parkingType  Parking type
+     * @param nodeId       Node taking the lease
+     * @param count        Maximum number of spots to lease
+     * @param leaseSeconds Duration of the lease
+     *
+     * @return Parking numbers of the newly leased spots
+     */
+    List<Integer> leaseSpots(ParkingType parkingType, String nodeId, int count, int leaseSeconds);
+
+    /**
+     * Takes over free spots from the live node holding the most, leaving it at least half of them.
+     *
+     * @param parkingType  Parking type
+     * @param nodeId       Node taking the lease
+     * @param count        Maximum number of spots to take
+     * @param leaseSeconds Duration of the lease
+     *
+     * @return Parking numbers of the spots taken over
+     */
+    List<Integer> takeOverSpots(ParkingType parkingType, String nodeId, int count, int leaseSeconds);
+
+    /**
+     * Gets the free spots leased by a node.
+     *
+     * @param parkingType Parking type
+     * @param nodeId      Node holding the lease
+     *
+     * @return Parking numbers, lowest first
+     */
+    List<Integer> getLeasedSpots(ParkingType parkingType, String nodeId);
+
+    /**
+     * Extends every lease of a node, free or occupied spots alike.
+     *
+     * @param nodeId       Node holding the leases
+     * @param leaseSeconds Duration of the leases from now
+     *
+     * @return Number of leases renewed
+     */
+    int renewLeases(String nodeId, int leaseSeconds);
+
+    /**
+     * Gives back some spots leased by a node.
+     *
+     * @param nodeId         Node holding the leases
+     * @param parkingNumbers Parking numbers to give back
+     */
+    void releaseSpots(String nodeId, Collection<Integer> parkingNumbers);
+
+    /**
+     * Gives back every spot leased by a node, e.g. at shutdown.
+     *
+     * @param nodeId Node holding the leases
+     */
+    void releaseLeases(String nodeId);
+
+    /**
+     * Marks a parking spot as taken, only if it is still available and leased by the node.
+     * <p>
+     * A node which lost a spot to another one, e.g. after its lease expired, fails to claim it.
+     * </p>
+     *
+     * @param parkingNumber Parking spot number
+     * @param nodeId        Node holding the lease
+     *
+     * @return true if the spot was available and is now taken by the caller, false otherwise
+     */
+    boolean claimLeasedSpot(int parkingNumber, String nodeId);
+}
@@ -1,127 +1,92 @@
 package com.parkit.parkingsystem.dao;
 
-import com.parkit.parkingsystem.config.DataBaseConfig;
-import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
 
-import java.sql.*;
+import java.util.List;
 
 /**
- * <b> Accesses database for ticket information.</b>
+ * <b> Accesses stored ticket information.</b>
  * <br>
  *
- * @author Tek
- * <br><br>
- * @see com.parkit.parkingsystem.service.InteractiveShell
+ * @see com.parkit.parkingsystem.dao.JdbcTicketDAO
+ * @see com.parkit.parkingsystem.dao.InMemoryTicketDAO
  * @see com.parkit.parkingsystem.service.ParkingService
  */
-public class TicketDAO {
-
-    private static final Logger logger = LogManager.getLogger("TicketDAO");
-
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+public interface TicketDAO {
 
     /**
-     * Saves ticket into database.
+     * Saves ticket.
      *
      * @param ticket Ticket to save
      */
-    public void saveTicket(Ticket ticket) {
-        Connection con = null;
-        try {
-            con = dataBaseConfig.getConnection();
-            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                ps.setInt(1, ticket.getParkingSpot().getId());
-                ps.setString(2, ticket.getVehicleRegNumber());
-                ps.setBigDecimal(3, ticket.getPrice());
-                ps.setTimestamp(4, Timestamp.valueOf(ticket.getInTime()));
-                ps.setTimestamp(5, (ticket.getOutTime() == null) ? null : Timestamp.valueOf(ticket.getOutTime()));
-                ps.execute();
-            } catch (SQLException sqlException) {
-                logger.error("Error while preparing statement", sqlException);
-            }
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
-        } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-    }
+    void saveTicket(Ticket ticket);
+
+    /**
+     * Gets the latest ticket of the specified registration number.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The latest ticket with the specified registration number, or null if the vehicle never came
+     */
+    Ticket getTicket(String vehicleRegNumber);
 
     /**
-     * Gets ticket from database with the specified registration number.
+     * Gets every ticket of the specified registration number.
      *
      * @param vehicleRegNumber Vehicle registration number
      *
-     * @return A ticket with the specified registration number
+     * @return Tickets of the vehicle, latest first, empty if the vehicle never came
      */
-    public Ticket getTicket(String vehicleRegNumber) {
-        Connection con    = null;
-        Ticket     ticket = null;
-        try {
-            con = dataBaseConfig.getConnection();
-            ResultSet rs = null;
-            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET)) {
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                ps.setString(1, vehicleRegNumber);
-                rs = ps.executeQuery();
-                if (rs.next()) {
-                    ticket = new Ticket();
-                    ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)), false);
-                    ticket.setParkingSpot(parkingSpot);
-                    ticket.setId(rs.getInt(2));
-                    ticket.setVehicleRegNumber(vehicleRegNumber);
-                    ticket.setPrice(rs.getBigDecimal(3));
-                    ticket.setInTime(rs.getTimestamp(4).toLocalDateTime());
-                    final Timestamp ticketOutTimeFromDB = rs.getTimestamp(5);
-                    if (ticketOutTimeFromDB != null) {
-                        //Exit time could be null if the vehicle is still in the parking
-                        ticket.setOutTime(ticketOutTimeFromDB.toLocalDateTime());
-                    }
-                }
-                return ticket;
-            } catch (SQLException sqlException) {
-                logger.error("Error while accessing database to find existing ticket", sqlException);
-            } finally {
-                dataBaseConfig.closeResultSet(rs);
-            }
-        } catch (Exception ex) {
-            logger.error("Error fetching next available slot", ex);
-        } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-        return ticket;
-    }
+    List<Ticket> getTickets(String vehicleRegNumber);
 
     /**
-     * Updates ticket in database and return true if the operation is successful.
+     * Gets the tickets of the vehicles still in the parking.
+     *
+     * @return Open tickets, empty if no vehicle is parked
+     */
+    List<Ticket> getOpenTickets();
+
+    /**
+     * Gets the tickets of the vehicles of a type still in the parking.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Open tickets, empty if no vehicle of the type is parked
+     */
+    List<Ticket> getOpenTickets(ParkingType parkingType);
+
+    /**
+     * Updates price and exit time of a ticket which is still open.
+     * <p>
+     * A ticket is closed only once: when two exits of the same vehicle race, only the first one updates the ticket.
+     * </p>
      *
      * @param ticket Ticket to update
      *
-     * @return True or false
+     * @return True if the ticket was updated, false if it does not exist or was already closed
+     */
+    boolean updateTicket(Ticket ticket);
+
+    /**
+     * Records the fare paid in advance by a parked vehicle on its open ticket, so that every node and a restarted one credit it at the exit.
+     *
+     * @param ticket Ticket with the amount paid so far and the time of the latest payment
+     *
+     * @return True if the payment was recorded, false if the ticket does not exist or was closed
+     */
+    boolean recordPayment(Ticket ticket);
+
+    /**
+     * Updates price and exit time of several open tickets and frees their spots, at once.
+     * <p>
+     * Each ticket is closed as by {@link #updateTicket(Ticket)}: a ticket already closed or updated since it was read is left out, and
+     * its spot is left as it is.
+     * </p>
+     *
+     * @param tickets Tickets to close, priced
+     *
+     * @return Tickets closed, in the same order
      */
-    public boolean updateTicket(Ticket ticket) {
-        Connection con = null;
-        try {
-            con = dataBaseConfig.getConnection();
-            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
-                ps.setBigDecimal(1, ticket.getPrice());
-                ps.setTimestamp(2, Timestamp.valueOf(ticket.getOutTime()));
-                ps.setInt(3, ticket.getId());
-                ps.execute();
-                return true;
-            } catch (SQLException sqlException) {
-                logger.error("Error while accessing data base to save ticket info", sqlException);
-            }
-        } catch (Exception ex) {
-            logger.error("Error saving ticket info", ex);
-        } finally {
-            dataBaseConfig.closeConnection(con);
-        }
-        return false;
-    }
+    List<Ticket> closeTickets(List<Ticket> tickets);
 }
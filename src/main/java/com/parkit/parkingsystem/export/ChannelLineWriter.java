@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes lines to UTF-8 into a single buffer, written to a channel whenever it is full.
+ * Lines are built in a reused {@link StringBuilder} and encoded straight into the buffer, so memory does not grow with the number of lines.
+ */
+final class ChannelLineWriter implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer          buffer;
+    private final CharsetEncoder      encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder       line    = new StringBuilder(256);
+    private       long                bytes;
+
+    ChannelLineWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Gets the line being built, emptied after each {@link #endLine()}.
+     *
+     * @return Line
+     */
+    StringBuilder line() {
+        return line;
+    }
+
+    /**
+     * Encodes the line being built followed by a line feed.
+     *
+     * @throws IOException if the channel can not be written
+     */
+    void endLine() throws IOException {
+        line.append('\n');
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            int         start  = buffer.position();
+            CoderResult result = encoder.encode(chars, buffer, true);
+            bytes += buffer.position() - start;
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+        line.setLength(0);
+    }
+
+    /**
+     * Gets the number of bytes encoded.
+     *
+     * @return Bytes
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Writes what is left in the buffer and closes the channel.
+     *
+     * @throws IOException if the channel can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
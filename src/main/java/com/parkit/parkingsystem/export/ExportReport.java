@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.export;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a ticket export.
+ *
+ * @see com.parkit.parkingsystem.export.TicketExporter
+ */
+public class ExportReport {
+
+    private final long     rows;
+    private final long     bytes;
+    private final Duration duration;
+
+    ExportReport(long rows, long bytes, Duration duration) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the number of tickets written.
+     *
+     * @return Rows, header excluded
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the size of the extract before compression.
+     *
+     * @return Bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the time the export took.
+     *
+     * @return Duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the throughput of the export.
+     *
+     * @return Rows per second
+     */
+    public double getRowsPerSecond() {
+        return rows * 1e9 / Math.max(1, duration.toNanos());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exported %d tickets (%d bytes) in %d ms, %.0f tickets/s", rows, bytes, duration.toMillis(), getRowsPerSecond());
+    }
+}
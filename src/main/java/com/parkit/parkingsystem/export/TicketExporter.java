@@ -0,0 +1,221 @@
+package com.parkit.parkingsystem.export;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.constants.Fare;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <b>Exports the tickets closed during a period, for accounting.</b>
+ * <p>
+ * Tickets are streamed from the database to the file without being turned into {@link com.parkit.parkingsystem.model.Ticket} objects:
+ * the query is read forward only, <code>fetchSize</code> rows at a time, and each row is encoded into a single buffer written to the file
+ * channel, gzipped if asked. Memory use therefore does not depend on the number of tickets.
+ * </p>
+ * <p>
+ * MySQL Connector/J only fetches rows by blocks when the URL of the database has <code>useCursorFetch=true</code>; without it, the driver
+ * reads the whole result before returning the first row.
+ * </p>
+ */
+public class TicketExporter {
+
+    private static final Logger logger = LogManager.getLogger("TicketExporter");
+
+    private static final String CSV_HEADER  = "lot,id,parking_number,type,vehicle_reg_number,price,in_time,out_time";
+    private static final int    BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, DataBaseConfig> lots = new LinkedHashMap<>();
+    private final int                         fetchSize;
+
+    /**
+     * Creates an exporter without lots.
+     *
+     * @param fetchSize Rows fetched from the database at once
+     */
+    public TicketExporter(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Adds the database of a lot.
+     *
+     * @param lotId          Lot ID, written on each ticket; empty for a single lot
+     * @param dataBaseConfig Database of the lot
+     */
+    public void addLot(String lotId, DataBaseConfig dataBaseConfig) {
+        lots.put(lotId, dataBaseConfig);
+    }
+
+    /**
+     * Gets the lots which can be exported.
+     *
+     * @return Lot IDs
+     */
+    public Set<String> getLotIds() {
+        return lots.keySet();
+    }
+
+    /**
+     * Writes the tickets closed during some days to a file, lot after lot and by exit time within a lot.
+     *
+     * @param from   First day
+     * @param to     Last day, included
+     * @param lotIds Lots to export, or null for every lot
+     * @param format Format of the file
+     * @param gzip   True to compress the file
+     * @param target File, replaced if it exists
+     *
+     * @return Number of tickets written and throughput
+     *
+     * @throws IOException              if the file can not be written, or a database can not be read
+     * @throws IllegalArgumentException if a lot is unknown
+     */
+    public ExportReport export(LocalDate from, LocalDate to, Collection<String> lotIds, ExportFormat format, boolean gzip, Path target) throws IOException {
+        Collection<String> exported = (lotIds == null) ? lots.keySet() : lotIds;
+        for (String lotId : exported) {
+            if (!lots.containsKey(lotId)) {
+                throw new IllegalArgumentException("Lot " + lotId + " is not one of " + lots.keySet());
+            }
+        }
+        long                started = System.nanoTime();
+        long                rows    = 0;
+        WritableByteChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (gzip) {
+            channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+        }
+        try (ChannelLineWriter writer = new ChannelLineWriter(channel, BUFFER_SIZE)) {
+            if (format == ExportFormat.CSV) {
+                writer.line().append(CSV_HEADER);
+                writer.endLine();
+            }
+            for (String lotId : exported) {
+                rows += exportLot(lotId, from, to, format, writer);
+            }
+            ExportReport report = new ExportReport(rows, writer.getBytes(), Duration.ofNanos(System.nanoTime() - started));
+            logger.info("{} from {} to {} into {}", report, from, to, target);
+            return report;
+        }
+    }
+
+    private long exportLot(String lotId, LocalDate from, LocalDate to, ExportFormat format, ChannelLineWriter writer) throws IOException {
+        DataBaseConfig dataBaseConfig = lots.get(lotId);
+        Connection     con            = null;
+        long           rows           = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            if (con == null) {
+                throw new IOException("Unable to connect to the database of lot " + lotId);
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.EXPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                ps.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.setFetchSize(fetchSize);
+                    while (rs.next()) {
+                        if (format == ExportFormat.CSV) {
+                            writeCsv(writer.line(), lotId, rs);
+                        } else {
+                            writeJson(writer.line(), lotId, rs);
+                        }
+                        writer.endLine();
+                        rows++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Error exporting tickets of lot " + lotId, e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return rows;
+    }
+
+    private static void writeCsv(StringBuilder line, String lotId, ResultSet rs) throws SQLException {
+        //ID, PARKING_NUMBER, TYPE, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME
+        appendCsv(line, lotId).append(',');
+        line.append(rs.getInt(1)).append(',');
+        line.append(rs.getInt(2)).append(',');
+        line.append(rs.getString(3)).append(',');
+        appendCsv(line, rs.getString(4)).append(',');
+        appendPrice(line, rs.getBigDecimal(5)).append(',');
+        line.append(rs.getTimestamp(6).toLocalDateTime()).append(',');
+        line.append(rs.getTimestamp(7).toLocalDateTime());
+    }
+
+    private static void writeJson(StringBuilder line, String lotId, ResultSet rs) throws SQLException {
+        line.append("{\"lot\":");
+        appendJson(line, lotId);
+        line.append(",\"id\":").append(rs.getInt(1));
+        line.append(",\"parkingNumber\":").append(rs.getInt(2));
+        line.append(",\"type\":\"").append(rs.getString(3)).append('"');
+        line.append(",\"vehicleRegNumber\":");
+        appendJson(line, rs.getString(4));
+        line.append(",\"price\":");
+        BigDecimal price = rs.getBigDecimal(5);
+        if (price == null) {
+            line.append("null");
+        } else {
+            appendPrice(line, price);
+        }
+        line.append(",\"inTime\":\"").append(rs.getTimestamp(6).toLocalDateTime()).append('"');
+        line.append(",\"outTime\":\"").append(rs.getTimestamp(7).toLocalDateTime()).append("\"}");
+    }
+
+    private static StringBuilder appendPrice(StringBuilder line, BigDecimal price) {
+        return (price == null) ? line : line.append(price.setScale(Fare.SCALE, RoundingMode.HALF_UP).toPlainString());
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private static void appendJson(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.gate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection of one gate camera (or camera concentrator) to the gate event server.
+ * <p>
+ * Reads are done by the selector thread only. Replies are written by the gate lanes, possibly concurrently, so writing to the outbound buffer is synchronized.
+ * When the socket cannot take the whole reply, the selector is asked to finish the write once the socket becomes writable.
+ * </p>
+ */
+final class GateConnection {
+
+    private static final Logger logger = LogManager.getLogger("GateConnection");
+
+    private static final int INBOUND_BUFFER_SIZE  = 4 * 1024;
+    private static final int OUTBOUND_BUFFER_SIZE = 16 * 1024;
+
+    private final SocketChannel channel;
+    private final boolean       local;
+    private final ByteBuffer    in  = ByteBuffer.allocateDirect(INBOUND_BUFFER_SIZE);
+    private final ByteBuffer    out = ByteBuffer.allocateDirect(OUTBOUND_BUFFER_SIZE);
+    private       SelectionKey  key;
+
+    GateConnection(SocketChannel channel, boolean local) {
+        this.channel = channel;
+        this.local = local;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Tells whether the connection comes from the host of the server, the only one allowed to send operator commands.
+     *
+     * @return true for a loopback connection
+     */
+    boolean isLocal() {
+        return local;
+    }
+
+    ByteBuffer getInboundBuffer() {
+        return in;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Encodes and sends a reply to the camera.
+     *
+     * @param status           Reply status
+     * @param gate             Gate the reply is intended to, negative if unknown
+     * @param vehicleRegNumber Registration number, may be null
+     * @param value            Parking number, 0 if none
+     * @param price            Fare, may be null
+     * @param requestId        Request ID of the command replied to, may be null
+     */
+    synchronized void reply(byte[] status, int gate, String vehicleRegNumber, int value, BigDecimal price, String requestId) {
+        if (!channel.isOpen()) {
+            return;
+        }
+        if (!GateProtocol.encode(out, status, gate, vehicleRegNumber, value, price, requestId)) {
+            logger.error("Gate camera {} does not read its replies, closing connection", gate);
+            close();
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * Writes as much of the pending replies as the socket accepts.
+     */
+    synchronized void flush() {
+        try {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            int interestOps = (out.position() > 0) ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ;
+            if (key != null && key.isValid() && key.interestOps() != interestOps) {
+                key.interestOps(interestOps);
+                key.selector().wakeup();
+            }
+        } catch (IOException e) {
+            logger.error("Error while writing reply to gate camera", e);
+            close();
+        }
+    }
+
+    /**
+     * Closes the connection.
+     */
+    synchronized void close() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error while closing gate camera connection", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.gate;
+
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Plate-read event decoded from a gate camera.
+ * <p>
+ * Events are mutable and recycled by the server once they have been processed, so that decoding a message does not allocate a new event.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.gate.GateProtocol
+ */
+final class GateEvent {
+    private GateConnection connection;
+    private GateAction     action;
+    private int            gate;
+    private ParkingType    parkingType;
+    private String         vehicleRegNumber;
+    private String         requestId;
+    private LocalDateTime  start;
+    private LocalDateTime  end;
+    private int            firstSpot;
+    private int            lastSpot;
+
+    GateConnection getConnection() {
+        return connection;
+    }
+
+    void setConnection(GateConnection connection) {
+        this.connection = connection;
+    }
+
+    GateAction getAction() {
+        return action;
+    }
+
+    int getGate() {
+        return gate;
+    }
+
+    ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    String getRequestId() {
+        return requestId;
+    }
+
+    LocalDateTime getStart() {
+        return start;
+    }
+
+    LocalDateTime getEnd() {
+        return end;
+    }
+
+    void setWindow(LocalDateTime start, LocalDateTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    int getFirstSpot() {
+        return firstSpot;
+    }
+
+    int getLastSpot() {
+        return lastSpot;
+    }
+
+    void setSpots(int firstSpot, int lastSpot) {
+        this.firstSpot = firstSpot;
+        this.lastSpot = lastSpot;
+    }
+
+    void set(GateAction action, int gate, ParkingType parkingType, String vehicleRegNumber, String requestId) {
+        this.action = action;
+        this.gate = gate;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.requestId = requestId;
+    }
+
+    void clear() {
+        connection = null;
+        action = null;
+        gate = 0;
+        parkingType = null;
+        vehicleRegNumber = null;
+        requestId = null;
+        start = null;
+        end = null;
+        firstSpot = 0;
+        lastSpot = 0;
+    }
+}
@@ -0,0 +1,257 @@
+package com.parkit.parkingsystem.gate;
+
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * <b>Non-blocking server ingesting plate-read events from gate cameras.</b>
+ * <p>
+ * A single selector thread accepts camera connections and decodes their messages (see {@link GateProtocol}) into recycled events.
+ * Events are handed to a fixed number of gate lanes, each gate being always served by the same lane so that its events are processed in order.
+ * The lanes call {@link ParkingService} and write the assigned spot or the fare back to the camera.
+ * Operator commands, such as closing the lot or changing its spots, are processed by a lane of their own so that the gates are not held up meanwhile.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.gate.SimulatedCameraClient
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class GateEventServer implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventServer");
+
+    private static final int LANE_CAPACITY     = 1024;
+    private static final int OPERATOR_CAPACITY = 16;
+
+    private final ParkingService           parkingService;
+    private final InetSocketAddress        address;
+    private final GateLane[]               lanes;
+    private final BlockingQueue<GateEvent> freeEvents;
+    private       SpotInventory            spotInventory;
+    private       int                      closureChunkSize = 500;
+    private       GateLane                 operatorLane;
+    private       Selector                 selector;
+    private       ServerSocketChannel      serverChannel;
+    private       Thread                   selectorThread;
+    private volatile boolean               running;
+
+    /**
+     * Constructor for GateEventServer.
+     *
+     * @param parkingService Service processing entries and exits
+     * @param address        Address to listen to
+     * @param laneCount      Number of threads processing events
+     */
+    public GateEventServer(ParkingService parkingService, InetSocketAddress address, int laneCount) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("Lane count must be positive: " + laneCount);
+        }
+        this.parkingService = parkingService;
+        this.address = address;
+        this.lanes = new GateLane[laneCount];
+        this.freeEvents = new ArrayBlockingQueue<>(laneCount * LANE_CAPACITY);
+        for (int i = 0; i < laneCount * LANE_CAPACITY; i++) {
+            freeEvents.offer(new GateEvent());
+        }
+    }
+
+    /**
+     * Sets the inventory changed by the ADD, RETIRE and RETYPE operator commands, which are replied ERROR without it.
+     *
+     * @param spotInventory Inventory of the lot, telling the allocator and the leased spots of this application about the changes
+     */
+    public void setSpotInventory(SpotInventory spotInventory) {
+        this.spotInventory = spotInventory;
+    }
+
+    /**
+     * Sets the number of tickets closed per transaction by the CLOSE operator command.
+     *
+     * @param closureChunkSize Tickets per transaction, 500 by default
+     */
+    public void setClosureChunkSize(int closureChunkSize) {
+        if (closureChunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + closureChunkSize);
+        }
+        this.closureChunkSize = closureChunkSize;
+    }
+
+    /**
+     * Binds the server and starts the selector and lane threads.
+     *
+     * @throws IOException if the server can not listen to its address
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new GateLane("gate-lane-" + i, parkingService, spotInventory, closureChunkSize, LANE_CAPACITY, freeEvents);
+            lanes[i].start();
+        }
+        operatorLane = new GateLane("gate-operator", parkingService, spotInventory, closureChunkSize, OPERATOR_CAPACITY, freeEvents);
+        operatorLane.start();
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "gate-selector");
+        selectorThread.start();
+        logger.info("Gate event server listening on {}", serverChannel.getLocalAddress());
+    }
+
+    /**
+     * Gets the port the server listens to, useful when started on an ephemeral port.
+     *
+     * @return Local port
+     *
+     * @throws IOException if the server is not bound
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Stops the server and closes every camera connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (GateLane lane : lanes) {
+            if (lane != null) {
+                lane.stop();
+            }
+        }
+        if (operatorLane != null) {
+            operatorLane.stop();
+        }
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        GateConnection connection = (GateConnection) key.attachment();
+                        if (key.isWritable()) {
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Gate event server stopped unexpectedly", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof GateConnection) {
+                    ((GateConnection) key.attachment()).close();
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                logger.error("Error while closing gate event server", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        boolean        local      = ((InetSocketAddress) channel.getRemoteAddress()).getAddress().isLoopbackAddress();
+        GateConnection connection = new GateConnection(channel, local);
+        connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+    }
+
+    private void read(GateConnection connection) {
+        ByteBuffer in = connection.getInboundBuffer();
+        try {
+            if (connection.getChannel().read(in) < 0) {
+                connection.close();
+                return;
+            }
+        } catch (IOException e) {
+            logger.error("Error while reading from gate camera", e);
+            connection.close();
+            return;
+        }
+
+        in.flip();
+        int start = in.position();
+        int end;
+        while ((end = GateProtocol.indexOfLineEnd(in, start, in.limit())) >= 0) {
+            dispatch(connection, in, start, end);
+            start = end + 1;
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining()) {
+            logger.error("Message from gate camera exceeds {} bytes, closing connection", in.capacity());
+            connection.close();
+        }
+    }
+
+    private void dispatch(GateConnection connection, ByteBuffer in, int start, int end) {
+        GateEvent event = freeEvents.poll();
+        if (event == null) {
+            event = new GateEvent();
+        }
+        if (!GateProtocol.decode(in, start, end, event)) {
+            connection.reply(GateProtocol.INVALID, -1, null, 0, null, null);
+            freeEvents.offer(event);
+            return;
+        }
+        if (event.getAction().isOperatorAction() && !connection.isLocal()) {
+            logger.warn("Operator command {} refused from {}", event.getAction(), connection.getChannel().socket().getRemoteSocketAddress());
+            connection.reply(GateProtocol.ERROR, event.getGate(), null, 0, null, null);
+            event.clear();
+            freeEvents.offer(event);
+            return;
+        }
+        event.setConnection(connection);
+        GateLane lane = event.getAction().isOperatorAction() ? operatorLane : lanes[event.getGate() % lanes.length];
+        if (!lane.offer(event)) {
+            connection.reply(GateProtocol.BUSY, event.getGate(), event.getVehicleRegNumber(), 0, null, event.getRequestId());
+            event.clear();
+            freeEvents.offer(event);
+        }
+    }
+}
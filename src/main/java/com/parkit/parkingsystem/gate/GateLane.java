@@ -0,0 +1,171 @@
+package com.parkit.parkingsystem.gate;
+
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.pricing.FareQuote;
+import com.parkit.parkingsystem.service.ClosureReport;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Worker thread processing the events of a subset of the gates, or the operator commands.
+ * <p>
+ * A gate is always mapped to the same lane, and a lane processes its events one at a time in arrival order,
+ * so the events of one gate are applied in the order the camera sent them.
+ * </p>
+ */
+final class GateLane implements Runnable {
+
+    private static final Logger logger = LogManager.getLogger("GateLane");
+
+    private final ParkingService           parkingService;
+    private final SpotInventory            spotInventory;
+    private final int                      closureChunkSize;
+    private final BlockingQueue<GateEvent> pending;
+    private final BlockingQueue<GateEvent> freeEvents;
+    private final Thread                   thread;
+    private volatile boolean               running = true;
+
+    GateLane(String name, ParkingService parkingService, SpotInventory spotInventory, int closureChunkSize, int capacity, BlockingQueue<GateEvent> freeEvents) {
+        this.parkingService = parkingService;
+        this.spotInventory = spotInventory;
+        this.closureChunkSize = closureChunkSize;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.freeEvents = freeEvents;
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues an event without blocking the selector thread.
+     *
+     * @param event Decoded event
+     *
+     * @return false if the lane is saturated
+     */
+    boolean offer(GateEvent event) {
+        return pending.offer(event);
+    }
+
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            GateEvent event;
+            try {
+                event = pending.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                process(event);
+            } finally {
+                event.clear();
+                freeEvents.offer(event);
+            }
+        }
+    }
+
+    private void process(GateEvent event) {
+        GateConnection connection       = event.getConnection();
+        int            gate             = event.getGate();
+        String         vehicleRegNumber = event.getVehicleRegNumber();
+        String         requestId        = event.getRequestId();
+        try {
+            if (event.getAction() == GateAction.ENTRY) {
+                Ticket ticket = parkingService.processIncomingVehicle(requestId, event.getParkingType(), vehicleRegNumber, SpotRequest.atGate(gate));
+                if (ticket == null) {
+                    connection.reply(GateProtocol.FULL, gate, vehicleRegNumber, 0, null, requestId);
+                } else {
+                    connection.reply(GateProtocol.SPOT, gate, vehicleRegNumber, ticket.getParkingSpot().getId(), null, requestId);
+                }
+            } else if (event.getAction() == GateAction.QUOTE || event.getAction() == GateAction.PAY) {
+                FareQuote quote = (event.getAction() == GateAction.QUOTE) ? parkingService.quoteFare(vehicleRegNumber) : parkingService.payFare(vehicleRegNumber);
+                if (quote == null) {
+                    connection.reply(GateProtocol.UNKNOWN, gate, vehicleRegNumber, 0, null, requestId);
+                } else {
+                    connection.reply(quote.isPaid() ? GateProtocol.PAID : GateProtocol.FARE, gate, vehicleRegNumber, 0, quote.getPrice(), requestId);
+                }
+            } else if (event.getAction() == GateAction.RESERVE) {
+                reserve(event);
+            } else if (event.getAction() == GateAction.CLOSE) {
+                // Every vehicle leaves through the parking service, which tells the allocator, the timers and the indexes of this process
+                ClosureReport report = parkingService.closeLot(event.getParkingType(), closureChunkSize);
+                connection.reply(GateProtocol.CLOSED, gate, null, report.getClosedTickets(), null, requestId);
+            } else if (event.getAction() == GateAction.ADD || event.getAction() == GateAction.RETIRE || event.getAction() == GateAction.RETYPE) {
+                changeSpots(event);
+            } else {
+                Ticket ticket = parkingService.processExitingVehicle(requestId, vehicleRegNumber);
+                if (ticket == null) {
+                    connection.reply(GateProtocol.UNKNOWN, gate, vehicleRegNumber, 0, null, requestId);
+                } else {
+                    // The fare paid in advance at a kiosk is not asked again
+                    connection.reply(GateProtocol.FARE, gate, vehicleRegNumber, 0, ticket.getDueAmount(), requestId);
+                }
+            }
+        } catch (DataAccessException e) {
+            // The camera may send the event again once the database recovered
+            logger.error("Unable to process event of gate {}", gate, e);
+            connection.reply(e.getFailure().isRetryable() ? GateProtocol.BUSY : GateProtocol.ERROR, gate, vehicleRegNumber, 0, null, requestId);
+        } catch (Exception e) {
+            logger.error("Unable to process event of gate {}", gate, e);
+            connection.reply(GateProtocol.ERROR, gate, vehicleRegNumber, 0, null, requestId);
+        }
+    }
+
+    private void reserve(GateEvent event) {
+        GateConnection connection       = event.getConnection();
+        String         vehicleRegNumber = event.getVehicleRegNumber();
+        Reservation    reservation;
+        try {
+            reservation = parkingService.reserveSpot(event.getParkingType(), vehicleRegNumber, event.getStart(), event.getEnd());
+        } catch (IllegalArgumentException e) {
+            connection.reply(GateProtocol.INVALID, event.getGate(), vehicleRegNumber, 0, null, event.getRequestId());
+            return;
+        }
+        if (reservation == null) {
+            connection.reply(GateProtocol.FULL, event.getGate(), vehicleRegNumber, 0, null, event.getRequestId());
+        } else {
+            connection.reply(GateProtocol.RESERVED, event.getGate(), vehicleRegNumber, reservation.getId(), null, event.getRequestId());
+        }
+    }
+
+    private void changeSpots(GateEvent event) {
+        if (spotInventory == null) {
+            throw new IllegalStateException("No spot inventory set");
+        }
+        int first = event.getFirstSpot();
+        int last  = event.getLastSpot();
+        int changed;
+        try {
+            if (event.getAction() == GateAction.ADD) {
+                changed = spotInventory.addSpots(first, last, event.getParkingType());
+            } else if (event.getAction() == GateAction.RETIRE) {
+                changed = spotInventory.retireSpots(first, last);
+            } else {
+                changed = spotInventory.retypeSpots(first, last, event.getParkingType());
+            }
+        } catch (IllegalArgumentException e) {
+            event.getConnection().reply(GateProtocol.INVALID, event.getGate(), null, 0, null, null);
+            return;
+        }
+        event.getConnection().reply(GateProtocol.CHANGED, event.getGate(), null, changed, null, null);
+    }
+}
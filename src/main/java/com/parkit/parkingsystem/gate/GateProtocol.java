@@ -0,0 +1,397 @@
+package com.parkit.parkingsystem.gate;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.idempotency.CommandDeduplicator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * <b>Line protocol spoken by gate cameras.</b>
+ * <p>
+ * Every message is a single ASCII line terminated by a line feed:
+ * </p>
+ * <ul>
+ *     <li><code>ENTRY &lt;gate&gt; &lt;CAR|BIKE|TRUCK&gt; &lt;plate&gt;</code> replied by <code>SPOT &lt;gate&gt; &lt;plate&gt; &lt;parking number&gt;</code>
+ *     or <code>FULL &lt;gate&gt; &lt;plate&gt;</code></li>
+ *     <li><code>EXIT &lt;gate&gt; &lt;plate&gt;</code> replied by <code>FARE &lt;gate&gt; &lt;plate&gt; &lt;price due&gt;</code>, the fare
+ *     minus the amount paid at a kiosk, or <code>UNKNOWN &lt;gate&gt; &lt;plate&gt;</code></li>
+ *     <li><code>QUOTE &lt;kiosk&gt; &lt;plate&gt;</code>, sent by a pay kiosk, replied by <code>FARE &lt;kiosk&gt; &lt;plate&gt; &lt;price due now&gt;</code>,
+ *     <code>PAID &lt;kiosk&gt; &lt;plate&gt; &lt;amount paid&gt;</code> if the fare was paid and the vehicle may still leave, or <code>UNKNOWN &lt;kiosk&gt; &lt;plate&gt;</code></li>
+ *     <li><code>PAY &lt;kiosk&gt; &lt;plate&gt;</code> replied by <code>PAID &lt;kiosk&gt; &lt;plate&gt; &lt;amount paid&gt;</code>, every payment of the
+ *     vehicle included, or <code>UNKNOWN &lt;kiosk&gt; &lt;plate&gt;</code></li>
+ *     <li><code>RESERVE &lt;kiosk&gt; &lt;CAR|BIKE|TRUCK&gt; &lt;start&gt; &lt;end&gt; &lt;plate&gt;</code>, with local times such as
+ *     <code>2026-03-02T10:00</code>, replied by <code>RESERVED &lt;kiosk&gt; &lt;plate&gt; &lt;reservation ID&gt;</code>, <code>FULL &lt;kiosk&gt; &lt;plate&gt;</code>
+ *     if the window is fully booked, or <code>INVALID &lt;kiosk&gt; &lt;plate&gt;</code> if the window is over or too far ahead;
+ *     a retried reservation of the same window gets the same ID</li>
+ *     <li><code>CLOSE &lt;gate&gt; &lt;ALL|CAR|BIKE|TRUCK&gt;</code>, sent by the operator, replied by <code>CLOSED &lt;gate&gt; &lt;tickets closed&gt;</code>
+ *     once every vehicle (of the type) still parked has been charged and checked out; the count is left out when no ticket was open</li>
+ *     <li><code>ADD &lt;gate&gt; &lt;CAR|BIKE|TRUCK&gt; &lt;first&gt; &lt;last&gt;</code>, <code>RETIRE &lt;gate&gt; &lt;first&gt; &lt;last&gt;</code> and
+ *     <code>RETYPE &lt;gate&gt; &lt;CAR|BIKE|TRUCK&gt; &lt;first&gt; &lt;last&gt;</code>, sent by the operator to change a range of spots, replied by
+ *     <code>CHANGED &lt;gate&gt; &lt;spots changed&gt;</code>, the count being left out when no spot changed, or <code>INVALID &lt;gate&gt;</code>
+ *     if the range is empty</li>
+ * </ul>
+ * <p>
+ * Operator commands are only accepted from the host of the server, and are processed one at a time apart from the gates: the gates
+ * keep being served while a lot is closed.
+ * </p>
+ * <p>
+ * A gate controller which retries its commands ends them with a request ID, e.g. <code>EXIT 3 AB123CD 3-000042</code>, of up to
+ * 64 characters without spaces. The reply then ends with the same request ID, and a retry with it gets the reply of the first command.
+ * </p>
+ * <p>
+ * <code>BUSY</code> and <code>ERROR</code> are replied when the event could not be processed, <code>INVALID</code> when the line could not be decoded.
+ * Decoding and encoding work directly on the connection buffers; the registration number, the request ID and the window of a reservation
+ * are the only objects created per message.
+ * </p>
+ */
+final class GateProtocol {
+
+    static final int MAX_REG_NUMBER_LENGTH = 10;
+    static final int MAX_REQUEST_ID_LENGTH = CommandDeduplicator.MAX_REQUEST_ID_LENGTH;
+    static final int MAX_TIME_LENGTH       = 19;
+    static final int MAX_PARKING_NUMBER    = 9_999_999;
+
+    static final byte[] SPOT     = ascii("SPOT");
+    static final byte[] FULL     = ascii("FULL");
+    static final byte[] FARE     = ascii("FARE");
+    static final byte[] PAID     = ascii("PAID");
+    static final byte[] RESERVED = ascii("RESERVED");
+    static final byte[] CLOSED   = ascii("CLOSED");
+    static final byte[] CHANGED  = ascii("CHANGED");
+    static final byte[] UNKNOWN  = ascii("UNKNOWN");
+    static final byte[] BUSY     = ascii("BUSY");
+    static final byte[] ERROR    = ascii("ERROR");
+    static final byte[] INVALID  = ascii("INVALID");
+
+    private static final byte[]   ENTRY       = ascii(GateAction.ENTRY.name());
+    private static final byte[]   EXIT        = ascii(GateAction.EXIT.name());
+    private static final byte[]   QUOTE       = ascii(GateAction.QUOTE.name());
+    private static final byte[]   PAY         = ascii(GateAction.PAY.name());
+    private static final byte[]   RESERVE     = ascii(GateAction.RESERVE.name());
+    private static final byte[]   CLOSE       = ascii(GateAction.CLOSE.name());
+    private static final byte[]   ADD         = ascii(GateAction.ADD.name());
+    private static final byte[]   RETIRE      = ascii(GateAction.RETIRE.name());
+    private static final byte[]   RETYPE      = ascii(GateAction.RETYPE.name());
+    private static final byte[]   ALL         = ascii("ALL");
+    private static final byte[][] TYPE_NAMES  = typeNames();
+    private static final byte     SPACE       = ' ';
+    private static final byte     LINE_FEED   = '\n';
+    private static final int      MAX_DIGITS  = 19;
+    private static final int      MAX_GATE_ID = 999_999;
+
+    private GateProtocol() {
+    }
+
+    /**
+     * Finds the end of the next line.
+     *
+     * @param in    Buffer to scan
+     * @param start Index of the first byte of the line
+     * @param limit Index after the last readable byte
+     *
+     * @return Index of the line feed, or -1 if the line is not complete yet
+     */
+    static int indexOfLineEnd(ByteBuffer in, int start, int limit) {
+        for (int i = start; i < limit; i++) {
+            if (in.get(i) == LINE_FEED) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes a line into a gate event.
+     *
+     * @param in    Buffer holding the line
+     * @param start Index of the first byte of the line
+     * @param end   Index of the line feed
+     * @param event Event to fill
+     *
+     * @return true if the line is a valid message, false otherwise
+     */
+    static boolean decode(ByteBuffer in, int start, int end, GateEvent event) {
+        if (end > start && in.get(end - 1) == '\r') {
+            end--;
+        }
+        int tokenEnd = indexOf(in, start, end, SPACE);
+        if (tokenEnd < 0) {
+            return false;
+        }
+        GateAction action;
+        if (matches(in, start, tokenEnd, ENTRY)) {
+            action = GateAction.ENTRY;
+        } else if (matches(in, start, tokenEnd, EXIT)) {
+            action = GateAction.EXIT;
+        } else if (matches(in, start, tokenEnd, QUOTE)) {
+            action = GateAction.QUOTE;
+        } else if (matches(in, start, tokenEnd, PAY)) {
+            action = GateAction.PAY;
+        } else if (matches(in, start, tokenEnd, RESERVE)) {
+            action = GateAction.RESERVE;
+        } else if (matches(in, start, tokenEnd, CLOSE)) {
+            action = GateAction.CLOSE;
+        } else if (matches(in, start, tokenEnd, ADD)) {
+            action = GateAction.ADD;
+        } else if (matches(in, start, tokenEnd, RETIRE)) {
+            action = GateAction.RETIRE;
+        } else if (matches(in, start, tokenEnd, RETYPE)) {
+            action = GateAction.RETYPE;
+        } else {
+            return false;
+        }
+
+        int pos = tokenEnd + 1;
+        tokenEnd = indexOf(in, pos, end, SPACE);
+        if (tokenEnd < 0) {
+            return false;
+        }
+        int gate = parseNumber(in, pos, tokenEnd, MAX_GATE_ID);
+        if (gate < 0) {
+            return false;
+        }
+
+        ParkingType parkingType = null;
+        pos = tokenEnd + 1;
+        if (action == GateAction.CLOSE) {
+            // Every type is closed with ALL
+            parkingType = parseParkingType(in, pos, end);
+            if (parkingType == null && !matches(in, pos, end, ALL)) {
+                return false;
+            }
+            event.set(action, gate, parkingType, null, null);
+            event.setWindow(null, null);
+            return true;
+        }
+        if (action == GateAction.ENTRY || action == GateAction.RESERVE || action == GateAction.ADD || action == GateAction.RETYPE) {
+            tokenEnd = indexOf(in, pos, end, SPACE);
+            if (tokenEnd < 0) {
+                return false;
+            }
+            parkingType = parseParkingType(in, pos, tokenEnd);
+            if (parkingType == null) {
+                return false;
+            }
+            pos = tokenEnd + 1;
+        }
+        if (action == GateAction.ADD || action == GateAction.RETIRE || action == GateAction.RETYPE) {
+            tokenEnd = indexOf(in, pos, end, SPACE);
+            int firstSpot = (tokenEnd < 0) ? -1 : parseNumber(in, pos, tokenEnd, MAX_PARKING_NUMBER);
+            int lastSpot  = (tokenEnd < 0) ? -1 : parseNumber(in, tokenEnd + 1, end, MAX_PARKING_NUMBER);
+            if (firstSpot < 0 || lastSpot < 0) {
+                return false;
+            }
+            event.set(action, gate, parkingType, null, null);
+            event.setWindow(null, null);
+            event.setSpots(firstSpot, lastSpot);
+            return true;
+        }
+        LocalDateTime windowStart = null;
+        LocalDateTime windowEnd   = null;
+        if (action == GateAction.RESERVE) {
+            tokenEnd = indexOf(in, pos, end, SPACE);
+            windowStart = (tokenEnd < 0) ? null : parseTime(in, pos, tokenEnd);
+            if (windowStart == null) {
+                return false;
+            }
+            pos = tokenEnd + 1;
+            tokenEnd = indexOf(in, pos, end, SPACE);
+            windowEnd = (tokenEnd < 0) ? null : parseTime(in, pos, tokenEnd);
+            if (windowEnd == null) {
+                return false;
+            }
+            pos = tokenEnd + 1;
+        }
+
+        int    plateEnd  = indexOf(in, pos, end, SPACE);
+        String requestId = null;
+        if (plateEnd >= 0) {
+            requestId = readToken(in, plateEnd + 1, end, MAX_REQUEST_ID_LENGTH);
+            if (requestId == null) {
+                return false;
+            }
+        } else {
+            plateEnd = end;
+        }
+        String plate = readToken(in, pos, plateEnd, MAX_REG_NUMBER_LENGTH);
+        if (plate == null) {
+            return false;
+        }
+        event.set(action, gate, parkingType, plate, requestId);
+        event.setWindow(windowStart, windowEnd);
+        return true;
+    }
+
+    /**
+     * Encodes a reply line.
+     *
+     * @param out              Buffer to write to
+     * @param status           Reply status
+     * @param gate             Gate the reply is intended to, negative if unknown
+     * @param vehicleRegNumber Registration number, may be null
+     * @param value            Parking number, or null if the reply has no value
+     * @param price            Fare, or null if the reply has no price
+     * @param requestId        Request ID of the command replied to, may be null
+     *
+     * @return false if the buffer has not enough room left for the reply
+     */
+    static boolean encode(ByteBuffer out, byte[] status, int gate, String vehicleRegNumber, int value, BigDecimal price, String requestId) {
+        int plateLength     = (vehicleRegNumber == null) ? 0 : vehicleRegNumber.length();
+        int requestIdLength = (requestId == null) ? 0 : requestId.length();
+        if (out.remaining() < status.length + plateLength + requestIdLength + 4 * (MAX_DIGITS + 2)) {
+            return false;
+        }
+        out.put(status);
+        if (gate >= 0) {
+            out.put(SPACE);
+            putLong(out, gate);
+        }
+        if (vehicleRegNumber != null) {
+            out.put(SPACE);
+            putAscii(out, vehicleRegNumber);
+        }
+        if (value > 0) {
+            out.put(SPACE);
+            putLong(out, value);
+        }
+        if (price != null) {
+            out.put(SPACE);
+            putPrice(out, price);
+        }
+        if (requestId != null) {
+            out.put(SPACE);
+            putAscii(out, requestId);
+        }
+        out.put(LINE_FEED);
+        return true;
+    }
+
+    private static void putAscii(ByteBuffer out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            out.put((byte) value.charAt(i));
+        }
+    }
+
+    private static void putPrice(ByteBuffer out, BigDecimal price) {
+        if (price.scale() != Fare.SCALE) {
+            price = price.setScale(Fare.SCALE, RoundingMode.HALF_UP);
+        }
+        long cents = price.unscaledValue().longValue();
+        if (cents < 0) {
+            out.put((byte) '-');
+            cents = -cents;
+        }
+        long divisor = 1;
+        for (int i = 0; i < Fare.SCALE; i++) {
+            divisor *= 10;
+        }
+        putLong(out, cents / divisor);
+        out.put((byte) '.');
+        long fraction = cents % divisor;
+        for (long d = divisor / 10; d > 0; d /= 10) {
+            out.put((byte) ('0' + (fraction / d) % 10));
+        }
+    }
+
+    private static void putLong(ByteBuffer out, long value) {
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private static int parseNumber(ByteBuffer in, int start, int end, int max) {
+        if (end <= start) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            byte b = in.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            number = number * 10 + (b - '0');
+            if (number > max) {
+                return -1;
+            }
+        }
+        return number;
+    }
+
+    private static ParkingType parseParkingType(ByteBuffer in, int start, int end) {
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (matches(in, start, end, TYPE_NAMES[parkingType.ordinal()])) {
+                return parkingType;
+            }
+        }
+        return null;
+    }
+
+    private static LocalDateTime parseTime(ByteBuffer in, int start, int end) {
+        String time = readToken(in, start, end, MAX_TIME_LENGTH);
+        if (time == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(time);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String readToken(ByteBuffer in, int start, int end, int maxLength) {
+        int length = end - start;
+        if (length <= 0 || length > maxLength || indexOf(in, start, end, SPACE) >= 0) {
+            return null;
+        }
+        byte[] token = new byte[length];
+        for (int i = 0; i < length; i++) {
+            token[i] = in.get(start + i);
+        }
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    private static int indexOf(ByteBuffer in, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (in.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer in, int start, int end, byte[] token) {
+        if (end - start != token.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (in.get(start + i) != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[][] typeNames() {
+        ParkingType[] parkingTypes = ParkingType.values();
+        byte[][]      names        = new byte[parkingTypes.length][];
+        for (ParkingType parkingType : parkingTypes) {
+            names[parkingType.ordinal()] = ascii(parkingType.name());
+        }
+        return names;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,158 @@
+package com.parkit.parkingsystem.gate;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>Simulated licence plate recognition camera.</b>
+ * <p>
+ * Sends plate-read events to a {@link GateEventServer} and waits for each reply, the way a camera attached to a barrier does.
+ * Run it as a program to make several gates park and then release vehicles:
+ * <code>SimulatedCameraClient [host] [port] [gates] [vehicles per gate]</code>
+ * </p>
+ */
+public class SimulatedCameraClient implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("SimulatedCameraClient");
+
+    private final Socket         socket;
+    private final OutputStream   out;
+    private final BufferedReader in;
+
+    /**
+     * Connects a simulated camera to the gate event server.
+     *
+     * @param host Server host
+     * @param port Server port
+     *
+     * @throws IOException if the server can not be reached
+     */
+    public SimulatedCameraClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.out = socket.getOutputStream();
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reports a vehicle read at an entry barrier.
+     *
+     * @param gate             Gate identifier
+     * @param parkingType      Type of the vehicle
+     * @param vehicleRegNumber Registration number read by the camera
+     *
+     * @return Reply of the server
+     *
+     * @throws IOException if the connection is lost
+     */
+    public String sendEntry(int gate, ParkingType parkingType, String vehicleRegNumber) throws IOException {
+        return send("ENTRY " + gate + " " + parkingType + " " + vehicleRegNumber);
+    }
+
+    /**
+     * Reports a vehicle read at an exit barrier.
+     *
+     * @param gate             Gate identifier
+     * @param vehicleRegNumber Registration number read by the camera
+     *
+     * @return Reply of the server
+     *
+     * @throws IOException if the connection is lost
+     */
+    public String sendExit(int gate, String vehicleRegNumber) throws IOException {
+        return send("EXIT " + gate + " " + vehicleRegNumber);
+    }
+
+    /**
+     * Sends a raw message line and waits for its reply.
+     *
+     * @param line Message without line terminator
+     *
+     * @return Reply of the server, or null if the server closed the connection
+     *
+     * @throws IOException if the connection is lost
+     */
+    public String send(String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        return readReply();
+    }
+
+    /**
+     * Waits for the next reply, used when several messages are sent without waiting.
+     *
+     * @return Reply of the server, or null if the server closed the connection
+     *
+     * @throws IOException if the connection is lost
+     */
+    public String readReply() throws IOException {
+        return in.readLine();
+    }
+
+    /**
+     * Disconnects the camera.
+     *
+     * @throws IOException if the socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Runs a simulation where every gate parks its vehicles then makes them leave.
+     *
+     * @param args host, port, number of gates and number of vehicles per gate
+     *
+     * @throws InterruptedException if interrupted while waiting for the gates
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String host     = (args.length > 0) ? args[0] : "localhost";
+        int    port     = (args.length > 1) ? Integer.parseInt(args[1]) : 9090;
+        int    gates    = (args.length > 2) ? Integer.parseInt(args[2]) : 4;
+        int    vehicles = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+
+        Map<String, LongAdder> replies = new ConcurrentHashMap<>();
+        Thread[]               threads = new Thread[gates];
+        long                   start   = System.nanoTime();
+        for (int g = 0; g < gates; g++) {
+            final int gate = g + 1;
+            threads[g] = new Thread(() -> {
+                try (SimulatedCameraClient camera = new SimulatedCameraClient(host, port)) {
+                    for (int v = 0; v < vehicles; v++) {
+                        count(replies, camera.sendEntry(gate, (v % 2 == 0) ? ParkingType.CAR : ParkingType.BIKE, "G" + gate + "V" + v));
+                    }
+                    for (int v = 0; v < vehicles; v++) {
+                        count(replies, camera.sendExit(gate, "G" + gate + "V" + v));
+                    }
+                } catch (IOException e) {
+                    logger.error("Camera of gate {} lost its connection", gate, e);
+                }
+            }, "camera-" + gate);
+            threads[g].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Sent " + (2L * gates * vehicles) + " events in " + elapsedMillis + " ms");
+        replies.forEach((status, count) -> System.out.println(status + ": " + count.sum()));
+    }
+
+    private static void count(Map<String, LongAdder> replies, String reply) {
+        String status = (reply == null) ? "DISCONNECTED" : reply.split(" ", 2)[0];
+        replies.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+}
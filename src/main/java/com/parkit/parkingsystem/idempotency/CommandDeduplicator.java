@@ -0,0 +1,243 @@
+package com.parkit.parkingsystem.idempotency;
+
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.dao.CommandLogDAO;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * <b>Runs each entry and exit command once per client request ID.</b>
+ * <p>
+ * Gate controllers retry a command when its reply is late. The first command with a request ID runs; a retry with the same ID gets
+ * the ticket the first one returned, without allocating a second spot or closing the ticket again. A retry arriving while the
+ * first command still runs waits for it.
+ * </p>
+ * <p>
+ * Results are kept in memory for a window after the first command, with a bounded number of them: the oldest results are evicted
+ * first, in constant time per command. Only commands which returned a ticket are remembered, so that a retried entry refused
+ * because the lot was full gets a spot if one was freed since. With a command log, a request ID not remembered in memory is looked
+ * up there before the command runs, and each result is saved to it, so that retries survive a restart or reach another node.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#setCommandDeduplicator(CommandDeduplicator)
+ */
+public class CommandDeduplicator {
+
+    private static final Logger logger = LogManager.getLogger("CommandDeduplicator");
+
+    public static final int      MAX_REQUEST_ID_LENGTH = 64;
+    public static final Duration DEFAULT_WINDOW        = Duration.ofMinutes(5);
+    public static final int      DEFAULT_MAX_ENTRIES   = 100_000;
+
+    private final ConcurrentMap<String, Entry> entries      = new ConcurrentHashMap<>();
+    private final Queue<Entry>                 arrivals     = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger                arrivalCount = new AtomicInteger();
+    private final AtomicLong                   replayCount  = new AtomicLong();
+    private final ReentrantLock                evictionLock = new ReentrantLock();
+    private final CommandLogDAO                commandLogDAO;
+    private final long                         windowMillis;
+    private final int                          maxEntries;
+    private final Clock                        clock;
+
+    /**
+     * Creates a deduplicator with no result remembered.
+     *
+     * @param commandLogDAO Log of the results, or null to remember them in memory only
+     * @param window        Time a result is remembered in memory after the first command
+     * @param maxEntries    Maximum number of results remembered in memory
+     * @param clock         Clock timing the window and the results saved to the log
+     */
+    public CommandDeduplicator(CommandLogDAO commandLogDAO, Duration window, int maxEntries, Clock clock) {
+        if (window.isNegative() || window.isZero() || maxEntries <= 0) {
+            throw new IllegalArgumentException("Dedupe window and size must be positive");
+        }
+        this.commandLogDAO = commandLogDAO;
+        this.windowMillis = window.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs a command, unless a command with the same request ID already returned a ticket.
+     *
+     * @param requestId Client request ID, or null to run the command without deduplication
+     * @param action    Entry or exit
+     * @param command   Command, returning the ticket saved or closed, or null if it had no effect
+     *
+     * @return Ticket returned by the first command with this ID, or null if the command had no effect
+     *
+     * @throws IllegalArgumentException if the request ID is empty, too long, or was already used for the other action
+     */
+    public Ticket execute(String requestId, GateAction action, Supplier<Ticket> command) {
+        if (requestId == null) {
+            return command.get();
+        }
+        if (requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            throw new IllegalArgumentException("Request ID must have 1 to " + MAX_REQUEST_ID_LENGTH + " characters");
+        }
+        long  now   = clock.millis();
+        Entry entry = new Entry(requestId, action, now + windowMillis);
+        while (true) {
+            Entry existing = entries.putIfAbsent(requestId, entry);
+            if (existing == null) {
+                return run(entry, command, now);
+            }
+            if (existing.expiry > now) {
+                checkAction(requestId, existing.action, action);
+                CommandResult result = existing.await();
+                if (result != null) {
+                    replayCount.incrementAndGet();
+                    return result.toTicket();
+                }
+            }
+            // Expired, or the first command failed or had no effect: this one runs instead
+            entries.remove(requestId, existing);
+        }
+    }
+
+    /**
+     * Gets the number of results remembered in memory.
+     *
+     * @return Results, those of commands still running included
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of retries answered with the result of a previous command.
+     *
+     * @return Retries answered from memory or from the command log
+     */
+    public long getReplayCount() {
+        return replayCount.get();
+    }
+
+    /**
+     * Deletes the results saved to the command log before a retention period.
+     *
+     * @param retention Time a result is kept in the log
+     *
+     * @return Number of results deleted, 0 without command log or if the log failed; the next purge deletes them
+     */
+    public int purge(Duration retention) {
+        if (commandLogDAO == null) {
+            return 0;
+        }
+        try {
+            int purged = commandLogDAO.purge(LocalDateTime.now(clock).minus(retention));
+            logger.info("Purged {} command results older than {}", purged, retention);
+            return purged;
+        } catch (DataAccessException e) {
+            // Purged on a schedule, which must outlive a storage failure
+            logger.error("Unable to purge command results older than {}", retention, e);
+            return 0;
+        }
+    }
+
+    private Ticket run(Entry entry, Supplier<Ticket> command, long now) {
+        arrivals.add(entry);
+        arrivalCount.incrementAndGet();
+        evict(now);
+        try {
+            CommandResult result = (commandLogDAO == null) ? null : commandLogDAO.getResult(entry.requestId);
+            if (result != null) {
+                checkAction(entry.requestId, result.getAction(), entry.action);
+                entry.result.complete(result);
+                replayCount.incrementAndGet();
+                return result.toTicket();
+            }
+            Ticket ticket = command.get();
+            if (ticket == null) {
+                entries.remove(entry.requestId, entry);
+                entry.result.complete(null);
+                return null;
+            }
+            result = new CommandResult(entry.action, ticket);
+            if (commandLogDAO != null) {
+                saveResult(entry.requestId, result);
+            }
+            entry.result.complete(result);
+            return ticket;
+        } catch (RuntimeException e) {
+            entries.remove(entry.requestId, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void saveResult(String requestId, CommandResult result) {
+        try {
+            commandLogDAO.saveResult(requestId, result, LocalDateTime.now(clock));
+        } catch (DataAccessException e) {
+            // The command ran: failing it would make the gate retry it. The result is still remembered in memory
+            logger.error("Unable to save the result of request {}", requestId, e);
+        }
+    }
+
+    private void evict(long now) {
+        // One thread evicts at a time; the others leave it the oldest entries
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry oldest = arrivals.peek();
+            while (oldest != null && (oldest.expiry <= now || arrivalCount.get() > maxEntries)) {
+                arrivals.poll();
+                arrivalCount.decrementAndGet();
+                entries.remove(oldest.requestId, oldest);
+                oldest = arrivals.peek();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static void checkAction(String requestId, GateAction used, GateAction action) {
+        if (used != action) {
+            throw new IllegalArgumentException("Request ID " + requestId + " was already used for an " + used);
+        }
+    }
+
+    private static final class Entry {
+        private final String                           requestId;
+        private final GateAction                       action;
+        private final long                             expiry;
+        private final CompletableFuture<CommandResult> result = new CompletableFuture<>();
+
+        private Entry(String requestId, GateAction action, long expiry) {
+            this.requestId = requestId;
+            this.action = action;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Waits for the first command.
+         *
+         * @return Its result, or null if it failed or had no effect
+         */
+        private CommandResult await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.idempotency;
+
+import com.parkit.parkingsystem.constants.GateAction;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of an entry or exit command, as replied to the client the first time.
+ * <p>
+ * The ticket is copied when the command completes, so that a retry gets the ticket as it was then, e.g. without the exit time
+ * for a retried entry of a vehicle which left since.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.idempotency.CommandDeduplicator
+ */
+public final class CommandResult {
+
+    private final GateAction    action;
+    private final int           ticketId;
+    private final int           parkingNumber;
+    private final ParkingType   parkingType;
+    private final String        vehicleRegNumber;
+    private final BigDecimal    price;
+    private final BigDecimal    paidAmount;
+    private final LocalDateTime inTime;
+    private final LocalDateTime outTime;
+
+    /**
+     * Records the ticket a command returned.
+     *
+     * @param action Entry or exit
+     * @param ticket Ticket saved or closed by the command
+     */
+    public CommandResult(GateAction action, Ticket ticket) {
+        this(action, ticket.getId(), ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), ticket.getVehicleRegNumber(),
+             ticket.getPrice(), ticket.getPaidAmount(), ticket.getInTime(), ticket.getOutTime());
+    }
+
+    /**
+     * Records a ticket read back from the command log.
+     *
+     * @param action           Entry or exit
+     * @param ticketId         Ticket ID
+     * @param parkingNumber    Parking number
+     * @param parkingType      Parking type
+     * @param vehicleRegNumber Vehicle registration number
+     * @param price            Fare, may be null
+     * @param paidAmount       Fare paid in advance at a pay kiosk, may be null
+     * @param inTime           Entry time
+     * @param outTime          Exit time, null for an entry
+     */
+    public CommandResult(GateAction action, int ticketId, int parkingNumber, ParkingType parkingType, String vehicleRegNumber,
+                         BigDecimal price, BigDecimal paidAmount, LocalDateTime inTime, LocalDateTime outTime) {
+        this.action = action;
+        this.ticketId = ticketId;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.price = price;
+        this.paidAmount = paidAmount;
+        this.inTime = inTime;
+        this.outTime = outTime;
+    }
+
+    /**
+     * @return Entry or exit
+     */
+    public GateAction getAction() {
+        return action;
+    }
+
+    /**
+     * @return Ticket ID
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     * @return Parking number
+     */
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    /**
+     * @return Parking type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * @return Vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * @return Fare, 0 for an entry
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    /**
+     * @return Fare paid in advance at a pay kiosk, null if none was paid
+     */
+    public BigDecimal getPaidAmount() {
+        return paidAmount;
+    }
+
+    /**
+     * @return Entry time
+     */
+    public LocalDateTime getInTime() {
+        return inTime;
+    }
+
+    /**
+     * @return Exit time, null for an entry
+     */
+    public LocalDateTime getOutTime() {
+        return outTime;
+    }
+
+    /**
+     * Rebuilds the ticket replied the first time.
+     *
+     * @return New ticket, which the caller may modify
+     */
+    public Ticket toTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(ticketId);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(price);
+        ticket.setPaidAmount(paidAmount);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(outTime);
+        return ticket;
+    }
+}
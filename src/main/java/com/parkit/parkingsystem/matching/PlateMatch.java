@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem.matching;
+
+/**
+ * Plate of a parked vehicle close to a plate read at the exit.
+ *
+ * @see com.parkit.parkingsystem.matching.PlateMatchIndex
+ */
+public class PlateMatch {
+
+    private final String vehicleRegNumber;
+    private final double distance;
+
+    PlateMatch(String vehicleRegNumber, double distance) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.distance = distance;
+    }
+
+    /**
+     * Gets the plate of the parked vehicle.
+     *
+     * @return Vehicle registration number, as recorded at the entry
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the edit distance between the plate read and this plate.
+     *
+     * @return Distance: 1 per character added, removed, swapped or replaced, a quarter for characters often confused such as 0 and O
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return vehicleRegNumber + " (" + distance + ")";
+    }
+}
@@ -0,0 +1,278 @@
+package com.parkit.parkingsystem.matching;
+
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <b>Finds the parked vehicles whose plate is close to a plate misread at the exit.</b>
+ * <p>
+ * Plates are compared once upper-cased and stripped of spaces and dashes. Each plate is indexed by its character pairs, in which the
+ * characters cameras confuse (0, O, D and Q; 1, I and L; 2 and Z; 5 and S; 6 and G; 8 and B) stand for the same character, so
+ * that such a confusion does not change the pairs. A plate read at the exit is only compared to the plates sharing enough pairs
+ * with it to be within the maximum distance, with an edit distance in which a confusion costs a quarter of another edit.
+ * </p>
+ * <p>
+ * The index is updated on each entry and exit as a listener of the parking service; vehicles parked by other nodes of the lot are
+ * only known if the index is filled with the open tickets at startup.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#setPlateMatchIndex(PlateMatchIndex)
+ */
+public class PlateMatchIndex implements ParkingListener {
+
+    /** Maximum distance of the candidates: two edits. */
+    public static final double DEFAULT_MAX_DISTANCE = 2;
+    /** Maximum distance of a plate taken for a misread one without asking: two confusions. */
+    public static final double MISREAD_DISTANCE     = 0.5;
+
+    static final double CONFUSION_COST = 0.25;
+
+    private static final String[] CONFUSIONS = {"0ODQ", "1IL", "2Z", "5S", "6G", "8B"};
+    private static final char[]   CANONICAL  = new char[128];
+
+    static {
+        for (char c = 0; c < CANONICAL.length; c++) {
+            CANONICAL[c] = c;
+        }
+        for (String confusion : CONFUSIONS) {
+            for (int i = 0; i < confusion.length(); i++) {
+                CANONICAL[confusion.charAt(i)] = confusion.charAt(0);
+            }
+        }
+    }
+
+    private final double                   maxDistance;
+    private final Map<String, Set<String>> plates = new HashMap<>();
+    private final Map<String, Set<String>> pairs  = new HashMap<>();
+    private final ReadWriteLock            lock   = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty index.
+     *
+     * @param maxDistance Maximum distance of the candidates
+     */
+    public PlateMatchIndex(double maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Adds the plates of open tickets, e.g. the vehicles parked before the application started.
+     *
+     * @param tickets Open tickets
+     */
+    public void addAll(Collection<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            add(ticket.getVehicleRegNumber());
+        }
+    }
+
+    /**
+     * Adds the plate of a parked vehicle.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     */
+    public void add(String vehicleRegNumber) {
+        String key = normalize(vehicleRegNumber);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<String> originals = plates.computeIfAbsent(key, k -> new HashSet<>());
+            if (originals.isEmpty()) {
+                for (String pair : getPairs(key)) {
+                    pairs.computeIfAbsent(pair, p -> new HashSet<>()).add(key);
+                }
+            }
+            originals.add(vehicleRegNumber);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the plate of a vehicle which left.
+     *
+     * @param vehicleRegNumber Vehicle registration number, as added
+     */
+    public void remove(String vehicleRegNumber) {
+        String key = normalize(vehicleRegNumber);
+        lock.writeLock().lock();
+        try {
+            Set<String> originals = plates.get(key);
+            if (originals == null || !originals.remove(vehicleRegNumber) || !originals.isEmpty()) {
+                return;
+            }
+            plates.remove(key);
+            for (String pair : getPairs(key)) {
+                Set<String> keys = pairs.get(pair);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    pairs.remove(pair);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of plates indexed.
+     *
+     * @return Plates, those differing only by spaces and dashes counted once
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return plates.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the parked vehicles whose plate is close to a plate read.
+     *
+     * @param vehicleRegNumber Plate read
+     * @param limit            Maximum number of candidates
+     *
+     * @return Candidates within the maximum distance, closest first
+     */
+    public List<PlateMatch> findCandidates(String vehicleRegNumber, int limit) {
+        String key = normalize(vehicleRegNumber);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String>      keyPairs  = getPairs(key);
+        int              edits     = (int) Math.ceil(maxDistance);
+        // An edit changes at most two pairs, so a plate within the distance shares all pairs but two per edit
+        int              minShared = Math.max(1, keyPairs.size() - 2 * edits);
+        List<PlateMatch> matches   = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String pair : keyPairs) {
+                for (String plate : pairs.getOrDefault(pair, Collections.emptySet())) {
+                    shared.merge(plate, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                String plate = candidate.getKey();
+                if (candidate.getValue() >= minShared && Math.abs(plate.length() - key.length()) <= edits) {
+                    double distance = distance(key, plate);
+                    if (distance <= maxDistance) {
+                        for (String original : plates.get(plate)) {
+                            matches.add(new PlateMatch(original, distance));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingDouble(PlateMatch::getDistance).thenComparing(PlateMatch::getVehicleRegNumber));
+        return (matches.size() > limit) ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Finds the parked vehicle a plate read most likely belongs to, when the plate has no open ticket.
+     *
+     * @param vehicleRegNumber Plate read
+     *
+     * @return The only candidate differing from the plate read by at most {@link #MISREAD_DISTANCE}, or null if there is none or several
+     */
+    public PlateMatch findMisread(String vehicleRegNumber) {
+        List<PlateMatch> closest = new ArrayList<>();
+        for (PlateMatch match : findCandidates(vehicleRegNumber, 3)) {
+            if (match.getDistance() <= MISREAD_DISTANCE && !match.getVehicleRegNumber().equals(vehicleRegNumber)) {
+                closest.add(match);
+            }
+        }
+        return (closest.size() == 1) ? closest.get(0) : null;
+    }
+
+    @Override
+    public void vehicleEntered(Ticket ticket) {
+        add(ticket.getVehicleRegNumber());
+    }
+
+    @Override
+    public void vehicleExited(Ticket ticket) {
+        remove(ticket.getVehicleRegNumber());
+    }
+
+    static String normalize(String vehicleRegNumber) {
+        if (vehicleRegNumber == null) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(vehicleRegNumber.length());
+        for (int i = 0; i < vehicleRegNumber.length(); i++) {
+            char c = Character.toUpperCase(vehicleRegNumber.charAt(i));
+            if (c != ' ' && c != '-') {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Computes the edit distance between two plates, swaps of adjacent characters included.
+     *
+     * @param read    Plate read
+     * @param indexed Plate indexed
+     *
+     * @return Distance
+     */
+    static double distance(String read, String indexed) {
+        int        n        = read.length();
+        int        m        = indexed.length();
+        double[][] distance = new double[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) {
+            distance[i][0] = i;
+        }
+        for (int j = 0; j <= m; j++) {
+            distance[0][j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= m; j++) {
+                char   a    = read.charAt(i - 1);
+                char   b    = indexed.charAt(j - 1);
+                double cost = (a == b) ? 0 : (canonical(a) == canonical(b)) ? CONFUSION_COST : 1;
+                double best = Math.min(distance[i - 1][j - 1] + cost, Math.min(distance[i - 1][j], distance[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a == indexed.charAt(j - 2) && read.charAt(i - 2) == b) {
+                    best = Math.min(best, distance[i - 2][j - 2] + 1);
+                }
+                distance[i][j] = best;
+            }
+        }
+        return distance[n][m];
+    }
+
+    private static Set<String> getPairs(String key) {
+        Set<String> result   = new HashSet<>();
+        char        previous = '^';
+        for (int i = 0; i < key.length(); i++) {
+            char c = canonical(key.charAt(i));
+            result.add(new String(new char[]{previous, c}));
+            previous = c;
+        }
+        result.add(new String(new char[]{previous, '$'}));
+        return result;
+    }
+
+    private static char canonical(char c) {
+        return (c < CANONICAL.length) ? CANONICAL[c] : c;
+    }
+}
@@ -2,16 +2,20 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+import java.util.Objects;
+
 /**
  * Model for parking spot.
  * <p>
- * This contains information about the parking spot such as: the type of vehicle it can take, parking spot ID from DB and its availability.
+ * This contains information about the parking spot such as: the type of vehicle it can take, parking spot ID from DB, its availability and the lot it belongs to.
  * </p>
  */
 public class ParkingSpot {
     private int         number;
     private ParkingType parkingType;
     private boolean     isAvailable;
+    private String      lotId;
+    private int         version;
 
     /**
      * Parking spot constructor.
@@ -80,6 +84,42 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    /**
+     * Gets the lot of the parking spot.
+     *
+     * @return Lot ID, or null for a single lot installation
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Sets the lot of the parking spot.
+     *
+     * @param lotId Lot ID
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
+    /**
+     * Gets the version of the parking spot row it was read with, checked when the spot is updated.
+     *
+     * @return Version, or 0 if the spot was not read from a versioned storage and is updated whatever its version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the parking spot row.
+     *
+     * @param version Version
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     /**
      * Checks for equality between two parking spots.
      * @param o Parking spot
@@ -94,7 +134,7 @@ public class ParkingSpot {
             return false;
         }
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && Objects.equals(lotId, that.lotId);
     }
 
     /**
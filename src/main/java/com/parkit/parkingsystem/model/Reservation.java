@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Model for reservation.
+ * <p>
+ *     A reservation holds a spot of a parking type for a vehicle during a time window. The spot itself is only chosen when the vehicle arrives.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.reservation.ReservationBook
+ */
+public class Reservation {
+    private final int               id;
+    private final ParkingType       parkingType;
+    private final String            vehicleRegNumber;
+    private final LocalDateTime     start;
+    private final LocalDateTime     end;
+    private       ReservationStatus status = ReservationStatus.BOOKED;
+    private       int               parkingNumber;
+
+    /**
+     * Constructor for Reservation.
+     *
+     * @param id               Reservation ID
+     * @param parkingType      Type of the reserved spot
+     * @param vehicleRegNumber Registration number of the vehicle
+     * @param start            Start of the window
+     * @param end              End of the window
+     */
+    public Reservation(int id, ParkingType parkingType, String vehicleRegNumber, LocalDateTime start, LocalDateTime end) {
+        this.id = id;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets reservation ID.
+     * @return Reservation ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the type of the reserved spot.
+     * @return Parking type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets the registration number of the vehicle.
+     * @return Vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the start of the window.
+     * @return Start time
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the end of the window.
+     * @return End time
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the state of the reservation.
+     * @return Status
+     */
+    public ReservationStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the state of the reservation.
+     * @param status Status
+     */
+    public void setStatus(ReservationStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Gets the spot given to the vehicle on arrival.
+     * @return Parking number, or 0 if the vehicle has not arrived
+     */
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    /**
+     * Sets the spot given to the vehicle on arrival.
+     * @param parkingNumber Parking number
+     */
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupGranularity;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Model for rollup.
+ * <p>
+ *     A rollup sums the tickets of a parking type over an hour or a day. Tickets, revenue and dwell are counted in the bucket where the ticket was
+ *     closed; the time spent by vehicles on spots is spread over every bucket of their stay.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.dao.RollupDAO
+ */
+public class Rollup {
+    private final RollupGranularity granularity;
+    private final LocalDateTime     bucketStart;
+    private final ParkingType       parkingType;
+    private final int               tickets;
+    private final BigDecimal        revenue;
+    private final long              dwellSeconds;
+    private final long              occupiedSeconds;
+    private final int               peakOccupancy;
+
+    /**
+     * Constructor for Rollup.
+     *
+     * @param granularity     Size of the bucket
+     * @param bucketStart     Start of the bucket
+     * @param parkingType     Parking type
+     * @param tickets         Tickets closed in the bucket
+     * @param revenue         Sum of their prices
+     * @param dwellSeconds    Sum of their parking durations, in seconds
+     * @param occupiedSeconds Time spent by closed tickets on spots during the bucket, in seconds
+     * @param peakOccupancy   Most spots occupied at once during the bucket, seen at entries and exits
+     */
+    public Rollup(RollupGranularity granularity, LocalDateTime bucketStart, ParkingType parkingType, int tickets, BigDecimal revenue,
+                  long dwellSeconds, long occupiedSeconds, int peakOccupancy) {
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.parkingType = parkingType;
+        this.tickets = tickets;
+        this.revenue = revenue;
+        this.dwellSeconds = dwellSeconds;
+        this.occupiedSeconds = occupiedSeconds;
+        this.peakOccupancy = peakOccupancy;
+    }
+
+    /**
+     * Gets the size of the bucket.
+     * @return Granularity
+     */
+    public RollupGranularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Gets the start of the bucket.
+     * @return Bucket start
+     */
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    /**
+     * Gets the parking type.
+     * @return Parking type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets the number of tickets closed in the bucket.
+     * @return Tickets
+     */
+    public int getTickets() {
+        return tickets;
+    }
+
+    /**
+     * Gets the sum of the prices of the tickets closed in the bucket.
+     * @return Revenue
+     */
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Gets the sum of the parking durations of the tickets closed in the bucket.
+     * @return Dwell, in seconds
+     */
+    public long getDwellSeconds() {
+        return dwellSeconds;
+    }
+
+    /**
+     * Gets the average parking duration of the tickets closed in the bucket.
+     * @return Average dwell, zero if no ticket was closed
+     */
+    public Duration getAverageDwell() {
+        return (tickets == 0) ? Duration.ZERO : Duration.ofSeconds(dwellSeconds / tickets);
+    }
+
+    /**
+     * Gets the time spent on spots during the bucket by vehicles which already left.
+     * @return Occupied time, in seconds
+     */
+    public long getOccupiedSeconds() {
+        return occupiedSeconds;
+    }
+
+    /**
+     * Gets the average number of spots occupied during the bucket by vehicles which already left.
+     * @return Average occupancy
+     */
+    public double getAverageOccupancy() {
+        return (double) occupiedSeconds / granularity.getDuration().getSeconds();
+    }
+
+    /**
+     * Gets the most spots occupied at once during the bucket, as counted at each entry and exit.
+     * @return Peak occupancy
+     */
+    public int getPeakOccupancy() {
+        return peakOccupancy;
+    }
+
+    @Override
+    public String toString() {
+        return "Rollup{" + granularity + ' ' + bucketStart + ' ' + parkingType + ", tickets=" + tickets + ", revenue=" + revenue
+               + ", dwellSeconds=" + dwellSeconds + ", occupiedSeconds=" + occupiedSeconds + ", peakOccupancy=" + peakOccupancy + '}';
+    }
+}
@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Model for the location of a parking spot in a multi-storey lot.
+ * <p>
+ * A spot is on a level, in a zone of the level, at a position along the level (e.g. meters from the ramp), and may have an electric vehicle charger.
+ * </p>
+ */
+public class SpotLocation {
+    private final int         number;
+    private final ParkingType parkingType;
+    private final int         level;
+    private final String      zone;
+    private final int         position;
+    private final boolean     evCapable;
+
+    /**
+     * Spot location constructor.
+     *
+     * @param number      Parking spot ID
+     * @param parkingType Type of vehicle which can be parked
+     * @param level       Level of the spot, 0 for the ground floor
+     * @param zone        Zone of the spot
+     * @param position    Position of the spot along its level
+     * @param evCapable   Whether the spot has an electric vehicle charger
+     */
+    public SpotLocation(int number, ParkingType parkingType, int level, String zone, int position, boolean evCapable) {
+        this.number = number;
+        this.parkingType = parkingType;
+        this.level = level;
+        this.zone = zone;
+        this.position = position;
+        this.evCapable = evCapable;
+    }
+
+    /**
+     * Gets parking spot ID.
+     *
+     * @return Parking spot ID
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets type of vehicle which can be parked.
+     *
+     * @return Parking type
+     */
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * Gets level of the spot.
+     *
+     * @return Level, 0 for the ground floor
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets zone of the spot.
+     *
+     * @return Zone name
+     */
+    public String getZone() {
+        return zone;
+    }
+
+    /**
+     * Gets position of the spot along its level.
+     *
+     * @return Position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Checks whether the spot has an electric vehicle charger.
+     *
+     * @return true if an electric vehicle can charge on this spot
+     */
+    public boolean isEvCapable() {
+        return evCapable;
+    }
+}
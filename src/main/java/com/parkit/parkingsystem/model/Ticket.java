@@ -7,7 +7,10 @@ import java.time.LocalDateTime;
  * Model for ticket.
  * <p>
  *     The ticket contains information about the vehicle such as:
- *     its type, its registration number, the price the user has to pay, entry and exit time and recurring information
+ *     its type, its registration number, the price the user has to pay, entry and exit time, recurring information and the lot it was issued in
+ * </p>
+ * <p>
+ *     The fare paid in advance at a pay kiosk is part of the price: only the amount due is left to pay when leaving.
  * </p>
  */
 public class Ticket {
@@ -17,7 +20,11 @@ public class Ticket {
     private BigDecimal    price;
     private LocalDateTime inTime;
     private LocalDateTime outTime;
+    private BigDecimal    paidAmount;
+    private LocalDateTime paidTime;
     private boolean       isRecurring;
+    private String        lotId;
+    private int           version;
 
     /**
      * Gets information about vehicle recurrence.
@@ -130,4 +137,79 @@ public class Ticket {
     public void setOutTime(LocalDateTime outTime) {
         this.outTime = outTime;
     }
+
+    /**
+     * Gets the fare paid in advance at a pay kiosk.
+     * @return Amount paid, or null if the vehicle did not pay before leaving
+     */
+    public BigDecimal getPaidAmount() {
+        return paidAmount;
+    }
+
+    /**
+     * Sets the fare paid in advance at a pay kiosk.
+     * @param paidAmount Amount paid, every payment included
+     */
+    public void setPaidAmount(BigDecimal paidAmount) {
+        this.paidAmount = paidAmount;
+    }
+
+    /**
+     * Gets the time of the latest payment at a pay kiosk.
+     * @return Payment time, or null if the vehicle did not pay before leaving
+     */
+    public LocalDateTime getPaidTime() {
+        return paidTime;
+    }
+
+    /**
+     * Sets the time of the latest payment at a pay kiosk.
+     * @param paidTime Payment time
+     */
+    public void setPaidTime(LocalDateTime paidTime) {
+        this.paidTime = paidTime;
+    }
+
+    /**
+     * Gets the amount left to pay when leaving.
+     * @return Price minus the amount paid in advance, never negative, or null if the ticket is not priced
+     */
+    public BigDecimal getDueAmount() {
+        if (price == null || paidAmount == null) {
+            return price;
+        }
+        return price.subtract(paidAmount).max(BigDecimal.ZERO);
+    }
+
+    /**
+     * Gets the lot the ticket was issued in.
+     * @return Lot ID, or null for a single lot installation
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    /**
+     * Sets the lot the ticket was issued in.
+     * @param lotId Lot ID
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
+    /**
+     * Gets the version of the ticket row it was read with, checked when the ticket is updated.
+     * @return Version, or 0 if the ticket was not read from a versioned storage
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the ticket row.
+     * @param version Version
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,174 @@
+package com.parkit.parkingsystem.occupancy;
+
+import com.parkit.parkingsystem.allocation.LotTopology;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.SpotLocation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <b>Live count of the free spots of the lot, per parking type and per zone.</b>
+ * <p>
+ * The counters follow the entries and exits reported by the parking service, without querying the database.
+ * Each counter is a {@link LongAdder}, striped over several cells, so that gates updating it at once do not contend on a lock or a single
+ * memory location. Reading a counter sums its cells: a read concurrent with updates may miss the latest ones, which is fine for a display.
+ * </p>
+ * <p>
+ * Vehicles processed by other nodes, or spots changed directly in the database, are caught up by {@link #reconcile(ParkingSpotDAO, SpotAllocator)},
+ * to be called periodically.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.occupancy.OccupancyPublisher
+ */
+public class OccupancyCounters implements ParkingListener {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyCounters");
+
+    private final Map<ParkingType, LongAdder> freeSpots       = new EnumMap<>(ParkingType.class);
+    private final Map<String, LongAdder>      freeSpotsByZone = new TreeMap<>();
+    private final LotTopology                 topology;
+    private final AtomicLong                  version         = new AtomicLong();
+    private final List<Runnable>              changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates counters per parking type only, all at 0 until reconciled.
+     */
+    public OccupancyCounters() {
+        this(null);
+    }
+
+    /**
+     * Creates counters per parking type and per zone of the lot, all at 0 until reconciled.
+     *
+     * @param topology Layout of the lot, or null to count per parking type only
+     */
+    public OccupancyCounters(LotTopology topology) {
+        this.topology = topology;
+        for (ParkingType parkingType : ParkingType.values()) {
+            freeSpots.put(parkingType, new LongAdder());
+        }
+        if (topology != null) {
+            for (SpotLocation spot : topology.getSpots()) {
+                freeSpotsByZone.putIfAbsent(spot.getZone(), new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Adds a callback run after every change of the counters, on the thread which made it.
+     *
+     * @param changeListener Callback, must return quickly
+     */
+    public void onChange(Runnable changeListener) {
+        changeListeners.add(changeListener);
+    }
+
+    @Override
+    public void vehicleEntered(Ticket ticket) {
+        add(ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId(), -1);
+    }
+
+    @Override
+    public void vehicleExited(Ticket ticket) {
+        add(ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId(), 1);
+    }
+
+    /**
+     * Gets the free spots of a type.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Number of free spots
+     */
+    public long getFreeSpots(ParkingType parkingType) {
+        return freeSpots.get(parkingType).sum();
+    }
+
+    /**
+     * Gets the free spots of a zone.
+     *
+     * @param zone Zone name
+     *
+     * @return Number of free spots, 0 if the zone is unknown
+     */
+    public long getFreeSpotsInZone(String zone) {
+        LongAdder counter = freeSpotsByZone.get(zone);
+        return (counter == null) ? 0 : counter.sum();
+    }
+
+    /**
+     * Reads every counter.
+     *
+     * @return Snapshot of the counters
+     */
+    public OccupancySnapshot snapshot() {
+        long                   snapshotVersion = version.get();
+        Map<ParkingType, Long> types           = new EnumMap<>(ParkingType.class);
+        freeSpots.forEach((parkingType, counter) -> types.put(parkingType, counter.sum()));
+        Map<String, Long> zones = new TreeMap<>();
+        freeSpotsByZone.forEach((zone, counter) -> zones.put(zone, counter.sum()));
+        return new OccupancySnapshot(snapshotVersion, types, zones);
+    }
+
+    /**
+     * Corrects the counters of each type with the free spots counted in the database, and the counters of each zone with the allocator.
+     * Entries and exits processed meanwhile may be counted twice or not at all until the next reconciliation.
+     *
+     * @param parkingSpotDAO Storage of the parking spots
+     * @param spotAllocator  Allocator knowing the free spots of each zone, or null
+     */
+    public void reconcile(ParkingSpotDAO parkingSpotDAO, SpotAllocator spotAllocator) {
+        boolean changed = false;
+        for (Map.Entry<ParkingType, LongAdder> entry : freeSpots.entrySet()) {
+            changed |= correct(entry.getKey().name(), entry.getValue(), parkingSpotDAO.countAvailableSlots(entry.getKey()));
+        }
+        if (spotAllocator != null) {
+            for (Map.Entry<String, LongAdder> entry : freeSpotsByZone.entrySet()) {
+                changed |= correct("zone " + entry.getKey(), entry.getValue(), spotAllocator.countAvailableInZone(entry.getKey()));
+            }
+        }
+        if (changed) {
+            fireChange();
+        }
+    }
+
+    private boolean correct(String name, LongAdder counter, long actual) {
+        long drift = actual - counter.sum();
+        if (drift == 0) {
+            return false;
+        }
+        counter.add(drift);
+        logger.info("Free spots of {} corrected by {}", name, drift);
+        return true;
+    }
+
+    private void add(ParkingType parkingType, int parkingNumber, int delta) {
+        freeSpots.get(parkingType).add(delta);
+        if (topology != null) {
+            SpotLocation spot = topology.getSpot(parkingNumber);
+            if (spot != null) {
+                freeSpotsByZone.get(spot.getZone()).add(delta);
+            }
+        }
+        fireChange();
+    }
+
+    private void fireChange() {
+        version.incrementAndGet();
+        for (Runnable changeListener : changeListeners) {
+            changeListener.run();
+        }
+    }
+}
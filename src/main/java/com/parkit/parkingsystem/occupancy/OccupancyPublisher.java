@@ -0,0 +1,229 @@
+package com.parkit.parkingsystem.occupancy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <b>Pushes the free spots of the lot to the display boards subscribed to it.</b>
+ * <p>
+ * A subscriber first receives the current counters, then a new snapshot after changes. Updates are coalesced: changes made while a snapshot
+ * is being published are sent in the next one, and each subscriber buffers a single snapshot, replaced by newer ones until it requests it.
+ * Boards only care about the latest counts, so a slow board skips intermediate snapshots instead of queueing them.
+ * A subscriber which lets more than <code>maxSkipped</code> snapshots be replaced in a row is considered stuck: it is dropped with an error.
+ * </p>
+ * <p>
+ * Signals to each subscriber are sent one at a time on the given executor, never on the thread of the gate which changed the counters.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.occupancy.OccupancyCounters
+ */
+public class OccupancyPublisher implements Flow.Publisher<OccupancySnapshot>, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyPublisher");
+
+    /** Default snapshots a subscriber may skip in a row */
+    public static final int DEFAULT_MAX_SKIPPED = 100;
+
+    private final    OccupancyCounters       counters;
+    private final    Executor                executor;
+    private final    int                     maxSkipped;
+    private final    List<BoardSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final    AtomicBoolean           dirty         = new AtomicBoolean();
+    private volatile boolean                 closed;
+
+    /**
+     * Creates a publisher of the counters, publishing on every change.
+     *
+     * @param counters   Counters of the lot
+     * @param executor   Executor publishing snapshots and signalling subscribers
+     * @param maxSkipped Snapshots a subscriber may skip in a row before being dropped
+     */
+    public OccupancyPublisher(OccupancyCounters counters, Executor executor, int maxSkipped) {
+        this.counters = counters;
+        this.executor = executor;
+        this.maxSkipped = maxSkipped;
+        counters.onChange(this::changed);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super OccupancySnapshot> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        BoardSubscription subscription = new BoardSubscription(subscriber);
+        if (closed) {
+            subscription.terminate(null);
+            return;
+        }
+        subscriptions.add(subscription);
+        subscription.offer(counters.snapshot());
+    }
+
+    /**
+     * Counts the current subscribers.
+     *
+     * @return Number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Completes every subscription.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (BoardSubscription subscription : subscriptions) {
+            subscription.terminate(null);
+        }
+    }
+
+    private void changed() {
+        // A single publication is pending at a time, and takes every change made before it starts
+        if (!closed && dirty.compareAndSet(false, true)) {
+            executor.execute(this::publish);
+        }
+    }
+
+    private void publish() {
+        dirty.set(false);
+        OccupancySnapshot snapshot = counters.snapshot();
+        for (BoardSubscription subscription : subscriptions) {
+            subscription.offer(snapshot);
+        }
+    }
+
+    /**
+     * Subscription of a board, holding the latest snapshot it has not received yet.
+     */
+    private final class BoardSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super OccupancySnapshot> subscriber;
+        private       OccupancySnapshot                          pending;
+        private       long                                       demand;
+        private       int                                        skipped;
+        private       boolean                                    subscribed;
+        private       boolean                                    draining;
+        private       boolean                                    terminated;
+        private       boolean                                    terminalSent;
+        private       Throwable                                  error;
+
+        private BoardSubscription(Flow.Subscriber<? super OccupancySnapshot> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    terminated = true;
+                    pending = null;
+                    error = new IllegalArgumentException("Non-positive request: " + n);
+                } else {
+                    demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminated = true;
+                terminalSent = true;
+                pending = null;
+            }
+            subscriptions.remove(this);
+        }
+
+        private void offer(OccupancySnapshot snapshot) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                if (pending != null && ++skipped > maxSkipped) {
+                    terminated = true;
+                    pending = null;
+                    error = new IllegalStateException("Subscriber skipped more than " + maxSkipped + " updates, dropped");
+                    logger.info("Dropped a slow occupancy subscriber");
+                } else {
+                    pending = snapshot;
+                }
+            }
+            schedule();
+        }
+
+        private void terminate(Throwable cause) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                terminated = true;
+                error = cause;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                OccupancySnapshot next     = null;
+                boolean           init     = false;
+                boolean           terminal = false;
+                Throwable         cause    = null;
+                synchronized (this) {
+                    if (!subscribed) {
+                        subscribed = true;
+                        init = true;
+                    } else if (demand > 0 && pending != null && !terminalSent) {
+                        next = pending;
+                        pending = null;
+                        skipped = 0;
+                        demand--;
+                    } else if (terminated && !terminalSent) {
+                        terminalSent = true;
+                        terminal = true;
+                        cause = error;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    if (init) {
+                        subscriber.onSubscribe(this);
+                    } else if (next != null) {
+                        subscriber.onNext(next);
+                    } else if (terminal) {
+                        subscriptions.remove(this);
+                        if (cause == null) {
+                            subscriber.onComplete();
+                        } else {
+                            subscriber.onError(cause);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Occupancy subscriber failed, cancelled", e);
+                    cancel();
+                }
+            }
+        }
+    }
+}
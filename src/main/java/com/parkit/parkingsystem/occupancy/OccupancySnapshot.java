@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.occupancy;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Free spots of the lot at one point in time, as shown by the display boards.
+ *
+ * @see com.parkit.parkingsystem.occupancy.OccupancyCounters
+ */
+public final class OccupancySnapshot {
+
+    private final long                   version;
+    private final Map<ParkingType, Long> freeSpots;
+    private final Map<String, Long>      freeSpotsByZone;
+
+    OccupancySnapshot(long version, Map<ParkingType, Long> freeSpots, Map<String, Long> freeSpotsByZone) {
+        this.version = version;
+        this.freeSpots = Collections.unmodifiableMap(freeSpots);
+        this.freeSpotsByZone = Collections.unmodifiableMap(freeSpotsByZone);
+    }
+
+    /**
+     * Gets the number of changes counted before this snapshot; a board receiving coalesced updates sees it skip.
+     *
+     * @return Version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the free spots of a type.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Number of free spots
+     */
+    public long getFreeSpots(ParkingType parkingType) {
+        return freeSpots.getOrDefault(parkingType, 0L);
+    }
+
+    /**
+     * Gets the free spots of a zone.
+     *
+     * @param zone Zone name
+     *
+     * @return Number of free spots, 0 if the zone is unknown
+     */
+    public long getFreeSpotsInZone(String zone) {
+        return freeSpotsByZone.getOrDefault(zone, 0L);
+    }
+
+    /**
+     * Gets the zones of the lot.
+     *
+     * @return Zone names, empty if the lot has no topology
+     */
+    public Set<String> getZones() {
+        return freeSpotsByZone.keySet();
+    }
+
+    @Override
+    public String toString() {
+        return "OccupancySnapshot{version=" + version + ", freeSpots=" + freeSpots + ", freeSpotsByZone=" + freeSpotsByZone + '}';
+    }
+}
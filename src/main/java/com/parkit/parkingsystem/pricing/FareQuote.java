@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.pricing;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fare due by a parked vehicle at one point in time, as shown by a pay kiosk.
+ *
+ * @see com.parkit.parkingsystem.pricing.FareQuotes
+ */
+public final class FareQuote {
+
+    private final int           ticketId;
+    private final String        vehicleRegNumber;
+    private final BigDecimal    price;
+    private final LocalDateTime quotedAt;
+    private final LocalDateTime validUntil;
+    private final boolean       paid;
+
+    FareQuote(int ticketId, String vehicleRegNumber, BigDecimal price, LocalDateTime quotedAt, LocalDateTime validUntil, boolean paid) {
+        this.ticketId = ticketId;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.price = price;
+        this.quotedAt = quotedAt;
+        this.validUntil = validUntil;
+        this.paid = paid;
+    }
+
+    /**
+     * Gets the ID of the ticket quoted.
+     *
+     * @return Ticket ID
+     */
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     * Gets the registration number of the vehicle quoted.
+     *
+     * @return Vehicle registration number
+     */
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    /**
+     * Gets the fare due.
+     *
+     * @return Price
+     */
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets the time the fare was computed for.
+     *
+     * @return Quote time
+     */
+    public LocalDateTime getQuotedAt() {
+        return quotedAt;
+    }
+
+    /**
+     * Gets the time the fare changes at, or for a paid quote the end of the grace to leave the lot.
+     *
+     * @return First time the quote no longer holds
+     */
+    public LocalDateTime getValidUntil() {
+        return validUntil;
+    }
+
+    /**
+     * Tells whether the fare was paid at a kiosk.
+     *
+     * @return true if the quote was paid
+     */
+    public boolean isPaid() {
+        return paid;
+    }
+
+    @Override
+    public String toString() {
+        return vehicleRegNumber + " " + price + (paid ? " paid" : "") + " until " + validUntil;
+    }
+}
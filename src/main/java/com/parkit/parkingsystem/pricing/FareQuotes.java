@@ -0,0 +1,241 @@
+package com.parkit.parkingsystem.pricing;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <b>Live fare quotes of the vehicles parked in the lot, for the pay kiosks.</b>
+ * <p>
+ * The tickets of the parked vehicles are kept in memory as they enter and leave, so a quote never reads the storage. The fare of a
+ * vehicle only changes at the end of its free period and then every time it reaches the next cent: each quote is kept until then, and
+ * the kiosks asking again meanwhile get it back without computing the fare again.
+ * </p>
+ * <p>
+ * Payments are recorded on the tickets, so that the exit credits them whichever node the vehicle leaves through, and after a restart.
+ * A vehicle whose fare was paid at a kiosk is charged the amount paid if it leaves within the grace period, so its exit is a lookup;
+ * a vehicle leaving later is charged its full fare, of which only the part not paid yet is due. Its quotes are the part not paid yet.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#setFareQuotes(FareQuotes)
+ */
+public class FareQuotes implements ParkingListener {
+
+    private static final Logger logger = LogManager.getLogger("FareQuotes");
+
+    public static final Duration DEFAULT_GRACE = Duration.ofMinutes(15);
+
+    // The fare only depends on the whole seconds parked: the next change is searched for second by second, up to about 12 days ahead
+    private static final long FREE_SECONDS      = Fare.FREE_PARKING_MINUTES * 60;
+    private static final long MAX_CHANGE_SEARCH = 1L << 20;
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private final Map<String, Session>  sessions              = new ConcurrentHashMap<>();
+
+    private final TicketDAO ticketDAO;
+    private final Duration  grace;
+    private final Clock     clock;
+
+    /**
+     * Creates quotes for no vehicle yet.
+     *
+     * @param ticketDAO Tickets the payments are recorded on
+     * @param grace     Time a vehicle has to leave once its fare is paid
+     * @param clock     Clock giving the quote times
+     */
+    public FareQuotes(TicketDAO ticketDAO, Duration grace, Clock clock) {
+        this.ticketDAO = ticketDAO;
+        this.grace = grace;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds vehicles already parked, e.g. at startup, with the payments recorded on their tickets.
+     *
+     * @param openTickets Open tickets
+     */
+    public void addAll(List<Ticket> openTickets) {
+        openTickets.forEach(this::vehicleEntered);
+        logger.info("Quoting the fares of {} parked vehicles", openTickets.size());
+    }
+
+    /**
+     * Counts the vehicles which can be quoted.
+     *
+     * @return Number of parked vehicles
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Quotes the fare due now by a parked vehicle.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Quote of the part of the fare not paid yet, or the payment if the vehicle may still leave without paying again, or null
+     * if the vehicle is not parked
+     *
+     * @throws IllegalArgumentException if the parking type of the vehicle has no fare
+     */
+    public FareQuote quote(String vehicleRegNumber) {
+        Session session = sessions.get(vehicleRegNumber);
+        return (session == null) ? null : session.quote(now());
+    }
+
+    /**
+     * Records the payment of the fare due now by a parked vehicle on its ticket. Paying again within the grace period returns the first
+     * payment.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Paid quote with the amount paid so far, valid until the end of the grace period, or null if the vehicle is not parked
+     *
+     * @throws IllegalArgumentException if the parking type of the vehicle has no fare
+     * @throws DataAccessException      if the payment can not be recorded, in which case it is not taken
+     */
+    public FareQuote pay(String vehicleRegNumber) {
+        Session session = sessions.get(vehicleRegNumber);
+        return (session == null) ? null : session.pay(now());
+    }
+
+    /**
+     * Gets the fare paid in advance by a leaving vehicle, as recorded on its ticket.
+     *
+     * @param ticket  Ticket of the vehicle
+     * @param outTime Exit time
+     *
+     * @return Price paid, or null if the vehicle did not pay or its grace period is over
+     */
+    public BigDecimal getPaidFare(Ticket ticket, LocalDateTime outTime) {
+        LocalDateTime paidTime = ticket.getPaidTime();
+        return (paidTime != null && outTime.isBefore(paidTime.plus(grace))) ? ticket.getPaidAmount() : null;
+    }
+
+    @Override
+    public void vehicleEntered(Ticket ticket) {
+        sessions.put(ticket.getVehicleRegNumber(), new Session(ticket));
+    }
+
+    @Override
+    public void vehicleExited(Ticket ticket) {
+        sessions.computeIfPresent(ticket.getVehicleRegNumber(), (plate, session) -> (session.ticketId == ticket.getId()) ? null : session);
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * Parked vehicle, with its latest quote and payment.
+     */
+    private final class Session {
+
+        private final int           ticketId;
+        private final String        vehicleRegNumber;
+        private final LocalDateTime inTime;
+        private final ParkingSpot   parkingSpot;
+        private final boolean       recurring;
+        private       FareQuote     quote;
+        private       FareQuote     payment;
+        private       BigDecimal    paidAmount;
+
+        private Session(Ticket ticket) {
+            this.ticketId = ticket.getId();
+            this.vehicleRegNumber = ticket.getVehicleRegNumber();
+            this.inTime = ticket.getInTime();
+            this.parkingSpot = new ParkingSpot(ticket.getParkingSpot().getId(), ticket.getParkingSpot().getParkingType(), false);
+            this.recurring = ticket.isRecurring();
+            if (ticket.getPaidTime() != null) {
+                this.paidAmount = ticket.getPaidAmount();
+                this.payment = new FareQuote(ticketId, vehicleRegNumber, paidAmount, ticket.getPaidTime(), ticket.getPaidTime().plus(grace), true);
+            }
+        }
+
+        private synchronized FareQuote quote(LocalDateTime now) {
+            if (payment != null && now.isBefore(payment.getValidUntil())) {
+                return payment;
+            }
+            if (quote == null || now.isBefore(quote.getQuotedAt()) || !now.isBefore(quote.getValidUntil())) {
+                long       seconds = parkedSeconds(now);
+                BigDecimal price   = priceAt(seconds);
+                BigDecimal due     = (paidAmount == null) ? price : price.subtract(paidAmount).max(BigDecimal.ZERO);
+                quote = new FareQuote(ticketId, vehicleRegNumber, due, now, inTime.plusSeconds(nextChange(seconds, price)), false);
+            }
+            return quote;
+        }
+
+        private synchronized FareQuote pay(LocalDateTime now) {
+            if (payment == null || !now.isBefore(payment.getValidUntil())) {
+                BigDecimal due    = quote(now).getPrice();
+                BigDecimal paid   = (paidAmount == null) ? due : paidAmount.add(due);
+                Ticket     ticket = new Ticket();
+                ticket.setId(ticketId);
+                ticket.setPaidAmount(paid);
+                ticket.setPaidTime(now);
+                // Recorded first, so that a payment the storage did not keep is not taken
+                if (!ticketDAO.recordPayment(ticket)) {
+                    logger.warn("Ticket {} of vehicle {} closed before its payment", ticketId, vehicleRegNumber);
+                    return null;
+                }
+                paidAmount = paid;
+                payment = new FareQuote(ticketId, vehicleRegNumber, paid, now, now.plus(grace), true);
+                quote = null;
+                logger.info("Fare of vehicle {} paid: {}, {} in all", vehicleRegNumber, due, paid);
+            }
+            return payment;
+        }
+
+        private long parkedSeconds(LocalDateTime now) {
+            return Math.max(0, Duration.between(inTime, now).getSeconds());
+        }
+
+        private long nextChange(long seconds, BigDecimal price) {
+            if (seconds <= FREE_SECONDS) {
+                return FREE_SECONDS + 1;
+            }
+            // The fare never goes down: double the step until it changes, then narrow down to the first second it changed at
+            long unchanged = seconds;
+            long step      = 1;
+            while (step < MAX_CHANGE_SEARCH && priceAt(unchanged + step).compareTo(price) == 0) {
+                unchanged += step;
+                step *= 2;
+            }
+            long changed = unchanged + step;
+            while (changed - unchanged > 1) {
+                long middle = unchanged + (changed - unchanged) / 2;
+                if (priceAt(middle).compareTo(price) == 0) {
+                    unchanged = middle;
+                } else {
+                    changed = middle;
+                }
+            }
+            return changed;
+        }
+
+        private BigDecimal priceAt(long seconds) {
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setRecurring(recurring);
+            ticket.setInTime(inTime);
+            ticket.setOutTime(inTime.plusSeconds(seconds));
+            fareCalculatorService.calculateFare(ticket);
+            return ticket.getPrice();
+        }
+    }
+}
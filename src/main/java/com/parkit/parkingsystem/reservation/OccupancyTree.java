@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.reservation;
+
+/**
+ * Segment tree over the time slots of the reservation horizon.
+ * <p>
+ * Each node holds the highest number of reservations held at once over its range, with a pending addition for its whole range,
+ * so that adding a reservation over a window, or finding the busiest slot of a window, takes logarithmic time.
+ * </p>
+ */
+final class OccupancyTree {
+
+    private final int   size;
+    private final int[] max;
+    private final int[] pending;
+
+    OccupancyTree(int size) {
+        this.size = size;
+        this.max = new int[Math.max(1, 4 * size)];
+        this.pending = new int[Math.max(1, 4 * size)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a value to every slot of [from, to].
+     */
+    void add(int from, int to, int value) {
+        if (from <= to) {
+            add(1, 0, size - 1, Math.max(0, from), Math.min(size - 1, to), value);
+        }
+    }
+
+    /**
+     * @return Highest value of the slots of [from, to], 0 for an empty range
+     */
+    int max(int from, int to) {
+        if (from > to) {
+            return 0;
+        }
+        return max(1, 0, size - 1, Math.max(0, from), Math.min(size - 1, to));
+    }
+
+    private void add(int node, int lo, int hi, int from, int to, int value) {
+        if (to < lo || hi < from) {
+            return;
+        }
+        if (from <= lo && hi <= to) {
+            max[node] += value;
+            pending[node] += value;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        add(2 * node, lo, mid, from, to, value);
+        add(2 * node + 1, mid + 1, hi, from, to, value);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+    }
+
+    private int max(int node, int lo, int hi, int from, int to) {
+        if (from <= lo && hi <= to) {
+            return max[node];
+        }
+        int mid = (lo + hi) >>> 1;
+        int result;
+        if (to <= mid) {
+            result = max(2 * node, lo, mid, from, to);
+        } else if (from > mid) {
+            result = max(2 * node + 1, mid + 1, hi, from, to);
+        } else {
+            result = Math.max(max(2 * node, lo, mid, from, to), max(2 * node + 1, mid + 1, hi, from, to));
+        }
+        return result + pending[node];
+    }
+}
@@ -0,0 +1,375 @@
+package com.parkit.parkingsystem.reservation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.timer.TimingWheel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * <b>Reservations of parking spots for time windows.</b>
+ * <p>
+ * A reservation holds one spot of a parking type during its window; the spot is chosen when the vehicle arrives.
+ * The reservations of each type are indexed by an {@link OccupancyTree} over time slots (15 minutes by default) holding how many reservations
+ * are held at once, so whether a window still has a spot free is answered in logarithmic time, whatever the number of reservations.
+ * Windows are widened to whole slots.
+ * </p>
+ * <ul>
+ *     <li>A vehicle may arrive from the look-ahead (30 minutes by default) before its window, the reservation is then confirmed.</li>
+ *     <li>A reservation not confirmed within the no-show grace (15 minutes by default) after its start is released.</li>
+ *     <li>Walk-in vehicles may only take a spot if enough spots stay free for the reservations starting within the look-ahead,
+ *     see {@link #countImminent(ParkingType)}.</li>
+ * </ul>
+ * <p>
+ * No-shows are released by any call to the book, or at the end of their grace by a {@link TimingWheel} if one is set.
+ * </p>
+ * <p>
+ * The book only knows reservations: a window may be booked while walk-in vehicles fill the lot, and spots are kept for the reservation
+ * from the moment it becomes imminent.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService
+ */
+public class ReservationBook {
+
+    public static final Duration DEFAULT_SLOT    = Duration.ofMinutes(15);
+    public static final Duration DEFAULT_HORIZON = Duration.ofDays(30);
+
+    private static final Comparator<Reservation> BY_START = Comparator.comparing(Reservation::getStart).thenComparingInt(Reservation::getId);
+    private static final Comparator<Reservation> BY_END   = Comparator.comparing(Reservation::getEnd).thenComparingInt(Reservation::getId);
+
+    private final Clock                          clock;
+    private final long                           slotSeconds;
+    private final int                            horizonSlots;
+    private final Map<ParkingType, TypeBook>     books        = new EnumMap<>(ParkingType.class);
+    private final Map<Integer, Reservation>      reservations = new HashMap<>();
+    private final Map<String, List<Reservation>> plates       = new HashMap<>();
+    private final TreeSet<Reservation>           activeByEnd  = new TreeSet<>(BY_END);
+    private       Duration                       noShowGrace  = Duration.ofMinutes(15);
+    private       Duration                       lookahead    = Duration.ofMinutes(30);
+    private       LocalDateTime                  origin;
+    private       int                            nextId       = 1;
+    private       TimingWheel                    timingWheel;
+
+    /**
+     * Creates an empty book with 15 minute slots, taking reservations up to 30 days ahead.
+     *
+     * @param clock Clock giving the current time
+     */
+    public ReservationBook(Clock clock) {
+        this(clock, DEFAULT_SLOT, DEFAULT_HORIZON);
+    }
+
+    /**
+     * Creates an empty book.
+     *
+     * @param clock   Clock giving the current time
+     * @param slot    Length of a time slot, windows are widened to whole slots
+     * @param horizon How far ahead reservations may end
+     */
+    public ReservationBook(Clock clock, Duration slot, Duration horizon) {
+        this.clock = clock;
+        this.slotSeconds = slot.getSeconds();
+        if (slotSeconds < 1 || horizon.getSeconds() < slotSeconds) {
+            throw new IllegalArgumentException("Invalid slot " + slot + " or horizon " + horizon);
+        }
+        this.horizonSlots = (int) (horizon.getSeconds() / slotSeconds);
+        this.origin = LocalDateTime.now(clock).truncatedTo(ChronoUnit.DAYS);
+    }
+
+    /**
+     * Sets the number of spots of a type which may be reserved at once.
+     *
+     * @param parkingType Parking type
+     * @param spots       Number of spots
+     */
+    public synchronized void setCapacity(ParkingType parkingType, int spots) {
+        book(parkingType).capacity = spots;
+    }
+
+    /**
+     * Sets how long after the start of its window a reservation is kept for a vehicle which has not arrived.
+     *
+     * @param noShowGrace Grace period
+     */
+    public synchronized void setNoShowGrace(Duration noShowGrace) {
+        this.noShowGrace = noShowGrace;
+    }
+
+    /**
+     * Sets how long before the start of its window a reservation keeps a spot free from walk-in vehicles, and its vehicle may arrive.
+     *
+     * @param lookahead Look-ahead period
+     */
+    public synchronized void setLookahead(Duration lookahead) {
+        this.lookahead = lookahead;
+    }
+
+    /**
+     * Sets the wheel releasing the no-shows at the end of their grace, rather than at the next call to the book.
+     *
+     * @param timingWheel Timing wheel, or null
+     */
+    public synchronized void setTimingWheel(TimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+    }
+
+    /**
+     * Releases the no-shows and the reservations which are over.
+     */
+    public synchronized void releaseExpired() {
+        sweep();
+    }
+
+    /**
+     * Reserves a spot of a type.
+     *
+     * @param parkingType      Parking type
+     * @param vehicleRegNumber Registration number of the vehicle
+     * @param start            Start of the window
+     * @param end              End of the window
+     *
+     * @return The reservation, the same as before if the vehicle already reserved this window, or null if every spot of the type
+     * is reserved during part of the window
+     *
+     * @throws IllegalArgumentException if the window is empty, over, or ends beyond the horizon
+     */
+    public synchronized Reservation reserve(ParkingType parkingType, String vehicleRegNumber, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime now = sweep();
+        if (!end.isAfter(start) || !end.isAfter(now) || end.isAfter(now.plusSeconds(horizonSlots * slotSeconds))) {
+            throw new IllegalArgumentException("Invalid reservation window " + start + " - " + end);
+        }
+        for (Reservation reservation : plates.getOrDefault(vehicleRegNumber, new ArrayList<>())) {
+            // A retried request does not hold a second spot
+            if (reservation.getParkingType() == parkingType && reservation.getStart().equals(start) && reservation.getEnd().equals(end)) {
+                return reservation;
+            }
+        }
+        TypeBook book = book(parkingType);
+        if (book.tree.max(firstSlot(start), lastSlot(end)) >= book.capacity) {
+            return null;
+        }
+        Reservation reservation = new Reservation(nextId++, parkingType, vehicleRegNumber, start, end);
+        book.tree.add(firstSlot(start), lastSlot(end), 1);
+        book.booked.add(reservation);
+        activeByEnd.add(reservation);
+        reservations.put(reservation.getId(), reservation);
+        plates.computeIfAbsent(vehicleRegNumber, p -> new ArrayList<>()).add(reservation);
+        if (timingWheel != null) {
+            // A no-show is released once its grace is over, not when it ends
+            timingWheel.schedule(start.plus(noShowGrace).plusNanos(1).atZone(clock.getZone()).toInstant(), this::releaseExpired);
+        }
+        return reservation;
+    }
+
+    /**
+     * Counts the spots of a type which may still be reserved during a whole window.
+     *
+     * @param parkingType Parking type
+     * @param start       Start of the window
+     * @param end         End of the window
+     *
+     * @return Number of spots, 0 if the window is fully booked or beyond the horizon
+     */
+    public synchronized int countAvailable(ParkingType parkingType, LocalDateTime start, LocalDateTime end) {
+        sweep();
+        TypeBook book = books.get(parkingType);
+        if (book == null || lastSlot(end) >= book.tree.size()) {
+            return 0;
+        }
+        return Math.max(0, book.capacity - book.tree.max(firstSlot(start), lastSlot(end)));
+    }
+
+    /**
+     * Confirms the reservation of an arriving vehicle.
+     *
+     * @param parkingType      Type of the vehicle
+     * @param vehicleRegNumber Registration number of the vehicle
+     *
+     * @return The confirmed reservation, or null if the vehicle has no reservation for now
+     */
+    public synchronized Reservation confirm(ParkingType parkingType, String vehicleRegNumber) {
+        LocalDateTime now = sweep();
+        for (Reservation reservation : plates.getOrDefault(vehicleRegNumber, new ArrayList<>())) {
+            if (reservation.getStatus() == ReservationStatus.BOOKED && reservation.getParkingType() == parkingType
+                && !reservation.getStart().minus(lookahead).isAfter(now)) {
+                reservation.setStatus(ReservationStatus.CONFIRMED);
+                book(parkingType).booked.remove(reservation);
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gives back the confirmation of a vehicle which did not get a spot, e.g. because its spot or its ticket could not be saved,
+     * so that its reservation keeps a spot free until it arrives again or its grace is over.
+     *
+     * @param vehicleRegNumber Registration number of the vehicle
+     *
+     * @return The reservation booked again, or null if the vehicle had no confirmed reservation
+     */
+    public synchronized Reservation unconfirm(String vehicleRegNumber) {
+        sweep();
+        for (Reservation reservation : plates.getOrDefault(vehicleRegNumber, new ArrayList<>())) {
+            if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+                reservation.setStatus(ReservationStatus.BOOKED);
+                reservation.setParkingNumber(0);
+                book(reservation.getParkingType()).booked.add(reservation);
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ends the reservation of a leaving vehicle, so that the rest of its window may be booked again.
+     *
+     * @param vehicleRegNumber Registration number of the vehicle
+     *
+     * @return The ended reservation, or null if the vehicle had no confirmed reservation
+     */
+    public synchronized Reservation checkOut(String vehicleRegNumber) {
+        sweep();
+        for (Reservation reservation : new ArrayList<>(plates.getOrDefault(vehicleRegNumber, new ArrayList<>()))) {
+            if (reservation.getStatus() == ReservationStatus.CONFIRMED) {
+                remove(reservation);
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancels a reservation before the arrival of its vehicle.
+     *
+     * @param reservationId Reservation ID
+     *
+     * @return true if the reservation was cancelled, false if it is unknown, over or already confirmed
+     */
+    public synchronized boolean cancel(int reservationId) {
+        sweep();
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null || reservation.getStatus() != ReservationStatus.BOOKED) {
+            return false;
+        }
+        reservation.setStatus(ReservationStatus.CANCELLED);
+        remove(reservation);
+        return true;
+    }
+
+    /**
+     * Gets a reservation which is not over yet.
+     *
+     * @param reservationId Reservation ID
+     *
+     * @return The reservation, or null if it is unknown or over
+     */
+    public synchronized Reservation getReservation(int reservationId) {
+        sweep();
+        return reservations.get(reservationId);
+    }
+
+    /**
+     * Counts the reservations of a type whose vehicle has not arrived and whose window starts within the look-ahead.
+     * Walk-in vehicles must leave that many spots free.
+     *
+     * @param parkingType Parking type
+     *
+     * @return Number of spots to keep free
+     */
+    public synchronized int countImminent(ParkingType parkingType) {
+        LocalDateTime now  = sweep();
+        TypeBook      book = books.get(parkingType);
+        if (book == null) {
+            return 0;
+        }
+        Reservation probe = new Reservation(Integer.MAX_VALUE, parkingType, null, now.plus(lookahead), null);
+        return book.booked.headSet(probe, true).size();
+    }
+
+    /**
+     * Releases no-shows and reservations which are over, and moves the index forward when the current time leaves its first half.
+     *
+     * @return Current time
+     */
+    private LocalDateTime sweep() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (TypeBook book : books.values()) {
+            while (!book.booked.isEmpty() && book.booked.first().getStart().plus(noShowGrace).isBefore(now)) {
+                Reservation noShow = book.booked.first();
+                noShow.setStatus(ReservationStatus.NO_SHOW);
+                remove(noShow);
+            }
+        }
+        while (!activeByEnd.isEmpty() && !activeByEnd.first().getEnd().isAfter(now)) {
+            Reservation over = activeByEnd.first();
+            if (over.getStatus() == ReservationStatus.BOOKED) {
+                over.setStatus(ReservationStatus.NO_SHOW);
+            }
+            remove(over);
+        }
+        long elapsedSlots = slot(now);
+        if (elapsedSlots >= horizonSlots) {
+            // Every reservation left ends after now, within the horizon: the index is rebuilt from the slot of now
+            origin = origin.plusSeconds(elapsedSlots * slotSeconds);
+            for (TypeBook book : books.values()) {
+                book.tree = new OccupancyTree(2 * horizonSlots);
+            }
+            for (Reservation reservation : activeByEnd) {
+                books.get(reservation.getParkingType()).tree.add(firstSlot(reservation.getStart()), lastSlot(reservation.getEnd()), 1);
+            }
+        }
+        return now;
+    }
+
+    private void remove(Reservation reservation) {
+        TypeBook book = books.get(reservation.getParkingType());
+        book.tree.add(firstSlot(reservation.getStart()), lastSlot(reservation.getEnd()), -1);
+        book.booked.remove(reservation);
+        activeByEnd.remove(reservation);
+        reservations.remove(reservation.getId());
+        List<Reservation> plateReservations = plates.get(reservation.getVehicleRegNumber());
+        plateReservations.remove(reservation);
+        if (plateReservations.isEmpty()) {
+            plates.remove(reservation.getVehicleRegNumber());
+        }
+    }
+
+    private TypeBook book(ParkingType parkingType) {
+        return books.computeIfAbsent(parkingType, t -> new TypeBook(2 * horizonSlots));
+    }
+
+    private long slot(LocalDateTime time) {
+        return Math.floorDiv(Duration.between(origin, time).getSeconds(), slotSeconds);
+    }
+
+    private int firstSlot(LocalDateTime start) {
+        return (int) Math.max(0, slot(start));
+    }
+
+    private int lastSlot(LocalDateTime end) {
+        return (int) Math.floorDiv(Duration.between(origin, end).getSeconds() + slotSeconds - 1, slotSeconds) - 1;
+    }
+
+    private static final class TypeBook {
+        private final TreeSet<Reservation> booked = new TreeSet<>(BY_START);
+        private       OccupancyTree        tree;
+        private       int                  capacity;
+
+        private TypeBook(int slots) {
+            this.tree = new OccupancyTree(slots);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.resilience;
+
+import com.parkit.parkingsystem.dao.DataAccessException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>Limits the number of concurrent calls of one kind of traffic.</b>
+ * <p>
+ * A call waits a short time for a permit, then fails: a burst of slow calls of one kind fills its own bulkhead only, and leaves
+ * connections and threads to the other kinds.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.resilience.DataAccessGuard
+ */
+public class Bulkhead {
+
+    private final String    name;
+    private final int       maxConcurrentCalls;
+    private final long      maxWaitMillis;
+    private final Semaphore permits;
+
+    /**
+     * Creates an empty bulkhead.
+     *
+     * @param name               Name, logged with the failures
+     * @param maxConcurrentCalls Calls running at once
+     * @param maxWaitMillis      Time a call waits for a permit
+     */
+    public Bulkhead(String name, int maxConcurrentCalls, long maxWaitMillis) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Bulkhead " + name + " must allow at least one call");
+        }
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Takes a permit, to give back with {@link #release()} once the call returned.
+     *
+     * @throws DataAccessException with {@link DataAccessException.Failure#BULKHEAD_FULL} if no permit was freed in time
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new DataAccessException(DataAccessException.Failure.BULKHEAD_FULL, maxConcurrentCalls + " " + name + " calls already running", null);
+        }
+    }
+
+    /**
+     * Gives a permit back.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Gets the number of calls running.
+     *
+     * @return Calls holding a permit
+     */
+    public int getRunningCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
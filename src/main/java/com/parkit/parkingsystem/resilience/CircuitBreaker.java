@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.resilience;
+
+import com.parkit.parkingsystem.dao.DataAccessException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * <b>Stops calling the database for a while once it failed several times in a row.</b>
+ * <p>
+ * While the circuit is open, calls fail at once instead of waiting for their timeout. Once the open duration elapsed, a single trial
+ * call is let through: the circuit closes if it succeeds, and opens again otherwise.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.resilience.DataAccessGuard
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LogManager.getLogger("CircuitBreaker");
+
+    /** States of the circuit */
+    public enum State {
+        /** Calls go through */
+        CLOSED,
+        /** Calls fail at once */
+        OPEN,
+        /** A trial call is running */
+        HALF_OPEN
+    }
+
+    private final int   failureThreshold;
+    private final long  openMillis;
+    private final Clock clock;
+    private       State state = State.CLOSED;
+    private       int   consecutiveFailures;
+    private       long  openedAt;
+
+    /**
+     * Creates a closed circuit.
+     *
+     * @param failureThreshold Consecutive failures opening the circuit
+     * @param openDuration     Time the circuit stays open before a trial call
+     * @param clock            Clock timing the open duration
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openDuration.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Asks for the permission to call the database.
+     *
+     * @throws DataAccessException with {@link DataAccessException.Failure#CIRCUIT_OPEN} if the circuit is open or a trial call is running
+     */
+    public synchronized void acquirePermission() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            return;
+        }
+        if (state != State.CLOSED) {
+            throw new DataAccessException(DataAccessException.Failure.CIRCUIT_OPEN, "Database calls suspended", null);
+        }
+    }
+
+    /**
+     * Records a call which succeeded.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            logger.info("Database calls resumed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Records a call which failed.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            logger.error("Database calls suspended for {} ms after {} failures", openMillis, consecutiveFailures);
+            state = State.OPEN;
+            openedAt = clock.millis();
+        }
+    }
+
+    /**
+     * Gets the state of the circuit.
+     *
+     * @return State, OPEN until a call asks for the permission once the open duration elapsed
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
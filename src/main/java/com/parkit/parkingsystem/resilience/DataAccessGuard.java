@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.resilience;
+
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.DataAccessException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * <b>Runs the storage calls behind a circuit breaker and a bulkhead per kind of traffic.</b>
+ * <p>
+ * Entries, exits and reports each have their own bulkhead, so that slow reports can not take the connections the gates need, and
+ * share the circuit breaker of the database. Only the failures of the database itself, unavailable or too slow, open the circuit:
+ * a request the database rejected still shows it answers.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#setDataAccessGuard(DataAccessGuard)
+ * @see com.parkit.parkingsystem.resilience.GuardedRollupDAO
+ */
+public class DataAccessGuard {
+
+    private final CircuitBreaker              circuitBreaker;
+    private final Map<TrafficClass, Bulkhead> bulkheads = new EnumMap<>(TrafficClass.class);
+
+    /**
+     * Creates a guard with unbounded bulkheads, to bound with {@link #setBulkhead(TrafficClass, Bulkhead)}.
+     *
+     * @param circuitBreaker Circuit breaker of the database
+     */
+    public DataAccessGuard(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Bounds the concurrent calls of a kind of traffic.
+     *
+     * @param trafficClass Kind of traffic
+     * @param bulkhead     Bulkhead of this traffic
+     */
+    public void setBulkhead(TrafficClass trafficClass, Bulkhead bulkhead) {
+        bulkheads.put(trafficClass, bulkhead);
+    }
+
+    /**
+     * Runs a storage call.
+     *
+     * @param trafficClass Kind of traffic the call belongs to
+     * @param call         Call to the storage
+     * @param <T>          Type of the result
+     *
+     * @return Result of the call
+     *
+     * @throws DataAccessException if the circuit is open, the bulkhead is full, or the call failed
+     */
+    public <T> T call(TrafficClass trafficClass, Supplier<T> call) {
+        Bulkhead bulkhead = bulkheads.get(trafficClass);
+        if (bulkhead != null) {
+            bulkhead.acquire();
+        }
+        try {
+            circuitBreaker.acquirePermission();
+            T result = call.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (DataAccessException e) {
+            DataAccessException.Failure failure = e.getFailure();
+            if (failure == DataAccessException.Failure.UNAVAILABLE || failure == DataAccessException.Failure.TIMEOUT) {
+                circuitBreaker.onFailure();
+            } else if (failure != DataAccessException.Failure.CIRCUIT_OPEN) {
+                circuitBreaker.onSuccess();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onSuccess();
+            throw e;
+        } finally {
+            if (bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * Gets the circuit breaker of the database.
+     *
+     * @return Circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Gets the bulkhead of a kind of traffic.
+     *
+     * @param trafficClass Kind of traffic
+     *
+     * @return Bulkhead, or null if the traffic is not bounded
+     */
+    public Bulkhead getBulkhead(TrafficClass trafficClass) {
+        return bulkheads.get(trafficClass);
+    }
+}
@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem.resilience;
+
+import com.parkit.parkingsystem.constants.RollupGranularity;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.RollupDAO;
+import com.parkit.parkingsystem.model.Rollup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Runs the rollup queries in the reporting bulkhead, away from the connections of the gates.
+ *
+ * @see com.parkit.parkingsystem.resilience.DataAccessGuard
+ */
+public class GuardedRollupDAO implements RollupDAO {
+
+    private final RollupDAO       rollupDAO;
+    private final DataAccessGuard dataAccessGuard;
+
+    /**
+     * Constructor for GuardedRollupDAO.
+     *
+     * @param rollupDAO       Rollup DAO to guard
+     * @param dataAccessGuard Guard of the database
+     */
+    public GuardedRollupDAO(RollupDAO rollupDAO, DataAccessGuard dataAccessGuard) {
+        this.rollupDAO = rollupDAO;
+        this.dataAccessGuard = dataAccessGuard;
+    }
+
+    @Override
+    public List<Rollup> getRollups(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        return dataAccessGuard.call(TrafficClass.REPORTING, () -> rollupDAO.getRollups(granularity, from, to));
+    }
+
+    @Override
+    public int backfill(LocalDate from, LocalDate to) {
+        return dataAccessGuard.call(TrafficClass.REPORTING, () -> rollupDAO.backfill(from, to));
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Progress, then outcome, of the closure of a lot.
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#closeLot(com.parkit.parkingsystem.constants.ParkingType, int)
+ */
+public class ClosureReport {
+
+    private final int        openTickets;
+    private final int        closedTickets;
+    private final BigDecimal revenue;
+    private final Duration   duration;
+
+    ClosureReport(int openTickets, int closedTickets, BigDecimal revenue, Duration duration) {
+        this.openTickets = openTickets;
+        this.closedTickets = closedTickets;
+        this.revenue = revenue;
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the number of tickets open when the closure started.
+     *
+     * @return Open tickets
+     */
+    public int getOpenTickets() {
+        return openTickets;
+    }
+
+    /**
+     * Gets the number of tickets closed so far. Tickets closed meanwhile by an exit are not counted.
+     *
+     * @return Closed tickets
+     */
+    public int getClosedTickets() {
+        return closedTickets;
+    }
+
+    /**
+     * Gets the fares of the tickets closed so far.
+     *
+     * @return Revenue
+     */
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Gets the time the closure took so far.
+     *
+     * @return Duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Gets the throughput of the closure.
+     *
+     * @return Tickets closed per second
+     */
+    public double getTicketsPerSecond() {
+        return closedTickets * 1e9 / Math.max(1, duration.toNanos());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Closed %d of %d tickets (revenue %s) in %d ms, %.0f tickets/s", closedTickets, openTickets, revenue, duration.toMillis(),
+                             getTicketsPerSecond());
+    }
+}
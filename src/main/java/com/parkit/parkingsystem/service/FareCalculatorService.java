@@ -31,7 +31,7 @@ public class FareCalculatorService {
      */
     public void calculateFare(Ticket ticket) {
         final double hourInSecond              = 3600.0;
-        final double maxDurationForFreeParking = 0.5;
+        final double maxDurationForFreeParking = Fare.FREE_PARKING_MINUTES / 60.0;
 
         if ((ticket.getOutTime() == null) || (ticket.getOutTime().isBefore(ticket.getInTime()))) {
             throw new IllegalArgumentException("Out time provided is incorrect:" + ticket.getOutTime().toString());
@@ -1,7 +1,7 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.matching.PlateMatchIndex;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,9 +38,16 @@ public class InteractiveShell {
 
         boolean         continueApp     = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO  parkingSpotDAO  = new ParkingSpotDAO();
-        TicketDAO       ticketDAO       = new TicketDAO();
-        ParkingService  parkingService  = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        StorageConfig   storageConfig   = StorageConfig.load();
+        ParkingService  parkingService  = new ParkingService(inputReaderUtil, storageConfig.getParkingSpotDAO(), storageConfig.getTicketDAO());
+        parkingService.setLotId(storageConfig.getLotId());
+        parkingService.setPlateHistory(storageConfig.getPlateHistory());
+        PlateMatchIndex plateMatchIndex = new PlateMatchIndex(PlateMatchIndex.DEFAULT_MAX_DISTANCE);
+        plateMatchIndex.addAll(storageConfig.getTicketDAO().getOpenTickets());
+        parkingService.setPlateMatchIndex(plateMatchIndex);
+        parkingService.setCorrectMisreads(storageConfig.isCorrectMisreads());
+        parkingService.setDataAccessGuard(storageConfig.getDataAccessGuard());
+        parkingService.setSpotHolds(storageConfig.getSpotHolds());
 
         while (continueApp) {
             loadMenu();
@@ -54,6 +61,7 @@ public class InteractiveShell {
                     break;
                 case 3:
                     System.out.println("Exiting from the system!");
+                    storageConfig.close();
                     continueApp = false;
                     break;
                 default:
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * <b> Notified by the parking service of every vehicle entering or leaving the lot.</b>
+ * <br>
+ * Listeners are called on the thread processing the vehicle, once its ticket is saved: they must return quickly and not throw.
+ *
+ * @see com.parkit.parkingsystem.service.ParkingService#addParkingListener(ParkingListener)
+ */
+public interface ParkingListener {
+
+    /**
+     * Called when a vehicle was given a spot.
+     *
+     * @param ticket Saved ticket of the vehicle
+     */
+    void vehicleEntered(Ticket ticket);
+
+    /**
+     * Called when a vehicle left and its spot was freed.
+     *
+     * @param ticket Closed ticket of the vehicle
+     */
+    void vehicleExited(Ticket ticket);
+}
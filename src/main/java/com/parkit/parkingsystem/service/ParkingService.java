@@ -1,16 +1,43 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.allocation.LeasedSpotPool;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.allocation.SpotHolds;
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.constants.GateAction;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.AsyncParkingSpotDAO;
+import com.parkit.parkingsystem.dao.AsyncTicketDAO;
+import com.parkit.parkingsystem.dao.DataAccessException;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.PlateHistory;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.idempotency.CommandDeduplicator;
+import com.parkit.parkingsystem.matching.PlateMatch;
+import com.parkit.parkingsystem.matching.PlateMatchIndex;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.reservation.ReservationBook;
+import com.parkit.parkingsystem.pricing.FareQuote;
+import com.parkit.parkingsystem.pricing.FareQuotes;
+import com.parkit.parkingsystem.resilience.DataAccessGuard;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * <b> Service to manage incoming or exiting vehicle.</b>
@@ -26,11 +53,33 @@ public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final int MAX_CLAIM_ATTEMPTS   = 10;
+    // Proposals of the allocator lost in a row before the lowest free spot of the storage is claimed instead
+    private static final int MAX_ALLOCATOR_MISSES = 3;
+    private static final int MAX_UPDATE_ATTEMPTS  = 3;
+    private static final int MAX_EXIT_CANDIDATES  = 5;
 
-    private final InputReaderUtil inputReaderUtil;
-    private final ParkingSpotDAO  parkingSpotDAO;
-    private final TicketDAO       ticketDAO;
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private final List<ParkingListener> parkingListeners      = new CopyOnWriteArrayList<>();
+
+    private final InputReaderUtil     inputReaderUtil;
+    private final ParkingSpotDAO      parkingSpotDAO;
+    private final TicketDAO           ticketDAO;
+    private final Clock               clock;
+    private       SpotAllocator       spotAllocator;
+    private       LeasedSpotPool      leasedSpotPool;
+    private       String              lotId;
+    private       PlateHistory        plateHistory;
+    private       ReservationBook     reservationBook;
+    private       PlateMatchIndex     plateMatchIndex;
+    private       boolean             correctMisreads;
+    private       CommandDeduplicator commandDeduplicator;
+    private       DataAccessGuard     dataAccessGuard;
+    private       Executor            asyncExecutor;
+    private       AsyncParkingSpotDAO asyncParkingSpotDAO;
+    private       AsyncTicketDAO      asyncTicketDAO;
+    private       SpotHolds           spotHolds;
+    private       FareQuotes          fareQuotes;
 
     /**
      * Constructor for ParkingService.
@@ -40,9 +89,166 @@ public class ParkingService {
      * @param ticketDAO       Get data from DB about saved tickets
      */
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for ParkingService with a specific time source.
+     *
+     * @param inputReaderUtil Util to read input from interactive shell
+     * @param parkingSpotDAO  Get data from DB about the parking spots
+     * @param ticketDAO       Get data from DB about saved tickets
+     * @param clock           Clock giving the entry and exit times, e.g. a simulated clock
+     */
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, Clock clock) {
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the allocator choosing the spots of the vehicles coming through the gates. Without allocator, the lowest free parking number is given.
+     * The allocator should be seeded with the free spots of the storage first, see {@link SpotAllocator#seed(ParkingSpotDAO)}.
+     *
+     * @param spotAllocator Allocator of the lot, or null
+     */
+    public void setSpotAllocator(SpotAllocator spotAllocator) {
+        this.spotAllocator = spotAllocator;
+    }
+
+    /**
+     * Sets the block of spots leased by this node, when several nodes share the lot. Spots are then given from the block, and the allocator is not used.
+     *
+     * @param leasedSpotPool Spots leased by this node, or null
+     */
+    public void setLeasedSpotPool(LeasedSpotPool leasedSpotPool) {
+        this.leasedSpotPool = leasedSpotPool;
+    }
+
+    /**
+     * Adds a listener notified of every vehicle entering or leaving, e.g. the counters of the display boards.
+     *
+     * @param parkingListener Listener
+     */
+    public void addParkingListener(ParkingListener parkingListener) {
+        parkingListeners.add(parkingListener);
+    }
+
+    /**
+     * Sets the lot served by this service, recorded in its tickets.
+     *
+     * @param lotId Lot ID, or null for a single lot installation
+     */
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
+    /**
+     * Sets the history of vehicles in every lot, so that a vehicle which came to another lot is recurring as well.
+     *
+     * @param plateHistory History of every lot, or null to only look at the tickets of this lot
+     */
+    public void setPlateHistory(PlateHistory plateHistory) {
+        this.plateHistory = plateHistory;
+    }
+
+    /**
+     * Sets the reservations of the lot. Vehicles with a reservation get a spot held for them, and walk-in vehicles are refused
+     * when the free spots are needed by reservations about to start.
+     *
+     * @param reservationBook Reservations, or null
+     */
+    public void setReservationBook(ReservationBook reservationBook) {
+        this.reservationBook = reservationBook;
+    }
+
+    /**
+     * Sets the index of the plates of the parked vehicles, looked up when a vehicle leaves without an open ticket.
+     * The closest plates are logged and given to the operator; with {@link #setCorrectMisreads(boolean)}, a vehicle whose plate was
+     * misread, e.g. with an O instead of a 0, leaves with the only ticket close enough.
+     * The index is kept up to date as a listener of this service.
+     *
+     * @param plateMatchIndex Index of the plates of the parked vehicles, or null
+     */
+    public void setPlateMatchIndex(PlateMatchIndex plateMatchIndex) {
+        this.plateMatchIndex = plateMatchIndex;
+        if (plateMatchIndex != null) {
+            addParkingListener(plateMatchIndex);
+        }
+    }
+
+    /**
+     * Sets whether a vehicle leaving without an open ticket leaves with the ticket of the only parked vehicle whose plate differs by
+     * characters often misread. Off by default: the ticket of another vehicle would be closed if the plate was not misread.
+     *
+     * @param correctMisreads True to correct misread plates
+     */
+    public void setCorrectMisreads(boolean correctMisreads) {
+        this.correctMisreads = correctMisreads;
+    }
+
+    /**
+     * Sets the deduplicator of the commands carrying a client request ID, so that a retried entry or exit returns the ticket of the
+     * first command instead of allocating a second spot or closing the ticket again.
+     *
+     * @param commandDeduplicator Deduplicator of the commands, or null to run every command
+     */
+    public void setCommandDeduplicator(CommandDeduplicator commandDeduplicator) {
+        this.commandDeduplicator = commandDeduplicator;
+    }
+
+    /**
+     * Sets the guard the entries and exits go through, each in its own bulkhead and behind the circuit breaker of the database.
+     *
+     * @param dataAccessGuard Guard of the database, or null to call it directly
+     */
+    public void setDataAccessGuard(DataAccessGuard dataAccessGuard) {
+        this.dataAccessGuard = dataAccessGuard;
+    }
+
+    /**
+     * Sets the holds taken on the spots of the vehicles entering through the interactive shell while their plate is typed.
+     *
+     * @param spotHolds Spot holds, or null to take the spot only once the plate is typed
+     */
+    public void setSpotHolds(SpotHolds spotHolds) {
+        this.spotHolds = spotHolds;
+    }
+
+    /**
+     * Sets the live fare quotes of the pay kiosks, and adds them to the listeners. A vehicle which paid its quote and leaves within the
+     * grace period is charged the amount paid. Without fare quotes, the payments recorded on the tickets are still credited, with no
+     * grace period.
+     *
+     * @param fareQuotes Fare quotes
+     */
+    public void setFareQuotes(FareQuotes fareQuotes) {
+        this.fareQuotes = fareQuotes;
+        addParkingListener(fareQuotes);
+    }
+
+    /**
+     * Sets the executor the storage is called on by the asynchronous entries and exits, which the blocking ones then wait for:
+     * the steps of an entry or an exit which do not depend on each other run at once.
+     *
+     * @param asyncExecutor Executor of the storage calls, or null to call the storage one step after the other on the caller thread
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.asyncParkingSpotDAO = (asyncExecutor == null) ? null : new AsyncParkingSpotDAO(parkingSpotDAO, asyncExecutor);
+        this.asyncTicketDAO = (asyncExecutor == null) ? null : new AsyncTicketDAO(ticketDAO, asyncExecutor);
+    }
+
+    /**
+     * Finds the parked vehicles a plate read at the exit may belong to, for the operator to choose from.
+     *
+     * @param vehicleRegNumber Plate read
+     *
+     * @return Closest plates of parked vehicles first, empty without plate index
+     */
+    public List<PlateMatch> findExitCandidates(String vehicleRegNumber) {
+        return (plateMatchIndex == null) ? Collections.emptyList() : plateMatchIndex.findCandidates(vehicleRegNumber, MAX_EXIT_CANDIDATES);
     }
 
     /**
@@ -60,24 +266,53 @@ public class ParkingService {
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             // parkingSpot.getId() could never be <=0 due to the fact that if parkingSpot is not null, it would mean the parkingNumber is never reassigned
             if (parkingSpot != null) {
-                String vehicleRegNumber = getVehicleRegNumber();
+                SpotHolds.Hold hold = null;
+                if (spotHolds != null) {
+                    // The spot is held while the plate is typed, so that no other gate gives it and an abandoned entry does not keep it
+                    hold = spotHolds.hold(parkingSpot);
+                    if (hold == null) {
+                        System.out.println("No parking spot is free anymore for this type of vehicle");
+                        return;
+                    }
+                    parkingSpot = hold.getParkingSpot();
+                }
+                String vehicleRegNumber;
+                try {
+                    vehicleRegNumber = getVehicleRegNumber();
+                } catch (Exception e) {
+                    if (hold != null) {
+                        spotHolds.release(hold);
+                    }
+                    throw e;
+                }
                 parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot); //allot this parking space and mark its availability as false
-
-                LocalDateTime inTime = LocalDateTime.now();
-                Ticket        ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                checkIfRecurring(ticket);
-                ticket.setPrice(BigDecimal.valueOf(0));
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                if (hold == null) {
+                    // The spot found may have been taken by a gate meanwhile: it is claimed atomically, or else the next free one
+                    int parkingNumber = claimFreeSpot(parkingSpot.getParkingType(), SpotRequest.ANY);
+                    if (parkingNumber <= 0) {
+                        System.out.println("No parking spot is free anymore for this type of vehicle");
+                        return;
+                    }
+                    parkingSpot = new ParkingSpot(parkingNumber, parkingSpot.getParkingType(), false);
+                } else if (!spotHolds.confirm(hold)) {
+                    System.out.println("Parking spot " + parkingSpot.getId() + " was held too long and given back, please enter the vehicle again");
+                    return;
+                }
+
+                Ticket ticket;
+                try {
+                    ticket = saveNewTicket(parkingSpot, vehicleRegNumber);
+                } catch (DataAccessException e) {
+                    // The hold is confirmed and can no longer expire: the spot is given back as at the gates, not kept without a ticket
+                    releaseSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), true));
+                    throw e;
+                }
+                if (ticket.isRecurring()) {
+                    System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount");
+                }
                 System.out.println("Generated Ticket and saved in DB");
                 System.out.println("Please park your vehicle in spot number:" + parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + inTime);
+                System.out.println("Recorded in-time for vehicle number:" + vehicleRegNumber + " is:" + ticket.getInTime());
             }
         } catch (Exception e) {
             logger.error("Unable to process incoming vehicle", e);
@@ -85,6 +320,247 @@ public class ParkingService {
         }
     }
 
+    /**
+     * Process incoming vehicle whose type and registration number are already known.
+     * <p>
+     * Used by automated gates (e.g. licence plate recognition cameras) which do not go through the interactive shell.
+     * </p>
+     *
+     * @param parkingType      Type of the incoming vehicle
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The saved ticket, or null if no parking spot is available for this type of vehicle
+     */
+    public Ticket processIncomingVehicle(ParkingType parkingType, String vehicleRegNumber) {
+        return processIncomingVehicle(parkingType, vehicleRegNumber, SpotRequest.ANY);
+    }
+
+    /**
+     * Process incoming vehicle whose type and registration number are already known, at a given gate.
+     * <p>
+     * The spot is chosen by the spot allocator if one is set, e.g. the nearest free spot to the gate.
+     * </p>
+     *
+     * @param parkingType      Type of the incoming vehicle
+     * @param vehicleRegNumber Vehicle registration number
+     * @param request          Gate the vehicle came through and whether it wants a charger
+     *
+     * @return The saved ticket, or null if no parking spot is available for this type of vehicle
+     *
+     * @throws DataAccessException if the storage failed or is suspended, in which case no spot is kept for the vehicle
+     */
+    public Ticket processIncomingVehicle(ParkingType parkingType, String vehicleRegNumber, SpotRequest request) {
+        if (dataAccessGuard == null) {
+            return enter(parkingType, vehicleRegNumber, request);
+        }
+        return dataAccessGuard.call(TrafficClass.ENTRY, () -> enter(parkingType, vehicleRegNumber, request));
+    }
+
+    private Ticket enter(ParkingType parkingType, String vehicleRegNumber, SpotRequest request) {
+        if (asyncExecutor != null) {
+            return join(processIncomingVehicleAsync(parkingType, vehicleRegNumber, request));
+        }
+        int parkingNumber = claimSpot(parkingType, vehicleRegNumber, request);
+        if (parkingNumber <= 0) {
+            return null;
+        }
+        try {
+            return saveNewTicket(new ParkingSpot(parkingNumber, parkingType, false), vehicleRegNumber);
+        } catch (DataAccessException e) {
+            releaseSpot(new ParkingSpot(parkingNumber, parkingType, true));
+            unconfirmReservation(vehicleRegNumber);
+            throw e;
+        }
+    }
+
+    /**
+     * Process incoming vehicle at a given gate without blocking the caller.
+     * <p>
+     * The history of the vehicle, which decides the recurring user discount, is looked up while its spot is claimed; the ticket is
+     * saved once both are known. The storage is called on the executor set with {@link #setAsyncExecutor(Executor)}, and the
+     * data access guard is not applied: the executor bounds the concurrent calls.
+     * </p>
+     *
+     * @param parkingType      Type of the incoming vehicle
+     * @param vehicleRegNumber Vehicle registration number
+     * @param request          Gate the vehicle came through and whether it wants a charger
+     *
+     * @return The saved ticket, or null if no parking spot is available; completed exceptionally with a {@link DataAccessException}
+     * if the storage failed, in which case no spot is kept for the vehicle
+     *
+     * @throws IllegalStateException if no executor is set
+     */
+    public CompletableFuture<Ticket> processIncomingVehicleAsync(ParkingType parkingType, String vehicleRegNumber, SpotRequest request) {
+        checkAsync();
+        CompletableFuture<Boolean> recurring = isRecurringAsync(vehicleRegNumber);
+        CompletableFuture<Integer> claimed   = CompletableFuture.supplyAsync(() -> claimSpot(parkingType, vehicleRegNumber, request), asyncExecutor);
+        return claimed.thenCompose(parkingNumber -> {
+            if (parkingNumber <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return recurring.thenCompose(isRecurring -> asyncTicketDAO.saveTicket(newTicket(new ParkingSpot(parkingNumber, parkingType, false), vehicleRegNumber, isRecurring)))
+                            .whenComplete((ticket, e) -> {
+                                if (e == null) {
+                                    vehicleEntered(ticket);
+                                } else {
+                                    releaseSpot(new ParkingSpot(parkingNumber, parkingType, true));
+                                    unconfirmReservation(vehicleRegNumber);
+                                }
+                            });
+        });
+    }
+
+    /**
+     * Claims a spot for an incoming vehicle. The reservation of the vehicle, if any, is confirmed while the spot is claimed and booked
+     * again if no spot could be claimed.
+     *
+     * @return Parking number claimed, or 0 if no spot is available for the vehicle
+     */
+    private int claimSpot(ParkingType parkingType, String vehicleRegNumber, SpotRequest request) {
+        Reservation reservation = (reservationBook != null) ? reservationBook.confirm(parkingType, vehicleRegNumber) : null;
+        if (reservation == null && !hasRoomForWalkIn(parkingType, 0)) {
+            logger.error("Free spots of type {} are held for reservations", parkingType);
+            return 0;
+        }
+        int parkingNumber;
+        try {
+            parkingNumber = claimFreeSpot(parkingType, request);
+        } catch (RuntimeException e) {
+            if (reservation != null) {
+                unconfirmReservation(vehicleRegNumber);
+            }
+            throw e;
+        }
+        if (parkingNumber <= 0) {
+            if (reservation != null) {
+                unconfirmReservation(vehicleRegNumber);
+            }
+            return 0;
+        }
+        if (reservation != null) {
+            reservation.setParkingNumber(parkingNumber);
+        } else if (!hasRoomForWalkIn(parkingType, 1)) {
+            // Walk-in vehicles entering at once may all have found room: those which left too few spots for the reservations give theirs back
+            releaseSpot(new ParkingSpot(parkingNumber, parkingType, true));
+            logger.error("Free spots of type {} are held for reservations", parkingType);
+            return 0;
+        }
+        return parkingNumber;
+    }
+
+    private int claimFreeSpot(ParkingType parkingType, SpotRequest request) {
+        // Several gates may find the same free spot: the spot is claimed atomically, and a gate losing the race looks for the next one
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            int parkingNumber = getNextSpot(parkingType, request, attempt < MAX_ALLOCATOR_MISSES);
+            if (parkingNumber <= 0) {
+                logger.error("No parking spot available for type {}", parkingType);
+                return 0;
+            }
+            boolean claimed = (leasedSpotPool != null) ? leasedSpotPool.claim(parkingNumber) : parkingSpotDAO.claimParking(parkingNumber, parkingType);
+            if (claimed) {
+                return parkingNumber;
+            }
+        }
+        logger.error("Unable to allot a parking spot of type {} after {} attempts", parkingType, MAX_CLAIM_ATTEMPTS);
+        return 0;
+    }
+
+    private void unconfirmReservation(String vehicleRegNumber) {
+        if (reservationBook != null) {
+            reservationBook.unconfirm(vehicleRegNumber);
+        }
+    }
+
+    /**
+     * Process incoming vehicle at a given gate, once per client request ID.
+     * <p>
+     * A retry of the command with the same request ID returns the ticket saved by the first one, if a command deduplicator is set.
+     * </p>
+     *
+     * @param requestId        Client request ID, or null if the client does not retry
+     * @param parkingType      Type of the incoming vehicle
+     * @param vehicleRegNumber Vehicle registration number
+     * @param request          Gate the vehicle came through and whether it wants a charger
+     *
+     * @return The saved ticket, or null if no parking spot is available for this type of vehicle
+     */
+    public Ticket processIncomingVehicle(String requestId, ParkingType parkingType, String vehicleRegNumber, SpotRequest request) {
+        if (commandDeduplicator == null) {
+            return processIncomingVehicle(parkingType, vehicleRegNumber, request);
+        }
+        return commandDeduplicator.execute(requestId, GateAction.ENTRY, () -> processIncomingVehicle(parkingType, vehicleRegNumber, request));
+    }
+
+    private void releaseSpot(ParkingSpot parkingSpot) {
+        try {
+            parkingSpotDAO.updateParking(parkingSpot);
+            if (spotAllocator != null) {
+                spotAllocator.setAvailable(parkingSpot.getId(), true);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Unable to release parking spot {} of an unsaved ticket", parkingSpot.getId(), e);
+        }
+    }
+
+    /**
+     * Checks that a walk-in vehicle leaves enough free spots for the reservations about to start.
+     *
+     * @param claimedSpots 1 once the spot of the vehicle is claimed, and no longer counted as free; 0 before
+     */
+    private boolean hasRoomForWalkIn(ParkingType parkingType, int claimedSpots) {
+        if (reservationBook == null) {
+            return true;
+        }
+        int imminent = reservationBook.countImminent(parkingType);
+        return imminent == 0 || parkingSpotDAO.countAvailableSlots(parkingType) + claimedSpots > imminent;
+    }
+
+    private int getNextSpot(ParkingType parkingType, SpotRequest request, boolean fromAllocator) {
+        if (leasedSpotPool != null) {
+            return leasedSpotPool.allocate(parkingType);
+        }
+        // An allocator whose proposals keep losing is out of step with the storage, e.g. spots taken by another node
+        if (spotAllocator != null && fromAllocator) {
+            int parkingNumber = spotAllocator.allocate(parkingType, request);
+            if (parkingNumber > 0) {
+                return parkingNumber;
+            }
+        }
+        // The storage is the reference: it may still have free spots the allocator does not know about
+        int parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+        if (spotAllocator != null && parkingNumber > 0) {
+            spotAllocator.setAvailable(parkingNumber, false);
+        }
+        return parkingNumber;
+    }
+
+    private Ticket saveNewTicket(ParkingSpot parkingSpot, String vehicleRegNumber) {
+        Ticket ticket = newTicket(parkingSpot, vehicleRegNumber, isRecurring(vehicleRegNumber));
+        ticketDAO.saveTicket(ticket);
+        vehicleEntered(ticket);
+        return ticket;
+    }
+
+    private Ticket newTicket(ParkingSpot parkingSpot, String vehicleRegNumber, boolean recurring) {
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        parkingSpot.setLotId(lotId);
+        ticket.setLotId(lotId);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setRecurring(recurring);
+        ticket.setPrice(BigDecimal.valueOf(0));
+        ticket.setInTime(LocalDateTime.now(clock));
+        ticket.setOutTime(null);
+        return ticket;
+    }
+
+    private void vehicleEntered(Ticket ticket) {
+        for (ParkingListener parkingListener : parkingListeners) {
+            parkingListener.vehicleEntered(ticket);
+        }
+    }
+
     private String getVehicleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -100,7 +576,7 @@ public class ParkingService {
         ParkingSpot parkingSpot = null;
         try {
             ParkingType parkingType = getVehicleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingNumber = hasRoomForWalkIn(parkingType, 0) ? parkingSpotDAO.getNextAvailableSlot(parkingType) : 0;
             if (parkingNumber > 0) {
                 parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
             } else {
@@ -138,25 +614,325 @@ public class ParkingService {
      */
     public void processExitingVehicle() {
         try {
-            String        vehicleRegNumber = getVehicleRegNumber();
-            Ticket        ticket           = ticketDAO.getTicket(vehicleRegNumber);
-            LocalDateTime outTime          = LocalDateTime.now();
-            ticket.setOutTime(outTime);
-            fareCalculatorService.calculateFare(ticket);
-            if (ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+            String vehicleRegNumber = getVehicleRegNumber();
+            Ticket ticket           = processExitingVehicle(vehicleRegNumber);
+            if (ticket != null) {
+                System.out.println("Please pay the parking fare:" + ticket.getDueAmount());
+                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
             } else {
                 System.out.println("Unable to update ticket information. Error occurred");
+                List<PlateMatch> candidates = findExitCandidates(vehicleRegNumber);
+                if (!candidates.isEmpty()) {
+                    System.out.println("Parked vehicles with a close registration number:" + candidates);
+                }
             }
         } catch (Exception e) {
             logger.error("Unable to process exiting vehicle", e);
         }
     }
 
+    /**
+     * Process exiting vehicle whose registration number is already known.
+     * <p>
+     * The fare is computed and saved in the vehicle's open ticket, then its parking spot is released.
+     * If the vehicle has no open ticket and a plate index is set, the closest parked plates are logged; if misreads are corrected,
+     * the ticket of the only parked vehicle whose plate differs by characters often misread is closed instead.
+     * </p>
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The closed ticket, or null if the vehicle has no open ticket or the ticket was closed meanwhile
+     *
+     * @throws DataAccessException if the storage failed or is suspended before the ticket was closed
+     */
+    public Ticket processExitingVehicle(String vehicleRegNumber) {
+        if (dataAccessGuard == null) {
+            return exit(vehicleRegNumber);
+        }
+        return dataAccessGuard.call(TrafficClass.EXIT, () -> exit(vehicleRegNumber));
+    }
+
+    private Ticket exit(String vehicleRegNumber) {
+        if (asyncExecutor != null) {
+            return join(processExitingVehicleAsync(vehicleRegNumber));
+        }
+        String exitingRegNumber = vehicleRegNumber;
+        Ticket ticket           = ticketDAO.getTicket(exitingRegNumber);
+        String misread          = isOpen(ticket) ? null : findMisread(vehicleRegNumber);
+        if (misread != null) {
+            exitingRegNumber = misread;
+            ticket = ticketDAO.getTicket(exitingRegNumber);
+        }
+        if (!isOpen(ticket)) {
+            logger.error("No open ticket found for vehicle number {}, close to {}", vehicleRegNumber, findExitCandidates(vehicleRegNumber));
+            return null;
+        }
+        ticket = closeTicket(ticket, exitingRegNumber);
+        if (ticket == null) {
+            return null;
+        }
+        if (releaseExitedSpot(ticket.getParkingSpot())) {
+            vehicleExited(ticket);
+        }
+        if (reservationBook != null) {
+            reservationBook.checkOut(exitingRegNumber);
+        }
+        return ticket;
+    }
+
+    /**
+     * Process exiting vehicle without blocking the caller.
+     * <p>
+     * Once the ticket is closed, its spot is released while the reservation of the vehicle, if any, is checked out. The storage is
+     * called on the executor set with {@link #setAsyncExecutor(Executor)}, and the data access guard is not applied.
+     * </p>
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The closed ticket, or null if the vehicle has no open ticket or the ticket was closed meanwhile; completed exceptionally
+     * with a {@link DataAccessException} if the storage failed before the ticket was closed
+     *
+     * @throws IllegalStateException if no executor is set
+     */
+    public CompletableFuture<Ticket> processExitingVehicleAsync(String vehicleRegNumber) {
+        checkAsync();
+        return asyncTicketDAO.getTicket(vehicleRegNumber).thenCompose(ticket -> {
+            String misread = isOpen(ticket) ? null : findMisread(vehicleRegNumber);
+            if (misread == null) {
+                return exitAsync(ticket, vehicleRegNumber, vehicleRegNumber);
+            }
+            return asyncTicketDAO.getTicket(misread).thenCompose(misreadTicket -> exitAsync(misreadTicket, vehicleRegNumber, misread));
+        });
+    }
+
+    private CompletableFuture<Ticket> exitAsync(Ticket ticket, String vehicleRegNumber, String exitingRegNumber) {
+        if (!isOpen(ticket)) {
+            logger.error("No open ticket found for vehicle number {}, close to {}", vehicleRegNumber, findExitCandidates(vehicleRegNumber));
+            return CompletableFuture.completedFuture(null);
+        }
+        return closeTicketAsync(ticket, exitingRegNumber, 1).thenCompose(closed -> {
+            if (closed == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Boolean> released = CompletableFuture.supplyAsync(() -> releaseExitedSpot(closed.getParkingSpot()), asyncExecutor);
+            if (reservationBook != null) {
+                reservationBook.checkOut(exitingRegNumber);
+            }
+            return released.thenApply(done -> {
+                if (done) {
+                    vehicleExited(closed);
+                }
+                return closed;
+            });
+        });
+    }
+
+    /**
+     * Closes a ticket, charged again and retried if another writer updated it since it was read.
+     *
+     * @return The closed ticket, or null if it was closed meanwhile or kept being updated
+     */
+    private Ticket closeTicket(Ticket ticket, String vehicleRegNumber) {
+        for (int attempt = 1; ; attempt++) {
+            chargeExit(ticket);
+            if (ticketDAO.updateTicket(ticket)) {
+                return ticket;
+            }
+            Ticket current = ticketDAO.getTicket(vehicleRegNumber);
+            if (!retriesClose(ticket, current, attempt)) {
+                return null;
+            }
+            ticket = current;
+        }
+    }
+
+    private CompletableFuture<Ticket> closeTicketAsync(Ticket ticket, String vehicleRegNumber, int attempt) {
+        chargeExit(ticket);
+        return asyncTicketDAO.updateTicket(ticket).thenCompose(updated -> {
+            if (updated) {
+                return CompletableFuture.completedFuture(ticket);
+            }
+            return asyncTicketDAO.getTicket(vehicleRegNumber).thenCompose(current -> retriesClose(ticket, current, attempt)
+                                                                                 ? closeTicketAsync(current, vehicleRegNumber, attempt + 1)
+                                                                                 : CompletableFuture.completedFuture(null));
+        });
+    }
+
+    private static boolean retriesClose(Ticket ticket, Ticket current, int attempt) {
+        if (isOpen(current) && current.getId() == ticket.getId() && attempt < MAX_UPDATE_ATTEMPTS) {
+            logger.warn("Ticket {} was updated since it was read, closing it again", ticket.getId());
+            return true;
+        }
+        logger.error("Unable to update ticket {}", ticket.getId());
+        return false;
+    }
+
+    private static boolean isOpen(Ticket ticket) {
+        return ticket != null && ticket.getOutTime() == null;
+    }
+
+    private String findMisread(String vehicleRegNumber) {
+        PlateMatch misread = (plateMatchIndex == null || !correctMisreads) ? null : plateMatchIndex.findMisread(vehicleRegNumber);
+        if (misread == null) {
+            return null;
+        }
+        logger.warn("No open ticket found for vehicle number {}, taken for {}", vehicleRegNumber, misread);
+        return misread.getVehicleRegNumber();
+    }
+
+    private void chargeExit(Ticket ticket) {
+        ticket.setLotId(lotId);
+        ticket.getParkingSpot().setLotId(lotId);
+        ticket.setOutTime(LocalDateTime.now(clock));
+        BigDecimal paid = (fareQuotes == null) ? null : fareQuotes.getPaidFare(ticket, ticket.getOutTime());
+        if (paid != null) {
+            ticket.setPrice(paid);
+        } else {
+            fareCalculatorService.calculateFare(ticket);
+        }
+        ticket.getParkingSpot().setAvailable(true);
+    }
+
+    private void vehicleExited(Ticket ticket) {
+        if (spotAllocator != null) {
+            spotAllocator.setAvailable(ticket.getParkingSpot().getId(), true);
+        }
+        for (ParkingListener parkingListener : parkingListeners) {
+            parkingListener.vehicleExited(ticket);
+        }
+    }
+
+    private boolean releaseExitedSpot(ParkingSpot parkingSpot) {
+        // The ticket is closed already: the vehicle leaves even if its spot stays taken
+        try {
+            return updateSpot(parkingSpot);
+        } catch (DataAccessException e) {
+            logger.error("Unable to release parking spot {}", parkingSpot.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Updates the availability of a spot, retried with the latest version of the spot if another writer updated it since it was read.
+     *
+     * @return true if the spot was updated, false if it does not exist, already had this availability or kept being updated
+     */
+    private boolean updateSpot(ParkingSpot parkingSpot) {
+        for (int attempt = 1; ; attempt++) {
+            if (parkingSpotDAO.updateParking(parkingSpot)) {
+                return true;
+            }
+            ParkingSpot current = (parkingSpot.getVersion() == 0) ? null : parkingSpotDAO.getParkingSpot(parkingSpot.getId());
+            if (current == null || current.isAvailable() == parkingSpot.isAvailable() || attempt == MAX_UPDATE_ATTEMPTS) {
+                logger.error("Unable to update parking spot {}", parkingSpot.getId());
+                return false;
+            }
+            logger.warn("Parking spot {} was updated since it was read, updating it again", parkingSpot.getId());
+            parkingSpot.setVersion(current.getVersion());
+        }
+    }
+
+    /**
+     * Closes the tickets of every vehicle of a type still parked, e.g. at the end of the day or to evacuate the lot.
+     * <p>
+     * The open tickets are read in one query and priced in parallel, as at their exit, then closed with their spots freed by chunks,
+     * each written at once in a transaction of its own, so that the rows are not locked for the whole closure. Progress is logged
+     * after every chunk. Tickets closed meanwhile by an exit are left out. The data access guard is not applied.
+     * </p>
+     *
+     * @param parkingType Parking type, or null for every vehicle
+     * @param chunkSize   Tickets closed per transaction
+     *
+     * @return Report of the closure
+     *
+     * @throws DataAccessException if the storage failed; the chunks written before are closed
+     */
+    public ClosureReport closeLot(ParkingType parkingType, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        long         start   = System.nanoTime();
+        List<Ticket> tickets = (parkingType == null) ? ticketDAO.getOpenTickets() : ticketDAO.getOpenTickets(parkingType);
+        tickets.parallelStream().forEach(this::chargeExit);
+        int        closed  = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (int from = 0; from < tickets.size(); from += chunkSize) {
+            for (Ticket ticket : ticketDAO.closeTickets(tickets.subList(from, Math.min(from + chunkSize, tickets.size())))) {
+                vehicleExited(ticket);
+                if (reservationBook != null) {
+                    reservationBook.checkOut(ticket.getVehicleRegNumber());
+                }
+                closed++;
+                revenue = revenue.add(ticket.getPrice());
+            }
+            logger.info("{}", new ClosureReport(tickets.size(), closed, revenue, Duration.ofNanos(System.nanoTime() - start)));
+        }
+        return new ClosureReport(tickets.size(), closed, revenue, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Process exiting vehicle, once per client request ID.
+     * <p>
+     * A retry of the command with the same request ID returns the ticket closed by the first one, with the same fare, if a command
+     * deduplicator is set.
+     * </p>
+     *
+     * @param requestId        Client request ID, or null if the client does not retry
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return The closed ticket, or null if the vehicle has no open ticket or the ticket could not be updated
+     */
+    public Ticket processExitingVehicle(String requestId, String vehicleRegNumber) {
+        if (commandDeduplicator == null) {
+            return processExitingVehicle(vehicleRegNumber);
+        }
+        return commandDeduplicator.execute(requestId, GateAction.EXIT, () -> processExitingVehicle(vehicleRegNumber));
+    }
+
+    /**
+     * Quotes the fare due now by a parked vehicle, without reading the storage.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Quote, or null if the vehicle is not parked or no fare quotes are set
+     */
+    public FareQuote quoteFare(String vehicleRegNumber) {
+        return (fareQuotes == null) ? null : fareQuotes.quote(vehicleRegNumber);
+    }
+
+    /**
+     * Records the payment of the fare due now by a parked vehicle on its ticket, credited at its exit.
+     *
+     * @param vehicleRegNumber Vehicle registration number
+     *
+     * @return Paid quote, or null if the vehicle is not parked or no fare quotes are set
+     *
+     * @throws DataAccessException if the payment can not be recorded
+     */
+    public FareQuote payFare(String vehicleRegNumber) {
+        return (fareQuotes == null) ? null : fareQuotes.pay(vehicleRegNumber);
+    }
+
+    /**
+     * Reserves a spot of a type for a vehicle, e.g. from a kiosk. A retried request for the same window gets the same reservation.
+     *
+     * @param parkingType      Type of the vehicle
+     * @param vehicleRegNumber Registration number of the vehicle
+     * @param start            Start of the window
+     * @param end              End of the window
+     *
+     * @return The reservation, or null if every spot of the type is reserved during part of the window
+     *
+     * @throws IllegalArgumentException if the window is empty, over, or too far ahead
+     * @throws IllegalStateException    if no reservation book is set
+     */
+    public Reservation reserveSpot(ParkingType parkingType, String vehicleRegNumber, LocalDateTime start, LocalDateTime end) {
+        if (reservationBook == null) {
+            throw new IllegalStateException("Reservations are not taken");
+        }
+        return reservationBook.reserve(parkingType, vehicleRegNumber, start, end);
+    }
+
     /**
      * Checks if the vehicle is recurring.
      * <br><br>
@@ -165,10 +941,37 @@ public class ParkingService {
      *
      */
     public void checkIfRecurring(Ticket ticket) {
-        if (ticketDAO.getTicket(ticket.getVehicleRegNumber()) != null) {
+        if (isRecurring(ticket.getVehicleRegNumber())) {
             // The vehicle must have entered and exited the parking at least once
             ticket.setRecurring(true);
-            System.out.println("Welcome back! As a recurring user of our parking lot, you'll benefit from a 5% discount");
+        }
+    }
+
+    private boolean isRecurring(String vehicleRegNumber) {
+        return (plateHistory != null) ? plateHistory.hasVisited(vehicleRegNumber) : ticketDAO.getTicket(vehicleRegNumber) != null;
+    }
+
+    private CompletableFuture<Boolean> isRecurringAsync(String vehicleRegNumber) {
+        if (plateHistory != null) {
+            return CompletableFuture.supplyAsync(() -> plateHistory.hasVisited(vehicleRegNumber), asyncExecutor);
+        }
+        return asyncTicketDAO.getTicket(vehicleRegNumber).thenApply(Objects::nonNull);
+    }
+
+    private void checkAsync() {
+        if (asyncExecutor == null) {
+            throw new IllegalStateException("No executor set for the asynchronous calls");
+        }
+    }
+
+    private static Ticket join(CompletableFuture<Ticket> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 }
@@ -0,0 +1,64 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.util.Random;
+
+/**
+ * Random distribution of a duration, in minutes, used for inter-arrival times and parking durations.
+ */
+public interface Distribution {
+
+    /**
+     * Draws a value.
+     *
+     * @param random Random generator of the simulation
+     *
+     * @return Value in minutes
+     */
+    double sample(Random random);
+
+    /**
+     * Always the same value.
+     *
+     * @param minutes Value in minutes
+     *
+     * @return Constant distribution
+     */
+    static Distribution constant(double minutes) {
+        return random -> minutes;
+    }
+
+    /**
+     * Uniform distribution between two bounds.
+     *
+     * @param minMinutes Lower bound in minutes
+     * @param maxMinutes Upper bound in minutes
+     *
+     * @return Uniform distribution
+     */
+    static Distribution uniform(double minMinutes, double maxMinutes) {
+        return random -> minMinutes + random.nextDouble() * (maxMinutes - minMinutes);
+    }
+
+    /**
+     * Exponential distribution, i.e. the inter-arrival time of a Poisson process.
+     *
+     * @param meanMinutes Mean value in minutes
+     *
+     * @return Exponential distribution
+     */
+    static Distribution exponential(double meanMinutes) {
+        return random -> -meanMinutes * Math.log(1.0 - random.nextDouble());
+    }
+
+    /**
+     * Log-normal distribution, commonly used for parking durations (many short stays, a long tail of long ones).
+     *
+     * @param medianMinutes Median value in minutes
+     * @param sigma         Standard deviation of the underlying normal distribution
+     *
+     * @return Log-normal distribution
+     */
+    static Distribution logNormal(double medianMinutes, double sigma) {
+        return random -> medianMinutes * Math.exp(sigma * random.nextGaussian());
+    }
+}
@@ -0,0 +1,217 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * <b>Discrete-event simulation of the parking lot for capacity planning.</b>
+ * <p>
+ * Arrivals and departures are drawn from the distributions of a {@link SimulationConfig} and processed in virtual time order
+ * by a real {@link ParkingService}, so the allocation and fare code under test is the one used at the gates.
+ * The simulation clock jumps from one event to the next: a month of activity is simulated as fast as the DAOs can go.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.simulation.SimulationReport
+ */
+public class ParkingSimulator {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSimulator");
+
+    private static final double SECONDS_PER_MINUTE = 60.0;
+
+    private final SimulationConfig config;
+    private final SimulationClock  clock;
+    private final ParkingService   parkingService;
+    private final Random           random;
+
+    private final PriorityQueue<SimulationEvent> events       = new PriorityQueue<>(Comparator.comparing((SimulationEvent e) -> e.time).thenComparingLong(e -> e.sequence));
+    private final List<String>                   absentPlates = new ArrayList<>();
+    private final Map<ParkingType, TypeCounters> counters     = new EnumMap<>(ParkingType.class);
+    private       long                           sequence;
+    private       long                           plateSequence;
+    private       Instant                        lastEventTime;
+
+    /**
+     * Constructor for ParkingSimulator.
+     *
+     * @param config         Simulation parameters
+     * @param parkingSpotDAO DAO of the parking spots of the simulated lot
+     * @param ticketDAO      DAO of the tickets of the simulated lot
+     */
+    public ParkingSimulator(SimulationConfig config, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO) {
+        this.config = config;
+        this.clock = new SimulationClock(config.getStart().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        this.parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+        this.random = new Random(config.getSeed());
+    }
+
+    /**
+     * Runs the simulation until the configured duration has elapsed.
+     *
+     * @return Figures of the simulated period
+     */
+    public SimulationReport run() {
+        long    wallClockStart = System.nanoTime();
+        Instant start          = clock.instant();
+        Instant end            = start.plus(config.getDuration());
+        lastEventTime = start;
+
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (config.getInterArrivalTime(parkingType) != null) {
+                counters.put(parkingType, new TypeCounters());
+                scheduleNextArrival(parkingType, start);
+            }
+        }
+
+        SimulationEvent event;
+        while ((event = events.poll()) != null && event.time.isBefore(end)) {
+            advanceTo(event.time);
+            if (event.arrival) {
+                arrive(event);
+            } else {
+                depart(event);
+            }
+        }
+        advanceTo(end);
+
+        SimulationReport report       = new SimulationReport(config.getDuration(), Duration.ofNanos(System.nanoTime() - wallClockStart));
+        double           totalSeconds = config.getDuration().getSeconds();
+        counters.forEach((parkingType, c) -> report.put(parkingType, new SimulationReport.TypeReport(
+                c.arrivals, c.rejected, c.exits, c.failedExits, c.revenue, c.occupancySeconds / totalSeconds, c.peakOccupancy)));
+        return report;
+    }
+
+    private void arrive(SimulationEvent event) {
+        TypeCounters c = counters.get(event.parkingType);
+        c.arrivals++;
+        scheduleNextArrival(event.parkingType, event.time);
+
+        String vehicleRegNumber = nextPlate();
+        Ticket ticket           = parkingService.processIncomingVehicle(event.parkingType, vehicleRegNumber);
+        if (ticket == null) {
+            c.rejected++;
+            absentPlates.add(vehicleRegNumber);
+            return;
+        }
+        c.occupancy++;
+        c.peakOccupancy = Math.max(c.peakOccupancy, c.occupancy);
+        double minutes = config.getParkingDuration(event.parkingType).sample(random);
+        schedule(new SimulationEvent(event.time.plusSeconds(Math.max(1, Math.round(minutes * SECONDS_PER_MINUTE))), false, event.parkingType, vehicleRegNumber));
+    }
+
+    private void depart(SimulationEvent event) {
+        TypeCounters c = counters.get(event.parkingType);
+        c.occupancy--;
+        Ticket ticket = parkingService.processExitingVehicle(event.vehicleRegNumber);
+        if (ticket == null) {
+            c.failedExits++;
+            logger.error("Simulated exit of {} failed", event.vehicleRegNumber);
+        } else {
+            c.exits++;
+            c.revenue = c.revenue.add(ticket.getPrice());
+        }
+        absentPlates.add(event.vehicleRegNumber);
+    }
+
+    private String nextPlate() {
+        if (!absentPlates.isEmpty() && random.nextDouble() < config.getRecurringRate()) {
+            int    index = random.nextInt(absentPlates.size());
+            String plate = absentPlates.get(index);
+            absentPlates.set(index, absentPlates.get(absentPlates.size() - 1));
+            absentPlates.remove(absentPlates.size() - 1);
+            return plate;
+        }
+        return "SIM" + (++plateSequence);
+    }
+
+    private void scheduleNextArrival(ParkingType parkingType, Instant from) {
+        // The arrival rate follows the factor of the hour the previous arrival happened in; a null factor skips to the next hour
+        Instant time = from;
+        for (int hours = 0; hours < 24; hours++) {
+            double factor = config.getHourlyArrivalFactor(time.atOffset(ZoneOffset.UTC).getHour());
+            if (factor > 0) {
+                double minutes = config.getInterArrivalTime(parkingType).sample(random) / factor;
+                schedule(new SimulationEvent(time.plusSeconds(Math.max(1, Math.round(minutes * SECONDS_PER_MINUTE))), true, parkingType, null));
+                return;
+            }
+            time = time.atOffset(ZoneOffset.UTC).plusHours(1).withMinute(0).withSecond(0).toInstant();
+        }
+    }
+
+    private void schedule(SimulationEvent event) {
+        event.sequence = sequence++;
+        events.add(event);
+    }
+
+    private void advanceTo(Instant time) {
+        long elapsed = Duration.between(lastEventTime, time).getSeconds();
+        for (TypeCounters c : counters.values()) {
+            c.occupancySeconds += (double) c.occupancy * elapsed;
+        }
+        lastEventTime = time;
+        clock.advanceTo(time);
+    }
+
+    private static final class SimulationEvent {
+        private final Instant     time;
+        private final boolean     arrival;
+        private final ParkingType parkingType;
+        private final String      vehicleRegNumber;
+        private       long        sequence;
+
+        private SimulationEvent(Instant time, boolean arrival, ParkingType parkingType, String vehicleRegNumber) {
+            this.time = time;
+            this.arrival = arrival;
+            this.parkingType = parkingType;
+            this.vehicleRegNumber = vehicleRegNumber;
+        }
+    }
+
+    private static final class TypeCounters {
+        private long       arrivals;
+        private long       rejected;
+        private long       exits;
+        private long       failedExits;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private int        occupancy;
+        private int        peakOccupancy;
+        private double     occupancySeconds;
+    }
+
+    /**
+     * Simulates the default traffic on an in-memory lot and prints the report.
+     *
+     * @param args Optional number of days to simulate (30 by default) and parking spots of the lot (<code>CAR:1-40,BIKE:41-50</code> by default)
+     */
+    public static void main(String[] args) {
+        SimulationConfig config = new SimulationConfig();
+        if (args.length > 0) {
+            config.setDuration(Duration.ofDays(Long.parseLong(args[0])));
+        }
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots((args.length > 1) ? args[1] : "CAR:1-40,BIKE:41-50", storage);
+        SimulationReport report = new ParkingSimulator(config, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage)).run();
+        System.out.println(report);
+    }
+}
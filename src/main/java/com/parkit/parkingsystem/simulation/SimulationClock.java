@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock whose time only moves when the simulator advances it.
+ * <p>
+ * Given to {@link com.parkit.parkingsystem.service.ParkingService} so that entry and exit times follow the virtual time of the simulation.
+ * </p>
+ */
+public class SimulationClock extends Clock {
+
+    private final    ZoneId  zone;
+    private volatile Instant instant;
+
+    /**
+     * Constructor for SimulationClock.
+     *
+     * @param start Initial virtual time
+     * @param zone  Time zone of the simulated lot
+     */
+    public SimulationClock(Instant start, ZoneId zone) {
+        this.instant = start;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the virtual time forward.
+     *
+     * @param instant New virtual time, can not be before the current one
+     */
+    public void advanceTo(Instant instant) {
+        if (instant.isBefore(this.instant)) {
+            throw new IllegalArgumentException("Simulated time can not go backward: " + instant);
+        }
+        this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new SimulationClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
@@ -0,0 +1,179 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Parameters of a parking lot simulation.
+ * <p>
+ * Defaults describe a month of a small lot: a car every 6 minutes and a bike every 15 minutes on average,
+ * log-normal parking durations, and 30% of the arrivals being vehicles which already came.
+ * </p>
+ */
+public class SimulationConfig {
+    private LocalDateTime                  start                = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private Duration                       duration             = Duration.ofDays(30);
+    private Map<ParkingType, Distribution> interArrivalTimes    = new EnumMap<>(ParkingType.class);
+    private Map<ParkingType, Distribution> parkingDurations     = new EnumMap<>(ParkingType.class);
+    private double[]                       hourlyArrivalFactors = new double[24];
+    private double                         recurringRate        = 0.3;
+    private long                           seed                 = 42L;
+
+    /**
+     * Creates a configuration with default values.
+     */
+    public SimulationConfig() {
+        interArrivalTimes.put(ParkingType.CAR, Distribution.exponential(6));
+        interArrivalTimes.put(ParkingType.BIKE, Distribution.exponential(15));
+        parkingDurations.put(ParkingType.CAR, Distribution.logNormal(90, 0.8));
+        parkingDurations.put(ParkingType.BIKE, Distribution.logNormal(60, 0.8));
+        Arrays.fill(hourlyArrivalFactors, 1.0);
+    }
+
+    /**
+     * Gets the virtual time at which the simulation starts.
+     *
+     * @return Start time
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Sets the virtual time at which the simulation starts.
+     *
+     * @param start Start time
+     */
+    public void setStart(LocalDateTime start) {
+        this.start = start;
+    }
+
+    /**
+     * Gets the simulated duration.
+     *
+     * @return Simulated duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets the simulated duration.
+     *
+     * @param duration Simulated duration
+     */
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the distribution of the time between two arrivals of a type of vehicle.
+     *
+     * @param parkingType Type of vehicle
+     *
+     * @return Distribution in minutes, or null if this type of vehicle does not come
+     */
+    public Distribution getInterArrivalTime(ParkingType parkingType) {
+        return interArrivalTimes.get(parkingType);
+    }
+
+    /**
+     * Sets the distribution of the time between two arrivals of a type of vehicle.
+     *
+     * @param parkingType      Type of vehicle
+     * @param interArrivalTime Distribution in minutes, null if this type of vehicle does not come
+     */
+    public void setInterArrivalTime(ParkingType parkingType, Distribution interArrivalTime) {
+        if (interArrivalTime == null) {
+            interArrivalTimes.remove(parkingType);
+        } else {
+            interArrivalTimes.put(parkingType, interArrivalTime);
+        }
+    }
+
+    /**
+     * Gets the distribution of the parking duration of a type of vehicle.
+     *
+     * @param parkingType Type of vehicle
+     *
+     * @return Distribution in minutes
+     */
+    public Distribution getParkingDuration(ParkingType parkingType) {
+        return parkingDurations.get(parkingType);
+    }
+
+    /**
+     * Sets the distribution of the parking duration of a type of vehicle.
+     *
+     * @param parkingType     Type of vehicle
+     * @param parkingDuration Distribution in minutes
+     */
+    public void setParkingDuration(ParkingType parkingType, Distribution parkingDuration) {
+        parkingDurations.put(parkingType, parkingDuration);
+    }
+
+    /**
+     * Gets the arrival rate factor of an hour of the day.
+     *
+     * @param hour Hour of the day, from 0 to 23
+     *
+     * @return Factor applied to the arrival rate, 1 meaning the configured rate
+     */
+    public double getHourlyArrivalFactor(int hour) {
+        return hourlyArrivalFactors[hour];
+    }
+
+    /**
+     * Sets the arrival rate factor of an hour of the day, e.g. 2 during rush hours and 0 at night.
+     *
+     * @param hour   Hour of the day, from 0 to 23
+     * @param factor Factor applied to the arrival rate
+     */
+    public void setHourlyArrivalFactor(int hour, double factor) {
+        if (factor < 0) {
+            throw new IllegalArgumentException("Arrival factor can not be negative: " + factor);
+        }
+        hourlyArrivalFactors[hour] = factor;
+    }
+
+    /**
+     * Gets the probability that an arrival is a vehicle which already parked and left.
+     *
+     * @return Probability between 0 and 1
+     */
+    public double getRecurringRate() {
+        return recurringRate;
+    }
+
+    /**
+     * Sets the probability that an arrival is a vehicle which already parked and left.
+     *
+     * @param recurringRate Probability between 0 and 1
+     */
+    public void setRecurringRate(double recurringRate) {
+        this.recurringRate = recurringRate;
+    }
+
+    /**
+     * Gets the seed of the random generator, the same seed giving the same simulation.
+     *
+     * @return Seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed of the random generator.
+     *
+     * @param seed Seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,179 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Outcome of a parking lot simulation, per type of vehicle.
+ */
+public class SimulationReport {
+
+    private final Duration                     simulatedDuration;
+    private final Duration                     wallClockDuration;
+    private final Map<ParkingType, TypeReport> typeReports = new EnumMap<>(ParkingType.class);
+
+    SimulationReport(Duration simulatedDuration, Duration wallClockDuration) {
+        this.simulatedDuration = simulatedDuration;
+        this.wallClockDuration = wallClockDuration;
+    }
+
+    void put(ParkingType parkingType, TypeReport typeReport) {
+        typeReports.put(parkingType, typeReport);
+    }
+
+    /**
+     * Gets the simulated duration.
+     *
+     * @return Simulated duration
+     */
+    public Duration getSimulatedDuration() {
+        return simulatedDuration;
+    }
+
+    /**
+     * Gets the real time the simulation took.
+     *
+     * @return Wall clock duration
+     */
+    public Duration getWallClockDuration() {
+        return wallClockDuration;
+    }
+
+    /**
+     * Gets the figures of a type of vehicle.
+     *
+     * @param parkingType Type of vehicle
+     *
+     * @return Figures, or null if this type of vehicle was not simulated
+     */
+    public TypeReport get(ParkingType parkingType) {
+        return typeReports.get(parkingType);
+    }
+
+    /**
+     * Gets the revenue of all types of vehicle.
+     *
+     * @return Total revenue
+     */
+    public BigDecimal getTotalRevenue() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (TypeReport typeReport : typeReports.values()) {
+            total = total.add(typeReport.getRevenue());
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Simulated ").append(simulatedDuration.toDays()).append(" days in ").append(wallClockDuration.toMillis()).append(" ms\n");
+        typeReports.forEach((parkingType, typeReport) -> sb.append(parkingType).append(": ").append(typeReport).append('\n'));
+        sb.append("Total revenue: ").append(getTotalRevenue());
+        return sb.toString();
+    }
+
+    /**
+     * Figures of one type of vehicle.
+     */
+    public static class TypeReport {
+        private final long       arrivals;
+        private final long       rejected;
+        private final long       exits;
+        private final long       failedExits;
+        private final BigDecimal revenue;
+        private final double     averageOccupancy;
+        private final int        peakOccupancy;
+
+        TypeReport(long arrivals, long rejected, long exits, long failedExits, BigDecimal revenue, double averageOccupancy, int peakOccupancy) {
+            this.arrivals = arrivals;
+            this.rejected = rejected;
+            this.exits = exits;
+            this.failedExits = failedExits;
+            this.revenue = revenue;
+            this.averageOccupancy = averageOccupancy;
+            this.peakOccupancy = peakOccupancy;
+        }
+
+        /**
+         * Gets the number of vehicles which came to the lot.
+         *
+         * @return Number of arrivals
+         */
+        public long getArrivals() {
+            return arrivals;
+        }
+
+        /**
+         * Gets the number of vehicles turned away because the lot was full.
+         *
+         * @return Number of rejected vehicles
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Gets the share of arrivals turned away.
+         *
+         * @return Rejection rate between 0 and 1
+         */
+        public double getRejectionRate() {
+            return (arrivals == 0) ? 0 : (double) rejected / arrivals;
+        }
+
+        /**
+         * Gets the number of vehicles which left and paid.
+         *
+         * @return Number of exits
+         */
+        public long getExits() {
+            return exits;
+        }
+
+        /**
+         * Gets the number of exits which could not be processed.
+         *
+         * @return Number of failed exits
+         */
+        public long getFailedExits() {
+            return failedExits;
+        }
+
+        /**
+         * Gets the fares paid at exit.
+         *
+         * @return Revenue
+         */
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        /**
+         * Gets the time-weighted average number of parked vehicles.
+         *
+         * @return Average occupancy
+         */
+        public double getAverageOccupancy() {
+            return averageOccupancy;
+        }
+
+        /**
+         * Gets the highest number of vehicles parked at the same time.
+         *
+         * @return Peak occupancy
+         */
+        public int getPeakOccupancy() {
+            return peakOccupancy;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d arrivals, %d rejected (%.1f%%), %d exits, %d failed exits, revenue %s, occupancy %.2f average / %d peak",
+                                 arrivals, rejected, 100 * getRejectionRate(), exits, failedExits, revenue, averageOccupancy, peakOccupancy);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.parkit.parkingsystem.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * <b>Streaming quantile sketch with a bounded relative error.</b>
+ * <p>
+ * Values are counted in logarithmic buckets, each one <code>(1 + accuracy) / (1 - accuracy)</code> times wider than the previous one, so that
+ * any quantile is estimated within <code>accuracy</code> of its true value whatever the number of values. The buckets of two sketches with the
+ * same accuracy line up: sketches of several nodes or days are merged by adding their counts, and the result is the sketch of all their values.
+ * </p>
+ * <p>
+ * A sketch of parking durations from a minute to a year holds a few hundred buckets at 1%. Values below {@link #MIN_VALUE}, such as free stays,
+ * are counted as zero. Sketches are not thread safe.
+ * </p>
+ */
+public class QuantileSketch {
+
+    /** Smallest value told apart from zero */
+    public static final double MIN_VALUE = 0.01;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final double accuracy;
+    private final double gamma;
+    private final double logGamma;
+    private       long[] counts = new long[0];
+    private       int    offset;
+    private       long   zeroCount;
+    private       long   count;
+    private       double min    = Double.POSITIVE_INFINITY;
+    private       double max    = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Creates an empty sketch.
+     *
+     * @param accuracy Relative error of the quantiles, between 0 and 1 excluded, e.g. 0.01
+     *
+     * @throws IllegalArgumentException if the accuracy is out of range
+     */
+    public QuantileSketch(double accuracy) {
+        if (!(accuracy > 0 && accuracy < 1)) {
+            throw new IllegalArgumentException("Accuracy must be between 0 and 1: " + accuracy);
+        }
+        this.accuracy = accuracy;
+        this.gamma = (1 + accuracy) / (1 - accuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value Value, zero or positive
+     *
+     * @throws IllegalArgumentException if the value is negative or not a number
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds a value several times.
+     *
+     * @param value Value, zero or positive
+     * @param times Number of times, positive
+     *
+     * @throws IllegalArgumentException if the value is negative or not a number
+     */
+    public void add(double value, long times) {
+        if (!(value >= 0) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Invalid value: " + value);
+        }
+        if (value < MIN_VALUE) {
+            zeroCount += times;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / logGamma);
+            grow(index, index);
+            counts[index - offset] += times;
+        }
+        count += times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every value of another sketch to this one.
+     *
+     * @param other Sketch with the same accuracy
+     *
+     * @throws IllegalArgumentException if the accuracies differ
+     */
+    public void merge(QuantileSketch other) {
+        if (other.accuracy != accuracy) {
+            throw new IllegalArgumentException("Can not merge sketches of accuracy " + accuracy + " and " + other.accuracy);
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts.length > 0) {
+            grow(other.offset, other.offset + other.counts.length - 1);
+            for (int i = 0; i < other.counts.length; i++) {
+                counts[other.offset + i - offset] += other.counts[i];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates a quantile of the values.
+     *
+     * @param quantile Quantile between 0 and 1, e.g. 0.99
+     *
+     * @return Estimated value, within the accuracy of the true one; 0 if the sketch is empty
+     *
+     * @throws IllegalArgumentException if the quantile is out of range
+     */
+    public double getQuantile(double quantile) {
+        if (!(quantile >= 0 && quantile <= 1)) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) (quantile * (count - 1));
+        if (rank < zeroCount) {
+            return min;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                double estimate = 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+                return Math.max(min, Math.min(max, estimate));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Gets the relative error of the quantiles.
+     *
+     * @return Accuracy
+     */
+    public double getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * Gets the number of values added.
+     *
+     * @return Number of values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest value added.
+     *
+     * @return Minimum, 0 if the sketch is empty
+     */
+    public double getMin() {
+        return (count == 0) ? 0 : min;
+    }
+
+    /**
+     * Gets the largest value added.
+     *
+     * @return Maximum, 0 if the sketch is empty
+     */
+    public double getMax() {
+        return (count == 0) ? 0 : max;
+    }
+
+    /**
+     * Encodes the sketch, buckets as variable length integers.
+     *
+     * @return Bytes read by {@link #fromBytes(byte[])}
+     */
+    public byte[] toBytes() {
+        int first = 0;
+        int last  = counts.length - 1;
+        while (first <= last && counts[first] == 0) {
+            first++;
+        }
+        while (last >= first && counts[last] == 0) {
+            last--;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + Math.max(0, last - first + 1));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeDouble(accuracy);
+            writeVarLong(out, count);
+            writeVarLong(out, zeroCount);
+            if (count > 0) {
+                out.writeDouble(min);
+                out.writeDouble(max);
+            }
+            writeVarLong(out, Math.max(0, last - first + 1));
+            if (first <= last) {
+                writeVarLong(out, zigZag(offset + first));
+                for (int i = first; i <= last; i++) {
+                    writeVarLong(out, counts[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a sketch.
+     *
+     * @param bytes Bytes written by {@link #toBytes()}
+     *
+     * @return Sketch
+     *
+     * @throws IllegalArgumentException if the bytes are not a sketch
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported sketch format " + version);
+            }
+            QuantileSketch sketch = new QuantileSketch(in.readDouble());
+            sketch.count = readVarLong(in);
+            sketch.zeroCount = readVarLong(in);
+            if (sketch.count > 0) {
+                sketch.min = in.readDouble();
+                sketch.max = in.readDouble();
+            }
+            int buckets = (int) readVarLong(in);
+            if (buckets > 0) {
+                sketch.offset = unZigZag(readVarLong(in));
+                sketch.counts = new long[buckets];
+                for (int i = 0; i < buckets; i++) {
+                    sketch.counts[i] = readVarLong(in);
+                }
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated sketch", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{count=" + count + ", p50=" + getQuantile(0.5) + ", p90=" + getQuantile(0.9) + ", p99=" + getQuantile(0.99) + '}';
+    }
+
+    private void grow(int low, int high) {
+        if (counts.length == 0) {
+            counts = new long[high - low + 1];
+            offset = low;
+        } else if (low < offset || high >= offset + counts.length) {
+            int    newOffset = Math.min(low, offset);
+            int    newEnd    = Math.max(high, offset + counts.length - 1);
+            long[] grown     = new long[newEnd - newOffset + 1];
+            System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+            counts = grown;
+            offset = newOffset;
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    private static long zigZag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(long value) {
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+}
@@ -0,0 +1,180 @@
+package com.parkit.parkingsystem.stats;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketMetric;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.SketchDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <b>Quantiles of the parking durations and fares, per parking type and per day.</b>
+ * <p>
+ * Closed tickets are added to in-memory sketches of the day they were closed, then periodically flushed by {@link #flush()}: the sketch
+ * saved by this node for the day is read, merged with the tickets closed since the last flush and saved back. Only the sketches of the days
+ * with new tickets are kept in memory, so memory does not grow with the number of tickets.
+ * </p>
+ * <p>
+ * Quantiles of any range of days are answered by merging the saved sketches of every node, and the tickets of this node not flushed yet.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.stats.QuantileSketch
+ */
+public class TicketSketches implements ParkingListener, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketSketches");
+
+    /** Default relative error of the quantiles */
+    public static final double DEFAULT_ACCURACY = 0.01;
+
+    private final SketchDAO                      sketchDAO;
+    private final String                         nodeId;
+    private final double                         accuracy;
+    private final Map<SketchKey, QuantileSketch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Creates sketches saved by a node.
+     *
+     * @param sketchDAO Storage of the sketches, or null to keep them in memory only
+     * @param nodeId    ID of this node, distinct from the other nodes sharing the storage
+     * @param accuracy  Relative error of the quantiles
+     */
+    public TicketSketches(SketchDAO sketchDAO, String nodeId, double accuracy) {
+        this.sketchDAO = sketchDAO;
+        this.nodeId = nodeId;
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    public void vehicleEntered(Ticket ticket) {
+        // Only closed tickets have a duration and a fare
+    }
+
+    @Override
+    public void vehicleExited(Ticket ticket) {
+        LocalDate   day         = ticket.getOutTime().toLocalDate();
+        ParkingType parkingType = ticket.getParkingSpot().getParkingType();
+        add(new SketchKey(day, parkingType, TicketMetric.DWELL), Math.max(0, Duration.between(ticket.getInTime(), ticket.getOutTime()).getSeconds()));
+        if (ticket.getPrice() != null) {
+            add(new SketchKey(day, parkingType, TicketMetric.FARE), Math.max(0, ticket.getPrice().doubleValue()));
+        }
+    }
+
+    /**
+     * Merges the tickets closed over some days, by every node.
+     *
+     * @param parkingType Parking type
+     * @param metric      Metric
+     * @param from        First day
+     * @param to          Last day, included
+     *
+     * @return Sketch of the tickets closed during these days
+     *
+     * @throws DataAccessException if the saved sketches can not be read
+     */
+    public QuantileSketch getSketch(ParkingType parkingType, TicketMetric metric, LocalDate from, LocalDate to) {
+        QuantileSketch merged = (sketchDAO == null) ? new QuantileSketch(accuracy) : sketchDAO.mergeSketches(parkingType, metric, from, to, accuracy);
+        for (SketchKey key : pending.keySet()) {
+            if (key.parkingType == parkingType && key.metric == metric && !key.day.isBefore(from) && !key.day.isAfter(to)) {
+                // Copied under the lock of its entry, so that a gate never adds to a sketch being read
+                pending.computeIfPresent(key, (k, sketch) -> {
+                    merged.merge(sketch);
+                    return sketch;
+                });
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the tickets closed since the last flush to the sketches saved by this node.
+     * Tickets whose sketch can not be read or saved are kept for the next flush, so that a saved sketch is never replaced by the new tickets only.
+     * Flushes of the scheduler and of {@link #close()} run one at a time.
+     */
+    public synchronized void flush() {
+        if (sketchDAO == null) {
+            return;
+        }
+        // The keys are taken first, so that a delta put back is only tried again at the next flush
+        Map<SketchKey, QuantileSketch> failed = new HashMap<>();
+        for (SketchKey key : new ArrayList<>(pending.keySet())) {
+            QuantileSketch delta = pending.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            boolean saved;
+            try {
+                QuantileSketch previous = sketchDAO.getSketch(key.day, key.parkingType, key.metric, nodeId);
+                QuantileSketch sketch   = (previous == null) ? new QuantileSketch(accuracy) : previous;
+                sketch.merge(delta);
+                saved = sketchDAO.saveSketch(key.day, key.parkingType, key.metric, nodeId, sketch);
+            } catch (DataAccessException e) {
+                logger.error("Unable to read or save the {} sketch of {} for {}", key.metric, key.parkingType, key.day, e);
+                saved = false;
+            }
+            if (!saved) {
+                logger.error("Unable to save the {} sketch of {} for {}, kept for the next flush", key.metric, key.parkingType, key.day);
+                failed.put(key, delta);
+            }
+        }
+        failed.forEach((key, delta) -> pending.merge(key, delta, (current, kept) -> {
+            current.merge(kept);
+            return current;
+        }));
+    }
+
+    /**
+     * Flushes the tickets closed since the last flush.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void add(SketchKey key, double value) {
+        pending.compute(key, (k, sketch) -> {
+            QuantileSketch updated = (sketch == null) ? new QuantileSketch(accuracy) : sketch;
+            updated.add(value);
+            return updated;
+        });
+    }
+
+    private static final class SketchKey {
+        private final LocalDate    day;
+        private final ParkingType  parkingType;
+        private final TicketMetric metric;
+
+        private SketchKey(LocalDate day, ParkingType parkingType, TicketMetric metric) {
+            this.day = day;
+            this.parkingType = parkingType;
+            this.metric = metric;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SketchKey)) {
+                return false;
+            }
+            SketchKey other = (SketchKey) o;
+            return day.equals(other.day) && parkingType == other.parkingType && metric == other.metric;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, parkingType, metric);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.timer;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * <b> Notified of the time-based events of the vehicles parked in the lot.</b>
+ * <br>
+ * Listeners are called by the workers of the timing wheel: they must not block for long.
+ *
+ * @see com.parkit.parkingsystem.timer.SessionTimers#addSessionListener(SessionListener)
+ */
+public interface SessionListener {
+
+    /**
+     * Called when the free parking period of a vehicle is over and its stay starts being charged.
+     *
+     * @param ticket Open ticket of the vehicle
+     */
+    void freePeriodEnded(Ticket ticket);
+
+    /**
+     * Called when a vehicle stayed longer than allowed.
+     *
+     * @param ticket Open ticket of the vehicle
+     */
+    void overstayed(Ticket ticket);
+}
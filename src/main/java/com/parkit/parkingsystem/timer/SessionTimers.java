@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem.timer;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <b>Timers of the vehicles parked in the lot: end of the free parking period and overstay.</b>
+ * <p>
+ * The timers of a vehicle are scheduled on a {@link TimingWheel} when it enters and cancelled when it leaves. They are only kept in
+ * memory: at startup they are scheduled again from the open tickets with {@link #addAll(List)}.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.timer.SessionListener
+ */
+public class SessionTimers implements ParkingListener {
+
+    private static final Logger logger = LogManager.getLogger("SessionTimers");
+
+    public static final Duration DEFAULT_OVERSTAY = Duration.ofHours(24);
+
+    private static final Duration FREE_PERIOD = Duration.ofMinutes(Fare.FREE_PARKING_MINUTES);
+
+    private final TimingWheel                         timingWheel;
+    private final Duration                            overstay;
+    private final Clock                               clock;
+    private final Map<Integer, TimingWheel.Timeout[]> timeouts  = new ConcurrentHashMap<>();
+    private final List<SessionListener>               listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates timers for no vehicle yet.
+     *
+     * @param timingWheel Wheel the timers are scheduled on
+     * @param overstay    Stay after which a vehicle overstayed
+     * @param clock       Clock giving the zone of the tickets
+     */
+    public SessionTimers(TimingWheel timingWheel, Duration overstay, Clock clock) {
+        this.timingWheel = timingWheel;
+        this.overstay = overstay;
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a listener of the timers.
+     *
+     * @param sessionListener Listener
+     */
+    public void addSessionListener(SessionListener sessionListener) {
+        listeners.add(sessionListener);
+    }
+
+    /**
+     * Schedules the timers of vehicles already parked, e.g. at startup. Free periods already over are not reported again, while
+     * overstays already reached are reported at once.
+     *
+     * @param openTickets Open tickets
+     */
+    public void addAll(List<Ticket> openTickets) {
+        openTickets.forEach(this::vehicleEntered);
+        logger.info("Scheduled the timers of {} parked vehicles", openTickets.size());
+    }
+
+    /**
+     * Counts the vehicles with timers.
+     *
+     * @return Number of vehicles
+     */
+    public int size() {
+        return timeouts.size();
+    }
+
+    @Override
+    public void vehicleEntered(Ticket ticket) {
+        Instant               inTime   = ticket.getInTime().atZone(clock.getZone()).toInstant();
+        Instant               freeEnd  = inTime.plus(FREE_PERIOD);
+        TimingWheel.Timeout   free     = freeEnd.isAfter(clock.instant()) ? timingWheel.schedule(freeEnd, () -> freePeriodEnded(ticket)) : null;
+        TimingWheel.Timeout   overdue  = timingWheel.schedule(inTime.plus(overstay), () -> overstayed(ticket));
+        TimingWheel.Timeout[] previous = timeouts.put(ticket.getId(), new TimingWheel.Timeout[]{free, overdue});
+        if (previous != null) {
+            cancel(previous);
+        }
+    }
+
+    @Override
+    public void vehicleExited(Ticket ticket) {
+        TimingWheel.Timeout[] vehicleTimeouts = timeouts.remove(ticket.getId());
+        if (vehicleTimeouts != null) {
+            cancel(vehicleTimeouts);
+        }
+    }
+
+    private void freePeriodEnded(Ticket ticket) {
+        for (SessionListener listener : listeners) {
+            listener.freePeriodEnded(ticket);
+        }
+    }
+
+    private void overstayed(Ticket ticket) {
+        logger.warn("Vehicle {} parked in spot {} for more than {}", ticket.getVehicleRegNumber(), ticket.getParkingSpot().getId(), overstay);
+        for (SessionListener listener : listeners) {
+            listener.overstayed(ticket);
+        }
+    }
+
+    private static void cancel(TimingWheel.Timeout[] vehicleTimeouts) {
+        for (TimingWheel.Timeout timeout : vehicleTimeouts) {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
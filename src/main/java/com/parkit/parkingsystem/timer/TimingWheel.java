@@ -0,0 +1,272 @@
+package com.parkit.parkingsystem.timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <b>Hashed hierarchical timing wheel, running tasks at their deadline.</b>
+ * <p>
+ * Time is cut in ticks (100 ms by default). The first wheel has a bucket per tick for the next revolution (256 ticks by default); each
+ * next wheel has a bucket per revolution of the previous one, over 4 wheels, i.e. more than 13 years ahead with the default ticks.
+ * A timeout is linked into the bucket of its deadline in the lowest wheel reaching it, and unlinked from it when cancelled: both are
+ * constant time, whatever the number of pending timeouts. When a wheel completes a revolution, the next bucket of the wheel above is
+ * spread over the wheels below, so each timeout is moved at most once per wheel before it expires.
+ * </p>
+ * <p>
+ * The wheel is driven by a single thread calling {@link #advance()} every tick (see {@link #start()}); expired tasks are run by the
+ * workers, so that a slow task does not delay the wheel.
+ * </p>
+ *
+ * @see com.parkit.parkingsystem.timer.SessionTimers
+ */
+public class TimingWheel implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TimingWheel");
+
+    public static final Duration DEFAULT_TICK       = Duration.ofMillis(100);
+    public static final int      DEFAULT_WHEEL_SIZE = 256;
+
+    private static final int LEVELS = 4;
+
+    private final Clock                    clock;
+    private final Executor                 workers;
+    private final long                     tickNanos;
+    private final int                      wheelSize;
+    private final long[]                   spans     = new long[LEVELS + 1];
+    private final Timeout[][]              buckets   = new Timeout[LEVELS][];
+    private final Instant                  origin;
+    private       long                     currentTick;
+    private       int                      pending;
+    private       ScheduledExecutorService driver;
+
+    /**
+     * Creates an empty wheel, starting at the current time.
+     *
+     * @param tick      Precision of the deadlines, tasks run at most a tick late
+     * @param wheelSize Buckets per wheel
+     * @param clock     Clock giving the current time
+     * @param workers   Executor of the expired tasks
+     */
+    public TimingWheel(Duration tick, int wheelSize, Clock clock, Executor workers) {
+        if (tick.isNegative() || tick.isZero() || wheelSize < 2) {
+            throw new IllegalArgumentException("Invalid tick " + tick + " or wheel size " + wheelSize);
+        }
+        this.clock = clock;
+        this.workers = workers;
+        this.tickNanos = tick.toNanos();
+        this.wheelSize = wheelSize;
+        spans[0] = 1;
+        for (int level = 0; level < LEVELS; level++) {
+            spans[level + 1] = spans[level] * wheelSize;
+            buckets[level] = new Timeout[wheelSize];
+        }
+        this.origin = clock.instant();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param deadline Time the task is to run at; a deadline already past runs the task at the next tick
+     * @param task     Task, run by the workers
+     *
+     * @return Timeout, to cancel the task
+     */
+    public synchronized Timeout schedule(Instant deadline, Runnable task) {
+        long    nanos   = Duration.between(origin, deadline).toNanos();
+        Timeout timeout = new Timeout(this, deadline, Math.max(currentTick + 1, (nanos + tickNanos - 1) / tickNanos), task);
+        link(timeout);
+        pending++;
+        return timeout;
+    }
+
+    /**
+     * Moves the wheel to the current time, and hands the tasks which expired meanwhile to the workers.
+     *
+     * @return Number of tasks expired
+     */
+    public int advance() {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = Duration.between(origin, clock.instant()).toNanos() / tickNanos;
+            while (currentTick < target) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if (currentTick % spans[level] == 0) {
+                        // A revolution of the wheel below is over: its next one is filled from this wheel
+                        Timeout timeout = unlinkAll(level, (int) ((currentTick / spans[level]) % wheelSize));
+                        while (timeout != null) {
+                            Timeout next = timeout.next;
+                            link(timeout);
+                            timeout = next;
+                        }
+                    }
+                }
+                Timeout timeout = unlinkAll(0, (int) (currentTick % wheelSize));
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.state = Timeout.EXPIRED;
+                    timeout.next = null;
+                    expired.add(timeout);
+                    timeout = next;
+                }
+            }
+            pending -= expired.size();
+        }
+        for (Timeout timeout : expired) {
+            workers.execute(timeout::run);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Counts the tasks waiting for their deadline.
+     *
+     * @return Number of pending timeouts
+     */
+    public synchronized int size() {
+        return pending;
+    }
+
+    /**
+     * Starts the thread driving the wheel, advancing it every tick.
+     */
+    public synchronized void start() {
+        if (driver == null) {
+            driver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "timing-wheel");
+                thread.setDaemon(true);
+                return thread;
+            });
+            driver.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the thread driving the wheel; pending tasks do not run.
+     */
+    @Override
+    public synchronized void close() {
+        if (driver != null) {
+            driver.shutdownNow();
+            driver = null;
+        }
+    }
+
+    private void link(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        int  level = 0;
+        while (level < LEVELS - 1 && delta >= spans[level + 1]) {
+            level++;
+        }
+        // Beyond the last wheel, the timeout waits in its furthest bucket and is placed again when the bucket comes round
+        long tick  = (delta < spans[LEVELS]) ? timeout.deadlineTick : currentTick + spans[LEVELS] - 1;
+        int  index = (int) ((tick / spans[level]) % wheelSize);
+        timeout.level = level;
+        timeout.index = index;
+        timeout.prev = null;
+        timeout.next = buckets[level][index];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        buckets[level][index] = timeout;
+    }
+
+    private Timeout unlinkAll(int level, int index) {
+        Timeout head = buckets[level][index];
+        buckets[level][index] = null;
+        return head;
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.level][timeout.index] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.state = Timeout.CANCELLED;
+        pending--;
+        return true;
+    }
+
+    /**
+     * Task waiting in the wheel for its deadline.
+     */
+    public static final class Timeout {
+
+        private static final int PENDING   = 0;
+        private static final int EXPIRED   = 1;
+        private static final int CANCELLED = 2;
+
+        private final TimingWheel wheel;
+        private final Instant     deadline;
+        private final long        deadlineTick;
+        private final Runnable    task;
+        private       int         level;
+        private       int         index;
+        private       Timeout     prev;
+        private       Timeout     next;
+        private       int         state;
+
+        private Timeout(TimingWheel wheel, Instant deadline, long deadlineTick, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Gets the deadline of the task.
+         *
+         * @return Deadline
+         */
+        public Instant getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Cancels the task if it did not expire yet.
+         *
+         * @return true if the task will not run, false if it expired or was cancelled already
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        /**
+         * Tells whether the task was handed to the workers.
+         *
+         * @return true if the deadline was reached
+         */
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Timeout task due at {} failed", deadline, e);
+            }
+        }
+    }
+}
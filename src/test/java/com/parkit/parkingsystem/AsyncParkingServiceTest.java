@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class AsyncParkingServiceTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock        clock;
+    private InMemoryStorage        storage;
+    private InMemoryParkingSpotDAO parkingSpotDAO;
+    private ExecutorService        executor;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void historyIsLookedUpWhileTheSpotIsClaimed() throws Exception {
+        //GIVEN a history lookup which only returns once the spot is claimed
+        CountDownLatch         spotClaimed    = new CountDownLatch(1);
+        AtomicBoolean          overlapped     = new AtomicBoolean();
+        InMemoryParkingSpotDAO claimingDAO    = new InMemoryParkingSpotDAO(storage) {
+            @Override
+            public boolean claimParking(int parkingNumber, ParkingType parkingType) {
+                boolean claimed = super.claimParking(parkingNumber, parkingType);
+                spotClaimed.countDown();
+                return claimed;
+            }
+        };
+        InMemoryTicketDAO      waitingDAO     = new InMemoryTicketDAO(storage) {
+            @Override
+            public Ticket getTicket(String vehicleRegNumber) {
+                try {
+                    overlapped.set(spotClaimed.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getTicket(vehicleRegNumber);
+            }
+        };
+        ParkingService         parkingService = new ParkingService(null, claimingDAO, waitingDAO, clock);
+        parkingService.setAsyncExecutor(executor);
+        //WHEN
+        Ticket ticket = parkingService.processIncomingVehicleAsync(ParkingType.CAR, "AB123CD", SpotRequest.atGate(1)).get(10, TimeUnit.SECONDS);
+        //THEN
+        assertThat(overlapped.get()).isTrue();
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(1);
+        assertThat(waitingDAO.getTicket("AB123CD").getId()).isEqualTo(ticket.getId());
+    }
+
+    @Test
+    public void exitClosesTheTicketAndFreesTheSpot() throws Exception {
+        //GIVEN a vehicle parked for an hour
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(storage), clock);
+        parkingService.setAsyncExecutor(executor);
+        parkingService.processIncomingVehicleAsync(ParkingType.CAR, "AB123CD", SpotRequest.atGate(1)).get();
+        clock.advanceTo(START.plus(Duration.ofHours(1)));
+        //WHEN
+        Ticket exit  = parkingService.processExitingVehicleAsync("AB123CD").get();
+        Ticket again = parkingService.processExitingVehicle("AB123CD");
+        Ticket back  = parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        //THEN the blocking calls go through the same pipelines
+        assertThat(exit.getOutTime()).isNotNull();
+        assertThat(exit.getPrice().signum()).isEqualTo(1);
+        assertThat(again).isNull();
+        assertThat(back.getParkingSpot().getId()).isEqualTo(1);
+        assertThat(back.isRecurring()).isTrue();
+    }
+
+    @Test
+    public void unsavedTicketFreesItsSpot() {
+        //GIVEN a ticket storage which fails
+        InMemoryTicketDAO failingDAO     = new InMemoryTicketDAO(storage) {
+            @Override
+            public void saveTicket(Ticket ticket) {
+                throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Saving ticket", null);
+            }
+        };
+        ParkingService    parkingService = new ParkingService(null, parkingSpotDAO, failingDAO, clock);
+        parkingService.setAsyncExecutor(executor);
+        //WHEN
+        //THEN the failure reaches the caller unwrapped, and the spot is free again
+        assertThatThrownBy(() -> parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD"))
+            .isInstanceOf(DataAccessException.class)
+            .hasFieldOrPropertyWithValue("failure", DataAccessException.Failure.TIMEOUT);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.archive.ColdStorage;
+import com.parkit.parkingsystem.archive.Segment;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class ColdStorageTest {
+
+    private static final LocalDate JANUARY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDataBaseConfig dataBaseConfig;
+    private ColdStorage            coldStorage;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig("archive", 2, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        coldStorage = new ColdStorage(directory, null, dataBaseConfig, 100);
+    }
+
+    @Test
+    public void archivedTicketsLeaveTheDatabaseAndAreStillQueried() throws Exception {
+        //GIVEN tickets closed in January, February and March, and a vehicle still parked
+        insertTicket(1, "AB123CD", 3, JANUARY.atTime(8, 0), JANUARY.atTime(10, 0));
+        insertTicket(3, "EF456GH", 1, JANUARY.plusDays(19).atTime(9, 0), JANUARY.plusDays(19).atTime(10, 0));
+        insertTicket(2, "AB123CD", 4.5, JANUARY.plusMonths(1).plusDays(4).atTime(23, 30), JANUARY.plusMonths(1).plusDays(5).atTime(1, 15, 42));
+        insertTicket(1, "IJ789KL", 2, JANUARY.plusMonths(2).plusDays(2).atTime(8, 0), JANUARY.plusMonths(2).plusDays(2).atTime(9, 0));
+        insertTicket(2, "MN012OP", null, JANUARY.plusMonths(2).plusDays(3).atTime(8, 0), null);
+        //WHEN the tickets closed before March are archived
+        int archived = coldStorage.archive(JANUARY.plusMonths(2));
+        //THEN they are in one segment per month, and no longer in the database
+        assertThat(archived).isEqualTo(3);
+        assertThat(coldStorage.getSegments().size()).isEqualTo(2);
+        assertThat(countTickets()).isEqualTo(2);
+        List<Ticket> history = coldStorage.getPlateHistory("AB123CD");
+        assertThat(history.size()).isEqualTo(2);
+        assertThat(history.get(0).getParkingSpot().getId()).isEqualTo(2);
+        assertThat(history.get(0).getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
+        assertThat(history.get(0).getPrice()).isEqualTo(new BigDecimal("4.50"));
+        assertThat(history.get(0).getOutTime()).isEqualTo(JANUARY.plusMonths(1).plusDays(5).atTime(1, 15, 42));
+        assertThat(history.get(1).getInTime()).isEqualTo(JANUARY.atTime(8, 0));
+        assertThat(coldStorage.hasVisited("EF456GH")).isTrue();
+        assertThat(coldStorage.hasVisited("IJ789KL")).isFalse();
+        LocalDateTime from = JANUARY.atStartOfDay();
+        LocalDateTime to   = JANUARY.plusMonths(2).atStartOfDay();
+        assertThat(coldStorage.getRevenue(from, to, null)).isEqualTo(new BigDecimal("8.50"));
+        assertThat(coldStorage.getRevenue(from, to, ParkingType.CAR)).isEqualTo(new BigDecimal("7.50"));
+        assertThat(coldStorage.getRevenue(from.plusMonths(1), to, null)).isEqualTo(new BigDecimal("4.50"));
+    }
+
+    @Test
+    public void archiveCanBeRunAgainAndReopened() throws Exception {
+        //GIVEN thousands of tickets over three months, already archived once
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            for (int i = 0; i < 6000; i++) {
+                LocalDateTime inTime = JANUARY.atStartOfDay().plusMinutes(i * 20L);
+                ps.setInt(1, 1 + i % 3);
+                ps.setString(2, "P" + (i % 1500));
+                ps.setDouble(3, 1.25);
+                ps.setTimestamp(4, Timestamp.valueOf(inTime));
+                ps.setTimestamp(5, Timestamp.valueOf(inTime.plusMinutes(50)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        int archived = coldStorage.archive(JANUARY.plusMonths(3));
+        //WHEN the archive is run again, then opened without a database
+        int         again    = coldStorage.archive(JANUARY.plusMonths(3));
+        ColdStorage reopened = new ColdStorage(directory, "north", null, 100);
+        //THEN nothing is archived twice, and every vehicle is found
+        assertThat(archived).isEqualTo(6000);
+        assertThat(again).isEqualTo(0);
+        assertThat(countTickets()).isEqualTo(0);
+        assertThat(reopened.getSegments().size()).isEqualTo(3);
+        long bytes = 0;
+        for (Segment segment : reopened.getSegments()) {
+            bytes += Files.size(segment.getPath());
+        }
+        // A fixed width row would take over 40 bytes, before the plate
+        assertThat(bytes).isLessThan(6000L * 20);
+        for (int plate = 0; plate < 1500; plate++) {
+            assertThat(reopened.hasVisited("P" + plate)).isTrue();
+        }
+        List<Ticket> history = reopened.getPlateHistory("P7");
+        assertThat(history.size()).isEqualTo(4);
+        assertThat(history.get(0).getLotId()).isEqualTo("north");
+        assertThat(reopened.getRevenue(JANUARY.atStartOfDay(), JANUARY.plusYears(1).atStartOfDay(), null)).isEqualTo(new BigDecimal("7500.00"));
+    }
+
+    @Test
+    public void ticketsStillOpenCanNotBeArchived() {
+        assertThatThrownBy(() -> coldStorage.archive(LocalDate.now().plusDays(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void insertTicket(int parkingNumber, String vehicleRegNumber, Number price, LocalDateTime inTime, LocalDateTime outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setObject(3, (price == null) ? null : price.doubleValue());
+            ps.setTimestamp(4, Timestamp.valueOf(inTime));
+            ps.setTimestamp(5, (outTime == null) ? null : Timestamp.valueOf(outTime));
+            ps.execute();
+        }
+    }
+
+    private long countTickets() throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from ticket");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
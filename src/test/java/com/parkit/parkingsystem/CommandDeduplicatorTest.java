@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcCommandLogDAO;
+import com.parkit.parkingsystem.idempotency.CommandDeduplicator;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class CommandDeduplicatorTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock   clock;
+    private InMemoryTicketDAO ticketDAO;
+    private ParkingService    parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        ticketDAO = new InMemoryTicketDAO(storage);
+        parkingService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), ticketDAO, clock);
+    }
+
+    @Test
+    public void retriedCommandsGetTheFirstResult() throws Exception {
+        //GIVEN
+        CommandDeduplicator deduplicator = new CommandDeduplicator(null, Duration.ofMinutes(5), 100, clock);
+        parkingService.setCommandDeduplicator(deduplicator);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        //WHEN a gate sends an entry four times at once, then an exit twice an hour later
+        Future<?>[] entries = new Future<?>[4];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = executor.submit(() -> parkingService.processIncomingVehicle("1-0001", ParkingType.CAR, "AB123CD", SpotRequest.atGate(1)));
+        }
+        for (Future<?> entry : entries) {
+            entry.get();
+        }
+        executor.shutdown();
+        clock.advanceTo(START.plus(Duration.ofHours(1)));
+        Ticket exit  = parkingService.processExitingVehicle("1-0002", "AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(1).plusSeconds(30)));
+        Ticket retry = parkingService.processExitingVehicle("1-0002", "AB123CD");
+        //THEN a single spot and ticket were taken, and the retried exit keeps the first fare and exit time
+        for (Future<?> entry : entries) {
+            assertThat(((Ticket) entry.get()).getParkingSpot().getId()).isEqualTo(1);
+        }
+        assertThat(ticketDAO.getTickets("AB123CD").size()).isEqualTo(1);
+        assertThat(retry.getId()).isEqualTo(exit.getId());
+        assertThat(retry.getPrice()).isEqualTo(exit.getPrice());
+        assertThat(retry.getOutTime()).isEqualTo(exit.getOutTime());
+        assertThat(deduplicator.getReplayCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void commandWithoutEffectIsRunAgain() {
+        //GIVEN a full bike area
+        parkingService.setCommandDeduplicator(new CommandDeduplicator(null, Duration.ofMinutes(5), 100, clock));
+        parkingService.processIncomingVehicle(ParkingType.BIKE, "BK1");
+        parkingService.processIncomingVehicle(ParkingType.BIKE, "BK2");
+        Ticket refused = parkingService.processIncomingVehicle("2-0001", ParkingType.BIKE, "BK3", SpotRequest.atGate(2));
+        //WHEN a bike leaves before the gate retries
+        parkingService.processExitingVehicle("BK1");
+        Ticket retry = parkingService.processIncomingVehicle("2-0001", ParkingType.BIKE, "BK3", SpotRequest.atGate(2));
+        //THEN the refusal was not remembered
+        assertThat(refused).isNull();
+        assertThat(retry.getParkingSpot().getId()).isEqualTo(4);
+    }
+
+    @Test
+    public void resultsAreForgottenPastTheWindowOrTheSize() {
+        //GIVEN
+        CommandDeduplicator deduplicator = new CommandDeduplicator(null, Duration.ofMinutes(5), 2, clock);
+        parkingService.setCommandDeduplicator(deduplicator);
+        parkingService.processIncomingVehicle("a", ParkingType.CAR, "AA11", SpotRequest.ANY);
+        parkingService.processIncomingVehicle("b", ParkingType.CAR, "BB22", SpotRequest.ANY);
+        //WHEN a third command arrives, then a fourth once the window elapsed
+        parkingService.processIncomingVehicle("c", ParkingType.CAR, "CC33", SpotRequest.ANY);
+        int sizeAfterThird = deduplicator.size();
+        clock.advanceTo(START.plus(Duration.ofMinutes(6)));
+        parkingService.processExitingVehicle("d", "AA11");
+        //THEN the oldest result was evicted first, and the others expired
+        assertThat(sizeAfterThird).isEqualTo(2);
+        assertThat(deduplicator.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void commandLogAnswersRetriesAfterRestart() {
+        //GIVEN an entry whose result was saved to the command log
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("commands", 1, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        JdbcCommandLogDAO commandLogDAO = new JdbcCommandLogDAO();
+        commandLogDAO.dataBaseConfig = dataBaseConfig;
+        parkingService.setCommandDeduplicator(new CommandDeduplicator(commandLogDAO, Duration.ofMinutes(5), 100, clock));
+        Ticket entry = parkingService.processIncomingVehicle("1-0001", ParkingType.CAR, "AB123CD", SpotRequest.ANY);
+        //WHEN the gate retries once the application restarted with an empty memory
+        CommandDeduplicator restarted = new CommandDeduplicator(commandLogDAO, Duration.ofMinutes(5), 100, clock);
+        parkingService.setCommandDeduplicator(restarted);
+        Ticket retry = parkingService.processIncomingVehicle("1-0001", ParkingType.CAR, "AB123CD", SpotRequest.ANY);
+        //THEN the first ticket is replied again until the log is purged
+        assertThat(retry.getId()).isEqualTo(entry.getId());
+        assertThat(retry.getParkingSpot().getId()).isEqualTo(entry.getParkingSpot().getId());
+        assertThat(retry.getInTime()).isEqualTo(entry.getInTime());
+        assertThat(retry.getOutTime()).isNull();
+        assertThat(ticketDAO.getTickets("AB123CD").size()).isEqualTo(1);
+        clock.advanceTo(START.plus(Duration.ofDays(2)));
+        assertThat(restarted.purge(Duration.ofDays(1))).isEqualTo(1);
+        assertThat(commandLogDAO.getResult("1-0001")).isNull();
+    }
+}
@@ -0,0 +1,39 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.load.ConcurrencyTorture;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyTortureTest {
+
+    @Test
+    public void concurrentGatesOnEmbeddedDataBaseKeepInvariants() throws Exception {
+        //GIVEN more gates than free spots on the JDBC DAOs
+        ConcurrencyTorture torture = ConcurrencyTorture.embeddedDataBase("torture-test", 4, 2);
+        torture.setThreads(8);
+        torture.setDurationSeconds(2);
+        //WHEN
+        ConcurrencyTorture.Result result = torture.run();
+        //THEN the lot fills up, vehicles leave, and no invariant is broken
+        assertThat(result.getEntries()).isPositive();
+        assertThat(result.getRejected()).isPositive();
+        assertThat(result.getDuplicateExits()).isPositive();
+        assertThat(result.getViolations()).isEmpty();
+    }
+
+    @Test
+    public void concurrentGatesOnInMemoryStorageKeepInvariants() throws Exception {
+        //GIVEN more gates than free spots on the in-memory DAOs
+        ConcurrencyTorture torture = ConcurrencyTorture.inMemory(4, 2);
+        torture.setThreads(8);
+        torture.setDurationSeconds(2);
+        //WHEN
+        ConcurrencyTorture.Result result = torture.run();
+        //THEN
+        assertThat(result.getEntries()).isPositive();
+        assertThat(result.getRejected()).isPositive();
+        assertThat(result.getDuplicateExits()).isPositive();
+        assertThat(result.getViolations()).isEmpty();
+    }
+}
@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TrafficClass;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.resilience.Bulkhead;
+import com.parkit.parkingsystem.resilience.CircuitBreaker;
+import com.parkit.parkingsystem.resilience.DataAccessGuard;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class DataAccessGuardTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock clock;
+    private DataAccessGuard guard;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        guard = new DataAccessGuard(new CircuitBreaker(2, Duration.ofSeconds(10), clock));
+    }
+
+    @Test
+    public void circuitOpensAfterConsecutiveTimeoutsUntilATrialSucceeds() {
+        //GIVEN a database which times out twice
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.call(TrafficClass.EXIT, () -> {
+                calls.incrementAndGet();
+                throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Query", null);
+            })).isInstanceOf(DataAccessException.class);
+        }
+        //WHEN
+        assertThatThrownBy(() -> guard.call(TrafficClass.EXIT, calls::incrementAndGet))
+            .hasFieldOrPropertyWithValue("failure", DataAccessException.Failure.CIRCUIT_OPEN);
+        clock.advanceTo(START.plusSeconds(10));
+        int trial = guard.call(TrafficClass.EXIT, calls::incrementAndGet);
+        //THEN the database was not called while the circuit was open
+        assertThat(trial).isEqualTo(3);
+        assertThat(guard.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void slowReportsDoNotStarveTheGates() throws Exception {
+        //GIVEN a report holding the only reporting permit
+        guard.setBulkhead(TrafficClass.REPORTING, new Bulkhead("reporting", 1, 10));
+        guard.setBulkhead(TrafficClass.ENTRY, new Bulkhead("entry", 1, 10));
+        CountDownLatch            reportStarted = new CountDownLatch(1);
+        CountDownLatch            releaseReport = new CountDownLatch(1);
+        CompletableFuture<String> slowReport    = CompletableFuture.supplyAsync(() -> guard.call(TrafficClass.REPORTING, () -> {
+            reportStarted.countDown();
+            try {
+                releaseReport.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "report";
+        }));
+        reportStarted.await();
+        //WHEN another report and an entry arrive
+        //THEN the report is turned away and the entry goes through
+        assertThatThrownBy(() -> guard.call(TrafficClass.REPORTING, () -> "report"))
+            .hasFieldOrPropertyWithValue("failure", DataAccessException.Failure.BULKHEAD_FULL);
+        assertThat(guard.call(TrafficClass.ENTRY, () -> "entry")).isEqualTo("entry");
+        releaseReport.countDown();
+        assertThat(slowReport.get()).isEqualTo("report");
+        assertThat(guard.getBulkhead(TrafficClass.REPORTING).getRunningCalls()).isEqualTo(0);
+    }
+
+    @Test
+    public void unsavedTicketIsReportedAndItsSpotFreed() {
+        //GIVEN a ticket table which can not be reached
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("guard", 2, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return null;
+            }
+        };
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+        parkingService.setDataAccessGuard(guard);
+        //WHEN
+        //THEN the failure is typed rather than taken for a full lot, and no spot is left taken
+        assertThatThrownBy(() -> parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD"))
+            .isInstanceOf(DataAccessException.class)
+            .hasFieldOrPropertyWithValue("failure", DataAccessException.Failure.UNAVAILABLE);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(2);
+        assertThat(guard.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.pricing.FareQuote;
+import com.parkit.parkingsystem.pricing.FareQuotes;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class FareQuotesTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock   clock;
+    private InMemoryStorage   storage;
+    private InMemoryTicketDAO ticketDAO;
+    private FareQuotes        fareQuotes;
+    private ParkingService    parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        ticketDAO = new InMemoryTicketDAO(storage);
+        fareQuotes = new FareQuotes(ticketDAO, Duration.ofMinutes(15), clock);
+        parkingService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), ticketDAO, clock);
+        parkingService.setFareQuotes(fareQuotes);
+    }
+
+    @Test
+    public void quoteIsKeptUntilTheFareChanges() {
+        //GIVEN a car parked for 20 minutes
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        clock.advanceTo(START.plus(Duration.ofMinutes(20)));
+        //WHEN
+        FareQuote free    = parkingService.quoteFare("AB123CD");
+        FareQuote same    = parkingService.quoteFare("AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(2)));
+        FareQuote charged = parkingService.quoteFare("AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(2)).plusSeconds(5));
+        FareQuote cached  = parkingService.quoteFare("AB123CD");
+        //THEN the free period holds until its end, and a charged fare until it reaches the next cent, 24 seconds at 1.5 per hour
+        assertThat(free.getPrice()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(same).isSameAs(free);
+        assertThat(free.getValidUntil()).isEqualTo(LocalDateTime.ofInstant(START, ZoneOffset.UTC).plusMinutes(30).plusSeconds(1));
+        assertThat(charged.getPrice()).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(cached).isSameAs(charged);
+        assertThat(charged.getValidUntil()).isEqualTo(LocalDateTime.ofInstant(START, ZoneOffset.UTC).plusHours(2).plusSeconds(12));
+        assertThat(parkingService.quoteFare("ZZ999")).isNull();
+    }
+
+    @Test
+    public void exitWithinTheGraceIsChargedTheAmountPaid() {
+        //GIVEN two cars paying after one hour
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        parkingService.processIncomingVehicle(ParkingType.CAR, "EF456GH");
+        clock.advanceTo(START.plus(Duration.ofHours(1)));
+        FareQuote paid  = parkingService.payFare("AB123CD");
+        FareQuote again = parkingService.payFare("AB123CD");
+        parkingService.payFare("EF456GH");
+        //WHEN one leaves within the grace and the other after it
+        clock.advanceTo(START.plus(Duration.ofHours(1)).plus(Duration.ofMinutes(10)));
+        FareQuote quoted = parkingService.quoteFare("AB123CD");
+        Ticket    inTime = parkingService.processExitingVehicle("AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(2)));
+        Ticket late = parkingService.processExitingVehicle("EF456GH");
+        //THEN
+        assertThat(paid.isPaid()).isTrue();
+        assertThat(again).isSameAs(paid);
+        assertThat(quoted).isSameAs(paid);
+        assertThat(inTime.getPrice()).isEqualByComparingTo(new BigDecimal("1.50"));
+        assertThat(inTime.getDueAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(late.getPrice()).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(late.getDueAmount()).isEqualByComparingTo(new BigDecimal("1.50"));
+        assertThat(fareQuotes.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void paymentIsCreditedAfterARestart() {
+        //GIVEN a car paying after one hour, then staying on
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(1)));
+        parkingService.payFare("AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(2)));
+        //WHEN the app restarts, quoting the vehicle again from the open tickets, and a node without kiosks closes the lot
+        FareQuotes restarted = new FareQuotes(ticketDAO, Duration.ofMinutes(15), clock);
+        restarted.addAll(ticketDAO.getOpenTickets());
+        FareQuote      due       = restarted.quote("AB123CD");
+        FareQuote      paidAgain = restarted.pay("AB123CD");
+        ParkingService otherNode = new ParkingService(null, new InMemoryParkingSpotDAO(storage), ticketDAO, clock);
+        clock.advanceTo(START.plus(Duration.ofHours(3)));
+        otherNode.closeLot(null, 10);
+        Ticket closed = ticketDAO.getTicket("AB123CD");
+        //THEN only the part not paid yet is quoted and paid, and the exit asks for the last hour
+        assertThat(due.getPrice()).isEqualByComparingTo(new BigDecimal("1.50"));
+        assertThat(paidAgain.getPrice()).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(closed.getPrice()).isEqualByComparingTo(new BigDecimal("4.50"));
+        assertThat(closed.getPaidAmount()).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(closed.getDueAmount()).isEqualByComparingTo(new BigDecimal("1.50"));
+    }
+}
@@ -0,0 +1,241 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.gate.GateEventServer;
+import com.parkit.parkingsystem.gate.SimulatedCameraClient;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.pricing.FareQuotes;
+import com.parkit.parkingsystem.service.ClosureReport;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class GateEventServerTest {
+
+    @Mock
+    private ParkingService        parkingService;
+    @Mock
+    private SpotInventory         spotInventory;
+    private GateEventServer       server;
+    private SimulatedCameraClient camera;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        server = new GateEventServer(parkingService, new InetSocketAddress("localhost", 0), 2);
+        server.setSpotInventory(spotInventory);
+        server.start();
+        camera = new SimulatedCameraClient("localhost", server.getPort());
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws Exception {
+        camera.close();
+        server.close();
+    }
+
+    @Test
+    public void entryIsRepliedWithParkingNumber() throws Exception {
+        //GIVEN a free car spot
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        when(parkingService.processIncomingVehicle(null, ParkingType.CAR, "AB123CD", SpotRequest.atGate(7))).thenReturn(ticket);
+        //WHEN the camera of gate 7 reads a car
+        String reply = camera.sendEntry(7, ParkingType.CAR, "AB123CD");
+        //THEN the spot is sent back to the gate
+        assertThat(reply).isEqualTo("SPOT 7 AB123CD 2");
+    }
+
+    @Test
+    public void entryIsRepliedFullWhenNoSpotIsAvailable() throws Exception {
+        //GIVEN no free bike spot
+        when(parkingService.processIncomingVehicle(null, ParkingType.BIKE, "BK42", SpotRequest.atGate(1))).thenReturn(null);
+        //WHEN
+        String reply = camera.sendEntry(1, ParkingType.BIKE, "BK42");
+        //THEN
+        assertThat(reply).isEqualTo("FULL 1 BK42");
+    }
+
+    @Test
+    public void exitIsRepliedWithFare() throws Exception {
+        //GIVEN a car which parked for one hour
+        Ticket ticket = new Ticket();
+        ticket.setPrice(new BigDecimal("1.5"));
+        when(parkingService.processExitingVehicle(null, "AB123CD")).thenReturn(ticket);
+        //WHEN the camera of gate 3 reads the car
+        String reply = camera.sendExit(3, "AB123CD");
+        //THEN the fare is sent back with two decimals
+        assertThat(reply).isEqualTo("FARE 3 AB123CD 1.50");
+    }
+
+    @Test
+    public void exitOfUnknownVehicleIsReplied() throws Exception {
+        //GIVEN a vehicle without open ticket
+        when(parkingService.processExitingVehicle(null, "ZZ999")).thenReturn(null);
+        //WHEN
+        String reply = camera.sendExit(3, "ZZ999");
+        //THEN
+        assertThat(reply).isEqualTo("UNKNOWN 3 ZZ999");
+    }
+
+    @Test
+    public void kioskIsRepliedWithQuoteAndPayment() throws Exception {
+        //GIVEN a car parked for one hour
+        Clock  clock  = Clock.systemUTC();
+        Ticket ticket = new Ticket();
+        ticket.setId(1);
+        ticket.setVehicleRegNumber("AB123CD");
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(LocalDateTime.now(clock).minusHours(1));
+        InMemoryStorage   storage   = new InMemoryStorage();
+        InMemoryTicketDAO ticketDAO = new InMemoryTicketDAO(storage);
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        ticketDAO.saveTicket(ticket);
+        FareQuotes fareQuotes = new FareQuotes(ticketDAO, Duration.ofMinutes(15), clock);
+        fareQuotes.addAll(Collections.singletonList(ticket));
+        when(parkingService.quoteFare("AB123CD")).thenReturn(fareQuotes.quote("AB123CD"));
+        when(parkingService.payFare("AB123CD")).thenReturn(fareQuotes.pay("AB123CD"));
+        //WHEN kiosk 12 asks for the fare, then takes the payment
+        String quote   = camera.send("QUOTE 12 AB123CD");
+        String payment = camera.send("PAY 12 AB123CD k12-7");
+        String unknown = camera.send("QUOTE 12 ZZ999");
+        //THEN
+        assertThat(quote).isEqualTo("FARE 12 AB123CD 1.50");
+        assertThat(payment).isEqualTo("PAID 12 AB123CD 1.50 k12-7");
+        assertThat(unknown).isEqualTo("UNKNOWN 12 ZZ999");
+    }
+
+    @Test
+    public void kioskIsRepliedWithReservation() throws Exception {
+        //GIVEN one car spot left to reserve from 10:00 to 12:00
+        LocalDateTime start       = LocalDateTime.of(2026, 3, 2, 10, 0);
+        Reservation   reservation = new Reservation(7, ParkingType.CAR, "AB123CD", start, start.plusHours(2));
+        when(parkingService.reserveSpot(ParkingType.CAR, "AB123CD", start, start.plusHours(2))).thenReturn(reservation);
+        when(parkingService.reserveSpot(ParkingType.CAR, "EF456GH", start, start.plusHours(2))).thenReturn(null);
+        when(parkingService.reserveSpot(ParkingType.CAR, "IJ789KL", start, start.minusHours(2))).thenThrow(new IllegalArgumentException("Invalid window"));
+        //WHEN kiosk 12 reserves it for two cars, then with a window ending before it starts
+        String reserved = camera.send("RESERVE 12 CAR 2026-03-02T10:00 2026-03-02T12:00 AB123CD k12-8");
+        String full     = camera.send("RESERVE 12 CAR 2026-03-02T10:00 2026-03-02T12:00 EF456GH");
+        String invalid  = camera.send("RESERVE 12 CAR 2026-03-02T10:00 2026-03-02T08:00 IJ789KL");
+        String garbled  = camera.send("RESERVE 12 CAR tomorrow 2026-03-02T12:00 AB123CD");
+        //THEN
+        assertThat(reserved).isEqualTo("RESERVED 12 AB123CD 7 k12-8");
+        assertThat(full).isEqualTo("FULL 12 EF456GH");
+        assertThat(invalid).isEqualTo("INVALID 12 IJ789KL");
+        assertThat(garbled).isEqualTo("INVALID");
+    }
+
+    @Test
+    public void eventsOfOneGateAreProcessedInOrder() throws Exception {
+        //GIVEN an entry and an exit of the same vehicle sent back to back on gate 5
+        Ticket entryTicket = new Ticket();
+        entryTicket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        Ticket exitTicket = new Ticket();
+        exitTicket.setPrice(BigDecimal.ZERO);
+        when(parkingService.processIncomingVehicle(null, ParkingType.CAR, "AA11", SpotRequest.atGate(5))).thenReturn(entryTicket);
+        when(parkingService.processExitingVehicle(null, "AA11")).thenReturn(exitTicket);
+        //WHEN
+        String entryReply = camera.send("ENTRY 5 CAR AA11\nEXIT 5 AA11");
+        String exitReply  = camera.readReply();
+        //THEN the entry is processed before the exit
+        assertThat(entryReply).isEqualTo("SPOT 5 AA11 1");
+        assertThat(exitReply).isEqualTo("FARE 5 AA11 0.00");
+        InOrder inOrder = inOrder(parkingService);
+        inOrder.verify(parkingService).processIncomingVehicle(null, ParkingType.CAR, "AA11", SpotRequest.atGate(5));
+        inOrder.verify(parkingService).processExitingVehicle(null, "AA11");
+    }
+
+    @Test
+    public void requestIdIsPassedOnAndEchoed() throws Exception {
+        //GIVEN a gate controller numbering its commands
+        Ticket ticket = new Ticket();
+        ticket.setPrice(new BigDecimal("3"));
+        when(parkingService.processExitingVehicle("3-000042", "AB123CD")).thenReturn(ticket);
+        //WHEN
+        String reply   = camera.send("EXIT 3 AB123CD 3-000042");
+        String invalid = camera.send("EXIT 3 AB123CD 3-000042 extra");
+        //THEN the reply carries the request ID, and a line with more tokens is rejected
+        assertThat(reply).isEqualTo("FARE 3 AB123CD 3.00 3-000042");
+        assertThat(invalid).isEqualTo("INVALID");
+    }
+
+    @Test
+    public void operatorClosesTheLotInTheServer() throws Exception {
+        //GIVEN three vehicles still parked, none of them a bike
+        ClosureReport everyType = mock(ClosureReport.class);
+        ClosureReport bikes     = mock(ClosureReport.class);
+        when(everyType.getClosedTickets()).thenReturn(3);
+        when(parkingService.closeLot(null, 500)).thenReturn(everyType);
+        when(parkingService.closeLot(ParkingType.BIKE, 500)).thenReturn(bikes);
+        //WHEN the operator closes the bikes, then every type
+        String bikesClosed = camera.send("CLOSE 0 BIKE");
+        String allClosed   = camera.send("CLOSE 0 ALL");
+        String invalid     = camera.send("CLOSE 0 PLANE");
+        //THEN the parking service of the server closes the tickets, and the count is replied
+        assertThat(bikesClosed).isEqualTo("CLOSED 0");
+        assertThat(allClosed).isEqualTo("CLOSED 0 3");
+        assertThat(invalid).isEqualTo("INVALID");
+    }
+
+    @Test
+    public void operatorChangesTheSpotsInTheServer() throws Exception {
+        //GIVEN spots 6-10 missing, and spot 3 occupied
+        when(spotInventory.addSpots(6, 10, ParkingType.CAR)).thenReturn(5);
+        when(spotInventory.retypeSpots(3, 3, ParkingType.BIKE)).thenReturn(0);
+        when(spotInventory.retireSpots(9, 7)).thenThrow(new IllegalArgumentException("Invalid range of parking spots 9-7"));
+        //WHEN the operator adds them, retypes spot 3, then retires a range given backwards
+        String added   = camera.send("ADD 0 CAR 6 10");
+        String retyped = camera.send("RETYPE 0 BIKE 3 3");
+        String invalid = camera.send("RETIRE 0 9 7");
+        String garbled = camera.send("RETIRE 0 6-10");
+        //THEN the inventory of the server changes them, and the count of spots changed is replied
+        assertThat(added).isEqualTo("CHANGED 0 5");
+        assertThat(retyped).isEqualTo("CHANGED 0");
+        assertThat(invalid).isEqualTo("INVALID 0");
+        assertThat(garbled).isEqualTo("INVALID");
+    }
+
+    @Test
+    public void storageFailureIsRepliedBusyWhenRetryable() throws Exception {
+        //GIVEN a database which stopped answering
+        when(parkingService.processExitingVehicle(null, "AB123CD"))
+            .thenThrow(new DataAccessException(DataAccessException.Failure.CIRCUIT_OPEN, "Database calls suspended", null));
+        //WHEN
+        String reply = camera.sendExit(3, "AB123CD");
+        //THEN the camera is asked to send the event again
+        assertThat(reply).isEqualTo("BUSY 3 AB123CD");
+    }
+
+    @Test
+    public void malformedMessageIsRejected() throws Exception {
+        //WHEN the camera sends an unknown vehicle type
+        String reply = camera.send("ENTRY 1 PLANE F-GKXA");
+        //THEN
+        assertThat(reply).isEqualTo("INVALID");
+        verifyNoInteractions(parkingService);
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.StorageEngine;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class InMemoryStorageTest {
+
+    private InMemoryStorage        storage;
+    private InMemoryParkingSpotDAO parkingSpotDAO;
+    private InMemoryTicketDAO      ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        ticketDAO = new InMemoryTicketDAO(storage);
+    }
+
+    @Test
+    public void nextAvailableSlotIsTheLowestFreeNumberOfTheType() {
+        //GIVEN spot 1 is taken
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+        //THEN
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(4);
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.TRUCK)).isZero();
+        //WHEN spot 1 is released
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true));
+        //THEN
+        assertThat(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    public void updateOfUnknownSpotFails() {
+        assertThat(parkingSpotDAO.updateParking(new ParkingSpot(99, ParkingType.CAR, false))).isFalse();
+    }
+
+    @Test
+    public void getTicketReturnsTheLatestTicketOfTheVehicle() {
+        //GIVEN a vehicle which parked, left, and came back
+        Ticket first = saveTicket("ABCDEF", 1, LocalDateTime.now().minusHours(3));
+        first.setOutTime(LocalDateTime.now().minusHours(2));
+        first.setPrice(new BigDecimal("1.50"));
+        ticketDAO.updateTicket(first);
+        Ticket second = saveTicket("ABCDEF", 2, LocalDateTime.now().minusHours(1));
+        //WHEN
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+        //THEN the open ticket is returned, with its parking spot
+        assertThat(ticket.getId()).isEqualTo(second.getId());
+        assertThat(ticket.getOutTime()).isNull();
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(2);
+        assertThat(ticket.getParkingSpot().getParkingType()).isEqualTo(ParkingType.CAR);
+        assertThat(storage.getOpenTicket("ABCDEF").getId()).isEqualTo(second.getId());
+        assertThat(ticketDAO.getTicket("UNKNOWN")).isNull();
+    }
+
+    @Test
+    public void closedTicketIsNoLongerOpen() {
+        //GIVEN a parked vehicle
+        Ticket ticket = saveTicket("ABCDEF", 1, LocalDateTime.now().minusHours(1));
+        //WHEN it leaves
+        ticket.setOutTime(LocalDateTime.now());
+        ticket.setPrice(new BigDecimal("1.50"));
+        assertThat(ticketDAO.updateTicket(ticket)).isTrue();
+        //THEN
+        assertThat(storage.getOpenTicket("ABCDEF")).isNull();
+        assertThat(ticketDAO.getTicket("ABCDEF").getPrice()).isEqualByComparingTo("1.50");
+    }
+
+    @Test
+    public void snapshotIsRestored(@TempDir Path directory) throws Exception {
+        //GIVEN a parked vehicle
+        LocalDateTime inTime = LocalDateTime.of(2026, 3, 1, 10, 15, 30, 123_000_000);
+        parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, false));
+        saveTicket("ABCDEF", 1, inTime);
+        //WHEN the storage is saved and restored
+        Path file = directory.resolve("parking.snapshot");
+        storage.snapshot(file);
+        InMemoryStorage restored = InMemoryStorage.restore(file);
+        //THEN spots and tickets are back
+        assertThat(new InMemoryParkingSpotDAO(restored).getNextAvailableSlot(ParkingType.CAR)).isEqualTo(2);
+        Ticket ticket = restored.getOpenTicket("ABCDEF");
+        assertThat(ticket.getInTime()).isEqualTo(inTime);
+        assertThat(ticket.getPrice()).isEqualByComparingTo(BigDecimal.ZERO);
+        //AND new tickets do not reuse IDs
+        Ticket next = new Ticket();
+        next.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        next.setVehicleRegNumber("GHIJKL");
+        next.setInTime(inTime);
+        new InMemoryTicketDAO(restored).saveTicket(next);
+        assertThat(next.getId()).isGreaterThan(ticket.getId());
+    }
+
+    @Test
+    public void storageIsSelectedByConfiguration(@TempDir Path directory) throws Exception {
+        //GIVEN the in-memory engine with a snapshot file
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfig.ENGINE, "memory");
+        properties.setProperty(StorageConfig.MEMORY_SPOTS, "BIKE:1-2");
+        properties.setProperty(StorageConfig.MEMORY_SNAPSHOT, directory.resolve("lot.snapshot").toString());
+        StorageConfig storageConfig = new StorageConfig(properties);
+        storageConfig.getParkingSpotDAO().updateParking(new ParkingSpot(1, ParkingType.BIKE, false));
+        //WHEN the application stops and starts again
+        storageConfig.close();
+        StorageConfig restarted = new StorageConfig(properties);
+        //THEN the state of the lot is kept
+        assertThat(restarted.getEngine()).isEqualTo(StorageEngine.MEMORY);
+        assertThat(restarted.getParkingSpotDAO().getNextAvailableSlot(ParkingType.BIKE)).isEqualTo(2);
+        assertThat(restarted.getParkingSpotDAO().getNextAvailableSlot(ParkingType.CAR)).isZero();
+    }
+
+    private Ticket saveTicket(String vehicleRegNumber, int parkingNumber, LocalDateTime inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(BigDecimal.ZERO);
+        ticket.setInTime(inTime);
+        ticketDAO.saveTicket(ticket);
+        return ticket;
+    }
+}
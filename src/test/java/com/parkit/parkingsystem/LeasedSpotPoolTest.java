@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.LeasedSpotPool;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcSpotLeaseDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class LeasedSpotPoolTest {
+
+    private static EmbeddedDataBaseConfig dataBaseConfig;
+    private static JdbcSpotLeaseDAO       spotLeaseDAO;
+    private static JdbcParkingSpotDAO     parkingSpotDAO;
+    private static JdbcTicketDAO          ticketDAO;
+
+    @BeforeAll
+    private static void setUp() {
+        dataBaseConfig = new EmbeddedDataBaseConfig("spot-leases", 12, 2);
+        spotLeaseDAO = new JdbcSpotLeaseDAO();
+        spotLeaseDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig.clearDataBaseEntries();
+    }
+
+    @Test
+    public void nodesGiveSpotsFromTheirOwnBlocks() {
+        //GIVEN two nodes leasing blocks of 4 spots
+        ParkingService nodeA = nodeService(new LeasedSpotPool(spotLeaseDAO, "node-a", 4, 30));
+        ParkingService nodeB = nodeService(new LeasedSpotPool(spotLeaseDAO, "node-b", 4, 30));
+        //THEN each node gives the spots of its block
+        assertThat(nodeA.processIncomingVehicle(ParkingType.CAR, "AA001AA").getParkingSpot().getId()).isEqualTo(1);
+        assertThat(nodeB.processIncomingVehicle(ParkingType.CAR, "BB001BB").getParkingSpot().getId()).isEqualTo(5);
+        assertThat(nodeA.processIncomingVehicle(ParkingType.CAR, "AA002AA").getParkingSpot().getId()).isEqualTo(2);
+        assertThat(nodeB.processIncomingVehicle(ParkingType.CAR, "BB002BB").getParkingSpot().getId()).isEqualTo(6);
+        assertThat(nodeB.processIncomingVehicle(ParkingType.BIKE, "BB003BB").getParkingSpot().getId()).isEqualTo(13);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(8);
+    }
+
+    @Test
+    public void nodeRunningLowLeasesAnotherBlock() {
+        LeasedSpotPool pool = new LeasedSpotPool(spotLeaseDAO, "node-a", 4, 30);
+        ParkingService node = nodeService(pool);
+        for (int i = 1; i <= 3; i++) {
+            node.processIncomingVehicle(ParkingType.CAR, "AA00" + i + "AA");
+        }
+        //WHEN the fourth vehicle takes the last spot of the block
+        assertThat(node.processIncomingVehicle(ParkingType.CAR, "AA004AA").getParkingSpot().getId()).isEqualTo(4);
+        //THEN a new block was leased beforehand
+        assertThat(pool.countAvailable(ParkingType.CAR)).isEqualTo(4);
+        assertThat(spotLeaseDAO.getLeasedSpots(ParkingType.CAR, "node-a").size()).isEqualTo(4);
+    }
+
+    @Test
+    public void nodeWithoutSpotsTakesOverHalfOfTheRichestNode() {
+        //GIVEN node A holding every car spot
+        LeasedSpotPool nodeA = new LeasedSpotPool(spotLeaseDAO, "node-a", 12, 30);
+        nodeA.allocate(ParkingType.CAR);
+        LeasedSpotPool nodeB = new LeasedSpotPool(spotLeaseDAO, "node-b", 4, 30);
+        //WHEN node B needs a spot
+        int parkingNumber = nodeB.allocate(ParkingType.CAR);
+        //THEN it takes over 4 of the highest free spots of node A, which can no longer claim them
+        assertThat(parkingNumber).isEqualTo(9);
+        assertThat(nodeB.claim(parkingNumber)).isTrue();
+        assertThat(nodeA.claim(10)).isFalse();
+        assertThat(nodeB.claim(10)).isTrue();
+        //AND node A finds out on its next heartbeat, keeping spots 1 to 8
+        nodeA.heartbeat();
+        assertThat(nodeA.countAvailable(ParkingType.CAR)).isEqualTo(8);
+    }
+
+    @Test
+    public void spotsOfADeadNodeAreLeasedAgain() throws Exception {
+        //GIVEN node A holding every car spot, whose lease expired
+        new LeasedSpotPool(spotLeaseDAO, "node-a", 12, 30).allocate(ParkingType.CAR);
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("update parking set LEASE_EXPIRY = timestampadd(SECOND, -60, CURRENT_TIMESTAMP) where LEASE_OWNER = 'node-a'");
+        }
+        //THEN node B leases its spots from the lowest one
+        ParkingService nodeB = nodeService(new LeasedSpotPool(spotLeaseDAO, "node-b", 4, 30));
+        assertThat(nodeB.processIncomingVehicle(ParkingType.CAR, "BB001BB").getParkingSpot().getId()).isEqualTo(1);
+        assertThat(spotLeaseDAO.getLeasedSpots(ParkingType.CAR, "node-a").size()).isEqualTo(8);
+    }
+
+    @Test
+    public void heartbeatFindsSpotsFreedAtOtherNodesAndGivesBackSurplus() {
+        LeasedSpotPool pool  = new LeasedSpotPool(spotLeaseDAO, "node-a", 2, 30);
+        ParkingService nodeA = nodeService(pool);
+        for (int i = 1; i <= 6; i++) {
+            nodeA.processIncomingVehicle(ParkingType.CAR, "AA00" + i + "AA");
+        }
+        //WHEN every vehicle leaves through another node
+        ParkingService nodeB = nodeService(new LeasedSpotPool(spotLeaseDAO, "node-b", 2, 30));
+        for (int i = 1; i <= 6; i++) {
+            nodeB.processExitingVehicle("AA00" + i + "AA");
+        }
+        //THEN node A finds its freed spots back, keeps one block and gives back the others
+        pool.heartbeat();
+        assertThat(pool.countAvailable(ParkingType.CAR)).isEqualTo(2);
+        assertThat(nodeA.processIncomingVehicle(ParkingType.CAR, "AA007AA").getParkingSpot().getId()).isEqualTo(1);
+        //WHEN the node stops
+        pool.close();
+        //THEN its spots are leased by the others
+        assertThat(spotLeaseDAO.getLeasedSpots(ParkingType.CAR, "node-a").isEmpty()).isTrue();
+        assertThat(spotLeaseDAO.leaseSpots(ParkingType.CAR, "node-b", 12, 30).size()).isEqualTo(11);
+    }
+
+    @Test
+    public void failedHeartbeatKeepsTheSpotsKnown() {
+        //GIVEN a node holding a block, whose database fails at the next heartbeat
+        JdbcSpotLeaseDAO failingDAO = new JdbcSpotLeaseDAO() {
+            @Override
+            public List<Integer> getLeasedSpots(ParkingType parkingType, String nodeId) {
+                throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Error fetching leased parking spots", null);
+            }
+        };
+        failingDAO.dataBaseConfig = dataBaseConfig;
+        LeasedSpotPool pool = new LeasedSpotPool(failingDAO, "node-a", 4, 30);
+        int parkingNumber = pool.allocate(ParkingType.CAR);
+        //WHEN
+        pool.heartbeat();
+        //THEN the failure is not thrown to the scheduler, and the node still gives its spots
+        assertThat(parkingNumber).isEqualTo(1);
+        assertThat(pool.countAvailable(ParkingType.CAR)).isEqualTo(3);
+        assertThat(pool.allocate(ParkingType.CAR)).isEqualTo(2);
+    }
+
+    private static ParkingService nodeService(LeasedSpotPool pool) {
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        parkingService.setLeasedSpotPool(pool);
+        return parkingService;
+    }
+}
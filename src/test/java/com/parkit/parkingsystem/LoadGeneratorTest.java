@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.load.LoadGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void loadGeneratorMeasuresExitsOnEmbeddedDataBase() throws Exception {
+        //GIVEN two gates and a short measured phase
+        LoadGenerator loadGenerator = new LoadGenerator();
+        loadGenerator.setGates(2);
+        loadGenerator.setDurations(0.5, 1);
+        //WHEN running at a low rate, far below the capacity of the embedded database
+        LoadGenerator.StepResult result = loadGenerator.runStep(20);
+        //THEN vehicles enter and leave, and every exit is measured
+        assertThat(result.getEntryLatency().getCount()).isPositive();
+        assertThat(result.getExitLatency().getCount()).isPositive();
+        assertThat(result.getFailedExits()).isZero();
+        assertThat(result.getExitLatency().getValueAtPercentile(99)).isPositive();
+    }
+}
@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupGranularity;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcRollupDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Rollup;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ClosureReport;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class LotClosureTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private static EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("closure", 30, 3);
+
+    private SimulationClock    clock;
+    private JdbcParkingSpotDAO parkingSpotDAO;
+    private JdbcTicketDAO      ticketDAO;
+    private ParkingService     parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig.clearDataBaseEntries();
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+        for (int i = 1; i <= 30; i++) {
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR" + i);
+        }
+        for (int i = 1; i <= 3; i++) {
+            parkingService.processIncomingVehicle(ParkingType.BIKE, "BIKE" + i);
+        }
+    }
+
+    @Test
+    public void closingTheCarsClosesEveryCarTicketByChunks() {
+        //GIVEN a full lot two hours later
+        clock.advanceTo(START.plus(Duration.ofHours(2)));
+        //WHEN the cars are closed by chunks of 7
+        ClosureReport report = parkingService.closeLot(ParkingType.CAR, 7);
+        //THEN every car is charged and its spot freed, the bikes stay, and the rollups count the closed tickets
+        JdbcRollupDAO rollupDAO = new JdbcRollupDAO();
+        rollupDAO.dataBaseConfig = dataBaseConfig;
+        List<Rollup>  days      = rollupDAO.getRollups(RollupGranularity.DAY, LocalDateTime.ofInstant(START, ZoneOffset.UTC).toLocalDate().atStartOfDay(),
+                                                       LocalDateTime.ofInstant(START, ZoneOffset.UTC).plusDays(1));
+        assertThat(report.getOpenTickets()).isEqualTo(30);
+        assertThat(report.getClosedTickets()).isEqualTo(30);
+        assertThat(report.getRevenue()).isEqualByComparingTo(new BigDecimal("90.00"));
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(30);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.BIKE)).isEqualTo(0);
+        assertThat(ticketDAO.getOpenTickets(ParkingType.CAR).size()).isEqualTo(0);
+        assertThat(ticketDAO.getOpenTickets().size()).isEqualTo(3);
+        assertThat(ticketDAO.getTicket("CAR17").getPrice()).isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(days.stream().filter(day -> day.getParkingType() == ParkingType.CAR).mapToInt(Rollup::getTickets).sum()).isEqualTo(30);
+    }
+
+    @Test
+    public void ticketClosedMeanwhileIsLeftOut() {
+        //GIVEN the open bike tickets, read before one of the bikes leaves through a gate
+        List<Ticket> bikes = ticketDAO.getOpenTickets(ParkingType.BIKE);
+        clock.advanceTo(START.plus(Duration.ofHours(1)));
+        parkingService.processExitingVehicle("BIKE2");
+        LocalDateTime outTime = LocalDateTime.now(clock);
+        bikes.forEach(ticket -> {
+            ticket.setOutTime(outTime);
+            ticket.setPrice(BigDecimal.TEN);
+        });
+        //WHEN
+        List<Ticket> closed = ticketDAO.closeTickets(bikes);
+        //THEN the bike which left keeps the fare of its exit
+        assertThat(closed.size()).isEqualTo(2);
+        assertThat(closed.stream().noneMatch(ticket -> ticket.getVehicleRegNumber().equals("BIKE2"))).isTrue();
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.BIKE)).isEqualTo(3);
+        assertThat(ticketDAO.getTicket("BIKE2").getPrice()).isEqualByComparingTo(new BigDecimal("1.00"));
+        assertThat(ticketDAO.getTicket("BIKE1").getVersion()).isEqualTo(2);
+    }
+}
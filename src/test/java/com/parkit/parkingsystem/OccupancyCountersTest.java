@@ -0,0 +1,201 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.LotTopology;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.AllocationPolicy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.occupancy.OccupancyCounters;
+import com.parkit.parkingsystem.occupancy.OccupancyPublisher;
+import com.parkit.parkingsystem.occupancy.OccupancySnapshot;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class OccupancyCountersTest {
+
+    private static final LotTopology TOPOLOGY = LotTopology.parse(Arrays.asList(
+            "spot 1-2 CAR 0 A 0",
+            "spot 3 CAR 1 B 0",
+            "spot 4-5 BIKE 0 M 10"));
+
+    private InMemoryParkingSpotDAO parkingSpotDAO;
+    private SpotAllocator          spotAllocator;
+    private OccupancyCounters      counters;
+    private ParkingService         parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        spotAllocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.LOWEST_NUMBER);
+        counters = new OccupancyCounters(TOPOLOGY);
+        counters.reconcile(parkingSpotDAO, spotAllocator);
+        parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(storage));
+        parkingService.setSpotAllocator(spotAllocator);
+        parkingService.addParkingListener(counters);
+    }
+
+    @Test
+    public void countersFollowEntriesAndExits() {
+        assertThat(counters.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        assertThat(counters.getFreeSpotsInZone("A")).isEqualTo(2);
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        parkingService.processIncomingVehicle(ParkingType.BIKE, "EF456GH");
+        assertThat(counters.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+        assertThat(counters.getFreeSpots(ParkingType.BIKE)).isEqualTo(1);
+        assertThat(counters.getFreeSpotsInZone("A")).isEqualTo(1);
+        assertThat(counters.getFreeSpotsInZone("M")).isEqualTo(1);
+        parkingService.processExitingVehicle("AB123CD");
+        OccupancySnapshot snapshot = counters.snapshot();
+        assertThat(snapshot.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        assertThat(snapshot.getFreeSpotsInZone("B")).isEqualTo(1);
+        assertThat(snapshot.getFreeSpots(ParkingType.TRUCK)).isZero();
+        assertThat(snapshot.getVersion()).isEqualTo(4);
+    }
+
+    @Test
+    public void reconciliationCatchesUpChangesMadeElsewhere() {
+        //GIVEN a spot taken by another node
+        parkingSpotDAO.claimParking(1);
+        spotAllocator.setAvailable(1, false);
+        assertThat(counters.getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        //WHEN
+        counters.reconcile(parkingSpotDAO, spotAllocator);
+        //THEN
+        assertThat(counters.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+        assertThat(counters.getFreeSpotsInZone("A")).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentGatesDoNotLoseUpdates() throws Exception {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(3, ParkingType.CAR, false));
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        for (int gate = 0; gate < 8; gate++) {
+            gates.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counters.vehicleEntered(ticket);
+                    counters.vehicleExited(ticket);
+                }
+                counters.vehicleEntered(ticket);
+            });
+        }
+        gates.shutdown();
+        assertThat(gates.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(counters.getFreeSpots(ParkingType.CAR)).isEqualTo(-5);
+        assertThat(counters.getFreeSpotsInZone("B")).isEqualTo(-7);
+    }
+
+    @Test
+    public void subscribersReceiveTheLatestCounts() {
+        OccupancyPublisher publisher = new OccupancyPublisher(counters, Runnable::run, 2);
+        BoardSubscriber    board     = new BoardSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(board);
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        assertThat(board.received.size()).isEqualTo(2);
+        assertThat(board.received.get(0).getFreeSpots(ParkingType.CAR)).isEqualTo(3);
+        assertThat(board.received.get(1).getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+        publisher.close();
+        assertThat(board.completed).isTrue();
+        assertThat(publisher.getSubscriberCount()).isZero();
+    }
+
+    @Test
+    public void slowSubscriberGetsOnlyTheLatestCountsThenIsDropped() {
+        OccupancyPublisher publisher = new OccupancyPublisher(counters, Runnable::run, 2);
+        BoardSubscriber    slowBoard = new BoardSubscriber(1);
+        BoardSubscriber    fastBoard = new BoardSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(slowBoard);
+        publisher.subscribe(fastBoard);
+        //WHEN two vehicles come while the slow board does not request anything
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        parkingService.processIncomingVehicle(ParkingType.CAR, "EF456GH");
+        slowBoard.subscription.request(1);
+        //THEN it only receives the latest counts
+        assertThat(slowBoard.received.size()).isEqualTo(2);
+        assertThat(slowBoard.received.get(1).getFreeSpots(ParkingType.CAR)).isEqualTo(1);
+        //WHEN it stops requesting for too long
+        parkingService.processIncomingVehicle(ParkingType.BIKE, "IJ789KL");
+        parkingService.processExitingVehicle("AB123CD");
+        parkingService.processExitingVehicle("EF456GH");
+        parkingService.processExitingVehicle("IJ789KL");
+        //THEN it is dropped, while the other board received every update
+        assertThat(slowBoard.error).isInstanceOf(IllegalStateException.class);
+        assertThat(publisher.getSubscriberCount()).isEqualTo(1);
+        assertThat(fastBoard.received.size()).isEqualTo(7);
+    }
+
+    @Test
+    public void storageConfigReconcilesTheCountersAtOnce() throws Exception {
+        //GIVEN an in-memory lot of three cars and two bikes, one car parked
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfig.ENGINE, "memory");
+        StorageConfig storageConfig = new StorageConfig(properties);
+        try {
+            storageConfig.getParkingSpotDAO().claimParking(1);
+            //WHEN the counters of the display boards are created
+            OccupancyCounters storageCounters = storageConfig.getOccupancyCounters(null);
+            //THEN they count the free spots of the storage without waiting for an entry or an exit
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (storageCounters.getFreeSpots(ParkingType.CAR) != 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(storageCounters.getFreeSpots(ParkingType.CAR)).isEqualTo(2);
+            assertThat(storageCounters.getFreeSpots(ParkingType.BIKE)).isEqualTo(2);
+            assertThat(storageConfig.getOccupancyPublisher()).isNotNull();
+        } finally {
+            storageConfig.close();
+        }
+    }
+
+    private static final class BoardSubscriber implements Flow.Subscriber<OccupancySnapshot> {
+        private final long                    initialRequest;
+        private final List<OccupancySnapshot> received = new ArrayList<>();
+        private       Flow.Subscription       subscription;
+        private       Throwable               error;
+        private       boolean                 completed;
+
+        private BoardSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(OccupancySnapshot item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class OptimisticConcurrencyTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private static EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("versions", 2, 1);
+
+    private SimulationClock    clock;
+    private JdbcParkingSpotDAO parkingSpotDAO;
+    private JdbcTicketDAO      ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig.clearDataBaseEntries();
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void staleUpdatesAreRejected() {
+        //GIVEN a spot and a ticket read twice
+        ParkingSpot    spot           = parkingSpotDAO.getParkingSpot(1);
+        ParkingSpot    staleSpot      = parkingSpotDAO.getParkingSpot(1);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+        parkingService.processIncomingVehicle(ParkingType.BIKE, "BK1");
+        Ticket ticket      = ticketDAO.getTicket("BK1");
+        Ticket staleTicket = ticketDAO.getTicket("BK1");
+        ticket.setOutTime(LocalDateTime.now(clock).plusHours(1));
+        staleTicket.setOutTime(LocalDateTime.now(clock).plusHours(2));
+        //WHEN both copies are updated
+        spot.setAvailable(false);
+        staleSpot.setAvailable(false);
+        //THEN the second writer does not overwrite the first one
+        assertThat(parkingSpotDAO.updateParking(spot)).isTrue();
+        assertThat(parkingSpotDAO.updateParking(staleSpot)).isFalse();
+        assertThat(spot.getVersion()).isEqualTo(staleSpot.getVersion() + 1);
+        assertThat(ticketDAO.updateTicket(ticket)).isTrue();
+        assertThat(ticketDAO.updateTicket(staleTicket)).isFalse();
+        assertThat(ticketDAO.getTicket("BK1").getOutTime()).isEqualTo(ticket.getOutTime());
+        //THEN a spot not read from the database is updated whatever its version
+        assertThat(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true))).isTrue();
+        assertThat(parkingSpotDAO.getParkingSpot(1).isAvailable()).isTrue();
+    }
+
+    @Test
+    public void exitIsRetriedWhenTheTicketChangedSinceItWasRead() {
+        //GIVEN a ticket updated by another node right after the exit read it
+        AtomicBoolean changed   = new AtomicBoolean();
+        JdbcTicketDAO racingDAO = new JdbcTicketDAO() {
+            @Override
+            public Ticket getTicket(String vehicleRegNumber) {
+                Ticket ticket = super.getTicket(vehicleRegNumber);
+                if (ticket != null && changed.compareAndSet(false, true)) {
+                    execute("update ticket set VERSION = VERSION + 1, PRICE = 0 where ID = " + ticket.getId());
+                }
+                return ticket;
+            }
+        };
+        racingDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, racingDAO, clock);
+        Ticket entry = parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        clock.advanceTo(START.plus(Duration.ofHours(2)));
+        //WHEN
+        Ticket exit = parkingService.processExitingVehicle("AB123CD");
+        //THEN the ticket is closed with the latest version, and its spot freed
+        assertThat(exit.getId()).isEqualTo(entry.getId());
+        assertThat(exit.getVersion()).isEqualTo(3);
+        assertThat(ticketDAO.getTicket("AB123CD").getOutTime()).isNotNull();
+        assertThat(parkingSpotDAO.getParkingSpot(exit.getParkingSpot().getId()).isAvailable()).isTrue();
+    }
+
+    private static void execute(String sql) {
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
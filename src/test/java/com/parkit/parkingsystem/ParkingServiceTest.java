@@ -10,6 +10,7 @@ import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -161,14 +162,31 @@ public class ParkingServiceTest {
         //GIVEN: a car enters the parking
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(2);
+        when(parkingSpotDAO.claimParking(2, ParkingType.CAR)).thenReturn(true);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         //WHEN: processing this car
         parkingService.processIncomingVehicle();
-        //THEN: There must be one call to ParkingSpotDAO and one call to TicketDAO
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        //THEN: The spot must be claimed, not overwritten, and one ticket saved
+        verify(parkingSpotDAO, Mockito.times(1)).claimParking(2, ParkingType.CAR);
+        verify(parkingSpotDAO, Mockito.never()).updateParking(any(ParkingSpot.class));
         verify(ticketDAO, Mockito.times(1)).saveTicket(any(Ticket.class));
     }
 
+    @Test
+    public void processIncomingCarTakesTheNextSpotWhenAGateClaimedItFirst() throws Exception {
+        //GIVEN: spot 2 found free, then taken by a gate while the plate is typed
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(2, 2, 3);
+        when(parkingSpotDAO.claimParking(2, ParkingType.CAR)).thenReturn(false);
+        when(parkingSpotDAO.claimParking(3, ParkingType.CAR)).thenReturn(true);
+        //WHEN
+        parkingService.processIncomingVehicle();
+        //THEN: the car gets the next free spot
+        ArgumentCaptor<Ticket> saved = ArgumentCaptor.forClass(Ticket.class);
+        verify(ticketDAO).saveTicket(saved.capture());
+        assertThat(saved.getValue().getParkingSpot().getId()).isEqualTo(3);
+    }
+
     @Test
     void processIncomingBikeWithExceptionThrown() throws Exception {
         //GIVEN a bike with no registration number incoming the parking
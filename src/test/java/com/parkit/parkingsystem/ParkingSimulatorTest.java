@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.simulation.Distribution;
+import com.parkit.parkingsystem.simulation.ParkingSimulator;
+import com.parkit.parkingsystem.simulation.SimulationConfig;
+import com.parkit.parkingsystem.simulation.SimulationReport;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class ParkingSimulatorTest {
+
+    @Test
+    public void simulateOneCarSpotWithRegularArrivals() {
+        //GIVEN a lot with one car spot, a car every hour staying two hours, and no returning customer
+        SimulationConfig config = new SimulationConfig();
+        config.setDuration(Duration.ofDays(1));
+        config.setInterArrivalTime(ParkingType.CAR, Distribution.constant(60));
+        config.setInterArrivalTime(ParkingType.BIKE, null);
+        config.setParkingDuration(ParkingType.CAR, Distribution.constant(120));
+        config.setRecurringRate(0);
+        //WHEN simulating a day
+        SimulationReport report = simulate(config, "CAR:1");
+        //THEN every other car is turned away and each parked car pays two hours
+        SimulationReport.TypeReport cars = report.get(ParkingType.CAR);
+        assertThat(report.get(ParkingType.BIKE)).isNull();
+        assertThat(cars.getArrivals()).isEqualTo(23);
+        assertThat(cars.getRejected()).isEqualTo(11);
+        assertThat(cars.getExits()).isEqualTo(11);
+        assertThat(cars.getFailedExits()).isZero();
+        assertThat(cars.getRevenue()).isEqualByComparingTo(new BigDecimal("33.00"));
+        assertThat(cars.getPeakOccupancy()).isEqualTo(1);
+        assertThat(cars.getAverageOccupancy()).isCloseTo(1380.0 / 1440.0, within(1e-9));
+    }
+
+    @Test
+    public void simulateAMonthWithRecurringVehicles() {
+        //GIVEN the default month of traffic on a lot large enough for every vehicle
+        SimulationConfig config = new SimulationConfig();
+        config.setHourlyArrivalFactor(3, 0);
+        //WHEN
+        SimulationReport report = simulate(config, "CAR:1-200,BIKE:201-400");
+        //THEN no vehicle is turned away and every exit is processed
+        assertThat(report.getSimulatedDuration()).isEqualTo(Duration.ofDays(30));
+        for (ParkingType parkingType : new ParkingType[]{ParkingType.CAR, ParkingType.BIKE}) {
+            SimulationReport.TypeReport typeReport = report.get(parkingType);
+            assertThat(typeReport.getArrivals()).isPositive();
+            assertThat(typeReport.getRejectionRate()).isZero();
+            assertThat(typeReport.getFailedExits()).isZero();
+            assertThat(typeReport.getExits()).isGreaterThan(typeReport.getArrivals() - typeReport.getPeakOccupancy() - 1);
+        }
+        assertThat(report.getTotalRevenue()).isPositive();
+    }
+
+    private static SimulationReport simulate(SimulationConfig config, String spots) {
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots(spots, storage);
+        return new ParkingSimulator(config, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage)).run();
+    }
+}
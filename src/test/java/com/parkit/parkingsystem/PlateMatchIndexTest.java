@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.matching.PlateMatch;
+import com.parkit.parkingsystem.matching.PlateMatchIndex;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class PlateMatchIndexTest {
+
+    private InMemoryStorage   storage;
+    private InMemoryTicketDAO ticketDAO;
+    private PlateMatchIndex   plateMatchIndex;
+    private ParkingService    parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        ticketDAO = new InMemoryTicketDAO(storage);
+        plateMatchIndex = new PlateMatchIndex(PlateMatchIndex.DEFAULT_MAX_DISTANCE);
+        parkingService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), ticketDAO);
+        parkingService.setPlateMatchIndex(plateMatchIndex);
+    }
+
+    @Test
+    public void candidatesAreRankedByEditDistance() {
+        //GIVEN
+        plateMatchIndex.add("AB-123-CD");
+        plateMatchIndex.add("AB124CD");
+        plateMatchIndex.add("BA123CD");
+        plateMatchIndex.add("XY987ZT");
+        //WHEN an O is read instead of a 0 and a 8 instead of a B
+        List<PlateMatch> candidates = plateMatchIndex.findCandidates("a8 123 cd", 10);
+        //THEN the confusion costs less than a substitution or a swap, and unrelated plates are left out
+        assertThat(candidates.size()).isEqualTo(3);
+        assertThat(candidates.get(0).getVehicleRegNumber()).isEqualTo("AB-123-CD");
+        assertThat(candidates.get(0).getDistance()).isEqualTo(0.25);
+        assertThat(candidates.get(1).getVehicleRegNumber()).isEqualTo("AB124CD");
+        assertThat(candidates.get(1).getDistance()).isEqualTo(1.25);
+        assertThat(candidates.get(2).getVehicleRegNumber()).isEqualTo("BA123CD");
+        assertThat(plateMatchIndex.findCandidates("a8 123 cd", 1).size()).isEqualTo(1);
+    }
+
+    @Test
+    public void misreadPlateLeavesWithTheTicketOfTheParkedVehicle() {
+        //GIVEN misreads corrected, two parked vehicles, then the exit camera confuses a 0 with an O
+        parkingService.setCorrectMisreads(true);
+        Ticket entered = parkingService.processIncomingVehicle(ParkingType.CAR, "AB120CD");
+        parkingService.processIncomingVehicle(ParkingType.CAR, "XY987ZT");
+        //WHEN
+        Ticket exited = parkingService.processExitingVehicle("AB12OCD");
+        //THEN the ticket is closed and the plate leaves the index
+        assertThat(exited).isNotNull();
+        assertThat(exited.getId()).isEqualTo(entered.getId());
+        assertThat(ticketDAO.getTicket("AB120CD").getOutTime()).isNotNull();
+        assertThat(plateMatchIndex.size()).isEqualTo(1);
+        assertThat(parkingService.findExitCandidates("AB12OCD").isEmpty()).isTrue();
+    }
+
+    @Test
+    public void misreadPlateIsOnlyCorrectedOnRequest() {
+        //GIVEN a parked vehicle, then the exit camera confuses a 0 with an O
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB120CD");
+        //WHEN
+        Ticket exited = parkingService.processExitingVehicle("AB12OCD");
+        //THEN the ticket stays open, and the operator is given the parked vehicle
+        assertThat(exited).isNull();
+        assertThat(ticketDAO.getTicket("AB120CD").getOutTime()).isNull();
+        assertThat(parkingService.findExitCandidates("AB12OCD").get(0).getVehicleRegNumber()).isEqualTo("AB120CD");
+    }
+
+    @Test
+    public void ambiguousOrDistantPlateIsNotTakenForAnother() {
+        //GIVEN misreads corrected, and two parked vehicles as close to the plate read
+        parkingService.setCorrectMisreads(true);
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB120CD");
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB12DCD");
+        //WHEN
+        Ticket ambiguous = parkingService.processExitingVehicle("AB12OCD");
+        Ticket distant   = parkingService.processExitingVehicle("AB129CD");
+        //THEN the operator is given the candidates instead
+        assertThat(ambiguous).isNull();
+        assertThat(distant).isNull();
+        assertThat(parkingService.findExitCandidates("AB129CD").size()).isEqualTo(2);
+        assertThat(ticketDAO.getOpenTickets().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void indexIsFilledFromTheOpenTickets() {
+        //GIVEN a vehicle parked before the index existed, and one which already left
+        ParkingService withoutIndex = new ParkingService(null, new InMemoryParkingSpotDAO(storage), ticketDAO);
+        withoutIndex.processIncomingVehicle(ParkingType.CAR, "AB120CD");
+        withoutIndex.processIncomingVehicle(ParkingType.BIKE, "EF456GH");
+        withoutIndex.processExitingVehicle("EF456GH");
+        //WHEN
+        PlateMatchIndex index = new PlateMatchIndex(PlateMatchIndex.DEFAULT_MAX_DISTANCE);
+        index.addAll(ticketDAO.getOpenTickets());
+        //THEN
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findMisread("AB1Z0CD").getVehicleRegNumber()).isEqualTo("AB120CD");
+    }
+}
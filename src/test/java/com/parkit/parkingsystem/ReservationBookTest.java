@@ -0,0 +1,154 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReservationStatus;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.reservation.ReservationBook;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class ReservationBookTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 2, 0, 0);
+
+    private SimulationClock clock;
+    private ReservationBook reservationBook;
+    private ParkingService  parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(at(8, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        reservationBook = new ReservationBook(clock);
+        reservationBook.setCapacity(ParkingType.CAR, 2);
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-2", storage);
+        parkingService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage), clock);
+        parkingService.setReservationBook(reservationBook);
+    }
+
+    @Test
+    public void windowsAreBookedUpToTheCapacity() {
+        assertThat(reservationBook.reserve(ParkingType.CAR, "AA001AA", at(10, 0), at(12, 0))).isNotNull();
+        assertThat(reservationBook.reserve(ParkingType.CAR, "AA002AA", at(11, 0), at(13, 0))).isNotNull();
+        //THEN both spots are reserved from 11:00 to 12:00 only
+        assertThat(reservationBook.reserve(ParkingType.CAR, "AA003AA", at(11, 30), at(12, 30))).isNull();
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(9, 0), at(10, 0))).isEqualTo(2);
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(9, 0), at(11, 15))).isZero();
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(12, 0), at(14, 0))).isEqualTo(1);
+        assertThat(reservationBook.reserve(ParkingType.CAR, "AA003AA", at(12, 0), at(14, 0))).isNotNull();
+        assertThat(reservationBook.countAvailable(ParkingType.BIKE, at(9, 0), at(10, 0))).isZero();
+    }
+
+    @Test
+    public void walkInVehicleLeavesTheSpotOfAnImminentReservation() {
+        //GIVEN a reservation from 10:00, at 9:45
+        Reservation reservation = reservationBook.reserve(ParkingType.CAR, "RE001RE", at(10, 0), at(12, 0));
+        clock.advanceTo(at(9, 45).toInstant(ZoneOffset.UTC));
+        //THEN a first walk-in vehicle gets a spot, but not a second one
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA001WA")).isNotNull();
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA002WA")).isNull();
+        //AND the vehicle with the reservation gets the last spot
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "RE001RE").getParkingSpot().getId()).isEqualTo(2);
+        assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+        assertThat(reservation.getParkingNumber()).isEqualTo(2);
+    }
+
+    @Test
+    public void reservationIsBookedAgainWhenTheEntryFails() {
+        //GIVEN a reservation from 10:00, and a storage failing to save the ticket of its vehicle
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-2", storage);
+        ParkingService failingService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage) {
+            @Override
+            public void saveTicket(Ticket ticket) {
+                throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Error saving ticket", null);
+            }
+        }, clock);
+        failingService.setReservationBook(reservationBook);
+        Reservation reservation = reservationBook.reserve(ParkingType.CAR, "RE001RE", at(10, 0), at(12, 0));
+        clock.advanceTo(at(9, 45).toInstant(ZoneOffset.UTC));
+        //WHEN the vehicle enters
+        assertThatThrownBy(() -> failingService.processIncomingVehicle(ParkingType.CAR, "RE001RE")).isInstanceOf(DataAccessException.class);
+        //THEN its reservation still keeps a spot for its next try
+        assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.BOOKED);
+        assertThat(reservationBook.countImminent(ParkingType.CAR)).isEqualTo(1);
+        assertThat(reservationBook.reserve(ParkingType.CAR, "RE001RE", at(10, 0), at(12, 0))).isSameAs(reservation);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA001WA")).isNotNull();
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA002WA")).isNull();
+    }
+
+    @Test
+    public void reservationIsReleasedWhenTheVehicleDoesNotCome() {
+        Reservation first  = reservationBook.reserve(ParkingType.CAR, "RE001RE", at(10, 0), at(12, 0));
+        Reservation second = reservationBook.reserve(ParkingType.CAR, "RE002RE", at(10, 0), at(12, 0));
+        clock.advanceTo(at(9, 50).toInstant(ZoneOffset.UTC));
+        assertThat(reservationBook.countImminent(ParkingType.CAR)).isEqualTo(2);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA001WA")).isNull();
+        assertThat(reservationBook.cancel(second.getId())).isTrue();
+        //WHEN the other vehicle is still missing after the grace period
+        clock.advanceTo(at(10, 16).toInstant(ZoneOffset.UTC));
+        //THEN its spot is given back
+        assertThat(reservationBook.countImminent(ParkingType.CAR)).isZero();
+        assertThat(first.getStatus()).isEqualTo(ReservationStatus.NO_SHOW);
+        assertThat(second.getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+        assertThat(reservationBook.getReservation(first.getId())).isNull();
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(10, 30), at(12, 0))).isEqualTo(2);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "WA001WA")).isNotNull();
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "RE001RE")).isNotNull();
+    }
+
+    @Test
+    public void leavingEarlyFreesTheRestOfTheWindow() {
+        reservationBook.setCapacity(ParkingType.CAR, 1);
+        reservationBook.reserve(ParkingType.CAR, "RE001RE", at(10, 0), at(12, 0));
+        assertThat(reservationBook.reserve(ParkingType.CAR, "RE002RE", at(11, 0), at(12, 0))).isNull();
+        clock.advanceTo(at(10, 0).toInstant(ZoneOffset.UTC));
+        parkingService.processIncomingVehicle(ParkingType.CAR, "RE001RE");
+        clock.advanceTo(at(10, 30).toInstant(ZoneOffset.UTC));
+        parkingService.processExitingVehicle("RE001RE");
+        assertThat(reservationBook.reserve(ParkingType.CAR, "RE002RE", at(11, 0), at(12, 0))).isNotNull();
+    }
+
+    @Test
+    public void indexMovesForwardWithTime() {
+        //GIVEN a book taking reservations one day ahead with one hour slots
+        reservationBook = new ReservationBook(clock, Duration.ofHours(1), Duration.ofDays(1));
+        reservationBook.setCapacity(ParkingType.CAR, 1);
+        Reservation longStay = reservationBook.reserve(ParkingType.CAR, "RE001RE", at(20, 0), at(30, 0));
+        assertThatThrownBy(() -> reservationBook.reserve(ParkingType.CAR, "RE002RE", at(20, 0), at(33, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> reservationBook.reserve(ParkingType.CAR, "RE002RE", at(20, 0), at(20, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        //WHEN days go by, the vehicle having arrived
+        clock.advanceTo(at(20, 0).toInstant(ZoneOffset.UTC));
+        assertThat(reservationBook.confirm(ParkingType.CAR, "RE001RE")).isSameAs(longStay);
+        clock.advanceTo(at(26, 0).toInstant(ZoneOffset.UTC));
+        //THEN reservations are still counted, and new ones taken further ahead
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(27, 0), at(28, 0))).isZero();
+        assertThat(reservationBook.reserve(ParkingType.CAR, "RE002RE", at(30, 0), at(48, 0))).isNotNull();
+        clock.advanceTo(at(50, 0).toInstant(ZoneOffset.UTC));
+        assertThat(reservationBook.getReservation(longStay.getId())).isNull();
+        assertThat(reservationBook.reserve(ParkingType.CAR, "RE003RE", at(51, 0), at(70, 0))).isNotNull();
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(60, 0), at(61, 0))).isZero();
+        assertThat(reservationBook.countAvailable(ParkingType.CAR, at(71, 0), at(72, 0))).isEqualTo(1);
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return DAY.plusHours(hour).plusMinutes(minute);
+    }
+}
@@ -0,0 +1,131 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.RollupGranularity;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcRollupDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Rollup;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class RollupTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    private EmbeddedDataBaseConfig dataBaseConfig;
+    private JdbcTicketDAO          ticketDAO;
+    private JdbcRollupDAO          rollupDAO;
+    private SimulationClock        clock;
+    private ParkingService         parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig = new EmbeddedDataBaseConfig("rollups", 3, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        rollupDAO = new JdbcRollupDAO();
+        rollupDAO.dataBaseConfig = dataBaseConfig;
+        clock = new SimulationClock(MORNING.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+    }
+
+    @Test
+    public void closedTicketsAreRolledUpAsTheyClose() {
+        //GIVEN two cars overlapping from 8:00 to 10:45
+        at(0, 0).processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        at(0, 30).processIncomingVehicle(ParkingType.CAR, "EF456GH");
+        Ticket first  = at(2, 15).processExitingVehicle("AB123CD");
+        Ticket second = at(2, 45).processExitingVehicle("EF456GH");
+        //WHEN the first ticket is closed again
+        assertThat(ticketDAO.updateTicket(first)).isFalse();
+        //THEN both tickets are counted once, in the hour they were closed
+        List<Rollup> hours = rollupDAO.getRollups(RollupGranularity.HOUR, MORNING, MORNING.plusDays(1));
+        assertThat(hours.size()).isEqualTo(3);
+        Rollup eight = hours.get(0);
+        assertThat(eight.getBucketStart()).isEqualTo(MORNING);
+        assertThat(eight.getTickets()).isZero();
+        assertThat(eight.getAverageOccupancy()).isEqualTo(1.5);
+        assertThat(eight.getPeakOccupancy()).isEqualTo(2);
+        Rollup ten = hours.get(2);
+        assertThat(ten.getTickets()).isEqualTo(2);
+        assertThat(ten.getAverageDwell()).isEqualTo(Duration.ofMinutes(135));
+        assertThat(ten.getRevenue()).isEqualByComparingTo(first.getPrice().add(second.getPrice()));
+        assertThat(ten.getOccupiedSeconds()).isEqualTo(Duration.ofMinutes(15 + 45).getSeconds());
+        //THEN the day sums its hours
+        List<Rollup> days = rollupDAO.getRollups(RollupGranularity.DAY, MORNING.toLocalDate().atStartOfDay(), MORNING.plusDays(1));
+        assertThat(days.size()).isEqualTo(1);
+        assertThat(days.get(0).getParkingType()).isEqualTo(ParkingType.CAR);
+        assertThat(days.get(0).getTickets()).isEqualTo(2);
+        assertThat(days.get(0).getOccupiedSeconds()).isEqualTo(Duration.ofMinutes(135 + 135).getSeconds());
+        assertThat(days.get(0).getPeakOccupancy()).isEqualTo(2);
+    }
+
+    @Test
+    public void openTicketsOnlyCountInThePeakOccupancy() {
+        at(1, 10).processIncomingVehicle(ParkingType.BIKE, "IJ789KL");
+        List<Rollup> hours = rollupDAO.getRollups(RollupGranularity.HOUR, MORNING, MORNING.plusDays(1));
+        assertThat(hours.size()).isEqualTo(1);
+        assertThat(hours.get(0).getBucketStart()).isEqualTo(MORNING.plusHours(1));
+        assertThat(hours.get(0).getParkingType()).isEqualTo(ParkingType.BIKE);
+        assertThat(hours.get(0).getTickets()).isZero();
+        assertThat(hours.get(0).getRevenue()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(hours.get(0).getPeakOccupancy()).isEqualTo(1);
+    }
+
+    @Test
+    public void backfillComputesTheSameRollupsFromTheTickets() throws Exception {
+        //GIVEN two days of traffic, with a car staying overnight and a bike still parked
+        at(0, 0).processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        at(3, 20).processIncomingVehicle(ParkingType.CAR, "EF456GH");
+        at(4, 0).processExitingVehicle("AB123CD");
+        at(14, 5).processIncomingVehicle(ParkingType.BIKE, "IJ789KL");
+        at(16, 0).processIncomingVehicle(ParkingType.CAR, "MN012OP");
+        at(25, 30).processExitingVehicle("EF456GH");
+        at(26, 0).processExitingVehicle("MN012OP");
+        at(26, 0).processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        at(27, 0).processExitingVehicle("AB123CD");
+        List<String> rolledUp = allRollups();
+        //WHEN the rollups are lost and computed again from the tickets
+        try (Connection con = dataBaseConfig.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("truncate table ticket_rollup");
+        }
+        int tickets = rollupDAO.backfill(MORNING.toLocalDate(), MORNING.toLocalDate().plusDays(1));
+        //THEN
+        assertThat(tickets).isEqualTo(4);
+        assertThat(allRollups()).isEqualTo(rolledUp);
+    }
+
+    private ParkingService at(int hours, int minutes) {
+        clock.advanceTo(MORNING.plusHours(hours).plusMinutes(minutes).toInstant(ZoneOffset.UTC));
+        return parkingService;
+    }
+
+    private List<String> allRollups() {
+        LocalDateTime from = LocalDate.of(2026, 1, 1).atStartOfDay();
+        LocalDateTime to   = LocalDate.of(2027, 1, 1).atStartOfDay();
+        List<Rollup>  all  = rollupDAO.getRollups(RollupGranularity.HOUR, from, to);
+        all.addAll(rollupDAO.getRollups(RollupGranularity.DAY, from, to));
+        return all.stream().map(Rollup::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.PooledDataBaseConfig;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ShardRouter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class ShardRouterTest {
+
+    private static final Instant MORNING = Instant.parse("2026-03-02T08:00:00Z");
+
+    private EmbeddedDataBaseConfig north;
+    private EmbeddedDataBaseConfig south;
+    private ShardRouter            shardRouter;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        north = new EmbeddedDataBaseConfig("lot-north", 2, 1);
+        south = new EmbeddedDataBaseConfig("lot-south", 2, 1);
+        north.clearDataBaseEntries();
+        south.clearDataBaseEntries();
+        shardRouter = new ShardRouter(2);
+        shardRouter.addLot("north", parkingSpotDAO(north), ticketDAO(north));
+        shardRouter.addLot("south", parkingSpotDAO(south), ticketDAO(south));
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        shardRouter.close();
+    }
+
+    @Test
+    public void vehicleWhichCameToAnotherLotIsRecurring() {
+        //GIVEN a car which parked in the north lot in the morning
+        ParkingService northService = lotService("north", MORNING);
+        assertThat(northService.processIncomingVehicle(ParkingType.CAR, "AB123CD").isRecurring()).isFalse();
+        northService.processExitingVehicle("AB123CD");
+        //WHEN it comes to the south lot in the afternoon
+        Ticket ticket = lotService("south", MORNING.plusSeconds(6 * 3600)).processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        //THEN it is recurring, and its ticket is written in the south lot only
+        assertThat(ticket.isRecurring()).isTrue();
+        assertThat(ticket.getLotId()).isEqualTo("south");
+        assertThat(ticket.getParkingSpot().getLotId()).isEqualTo("south");
+        assertThat(ticketDAO(south).getTicket("AB123CD").getOutTime()).isNull();
+        assertThat(ticketDAO(north).getTicket("AB123CD").getOutTime()).isNotNull();
+    }
+
+    @Test
+    public void plateHistoryGathersEveryLot() {
+        //GIVEN a car which parked in both lots
+        ParkingService northService = lotService("north", MORNING);
+        northService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        northService.processExitingVehicle("AB123CD");
+        lotService("south", MORNING.plusSeconds(3600)).processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        //WHEN
+        List<Ticket> history = shardRouter.getPlateHistory("AB123CD");
+        //THEN the latest ticket comes first, with its lot
+        assertThat(history.size()).isEqualTo(2);
+        assertThat(history.get(0).getLotId()).isEqualTo("south");
+        assertThat(history.get(0).getOutTime()).isNull();
+        assertThat(history.get(1).getLotId()).isEqualTo("north");
+        assertThat(history.get(1).getParkingSpot().getLotId()).isEqualTo("north");
+        assertThat(shardRouter.getPlateHistory("UNKNOWN").isEmpty()).isTrue();
+        assertThat(shardRouter.hasVisited("UNKNOWN")).isFalse();
+    }
+
+    @Test
+    public void storageConfigServesItsOwnLot() throws Exception {
+        //GIVEN the application of the south lot
+        Properties properties = new Properties();
+        properties.setProperty(StorageConfig.LOTS, "north,south");
+        properties.setProperty(StorageConfig.LOT, "south");
+        properties.setProperty("storage.lot.north.url", "jdbc:h2:mem:lot-north;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.setProperty("storage.lot.south.url", "jdbc:h2:mem:lot-south;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.setProperty("db.username", "sa");
+        properties.setProperty("db.password", "");
+        StorageConfig storageConfig = new StorageConfig(properties);
+        try {
+            //WHEN a car takes a spot
+            storageConfig.getParkingSpotDAO().claimParking(storageConfig.getParkingSpotDAO().getNextAvailableSlot(ParkingType.CAR));
+            //THEN the spot is taken in the south database only
+            assertThat(storageConfig.getLotId()).isEqualTo("south");
+            assertThat(parkingSpotDAO(south).countAvailableSlots(ParkingType.CAR)).isEqualTo(1);
+            assertThat(parkingSpotDAO(north).countAvailableSlots(ParkingType.CAR)).isEqualTo(2);
+            assertThat(storageConfig.getPlateHistory().hasVisited("AB123CD")).isFalse();
+        } finally {
+            storageConfig.close();
+        }
+    }
+
+    @Test
+    public void pooledConnectionsAreReused() throws Exception {
+        PooledDataBaseConfig dataBaseConfig = new PooledDataBaseConfig("jdbc:h2:mem:lot-north;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "", 1);
+        Connection           first          = dataBaseConfig.getConnection();
+        Connection           second         = dataBaseConfig.getConnection();
+        dataBaseConfig.closeConnection(first);
+        dataBaseConfig.closeConnection(second);
+        //THEN one connection is kept open, the other one is closed
+        assertThat(dataBaseConfig.getConnection()).isSameAs(first);
+        assertThat(second.isClosed()).isTrue();
+        dataBaseConfig.closeConnection(first);
+        dataBaseConfig.close();
+        assertThat(first.isClosed()).isTrue();
+    }
+
+    private ParkingService lotService(String lotId, Instant now) {
+        ParkingService parkingService = new ParkingService(null, shardRouter.getParkingSpotDAO(lotId), shardRouter.getTicketDAO(lotId),
+                                                           Clock.fixed(now, ZoneOffset.UTC));
+        parkingService.setLotId(lotId);
+        parkingService.setPlateHistory(shardRouter);
+        return parkingService;
+    }
+
+    private static JdbcParkingSpotDAO parkingSpotDAO(EmbeddedDataBaseConfig dataBaseConfig) {
+        JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        return parkingSpotDAO;
+    }
+
+    private static JdbcTicketDAO ticketDAO(EmbeddedDataBaseConfig dataBaseConfig) {
+        JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        return ticketDAO;
+    }
+}
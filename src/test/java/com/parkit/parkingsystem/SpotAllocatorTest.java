@@ -0,0 +1,171 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.LotTopology;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.AllocationPolicy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class SpotAllocatorTest {
+
+    // Ground floor: spots 1-10 in zone A, upper floor: spots 11-16 in zone B and 17-20 with chargers in zone C
+    private static final LotTopology TOPOLOGY = LotTopology.parse(Arrays.asList(
+            "# two levels",
+            "spot 1-10 CAR 0 A 0",
+            "spot 11-16 CAR 1 B 0",
+            "spot 17-20 CAR 1 C 6 EV",
+            "spot 21-22 BIKE 0 M 20",
+            "gate 1 1 7",
+            "gate 2 0 0"));
+
+    @Test
+    public void lowestNumberPolicyGivesLowestFreeNumber() {
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.LOWEST_NUMBER);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(1);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(2);
+        allocator.setAvailable(1, true);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(1);
+        assertThat(allocator.allocate(ParkingType.BIKE, SpotRequest.ANY)).isEqualTo(21);
+        assertThat(allocator.allocate(ParkingType.TRUCK, SpotRequest.ANY)).isZero();
+    }
+
+    @Test
+    public void nearestToGatePolicySearchesTheLevelOfTheGateFirst() {
+        //GIVEN gate 1 entering the upper floor at position 7, between spots 16 (position 5) and 17 (position 6, with charger)
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.NEAREST_TO_GATE);
+        SpotRequest   gate1     = SpotRequest.atGate(1);
+        //THEN spots without charger of the upper floor are given from the nearest one
+        assertThat(allocator.allocate(ParkingType.CAR, gate1)).isEqualTo(16);
+        assertThat(allocator.allocate(ParkingType.CAR, gate1)).isEqualTo(15);
+        //AND a vehicle wanting a charger gets the nearest spot with a charger
+        assertThat(allocator.allocate(ParkingType.CAR, new SpotRequest(1, true))).isEqualTo(18);
+        //AND gate 2 on the ground floor gets spots from its own level
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(2))).isEqualTo(1);
+    }
+
+    @Test
+    public void nearestToGatePolicyMovesToAnotherLevelWhenFull() {
+        //GIVEN the upper floor full, chargers included
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.NEAREST_TO_GATE);
+        for (int number = 11; number <= 20; number++) {
+            allocator.setAvailable(number, false);
+        }
+        //THEN vehicles of gate 1 get the ground floor spot at the position of the gate
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(8);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(7);
+    }
+
+    @Test
+    public void fillLevelByLevelPolicyFillsTheGroundFloorFirst() {
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.FILL_LEVEL_BY_LEVEL);
+        for (int number = 1; number <= 10; number++) {
+            assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(number);
+        }
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(11);
+    }
+
+    @Test
+    public void balanceZonesPolicyTakesTheZoneWithMostFreeSpots() {
+        //GIVEN zone A with 3 free spots and zone B with 6
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.BALANCE_ZONES);
+        for (int number = 1; number <= 7; number++) {
+            allocator.setAvailable(number, false);
+        }
+        //THEN zone B is used until both have as many free spots, then they alternate
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(11);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(12);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(13);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(8);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(14);
+    }
+
+    @Test
+    public void vehiclesWithoutChargerTakeChargingSpotsLast() {
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.LOWEST_NUMBER);
+        for (int i = 0; i < 16; i++) {
+            assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isLessThanOrEqualTo(16);
+        }
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.ANY)).isEqualTo(17);
+        assertThat(allocator.countAvailable(ParkingType.CAR)).isEqualTo(3);
+    }
+
+    @Test
+    public void invalidTopologyIsRejected() {
+        assertThatThrownBy(() -> LotTopology.parse(Arrays.asList("spot 1 PLANE 0 A 0")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("spot 1 PLANE 0 A 0");
+        assertThatThrownBy(() -> LotTopology.parse(Arrays.asList("gate 1 0")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void parkingServiceSkipsSpotsTakenOutsideTheAllocator() {
+        //GIVEN spot 16, nearest to gate 1, taken directly in the storage
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-20", storage);
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        parkingSpotDAO.claimParking(16);
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(storage));
+        SpotAllocator  allocator      = new SpotAllocator(TOPOLOGY, AllocationPolicy.NEAREST_TO_GATE);
+        parkingService.setSpotAllocator(allocator);
+        //WHEN a car comes through gate 1
+        Ticket ticket = parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD", SpotRequest.atGate(1));
+        //THEN it gets the next nearest spot, and the allocator learns that spot 16 is taken
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(15);
+        assertThat(allocator.countAvailable(ParkingType.CAR)).isEqualTo(18);
+        //WHEN it leaves
+        parkingService.processExitingVehicle("AB123CD");
+        //THEN its spot is given again
+        assertThat(allocator.countAvailable(ParkingType.CAR)).isEqualTo(19);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "EF456GH", SpotRequest.atGate(1)).getParkingSpot().getId()).isEqualTo(15);
+    }
+
+    @Test
+    public void seededAllocatorOnlyProposesSpotsFreeInTheStorage() {
+        //GIVEN spots 15 and 16 occupied, 17 retired and 21 retyped to a car spot before the application starts
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-20,BIKE:21-22", storage);
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        parkingSpotDAO.claimParking(15);
+        parkingSpotDAO.claimParking(16);
+        parkingSpotDAO.retireParkingSpots(17, 17);
+        parkingSpotDAO.retypeParkingSpots(21, 21, ParkingType.CAR);
+        SpotAllocator allocator = new SpotAllocator(TOPOLOGY, AllocationPolicy.NEAREST_TO_GATE);
+        //WHEN the allocator is seeded from the storage
+        allocator.seed(parkingSpotDAO);
+        //THEN none of these spots is proposed
+        assertThat(allocator.countAvailable(ParkingType.CAR)).isEqualTo(17);
+        assertThat(allocator.countAvailable(ParkingType.BIKE)).isEqualTo(1);
+        assertThat(allocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(14);
+        assertThat(allocator.allocate(ParkingType.CAR, new SpotRequest(1, true))).isEqualTo(18);
+        assertThat(allocator.allocate(ParkingType.BIKE, SpotRequest.ANY)).isEqualTo(22);
+    }
+
+    @Test
+    public void parkingServiceFallsBackToTheStorageWhenProposalsKeepLosing() {
+        //GIVEN an allocator not seeded, while the four spots nearest to gate 1 are taken by another node
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-20", storage);
+        InMemoryParkingSpotDAO parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        for (int parkingNumber = 13; parkingNumber <= 16; parkingNumber++) {
+            parkingSpotDAO.claimParking(parkingNumber);
+        }
+        ParkingService parkingService = new ParkingService(null, parkingSpotDAO, new InMemoryTicketDAO(storage));
+        parkingService.setSpotAllocator(new SpotAllocator(TOPOLOGY, AllocationPolicy.NEAREST_TO_GATE));
+        //WHEN a car comes through gate 1
+        Ticket ticket = parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD", SpotRequest.atGate(1));
+        //THEN after three lost proposals it gets the lowest free spot of the storage
+        assertThat(ticket.getParkingSpot().getId()).isEqualTo(1);
+    }
+}
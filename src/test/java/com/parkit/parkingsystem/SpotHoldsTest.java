@@ -0,0 +1,113 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.SpotHolds;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpotHoldsTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock        clock;
+    private InMemoryStorage        storage;
+    private InMemoryParkingSpotDAO parkingSpotDAO;
+    private SpotHolds              spotHolds;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        parkingSpotDAO = new InMemoryParkingSpotDAO(storage);
+        spotHolds = new SpotHolds(parkingSpotDAO, Duration.ofSeconds(60), clock);
+    }
+
+    @Test
+    public void heldSpotIsNotGivenTwiceAndExpires() {
+        //GIVEN two gates finding the same free spot
+        ParkingSpot    candidate = new ParkingSpot(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR), ParkingType.CAR, true);
+        SpotHolds.Hold first     = spotHolds.hold(candidate);
+        SpotHolds.Hold second    = spotHolds.hold(candidate);
+        //WHEN the first entry is abandoned
+        clock.advanceTo(START.plusSeconds(30));
+        assertThat(spotHolds.releaseExpired()).isEqualTo(0);
+        clock.advanceTo(START.plusSeconds(60));
+        int expired = spotHolds.releaseExpired();
+        //THEN each gate held its own spot, and the abandoned one is free again while the other can not be confirmed anymore
+        assertThat(first.getParkingSpot().getId()).isEqualTo(1);
+        assertThat(second.getParkingSpot().getId()).isEqualTo(2);
+        assertThat(expired).isEqualTo(2);
+        assertThat(spotHolds.confirm(second)).isFalse();
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(3);
+    }
+
+    @Test
+    public void confirmedHoldKeepsItsSpot() {
+        //GIVEN
+        SpotHolds.Hold hold = spotHolds.hold(new ParkingSpot(4, ParkingType.BIKE, true));
+        //WHEN
+        boolean confirmed = spotHolds.confirm(hold);
+        clock.advanceTo(START.plusSeconds(120));
+        spotHolds.releaseExpired();
+        //THEN
+        assertThat(confirmed).isTrue();
+        assertThat(spotHolds.size()).isEqualTo(0);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.BIKE)).isEqualTo(1);
+    }
+
+    @Test
+    public void entryFailingAtThePlateGivesItsSpotBack() throws Exception {
+        //GIVEN an operator whose plate can not be read
+        InputReaderUtil inputReaderUtil = mock(InputReaderUtil.class);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenThrow(new IllegalArgumentException("Invalid input provided"));
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, new InMemoryTicketDAO(storage), clock);
+        parkingService.setSpotHolds(spotHolds);
+        //WHEN
+        //THEN
+        assertThatThrownBy(parkingService::processIncomingVehicle).isInstanceOf(IllegalArgumentException.class);
+        assertThat(spotHolds.size()).isEqualTo(0);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(3);
+    }
+
+    @Test
+    public void entryFailingAtTheTicketGivesItsSpotBack() throws Exception {
+        //GIVEN a storage which can not save the ticket of the held spot
+        InputReaderUtil inputReaderUtil = mock(InputReaderUtil.class);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("AB123CD");
+        InMemoryTicketDAO failingTicketDAO = new InMemoryTicketDAO(storage) {
+            @Override
+            public void saveTicket(Ticket ticket) {
+                throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Error saving ticket", null);
+            }
+        };
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, failingTicketDAO, clock);
+        parkingService.setSpotHolds(spotHolds);
+        //WHEN
+        //THEN the spot is neither held nor taken once the entry failed
+        assertThatThrownBy(parkingService::processIncomingVehicle).isInstanceOf(DataAccessException.class);
+        assertThat(spotHolds.size()).isEqualTo(0);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(3);
+    }
+}
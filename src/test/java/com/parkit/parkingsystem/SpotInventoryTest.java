@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.LeasedSpotPool;
+import com.parkit.parkingsystem.allocation.LotTopology;
+import com.parkit.parkingsystem.allocation.SpotAllocator;
+import com.parkit.parkingsystem.allocation.SpotInventory;
+import com.parkit.parkingsystem.allocation.SpotRequest;
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.AllocationPolicy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class SpotInventoryTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock    clock;
+    private JdbcParkingSpotDAO parkingSpotDAO;
+    private ParkingService     parkingService;
+    private SpotInventory      spotInventory;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        // A database of its own, created again for each test: added spots are not removed by clearDataBaseEntries
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("inventory", 3, 2);
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO, clock);
+        spotInventory = new SpotInventory(parkingSpotDAO, 7);
+    }
+
+    @Test
+    public void retiredSpotsLeaveServiceOnceTheirVehicleLeft() {
+        //GIVEN a car parked in spot 1 and 20 spots added by chunks of 7
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        int added = spotInventory.addSpots(4, 25, ParkingType.CAR);
+        //WHEN the first three spots are retired, then the car leaves
+        int retired = spotInventory.retireSpots(1, 3);
+        int nextSpot = parkingService.processIncomingVehicle(ParkingType.CAR, "EF456GH").getParkingSpot().getId();
+        clock.advanceTo(START.plusSeconds(3600));
+        parkingService.processExitingVehicle("AB123CD");
+        //THEN existing spots are left as they are, and spot 1 is not given again until it is added back
+        assertThat(added).isEqualTo(20);
+        assertThat(retired).isEqualTo(3);
+        assertThat(nextSpot).isEqualTo(6);
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.CAR)).isEqualTo(19);
+        assertThat(parkingSpotDAO.getParkingSpot(1).isAvailable()).isFalse();
+        assertThat(spotInventory.addSpots(1, 3, ParkingType.CAR)).isEqualTo(3);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "IJ789KL").getParkingSpot().getId()).isEqualTo(1);
+    }
+
+    @Test
+    public void retypedSpotIsNotGivenToAnEntryWhichFoundItBefore() {
+        //GIVEN an entry which found spot 1 free, and a car parked in spot 2
+        int found = parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+        parkingSpotDAO.claimParking(2);
+        //WHEN the first two spots become bike spots
+        int retyped = spotInventory.retypeSpots(1, 2, ParkingType.BIKE);
+        //THEN only the free spot is retyped, and the entry does not take it for a car
+        assertThat(found).isEqualTo(1);
+        assertThat(retyped).isEqualTo(1);
+        assertThat(parkingSpotDAO.claimParking(found, ParkingType.CAR)).isFalse();
+        assertThat(parkingSpotDAO.countAvailableSlots(ParkingType.BIKE)).isEqualTo(3);
+        assertThat(parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD").getParkingSpot().getId()).isEqualTo(3);
+        assertThat(parkingSpotDAO.getParkingSpot(2).getParkingType()).isEqualTo(ParkingType.CAR);
+    }
+
+    @Test
+    public void inMemoryRetiredSpotsAreKeptBySnapshots(@TempDir Path directory) throws Exception {
+        //GIVEN an in-memory lot whose car spot 1 is occupied, then retired with spot 2
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1-3,BIKE:4-5", storage);
+        ParkingService memoryService = new ParkingService(null, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage), clock);
+        memoryService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        new SpotInventory(new InMemoryParkingSpotDAO(storage), 7).retireSpots(1, 2);
+        clock.advanceTo(START.plusSeconds(3600));
+        memoryService.processExitingVehicle("AB123CD");
+        //WHEN the storage is restored from a snapshot
+        storage.snapshot(directory.resolve("parking.snapshot"));
+        InMemoryParkingSpotDAO restored = new InMemoryParkingSpotDAO(InMemoryStorage.restore(directory.resolve("parking.snapshot")));
+        //THEN the retired spots are still out of service, until they are added back
+        assertThat(restored.countAvailableSlots(ParkingType.CAR)).isEqualTo(1);
+        assertThat(restored.claimParking(1, ParkingType.CAR)).isFalse();
+        assertThat(restored.addParkingSpots(1, 2, ParkingType.CAR)).isEqualTo(Arrays.asList(1, 2));
+        assertThat(restored.getNextAvailableSlot(ParkingType.CAR)).isEqualTo(1);
+    }
+
+    @Test
+    public void allocatorOnlyHearsOfTheSpotsWhichChanged() {
+        //GIVEN an allocator and leased spots told about the changes, and a car parked in spot 1
+        SpotAllocator  spotAllocator  = new SpotAllocator(LotTopology.parse(Arrays.asList("spot 1-3 CAR 0 A 0", "spot 4-5 BIKE 0 M 10")),
+                                                          AllocationPolicy.LOWEST_NUMBER);
+        LeasedSpotPool leasedSpotPool = mock(LeasedSpotPool.class);
+        spotAllocator.seed(parkingSpotDAO);
+        parkingService.setSpotAllocator(spotAllocator);
+        spotInventory.setSpotAllocator(spotAllocator);
+        spotInventory.setLeasedSpotPool(leasedSpotPool);
+        parkingService.processIncomingVehicle(ParkingType.CAR, "AB123CD");
+        //WHEN the first two spots become bike spots, the first three are added again, then spot 1 is retired before the car leaves
+        int retyped = spotInventory.retypeSpots(1, 2, ParkingType.BIKE);
+        int freeAfterRetype = spotAllocator.countAvailable(ParkingType.CAR);
+        int added = spotInventory.addSpots(1, 3, ParkingType.CAR);
+        int freeAfterAdd = spotAllocator.countAvailable(ParkingType.CAR);
+        spotInventory.retypeSpots(2, 2, ParkingType.CAR);
+        spotInventory.retireSpots(1, 1);
+        clock.advanceTo(START.plusSeconds(3600));
+        parkingService.processExitingVehicle("AB123CD");
+        //THEN the occupied spot is neither retyped nor freed, the leased pool drops the free spot at each retype, and the retired spot is
+        // not proposed once the car left
+        assertThat(retyped).isEqualTo(1);
+        assertThat(freeAfterRetype).isEqualTo(1);
+        assertThat(added).isEqualTo(0);
+        assertThat(freeAfterAdd).isEqualTo(1);
+        assertThat(spotAllocator.countAvailable(ParkingType.CAR)).isEqualTo(2);
+        assertThat(spotAllocator.allocate(ParkingType.CAR, SpotRequest.atGate(1))).isEqualTo(2);
+        verify(leasedSpotPool, times(2)).drop(2);
+        verify(leasedSpotPool).drop(1);
+        verifyNoMoreInteractions(leasedSpotPool);
+    }
+}
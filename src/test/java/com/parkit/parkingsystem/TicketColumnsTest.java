@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.analysis.GroupTotals;
+import com.parkit.parkingsystem.analysis.TicketColumns;
+import com.parkit.parkingsystem.archive.ColdStorage;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.function.IntPredicate;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class TicketColumnsTest {
+
+    private static final LocalDate JANUARY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ticketsAreLoadedFromTheDatabaseAndTheArchive() throws Exception {
+        //GIVEN tickets closed in January, archived, and tickets of February still in the database
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("columns", 2, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            for (int i = 0; i < 100; i++) {
+                LocalDateTime inTime = JANUARY.atStartOfDay().plusHours(i * 10L);
+                ps.setInt(1, 1 + i % 3);
+                ps.setString(2, "P" + (i % 10));
+                ps.setDouble(3, 2.25);
+                ps.setTimestamp(4, Timestamp.valueOf(inTime));
+                ps.setTimestamp(5, (i == 99) ? null : Timestamp.valueOf(inTime.plusHours(2)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        ColdStorage coldStorage = new ColdStorage(directory, null, dataBaseConfig, 100);
+        int         archived    = coldStorage.archive(JANUARY.plusMonths(1));
+        //WHEN
+        TicketColumns columns = new TicketColumns(10);
+        int           loaded  = columns.addTickets(dataBaseConfig, 10);
+        columns.addArchivedTickets(coldStorage, JANUARY.atStartOfDay(), JANUARY.plusMonths(1).atStartOfDay());
+        //THEN every ticket is there once, with its plate interned
+        assertThat(archived + loaded).isEqualTo(100);
+        assertThat(columns.size()).isEqualTo(100);
+        assertThat(columns.getPlateCount()).isEqualTo(10);
+        assertThat(columns.count(row -> columns.getOutTime(row) == TicketColumns.OPEN)).isEqualTo(1);
+        assertThat(columns.count(columns.ofType(ParkingType.BIKE))).isEqualTo(33);
+        assertThat(columns.count(columns.ofPlate("P3"))).isEqualTo(10);
+        assertThat(columns.count(columns.ofPlate("Q3"))).isEqualTo(0);
+        IntPredicate january = columns.closedBetween(JANUARY.atStartOfDay(), JANUARY.plusMonths(1).atStartOfDay());
+        assertThat(columns.count(january)).isEqualTo(archived);
+        assertThat(columns.sum(january, columns::getPriceCents)).isEqualTo(225L * archived);
+    }
+
+    @Test
+    public void parallelOperatorsMatchASequentialScan() {
+        //GIVEN more tickets than a chunk, with a spread of types, hours and prices
+        TicketColumns columns = new TicketColumns(1000);
+        long          start   = JANUARY.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < 300_000; i++) {
+            long inTime = start + i * 97L;
+            columns.add(i + 1, 1 + i % 50, (i % 7 == 0) ? ParkingType.BIKE : ParkingType.CAR, "P" + (i % 20_000),
+                        inTime, inTime + 600 + (i % 1000) * 13L, 100 + i % 900);
+        }
+        IntPredicate cars = columns.ofType(ParkingType.CAR);
+        //WHEN
+        long        count   = columns.count(cars);
+        int[]       rows    = columns.filter(cars);
+        long        revenue = columns.sum(cars, columns::getPriceCents);
+        GroupTotals perHour = columns.aggregate(row -> true, row -> (int) (columns.getInTime(row) / 3600 % 24), 24,
+                                                row -> columns.getOutTime(row) - columns.getInTime(row));
+        //THEN
+        long   expectedCount   = 0;
+        long   expectedRevenue = 0;
+        long[] dwellPerHour    = new long[24];
+        for (int row = 0; row < columns.size(); row++) {
+            if (columns.getParkingType(row) == ParkingType.CAR) {
+                expectedCount++;
+                expectedRevenue += columns.getPriceCents(row);
+            }
+            dwellPerHour[(int) (columns.getInTime(row) / 3600 % 24)] += columns.getOutTime(row) - columns.getInTime(row);
+        }
+        assertThat(count).isEqualTo(expectedCount);
+        assertThat(rows.length).isEqualTo((int) expectedCount);
+        for (int i = 1; i < rows.length; i++) {
+            assertThat(rows[i]).isGreaterThan(rows[i - 1]);
+        }
+        assertThat(revenue).isEqualTo(expectedRevenue);
+        long total = 0;
+        for (int hour = 0; hour < 24; hour++) {
+            assertThat(perHour.getSum(hour)).isEqualTo(dwellPerHour[hour]);
+            total += perHour.getCount(hour);
+        }
+        assertThat(total).isEqualTo(300_000L);
+        assertThat(columns.getPlateCount()).isEqualTo(20_000);
+        assertThat(columns.getColumnBytes() / columns.size()).isLessThan(50L);
+    }
+}
@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ExportFormat;
+import com.parkit.parkingsystem.export.ExportReport;
+import com.parkit.parkingsystem.export.TicketExporter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class TicketExporterTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDataBaseConfig north;
+    private EmbeddedDataBaseConfig south;
+    private TicketExporter         ticketExporter;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        north = new EmbeddedDataBaseConfig("export-north", 2, 1);
+        south = new EmbeddedDataBaseConfig("export-south", 2, 1);
+        north.clearDataBaseEntries();
+        south.clearDataBaseEntries();
+        ticketExporter = new TicketExporter(100);
+        ticketExporter.addLot("north", north);
+        ticketExporter.addLot("south", south);
+    }
+
+    @Test
+    public void csvExportKeepsTheTicketsClosedDuringThePeriod() throws Exception {
+        //GIVEN tickets closed on Monday and Tuesday, and a vehicle still parked
+        insertTicket(north, 1, "AB,123", 3.5, MONDAY.atTime(8, 0), MONDAY.atTime(10, 20));
+        insertTicket(north, 3, "EF456GH", 1, MONDAY.atTime(23, 0), MONDAY.plusDays(1).atTime(0, 30));
+        insertTicket(north, 2, "IJ789KL", null, MONDAY.atTime(9, 0), null);
+        insertTicket(south, 1, "MN012OP", 0, MONDAY.atTime(12, 0), MONDAY.atTime(12, 10));
+        //WHEN Monday is exported from the north lot
+        Path         target = directory.resolve("north.csv");
+        ExportReport report = ticketExporter.export(MONDAY, MONDAY, Collections.singletonList("north"), ExportFormat.CSV, false, target);
+        //THEN
+        List<String> lines = Files.readAllLines(target);
+        assertThat(report.getRows()).isEqualTo(1);
+        assertThat(lines.size()).isEqualTo(2);
+        assertThat(lines.get(0)).isEqualTo("lot,id,parking_number,type,vehicle_reg_number,price,in_time,out_time");
+        assertThat(lines.get(1)).isEqualTo("north,1,1,CAR,\"AB,123\",3.50,2026-03-02T08:00,2026-03-02T10:20");
+        assertThat(report.getBytes()).isEqualTo(Files.size(target));
+    }
+
+    @Test
+    public void gzippedJsonExportStreamsEveryLot() throws Exception {
+        //GIVEN many more tickets than the fetch size
+        try (Connection con = north.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            for (int i = 0; i < 10_000; i++) {
+                LocalDateTime inTime = MONDAY.atStartOfDay().plusSeconds(i * 8L);
+                ps.setInt(1, 1 + i % 3);
+                ps.setString(2, "P" + i);
+                ps.setDouble(3, 1.5);
+                ps.setTimestamp(4, Timestamp.valueOf(inTime));
+                ps.setTimestamp(5, Timestamp.valueOf(inTime.plusMinutes(45)));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        insertTicket(south, 3, "Q\"R", 2, MONDAY.atTime(7, 0), MONDAY.atTime(9, 0));
+        //WHEN
+        Path         target = directory.resolve("tickets.ndjson.gz");
+        ExportReport report = ticketExporter.export(MONDAY, MONDAY.plusDays(1), null, ExportFormat.NDJSON, true, target);
+        //THEN every ticket is written, one JSON object per line
+        assertThat(report.getRows()).isEqualTo(10_001);
+        assertThat(report.getRowsPerSecond()).isPositive();
+        assertThat(Files.size(target)).isLessThan(report.getBytes());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(target)), StandardCharsets.UTF_8))) {
+            assertThat(reader.readLine()).isEqualTo("{\"lot\":\"north\",\"id\":1,\"parkingNumber\":1,\"type\":\"CAR\",\"vehicleRegNumber\":\"P0\",\"price\":1.50,"
+                                                   + "\"inTime\":\"2026-03-02T00:00\",\"outTime\":\"2026-03-02T00:45\"}");
+            String last  = null;
+            long   lines = 1;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                last = line;
+                lines++;
+            }
+            assertThat(lines).isEqualTo(10_001);
+            assertThat(last).startsWith("{\"lot\":\"south\",\"id\":1,\"parkingNumber\":3,\"type\":\"BIKE\",\"vehicleRegNumber\":\"Q\\\"R\"");
+        }
+    }
+
+    @Test
+    public void unknownLotIsRejected() {
+        assertThatThrownBy(() -> ticketExporter.export(MONDAY, MONDAY, Collections.singletonList("east"), ExportFormat.CSV, false, directory.resolve("east.csv")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void insertTicket(EmbeddedDataBaseConfig dataBaseConfig, int parkingNumber, String vehicleRegNumber, Number price,
+                                     LocalDateTime inTime, LocalDateTime outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setObject(3, (price == null) ? null : price.doubleValue());
+            ps.setTimestamp(4, Timestamp.valueOf(inTime));
+            ps.setTimestamp(5, (outTime == null) ? null : Timestamp.valueOf(outTime));
+            ps.execute();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.StorageConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.TicketMetric;
+import com.parkit.parkingsystem.dao.DataAccessException;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcSketchDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import com.parkit.parkingsystem.stats.QuantileSketch;
+import com.parkit.parkingsystem.stats.TicketSketches;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.within;
+
+public class TicketSketchesTest {
+
+    private static final LocalDate MONDAY  = LocalDate.of(2026, 3, 2);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+
+    private JdbcSketchDAO sketchDAO;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("sketches", 1, 1);
+        dataBaseConfig.clearDataBaseEntries();
+        sketchDAO = new JdbcSketchDAO();
+        sketchDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void quantilesAreWithinTheAccuracy() {
+        //GIVEN parking durations from a minute to two days, in two sketches
+        Random         random = new Random(42);
+        double[]       values = new double[100_000];
+        QuantileSketch first  = new QuantileSketch(0.01);
+        QuantileSketch second = new QuantileSketch(0.01);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(Math.log(60) + random.nextDouble() * Math.log(2 * 24 * 60));
+            ((i % 2 == 0) ? first : second).add(values[i]);
+        }
+        //WHEN they are merged, and the result encoded and decoded
+        first.merge(second);
+        byte[]         bytes  = first.toBytes();
+        QuantileSketch merged = QuantileSketch.fromBytes(bytes);
+        //THEN each quantile is within 1% of the exact one, in less than a kilobyte
+        Arrays.sort(values);
+        for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+            double exact = values[(int) (quantile * (values.length - 1))];
+            assertThat(merged.getQuantile(quantile)).isCloseTo(exact, within(exact * 0.01));
+        }
+        assertThat(merged.getCount()).isEqualTo(values.length);
+        assertThat(merged.getMax()).isEqualTo(values[values.length - 1]);
+        assertThat(bytes.length).isLessThan(1024);
+    }
+
+    @Test
+    public void freeStaysAreCountedAsZero() {
+        QuantileSketch fares = new QuantileSketch(0.01);
+        fares.add(0, 3);
+        fares.add(1.5);
+        assertThat(fares.getQuantile(0.5)).isZero();
+        assertThat(fares.getQuantile(1)).isCloseTo(1.5, within(0.015));
+        assertThat(QuantileSketch.fromBytes(new QuantileSketch(0.01).toBytes()).getQuantile(0.99)).isZero();
+    }
+
+    @Test
+    public void invalidSketchesAreRejected() {
+        assertThatThrownBy(() -> new QuantileSketch(1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuantileSketch(0.01).add(-1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new QuantileSketch(0.01).merge(new QuantileSketch(0.02))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> QuantileSketch.fromBytes(new byte[]{1, 2})).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void sketchesOfEveryNodeAndDayAreMerged() {
+        //GIVEN two nodes closing tickets on two days
+        TicketSketches north = new TicketSketches(sketchDAO, "gate-1", 0.01);
+        TicketSketches south = new TicketSketches(sketchDAO, "gate-2", 0.01);
+        park(north, MONDAY, "AB123CD", 60);
+        park(north, MONDAY, "EF456GH", 120);
+        park(south, TUESDAY, "IJ789KL", 180);
+        //WHEN only the first node flushed
+        north.flush();
+        //THEN the other node sees its tickets, and its own pending ones
+        assertThat(south.getSketch(ParkingType.CAR, TicketMetric.DWELL, MONDAY, TUESDAY).getCount()).isEqualTo(3);
+        assertThat(north.getSketch(ParkingType.CAR, TicketMetric.DWELL, MONDAY, TUESDAY).getCount()).isEqualTo(2);
+        south.flush();
+        QuantileSketch dwell = north.getSketch(ParkingType.CAR, TicketMetric.DWELL, MONDAY, TUESDAY);
+        assertThat(dwell.getCount()).isEqualTo(3);
+        assertThat(dwell.getQuantile(0.5)).isCloseTo(7200.0, within(72.0));
+        assertThat(north.getSketch(ParkingType.CAR, TicketMetric.FARE, TUESDAY, TUESDAY).getCount()).isEqualTo(1);
+        assertThat(north.getSketch(ParkingType.BIKE, TicketMetric.DWELL, MONDAY, TUESDAY).getCount()).isZero();
+    }
+
+    @Test
+    public void restartedNodeAddsToItsSavedSketch() {
+        TicketSketches before = new TicketSketches(sketchDAO, "gate-1", 0.01);
+        park(before, MONDAY, "AB123CD", 60);
+        before.close();
+        TicketSketches after = new TicketSketches(sketchDAO, "gate-1", 0.01);
+        park(after, MONDAY, "EF456GH", 90);
+        after.flush();
+        assertThat(sketchDAO.getSketch(MONDAY, ParkingType.CAR, TicketMetric.DWELL, "gate-1").getCount()).isEqualTo(2);
+        assertThat(sketchDAO.mergeSketches(ParkingType.CAR, TicketMetric.DWELL, MONDAY, MONDAY, 0.01).getMax()).isEqualTo(5400.0);
+    }
+
+    @Test
+    public void sketchWhichCanNotBeReadIsNotOverwritten() {
+        //GIVEN a node which saved a first ticket, then fails to read each of its sketches once
+        TicketSketches before = new TicketSketches(sketchDAO, "gate-1", 0.01);
+        park(before, MONDAY, "AB123CD", 60);
+        before.close();
+        Set<TicketMetric> failed = ConcurrentHashMap.newKeySet();
+        JdbcSketchDAO flakyDAO = new JdbcSketchDAO() {
+            @Override
+            public QuantileSketch getSketch(LocalDate day, ParkingType parkingType, TicketMetric metric, String nodeId) {
+                if (failed.add(metric)) {
+                    throw new DataAccessException(DataAccessException.Failure.TIMEOUT, "Error fetching sketch", null);
+                }
+                return super.getSketch(day, parkingType, metric, nodeId);
+            }
+        };
+        flakyDAO.dataBaseConfig = sketchDAO.dataBaseConfig;
+        TicketSketches after = new TicketSketches(flakyDAO, "gate-1", 0.01);
+        park(after, MONDAY, "EF456GH", 90);
+        //WHEN it flushes during the failure, then again
+        after.flush();
+        long dwellDuringFailure = sketchDAO.getSketch(MONDAY, ParkingType.CAR, TicketMetric.DWELL, "gate-1").getCount();
+        long fareDuringFailure  = sketchDAO.getSketch(MONDAY, ParkingType.CAR, TicketMetric.FARE, "gate-1").getCount();
+        after.flush();
+        //THEN no sketch is tried twice in a flush, the saved ticket is kept and the new one added once
+        assertThat(dwellDuringFailure).isEqualTo(1);
+        assertThat(fareDuringFailure).isEqualTo(1);
+        assertThat(sketchDAO.getSketch(MONDAY, ParkingType.CAR, TicketMetric.DWELL, "gate-1").getCount()).isEqualTo(2);
+        assertThat(sketchDAO.getSketch(MONDAY, ParkingType.CAR, TicketMetric.FARE, "gate-1").getCount()).isEqualTo(2);
+    }
+
+    private static void park(TicketSketches sketches, LocalDate day, String vehicleRegNumber, int minutes) {
+        InMemoryStorage storage = new InMemoryStorage();
+        StorageConfig.addParkingSpots("CAR:1", storage);
+        LocalDateTime   arrival = day.atTime(9, 0);
+        SimulationClock clock   = new SimulationClock(arrival.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        ParkingService  service = new ParkingService(null, new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage), clock);
+        service.addParkingListener(sketches);
+        service.processIncomingVehicle(ParkingType.CAR, vehicleRegNumber);
+        clock.advanceTo(arrival.plusMinutes(minutes).toInstant(ZoneOffset.UTC));
+        service.processExitingVehicle(vehicleRegNumber);
+    }
+}
@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.simulation.SimulationClock;
+import com.parkit.parkingsystem.timer.SessionListener;
+import com.parkit.parkingsystem.timer.SessionTimers;
+import com.parkit.parkingsystem.timer.TimingWheel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class TimingWheelTest {
+
+    private static final Instant START = Instant.parse("2026-03-02T08:00:00Z");
+
+    private SimulationClock clock;
+    private TimingWheel     timingWheel;
+    private List<String>    fired;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        clock = new SimulationClock(START, ZoneOffset.UTC);
+        timingWheel = new TimingWheel(Duration.ofMillis(100), 8, clock, Runnable::run);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    public void timersFireAtTheirDeadlineOnEveryWheel() {
+        //GIVEN timers from a tick to days ahead, beyond the last wheel of 8 buckets
+        Duration[] delays = {Duration.ofMillis(100), Duration.ofMillis(800), Duration.ofSeconds(5), Duration.ofSeconds(51),
+                             Duration.ofMinutes(7), Duration.ofHours(3), Duration.ofDays(2)};
+        for (Duration delay : delays) {
+            timingWheel.schedule(START.plus(delay), () -> fired.add(delay.toString()));
+        }
+        //WHEN
+        //THEN each fires once its deadline is reached, not before
+        for (Duration delay : delays) {
+            clock.advanceTo(START.plus(delay).minusMillis(100));
+            timingWheel.advance();
+            assertThat(fired.contains(delay.toString())).isFalse();
+            clock.advanceTo(START.plus(delay));
+            timingWheel.advance();
+            assertThat(fired.contains(delay.toString())).isTrue();
+        }
+        assertThat(fired.size()).isEqualTo(delays.length);
+        assertThat(timingWheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void cancelledTimerDoesNotFire() {
+        //GIVEN
+        TimingWheel.Timeout cancelled = timingWheel.schedule(START.plusSeconds(30), () -> fired.add("cancelled"));
+        TimingWheel.Timeout kept      = timingWheel.schedule(START.plusSeconds(30), () -> fired.add("kept"));
+        //WHEN
+        boolean first  = cancelled.cancel();
+        boolean second = cancelled.cancel();
+        clock.advanceTo(START.plusSeconds(30));
+        int expired = timingWheel.advance();
+        //THEN
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(expired).isEqualTo(1);
+        assertThat(kept.isExpired()).isTrue();
+        assertThat(kept.cancel()).isFalse();
+        assertThat(fired).isEqualTo(Collections.singletonList("kept"));
+    }
+
+    @Test
+    public void sessionTimersReportFreePeriodAndOverstayUntilExit() {
+        //GIVEN a vehicle parked before startup and one entering now
+        SessionTimers sessionTimers = new SessionTimers(timingWheel, Duration.ofHours(4), clock);
+        sessionTimers.addSessionListener(new SessionListener() {
+            @Override
+            public void freePeriodEnded(Ticket ticket) {
+                fired.add("free " + ticket.getVehicleRegNumber());
+            }
+
+            @Override
+            public void overstayed(Ticket ticket) {
+                fired.add("overstay " + ticket.getVehicleRegNumber());
+            }
+        });
+        sessionTimers.addAll(Collections.singletonList(ticket(1, "PARKED", START.minus(Duration.ofHours(3)))));
+        Ticket entering = ticket(2, "ENTERING", START);
+        sessionTimers.vehicleEntered(entering);
+        //WHEN the entering vehicle leaves after its free period
+        clock.advanceTo(START.plus(Duration.ofMinutes(30)));
+        timingWheel.advance();
+        sessionTimers.vehicleExited(entering);
+        clock.advanceTo(START.plus(Duration.ofHours(5)));
+        timingWheel.advance();
+        //THEN only the vehicle still parked overstays, and the free period already over before startup is not reported
+        assertThat(fired).isEqualTo(List.of("free ENTERING", "overstay PARKED"));
+        assertThat(sessionTimers.size()).isEqualTo(1);
+        assertThat(timingWheel.size()).isEqualTo(0);
+    }
+
+    private static Ticket ticket(int id, String vehicleRegNumber, Instant inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(id, ParkingType.CAR, false));
+        ticket.setInTime(LocalDateTime.ofInstant(inTime, ZoneOffset.UTC));
+        return ticket;
+    }
+}
@@ -1,8 +1,8 @@
 package com.parkit.parkingsystem.integration;
 
 import com.parkit.parkingsystem.constants.Fare;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
 import com.parkit.parkingsystem.model.Ticket;
@@ -26,8 +26,8 @@ import static org.mockito.Mockito.when;
 public class ParkingServiceIntTest {
 
     private static final DataBaseTestConfig     dataBaseTestConfig = new DataBaseTestConfig();
-    private static       ParkingSpotDAO         parkingSpotDAO;
-    private static       TicketDAO              ticketDAO;
+    private static       JdbcParkingSpotDAO     parkingSpotDAO;
+    private static       JdbcTicketDAO          ticketDAO;
     private static       DataBasePrepareService dataBasePrepareService;
 
     @Mock
@@ -35,9 +35,9 @@ public class ParkingServiceIntTest {
 
     @BeforeAll
     private static void setUp() {
-        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO = new JdbcParkingSpotDAO();
         parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
-        ticketDAO = new TicketDAO();
+        ticketDAO = new JdbcTicketDAO();
         ticketDAO.dataBaseConfig = dataBaseTestConfig;
         dataBasePrepareService = new DataBasePrepareService();
     }
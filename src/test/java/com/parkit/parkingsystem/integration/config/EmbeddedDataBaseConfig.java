@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.stream.Collectors;
+
+/**
+ * Configures connection to an in-memory H2 database running in MySQL mode, so that the JDBC DAOs can be tested without a MySQL server.
+ * <p>
+ * The schema is the one of <code>resources/Data.sql</code>, copied in <code>embedded-schema.sql</code>.
+ * </p>
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    private static final Logger logger = LogManager.getLogger("EmbeddedDataBaseConfig");
+
+    private static final String SCHEMA = "/embedded-schema.sql";
+
+    private final String url;
+
+    /**
+     * Creates a new embedded database holding the given parking spots, numbered cars first.
+     *
+     * @param name      Database name, distinct databases do not share data
+     * @param carSpots  Number of car spots
+     * @param bikeSpots Number of bike spots
+     */
+    public EmbeddedDataBaseConfig(String name, int carSpots, int bikeSpots) {
+        this.url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        try (Connection con = getConnection(); Statement statement = con.createStatement()) {
+            for (String sql : readSchema().split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")) {
+                for (int i = 1; i <= carSpots + bikeSpots; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, (i <= carSpots) ? ParkingType.CAR.toString() : ParkingType.BIKE.toString());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to create embedded database " + name, e);
+        }
+    }
+
+    /**
+     * Gets connection to the embedded database.
+     *
+     * @return Connection
+     */
+    @Override
+    public Connection getConnection() {
+        try {
+            return DriverManager.getConnection(url, "sa", "");
+        } catch (SQLException e) {
+            logger.error("Error while connecting to embedded database", e);
+        }
+        return null;
+    }
+
+    /**
+     * Frees every parking spot and puts it back in service, drops their leases and deletes every ticket, rollup, sketch and command result.
+     */
+    public void clearDataBaseEntries() {
+        try (Connection con = getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("update parking set available = true, RETIRED = false, LEASE_OWNER = null, LEASE_EXPIRY = null");
+            statement.execute("truncate table ticket");
+            statement.execute("truncate table ticket_rollup");
+            statement.execute("truncate table ticket_sketch");
+            statement.execute("truncate table gate_command");
+        } catch (SQLException e) {
+            logger.error("Error while clearing embedded database", e);
+        }
+    }
+
+    private static String readSchema() throws Exception {
+        try (InputStream in = EmbeddedDataBaseConfig.class.getResourceAsStream(SCHEMA);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.startsWith("/*")).collect(Collectors.joining("\n"));
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.InMemoryParkingSpotDAO;
+import com.parkit.parkingsystem.dao.InMemoryStorage;
+import com.parkit.parkingsystem.dao.InMemoryTicketDAO;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <b>Concurrency torture test of spot allocation and ticket lifecycle.</b>
+ * <p>
+ * Worker threads act as gates hammering {@link ParkingService} with random entries and exits on a lot much smaller than the number of vehicles,
+ * with random pauses between the steps so that interleavings differ from run to run. Some exits are sent twice at the same time,
+ * like a camera reading a plate twice. Invariants are checked while running:
+ * </p>
+ * <ul>
+ *     <li>a spot is never assigned to a vehicle while the previous vehicle on this spot still has an open ticket</li>
+ *     <li>a parked vehicle leaves exactly once, even when its exit is sent twice</li>
+ *     <li>the number of available spots of each type stays between 0 and the capacity of the type</li>
+ * </ul>
+ * <p>
+ * and once every worker stopped: every parked vehicle has exactly one open ticket on its own spot, no other vehicle has an open ticket,
+ * and the number of taken spots of each type matches the number of parked vehicles of the type.
+ * </p>
+ * <p>
+ * Runs against any pair of DAOs. Run with <code>mvn -Pload test-compile exec:java -Dload.mainClass=com.parkit.parkingsystem.load.ConcurrencyTorture -Dexec.args="--engine=jdbc --threads=16 --duration=10"</code>.
+ * </p>
+ */
+public class ConcurrencyTorture {
+
+    private static final int MAX_REPORTED_VIOLATIONS = 20;
+
+    private final ParkingSpotDAO            parkingSpotDAO;
+    private final TicketDAO                 ticketDAO;
+    private final Map<ParkingType, Integer> capacity;
+    private final ParkingService            parkingService;
+
+    private int    threads           = 8;
+    private double durationSeconds   = 5;
+    private double exitRate          = 0.5;
+    private double duplicateExitRate = 0.2;
+    private double recurringRate     = 0.5;
+    private long   seed              = 42;
+
+    private final Map<Integer, Ticket> spotTickets    = new ConcurrentHashMap<>();
+    private final List<String>         violations     = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong           violationCount = new AtomicLong();
+
+    /**
+     * Constructor for ConcurrencyTorture.
+     *
+     * @param parkingSpotDAO DAO of the parking spots of the lot, every spot available
+     * @param ticketDAO      DAO of the tickets of the lot, without ticket
+     * @param capacity       Number of spots of each type in the lot
+     */
+    public ConcurrencyTorture(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, Map<ParkingType, Integer> capacity) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.capacity = new EnumMap<>(capacity);
+        this.parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+    }
+
+    /**
+     * Tortures a lot of the chosen storage engine and prints the result.
+     *
+     * @param args Options in the form <code>--name=value</code>: engine (jdbc or memory), threads, duration (seconds), cars and bikes (spots)
+     *
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String engine    = "jdbc";
+        int    threads   = 8;
+        double duration  = 10;
+        int    carSpots  = 10;
+        int    bikeSpots = 5;
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            switch (option[0]) {
+                case "engine":
+                    engine = option[1];
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(option[1]);
+                    break;
+                case "duration":
+                    duration = Double.parseDouble(option[1]);
+                    break;
+                case "cars":
+                    carSpots = Integer.parseInt(option[1]);
+                    break;
+                case "bikes":
+                    bikeSpots = Integer.parseInt(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        ConcurrencyTorture torture = "memory".equals(engine) ? inMemory(carSpots, bikeSpots) : embeddedDataBase("torture", carSpots, bikeSpots);
+        torture.setThreads(threads);
+        torture.setDurationSeconds(duration);
+        Result result = torture.run();
+        System.out.println(result);
+        if (!result.getViolations().isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Creates a torture test of the JDBC DAOs on a new embedded database, cars numbered first.
+     *
+     * @param name      Database name
+     * @param carSpots  Number of car spots
+     * @param bikeSpots Number of bike spots
+     *
+     * @return Torture test
+     */
+    public static ConcurrencyTorture embeddedDataBase(String name, int carSpots, int bikeSpots) {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig(name, carSpots, bikeSpots);
+        JdbcParkingSpotDAO     parkingSpotDAO = new JdbcParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        return new ConcurrencyTorture(parkingSpotDAO, ticketDAO, capacity(carSpots, bikeSpots));
+    }
+
+    /**
+     * Creates a torture test of the in-memory DAOs, cars numbered first.
+     *
+     * @param carSpots  Number of car spots
+     * @param bikeSpots Number of bike spots
+     *
+     * @return Torture test
+     */
+    public static ConcurrencyTorture inMemory(int carSpots, int bikeSpots) {
+        InMemoryStorage storage = new InMemoryStorage();
+        for (int number = 1; number <= carSpots + bikeSpots; number++) {
+            storage.addParkingSpot(new ParkingSpot(number, (number <= carSpots) ? ParkingType.CAR : ParkingType.BIKE, true));
+        }
+        return new ConcurrencyTorture(new InMemoryParkingSpotDAO(storage), new InMemoryTicketDAO(storage), capacity(carSpots, bikeSpots));
+    }
+
+    private static Map<ParkingType, Integer> capacity(int carSpots, int bikeSpots) {
+        Map<ParkingType, Integer> capacity = new EnumMap<>(ParkingType.class);
+        capacity.put(ParkingType.CAR, carSpots);
+        capacity.put(ParkingType.BIKE, bikeSpots);
+        return capacity;
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threads Number of threads
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets how long the workers run.
+     *
+     * @param durationSeconds Duration in seconds
+     */
+    public void setDurationSeconds(double durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Sets the seed of the random choices of the workers. Thread scheduling makes runs differ anyway.
+     *
+     * @param seed Random seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the workers, checking invariants while they run and once they stopped.
+     *
+     * @return Operation counts, throughput and invariant violations
+     *
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Result run() throws InterruptedException {
+        long           end     = System.nanoTime() + (long) (durationSeconds * 1e9);
+        CountDownLatch ready   = new CountDownLatch(threads);
+        List<Worker>   workers = new ArrayList<>();
+        List<Thread>   running = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            Worker worker = new Worker(w, end, ready);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "torture-" + w);
+            running.add(thread);
+            thread.start();
+        }
+        long start = System.nanoTime();
+        while (System.nanoTime() < end) {
+            checkAvailableSlots();
+            LockSupport.parkNanos(5_000_000L);
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        checkFinalState(workers);
+        Result result = new Result(elapsed / 1e9, violationCount.get(), violations);
+        for (Worker worker : workers) {
+            result.add(worker);
+        }
+        return result;
+    }
+
+    private void checkAvailableSlots() {
+        capacity.forEach((parkingType, spots) -> {
+            int available = parkingSpotDAO.countAvailableSlots(parkingType);
+            if (available < 0 || available > spots) {
+                violation("%d available %s spots out of %d", available, parkingType, spots);
+            }
+        });
+    }
+
+    private void checkSpotAssignment(Ticket ticket) {
+        // Tickets sharing a spot are sorted by ID: the older one must have been closed before the spot was given again
+        Ticket[] pair = new Ticket[2];
+        spotTickets.merge(ticket.getParkingSpot().getId(), ticket, (current, added) -> {
+            boolean addedIsNewer = current.getId() < added.getId();
+            pair[0] = addedIsNewer ? current : added;
+            pair[1] = addedIsNewer ? added : current;
+            return pair[1];
+        });
+        if (pair[0] != null && isOpen(pair[0])) {
+            violation("Spot %d assigned to %s while %s is still parked on it", ticket.getParkingSpot().getId(), pair[1].getVehicleRegNumber(), pair[0].getVehicleRegNumber());
+        }
+    }
+
+    private boolean isOpen(Ticket ticket) {
+        Ticket latest = ticketDAO.getTicket(ticket.getVehicleRegNumber());
+        return latest != null && latest.getId() == ticket.getId() && latest.getOutTime() == null;
+    }
+
+    private void checkFinalState(List<Worker> workers) {
+        Map<ParkingType, Integer> parkedByType = new EnumMap<>(ParkingType.class);
+        Map<Integer, String>      spotOwners   = new HashMap<>();
+        for (Worker worker : workers) {
+            for (Ticket ticket : worker.parked.values()) {
+                ParkingSpot parkingSpot = ticket.getParkingSpot();
+                parkedByType.merge(parkingSpot.getParkingType(), 1, Integer::sum);
+                String owner = spotOwners.put(parkingSpot.getId(), ticket.getVehicleRegNumber());
+                if (owner != null) {
+                    violation("Spot %d held by both %s and %s", parkingSpot.getId(), owner, ticket.getVehicleRegNumber());
+                }
+                Ticket stored = ticketDAO.getTicket(ticket.getVehicleRegNumber());
+                if (stored == null || stored.getId() != ticket.getId() || stored.getOutTime() != null || stored.getParkingSpot().getId() != parkingSpot.getId()) {
+                    violation("Parked vehicle %s has no open ticket on spot %d", ticket.getVehicleRegNumber(), parkingSpot.getId());
+                }
+            }
+            for (String vehicleRegNumber : worker.absent) {
+                Ticket stored = ticketDAO.getTicket(vehicleRegNumber);
+                if (stored != null && stored.getOutTime() == null) {
+                    violation("Absent vehicle %s has an open ticket on spot %d", vehicleRegNumber, stored.getParkingSpot().getId());
+                }
+            }
+        }
+        capacity.forEach((parkingType, spots) -> {
+            int taken  = spots - parkingSpotDAO.countAvailableSlots(parkingType);
+            int parked = parkedByType.getOrDefault(parkingType, 0);
+            if (taken != parked) {
+                violation("%d %s spots taken for %d parked vehicles", taken, parkingType, parked);
+            }
+        });
+    }
+
+    private void violation(String format, Object... args) {
+        if (violationCount.incrementAndGet() <= MAX_REPORTED_VIOLATIONS) {
+            violations.add(String.format(format, args));
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int                 id;
+        private final long                end;
+        private final CountDownLatch      ready;
+        private final Random              random;
+        private final Map<String, Ticket> parked = new HashMap<>();
+        private final List<String>        absent = new ArrayList<>();
+        private final List<ParkingType>   types  = new ArrayList<>(capacity.keySet());
+        private       long                entries;
+        private       long                rejected;
+        private       long                exits;
+        private       long                duplicateExits;
+        private       int                 plateSequence;
+
+        private Worker(int id, long end, CountDownLatch ready) {
+            this.id = id;
+            this.end = end;
+            this.ready = ready;
+            this.random = new Random(seed + id);
+        }
+
+        @Override
+        public void run() {
+            // Start together to maximize contention
+            ready.countDown();
+            try {
+                ready.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            while (System.nanoTime() < end) {
+                if (!parked.isEmpty() && random.nextDouble() < exitRate) {
+                    exit();
+                } else {
+                    enter();
+                }
+                pause();
+            }
+        }
+
+        private void enter() {
+            String      vehicleRegNumber = nextPlate();
+            ParkingType parkingType      = types.get(random.nextInt(types.size()));
+            Ticket      ticket           = parkingService.processIncomingVehicle(parkingType, vehicleRegNumber);
+            if (ticket == null) {
+                rejected++;
+                absent.add(vehicleRegNumber);
+                return;
+            }
+            entries++;
+            if (ticket.getParkingSpot().getParkingType() != parkingType) {
+                violation("%s entering as %s got a %s spot", vehicleRegNumber, parkingType, ticket.getParkingSpot().getParkingType());
+            }
+            parked.put(vehicleRegNumber, ticket);
+            checkSpotAssignment(ticket);
+        }
+
+        private void exit() {
+            List<String> plates           = new ArrayList<>(parked.keySet());
+            String       vehicleRegNumber = plates.get(random.nextInt(plates.size()));
+            Ticket       entryTicket      = parked.remove(vehicleRegNumber);
+            absent.add(vehicleRegNumber);
+
+            int closed;
+            if (random.nextDouble() < duplicateExitRate) {
+                // The same plate read twice: both exits run at the same time from two threads
+                duplicateExits++;
+                Ticket[]       twin  = new Ticket[1];
+                CountDownLatch start = new CountDownLatch(1);
+                Thread         other = new Thread(() -> {
+                    awaitQuietly(start);
+                    twin[0] = parkingService.processExitingVehicle(vehicleRegNumber);
+                }, "torture-" + id + "-twin");
+                other.start();
+                start.countDown();
+                Ticket ticket = parkingService.processExitingVehicle(vehicleRegNumber);
+                joinQuietly(other);
+                closed = checkExit(entryTicket, ticket) + checkExit(entryTicket, twin[0]);
+            } else {
+                closed = checkExit(entryTicket, parkingService.processExitingVehicle(vehicleRegNumber));
+            }
+            if (closed != 1) {
+                violation("Ticket %d of %s closed %d times", entryTicket.getId(), vehicleRegNumber, closed);
+            }
+            exits++;
+        }
+
+        private int checkExit(Ticket entryTicket, Ticket exitTicket) {
+            if (exitTicket == null) {
+                return 0;
+            }
+            if (exitTicket.getId() != entryTicket.getId() || exitTicket.getParkingSpot().getId() != entryTicket.getParkingSpot().getId()) {
+                violation("Exit of %s closed ticket %d on spot %d instead of ticket %d on spot %d", entryTicket.getVehicleRegNumber(), exitTicket.getId(),
+                          exitTicket.getParkingSpot().getId(), entryTicket.getId(), entryTicket.getParkingSpot().getId());
+            }
+            return 1;
+        }
+
+        private String nextPlate() {
+            if (!absent.isEmpty() && random.nextDouble() < recurringRate) {
+                return absent.remove(random.nextInt(absent.size()));
+            }
+            return "T" + id + "N" + Integer.toString(++plateSequence, 36).toUpperCase();
+        }
+
+        private void pause() {
+            int choice = random.nextInt(4);
+            if (choice == 1) {
+                Thread.yield();
+            } else if (choice == 2) {
+                LockSupport.parkNanos(random.nextInt(200_000));
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Operation counts, throughput and invariant violations of a run.
+     */
+    public static class Result {
+        private final double       elapsedSeconds;
+        private final long         violationCount;
+        private final List<String> violations;
+        private       long         entries;
+        private       long         rejected;
+        private       long         exits;
+        private       long         duplicateExits;
+
+        private Result(double elapsedSeconds, long violationCount, List<String> violations) {
+            this.elapsedSeconds = elapsedSeconds;
+            this.violationCount = violationCount;
+            this.violations = new ArrayList<>(violations);
+        }
+
+        private void add(Worker worker) {
+            entries += worker.entries;
+            rejected += worker.rejected;
+            exits += worker.exits;
+            duplicateExits += worker.duplicateExits;
+        }
+
+        /**
+         * Gets the first invariant violations found, empty if every invariant held.
+         *
+         * @return Violation messages
+         */
+        public List<String> getViolations() {
+            return violations;
+        }
+
+        /**
+         * Gets the number of vehicles which got a spot.
+         *
+         * @return Successful entries
+         */
+        public long getEntries() {
+            return entries;
+        }
+
+        /**
+         * Gets the number of vehicles turned away because the lot was full for their type.
+         *
+         * @return Rejected entries
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Gets the number of vehicles which left.
+         *
+         * @return Exits
+         */
+        public long getExits() {
+            return exits;
+        }
+
+        /**
+         * Gets the number of exits sent twice at the same time.
+         *
+         * @return Duplicate exits
+         */
+        public long getDuplicateExits() {
+            return duplicateExits;
+        }
+
+        /**
+         * Gets the number of entries, rejected or not, and exits processed per second.
+         *
+         * @return Throughput
+         */
+        public double getOperationsPerSecond() {
+            return (entries + rejected + exits) / elapsedSeconds;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("%d entries, %d rejected, %d exits (%d sent twice) in %.1f s: %.0f operations/s, %d violations",
+                                                                   entries, rejected, exits, duplicateExits, elapsedSeconds, getOperationsPerSecond(), violationCount));
+            for (String violation : violations) {
+                report.append(System.lineSeparator()).append("  ").append(violation);
+            }
+            return report.toString();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.load;
+
+/**
+ * Latency histogram with logarithmic buckets, each bucket being 1% wider than the previous one.
+ * <p>
+ * Values are recorded in microseconds from 1 µs to one hour. A histogram is filled by a single thread; histograms of several threads are merged at the end of a run.
+ * </p>
+ */
+public class LatencyHistogram {
+
+    private static final double GROWTH      = 1.01;
+    private static final double LOG_GROWTH  = Math.log(GROWTH);
+    private static final long   MAX_MICROS  = 3_600_000_000L;
+    private static final int    BUCKETS     = bucketOf(MAX_MICROS) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private       long   total;
+    private       long   max;
+
+    /**
+     * Records a latency.
+     *
+     * @param micros Latency in microseconds
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(micros, 1), MAX_MICROS);
+        counts[bucketOf(value)]++;
+        total++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     *
+     * @param other Histogram to merge
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return Number of values
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Gets the highest recorded value.
+     *
+     * @return Maximum in microseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the value below which a given share of the recorded values fall.
+     *
+     * @param percentile Percentile between 0 and 100
+     *
+     * @return Upper bound of the bucket holding the percentile, in microseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (long) Math.ceil(Math.pow(GROWTH, i + 1)));
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf(long micros) {
+        return (int) (Math.log(micros) / LOG_GROWTH);
+    }
+}
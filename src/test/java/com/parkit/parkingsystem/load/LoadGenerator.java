@@ -0,0 +1,310 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JdbcParkingSpotDAO;
+import com.parkit.parkingsystem.dao.JdbcTicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <b>Closed-loop load generator for the entry and exit flows.</b>
+ * <p>
+ * Virtual gates call {@link ParkingService} concurrently on a fixed schedule, against the JDBC DAOs backed by an embedded database.
+ * Each gate parks vehicles until it holds its share of the lot, then alternates exits of its oldest vehicle and entries.
+ * A part of the entries are vehicles which already left, to exercise the recurring user path.
+ * </p>
+ * <p>
+ * Latencies are measured from the time an operation was scheduled to start, not from the time it actually started:
+ * when the service falls behind, the waiting time of the vehicles queued at the barrier is counted (coordinated omission correction).
+ * The raw service time is reported alongside for comparison.
+ * </p>
+ * <p>
+ * Run with <code>mvn -Pload test-compile exec:java -Dexec.args="--gates=8 --rates=50,100,200 --duration=10"</code>.
+ * </p>
+ */
+public class LoadGenerator {
+
+    private int    gates           = 8;
+    private double warmupSeconds   = 2;
+    private double durationSeconds = 10;
+    private double recurringRate   = 0.5;
+    private int    parkedPerGate   = 20;
+    private int    carSpots        = 2000;
+    private int    bikeSpots       = 1000;
+
+    private EmbeddedDataBaseConfig dataBaseConfig;
+    private ParkingService         parkingService;
+
+    /**
+     * Runs the load generator for every requested rate and prints a report line per rate.
+     *
+     * @param args Options in the form <code>--name=value</code>: gates, rates (vehicles per second, comma separated),
+     *             warmup and duration (seconds per rate), recurring (share of returning vehicles), parked (vehicles held per gate), cars and bikes (spots)
+     *
+     * @throws InterruptedException if interrupted while waiting for the gates
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator();
+        String        rates     = "50,100,200";
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            switch (option[0]) {
+                case "gates":
+                    generator.gates = Integer.parseInt(option[1]);
+                    break;
+                case "rates":
+                    rates = option[1];
+                    break;
+                case "warmup":
+                    generator.warmupSeconds = Double.parseDouble(option[1]);
+                    break;
+                case "duration":
+                    generator.durationSeconds = Double.parseDouble(option[1]);
+                    break;
+                case "recurring":
+                    generator.recurringRate = Double.parseDouble(option[1]);
+                    break;
+                case "parked":
+                    generator.parkedPerGate = Integer.parseInt(option[1]);
+                    break;
+                case "cars":
+                    generator.carSpots = Integer.parseInt(option[1]);
+                    break;
+                case "bikes":
+                    generator.bikeSpots = Integer.parseInt(option[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        System.out.println(StepResult.header());
+        for (String rate : rates.split(",")) {
+            System.out.println(generator.runStep(Double.parseDouble(rate)));
+        }
+    }
+
+    /**
+     * Sets the number of concurrent gates.
+     *
+     * @param gates Number of gates
+     */
+    public void setGates(int gates) {
+        this.gates = gates;
+    }
+
+    /**
+     * Sets the length of the warm-up and measured phases of a step.
+     *
+     * @param warmupSeconds   Warm-up duration, not measured
+     * @param durationSeconds Measured duration
+     */
+    public void setDurations(double warmupSeconds, double durationSeconds) {
+        this.warmupSeconds = warmupSeconds;
+        this.durationSeconds = durationSeconds;
+    }
+
+    /**
+     * Runs the gates at a given rate on a fresh lot.
+     *
+     * @param vehiclesPerSecond Target number of vehicles entering, and leaving, per second
+     *
+     * @return Throughput and latencies measured after warm-up
+     *
+     * @throws InterruptedException if interrupted while waiting for the gates
+     */
+    public StepResult runStep(double vehiclesPerSecond) throws InterruptedException {
+        prepareLot();
+        long intervalNanos = (long) (1e9 * gates / (2 * vehiclesPerSecond));
+        long start         = System.nanoTime() + 10_000_000L;
+        long measureStart  = start + (long) (warmupSeconds * 1e9);
+        long end           = measureStart + (long) (durationSeconds * 1e9);
+
+        List<Gate>   gateList = new ArrayList<>();
+        List<Thread> threads  = new ArrayList<>();
+        for (int g = 0; g < gates; g++) {
+            Gate gate = new Gate(g, start + g * intervalNanos / gates, intervalNanos, measureStart, end);
+            gateList.add(gate);
+            Thread thread = new Thread(gate, "load-gate-" + g);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        StepResult result = new StepResult(vehiclesPerSecond, durationSeconds);
+        for (Gate gate : gateList) {
+            result.add(gate);
+        }
+        return result;
+    }
+
+    private void prepareLot() {
+        if (dataBaseConfig == null) {
+            dataBaseConfig = new EmbeddedDataBaseConfig("load", carSpots, bikeSpots);
+            JdbcParkingSpotDAO parkingSpotDAO = new JdbcParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            JdbcTicketDAO ticketDAO = new JdbcTicketDAO();
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+            parkingService = new ParkingService(null, parkingSpotDAO, ticketDAO);
+        } else {
+            dataBaseConfig.clearDataBaseEntries();
+        }
+    }
+
+    private final class Gate implements Runnable {
+        private final int              id;
+        private final long             firstStart;
+        private final long             intervalNanos;
+        private final long             measureStart;
+        private final long             end;
+        private final Random           random;
+        private final Deque<String>    parked       = new ArrayDeque<>();
+        private final List<String>     absent       = new ArrayList<>();
+        private final LatencyHistogram entry        = new LatencyHistogram();
+        private final LatencyHistogram exit         = new LatencyHistogram();
+        private final LatencyHistogram entryService = new LatencyHistogram();
+        private final LatencyHistogram exitService  = new LatencyHistogram();
+        private       long             rejected;
+        private       long             failed;
+        private       int              plateSequence;
+
+        private Gate(int id, long firstStart, long intervalNanos, long measureStart, long end) {
+            this.id = id;
+            this.firstStart = firstStart;
+            this.intervalNanos = intervalNanos;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.random = new Random(id);
+        }
+
+        @Override
+        public void run() {
+            for (long intended = firstStart; intended < end; intended += intervalNanos) {
+                long now;
+                while ((now = System.nanoTime()) < intended) {
+                    LockSupport.parkNanos(intended - now);
+                }
+                boolean isEntry = parked.size() < parkedPerGate;
+                if (isEntry) {
+                    String vehicleRegNumber = nextPlate();
+                    Ticket ticket           = parkingService.processIncomingVehicle(random.nextInt(3) == 0 ? ParkingType.BIKE : ParkingType.CAR, vehicleRegNumber);
+                    if (ticket == null) {
+                        rejected++;
+                        absent.add(vehicleRegNumber);
+                    } else {
+                        parked.addLast(vehicleRegNumber);
+                    }
+                } else {
+                    String vehicleRegNumber = parked.removeFirst();
+                    if (parkingService.processExitingVehicle(vehicleRegNumber) == null) {
+                        failed++;
+                    }
+                    absent.add(vehicleRegNumber);
+                }
+                long done = System.nanoTime();
+                if (intended >= measureStart) {
+                    (isEntry ? entry : exit).record((done - intended) / 1000);
+                    (isEntry ? entryService : exitService).record((done - now) / 1000);
+                }
+            }
+        }
+
+        private String nextPlate() {
+            if (!absent.isEmpty() && random.nextDouble() < recurringRate) {
+                return absent.remove(random.nextInt(absent.size()));
+            }
+            return "G" + id + "N" + Integer.toString(++plateSequence, 36).toUpperCase();
+        }
+    }
+
+    /**
+     * Throughput and latencies of one rate.
+     */
+    public static class StepResult {
+        private final double           targetVehiclesPerSecond;
+        private final double           durationSeconds;
+        private final LatencyHistogram entry        = new LatencyHistogram();
+        private final LatencyHistogram exit         = new LatencyHistogram();
+        private final LatencyHistogram entryService = new LatencyHistogram();
+        private final LatencyHistogram exitService  = new LatencyHistogram();
+        private       long             rejected;
+        private       long             failed;
+
+        private StepResult(double targetVehiclesPerSecond, double durationSeconds) {
+            this.targetVehiclesPerSecond = targetVehiclesPerSecond;
+            this.durationSeconds = durationSeconds;
+        }
+
+        private void add(Gate gate) {
+            entry.add(gate.entry);
+            exit.add(gate.exit);
+            entryService.add(gate.entryService);
+            exitService.add(gate.exitService);
+            rejected += gate.rejected;
+            failed += gate.failed;
+        }
+
+        /**
+         * Gets the number of vehicles which left per second during the measured phase.
+         *
+         * @return Exit throughput
+         */
+        public double getExitsPerSecond() {
+            return exit.getCount() / durationSeconds;
+        }
+
+        /**
+         * Gets the exit latencies, corrected for coordinated omission.
+         *
+         * @return Exit latency histogram in microseconds
+         */
+        public LatencyHistogram getExitLatency() {
+            return exit;
+        }
+
+        /**
+         * Gets the entry latencies, corrected for coordinated omission.
+         *
+         * @return Entry latency histogram in microseconds
+         */
+        public LatencyHistogram getEntryLatency() {
+            return entry;
+        }
+
+        /**
+         * Gets the number of exits which could not be processed.
+         *
+         * @return Number of failed exits
+         */
+        public long getFailedExits() {
+            return failed;
+        }
+
+        static String header() {
+            return String.format("%8s %8s %8s %6s | %-34s | %-34s | %-14s | %-14s", "target/s", "entry/s", "exit/s", "full",
+                                 "entry p50/p90/p99/max (µs)", "exit p50/p90/p99/max (µs)", "entry svc p50/p99", "exit svc p50/p99");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%8.1f %8.1f %8.1f %6d | %-34s | %-34s | %-14s | %-14s", targetVehiclesPerSecond, entry.getCount() / durationSeconds,
+                                 getExitsPerSecond(), rejected, percentiles(entry), percentiles(exit),
+                                 entryService.getValueAtPercentile(50) + "/" + entryService.getValueAtPercentile(99),
+                                 exitService.getValueAtPercentile(50) + "/" + exitService.getValueAtPercentile(99));
+        }
+
+        private static String percentiles(LatencyHistogram histogram) {
+            return histogram.getValueAtPercentile(50) + "/" + histogram.getValueAtPercentile(90) + "/"
+                   + histogram.getValueAtPercentile(99) + "/" + histogram.getMax();
+        }
+    }
+}